@@ -0,0 +1,171 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Closed-loop load test of the account operations: every client sends its next request as soon as the
+ * previous one is answered, on a random account, posting a debit or reading the balance. Requests sent
+ * during the warm-up are not measured. Prints the throughput and the latency percentiles.
+ * <p>
+ * Reads fetch the balance, or the first page of operations with {@code --read=operations} (the only read of the
+ * {@code reactive} profile). The gauges named by {@code --sample} (by default the connections in use of both the
+ * JDBC and the R2DBC pools, and the live threads) are polled from {@code /actuator/metrics} while measuring: their
+ * mean divided by the throughput is the time a connection is held per request.
+ * <p>
+ * Runs with the source launcher of Java 21+ (clients are virtual threads), against an application started
+ * with the {@code loadtest} profile, which creates the accounts 1000 to 1999:
+ * <pre>
+ * java loadtest/OperationLoadTest.java --url=http://localhost:8080 --clients=1000 --warmup=10 --duration=30 --reads=50
+ * </pre>
+ */
+public class OperationLoadTest {
+
+    private static final String OPERATION = "{\"type\":\"DEBIT\",\"amount\":1.00}";
+    private static final Pattern VALUE = Pattern.compile("\"statistic\":\"VALUE\",\"value\":([0-9.Ee+-]+)");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        String url = options.getOrDefault("url", "http://localhost:8080") + "/api/v1/accounts/";
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        long warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10"))).toNanos();
+        long duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30"))).toNanos();
+        int firstAccount = Integer.parseInt(options.getOrDefault("first-account", "1000"));
+        int accounts = Integer.parseInt(options.getOrDefault("accounts", "1000"));
+        int reads = Integer.parseInt(options.getOrDefault("reads", "50"));
+        String read = "operations".equals(options.get("read")) ? "/operations?size=10" : "/balance";
+        List<String> gauges = List.of(options.getOrDefault("sample", "hikaricp.connections.active,r2dbc.pool.acquired,jvm.threads.live").split(","));
+        String metricsUrl = options.getOrDefault("url", "http://localhost:8080") + "/actuator/metrics/";
+
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long measureFrom = System.nanoTime() + warmup;
+        long measureUntil = measureFrom + duration;
+        List<Client> results = IntStream.range(0, clients).mapToObj(i -> new Client()).toList();
+        List<Sampler> samplers = gauges.stream().map(Sampler::new).toList();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Client client : results) {
+                executor.submit(() -> client.run(http, url, read, firstAccount, accounts, reads, measureFrom, measureUntil));
+            }
+            for (Sampler sampler : samplers) {
+                executor.submit(() -> sampler.run(http, metricsUrl, measureFrom, measureUntil));
+            }
+        }
+
+        long[] latencies = results.stream().flatMapToLong(client -> Arrays.stream(client.latencies, 0, client.count)).sorted().toArray();
+        long errors = results.stream().mapToLong(client -> client.errors).sum();
+        double seconds = duration / 1e9;
+        System.out.printf("clients=%d duration=%ds reads=%d%% requests=%d errors=%d throughput=%.0f req/s%n",
+                clients, (long) seconds, reads, latencies.length, errors, latencies.length / seconds);
+        System.out.printf("latency ms: p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1.0));
+        for (Sampler sampler : samplers) {
+            if (sampler.count == 0) continue;
+            double mean = sampler.sum / sampler.count;
+            System.out.printf("%s: mean=%.1f max=%.0f, held %.3f ms per request%n",
+                    sampler.gauge, mean, sampler.max, mean / (latencies.length / seconds) * 1000);
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return Double.NaN;
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "true");
+        }
+        return options;
+    }
+
+    private static final class Client {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        private void run(HttpClient http, String url, String read, int firstAccount, int accounts, int reads, long measureFrom, long measureUntil) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long now;
+            while ((now = System.nanoTime()) < measureUntil) {
+                String account = url + (firstAccount + random.nextInt(accounts));
+                boolean reading = random.nextInt(100) < reads;
+                HttpRequest request = reading
+                        ? HttpRequest.newBuilder(URI.create(account + read)).GET().build()
+                        : HttpRequest.newBuilder(URI.create(account + "/operations"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(OPERATION))
+                        .build();
+                boolean failed;
+                try {
+                    int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    // the operations of an account not debited yet are answered with 404
+                    failed = status >= 400 && !(reading && status == 404);
+                } catch (Exception ex) {
+                    failed = true;
+                }
+                long end = System.nanoTime();
+                if (now < measureFrom) continue;
+                if (failed) errors++;
+                else record(end - now);
+            }
+        }
+
+        private void record(long latency) {
+            if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = latency;
+        }
+    }
+
+    /**
+     * Polls a gauge every 100 ms while measuring, a gauge the application does not have is not sampled
+     */
+    private static final class Sampler {
+        private final String gauge;
+        private double sum;
+        private double max;
+        private int count;
+
+        private Sampler(String gauge) {
+            this.gauge = gauge;
+        }
+
+        private void run(HttpClient http, String metricsUrl, long measureFrom, long measureUntil) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(metricsUrl + gauge)).GET().build();
+            try {
+                Thread.sleep(Duration.ofNanos(Math.max(measureFrom - System.nanoTime(), 0)));
+                while (System.nanoTime() < measureUntil) {
+                    HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() == 404) return;
+                    Matcher matcher = VALUE.matcher(response.body());
+                    if (matcher.find()) {
+                        double value = Double.parseDouble(matcher.group(1));
+                        sum += value;
+                        max = Math.max(max, value);
+                        count++;
+                    }
+                    Thread.sleep(100);
+                }
+            } catch (Exception ex) {
+                // the samples taken so far are kept
+            }
+        }
+    }
+}
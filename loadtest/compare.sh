@@ -0,0 +1,34 @@
+#!/usr/bin/env bash
+# Runs the same load against the platform-thread default then the virtual-thread mode,
+# or with COMPARE=stacks against the servlet stack (MVC, JPA) then the reactive one (WebFlux, R2DBC).
+# usage: [COMPARE=threads|stacks] loadtest/compare.sh [OperationLoadTest options], with JAVA_HOME pointing to a Java 21+ JDK
+set -euo pipefail
+cd "$(dirname "$0")/.."
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+PORT=18081
+
+MODES="platform-threads virtual-threads"
+OPTIONS=()
+BUILD=()
+if [ "${COMPARE:-threads}" = stacks ]; then
+  MODES="servlet reactive"
+  # the balance is not served by the reactive stack, only built with the reactive Maven profile
+  OPTIONS=(--read=operations)
+  BUILD=(-Preactive)
+fi
+
+mvn -B -q package -DskipTests ${BUILD[@]+"${BUILD[@]}"}
+JAR=$(ls target/kata-*.jar | head -1)
+
+for mode in $MODES; do
+  profiles=loadtest
+  [ "$mode" = virtual-threads ] && profiles=loadtest,virtual-threads
+  [ "$mode" = reactive ] && profiles=loadtest,reactive
+  "$JAVA" -jar "$JAR" --server.port=$PORT --spring.profiles.active=$profiles > "target/loadtest-$mode.log" 2>&1 &
+  pid=$!
+  until curl -sf "localhost:$PORT/actuator/health" > /dev/null; do sleep 1; done
+  echo "== $mode"
+  "$JAVA" loadtest/OperationLoadTest.java --url="http://localhost:$PORT" ${OPTIONS[@]+"${OPTIONS[@]}"} "$@"
+  kill $pid
+  wait $pid || true
+done
@@ -0,0 +1,40 @@
+#!/usr/bin/env bash
+# Measures the time from the launch of the JVM to the first successful API request, for the default startup,
+# the fast-start profile, the AOT processed app (fast-start profile too) then the same with its CDS archive,
+# on the same file database migrated once by the one-shot migration step.
+# usage: loadtest/startup.sh [runs per mode, 3 by default]
+set -euo pipefail
+cd "$(dirname "$0")/.."
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+PORT=18082
+RUNS=${1:-3}
+DATABASE="--spring.datasource.url=jdbc:h2:file:$PWD/target/startup/kata;MODE=MySQL"
+
+mvn -B -q -Paot package -DskipTests > target/startup-build.log
+JAR=$(ls target/kata-*.jar | head -1)
+APP=target/app/$(basename "$JAR")
+rm -rf target/startup
+"$JAVA" -cp "$APP" com.bank.kata.MigrationApplication "$DATABASE" > target/startup-migration.log 2>&1
+
+for mode in jvm fast-start aot aot-cds; do
+  case $mode in
+    jvm) command=("$JAVA" -jar "$JAR") ;;
+    fast-start) command=("$JAVA" -jar "$JAR" --spring.profiles.active=fast-start) ;;
+    aot) command=("$JAVA" -Dspring.aot.enabled=true -jar "$APP" --spring.profiles.active=fast-start) ;;
+    aot-cds) command=("$JAVA" -XX:SharedArchiveFile=target/app/application.jsa -Dspring.aot.enabled=true -jar "$APP" --spring.profiles.active=fast-start) ;;
+  esac
+  total=0
+  for run in $(seq 1 "$RUNS"); do
+    start=$(date +%s%N)
+    "${command[@]}" --server.port=$PORT "$DATABASE" > "target/startup-$mode.log" 2>&1 &
+    pid=$!
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "localhost:$PORT/api/v1/accounts/1/balance")" = 200 ]; do sleep 0.05; done
+    elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+    total=$((total + elapsed))
+    gauge=$(curl -s "localhost:$PORT/actuator/metrics/kata.startup.first-request" | sed -n 's/.*"value":\([0-9.E]*\).*/\1/p')
+    echo "$mode run $run: first request after ${elapsed} ms (kata.startup.first-request ${gauge:-?} s)"
+    kill $pid
+    wait $pid || true
+  done
+  echo "== $mode: $((total / RUNS)) ms on average"
+done
@@ -0,0 +1,127 @@
+package com.bank.kata.benchmark;
+
+import com.bank.kata.engine.BalanceEngine;
+import com.bank.kata.engine.BalanceWriter;
+import com.bank.kata.engine.impl.ShardedBalanceEngine;
+import com.bank.kata.engine.impl.StripedBalanceEngine;
+import com.bank.kata.metrics.EngineMetrics;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.repository.AccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Debit then credit of the same amount through {@link BalanceEngine#execute}, on the {@code striped} and
+ * {@code sharded} engines with a balance writer committing nothing and accounts loaded from memory, so only the
+ * concurrency control of the engine is measured: alone, contended by every thread on one account, and spread
+ * with one account per thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountBenchmark {
+
+    private static final Money AMOUNT = Money.of("10.50");
+    private static final Money INITIAL_BALANCE = Money.of("1000.00");
+    private static final Consumer<Account> DEBIT_THEN_CREDIT = account -> {
+        account.debit(AMOUNT);
+        account.credit(AMOUNT);
+    };
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+        @Param({"striped", "sharded"})
+        String mode;
+
+        BalanceEngine balanceEngine;
+        final AtomicLong nextAccountId = new AtomicLong(2);
+
+        @Setup(Level.Trial)
+        public void start() {
+            EngineMetrics engineMetrics = new EngineMetrics(new SimpleMeterRegistry());
+            Duration backoff = Duration.ofMillis(1);
+            if ("sharded".equals(mode)) {
+                ShardedBalanceEngine sharded = new ShardedBalanceEngine(accounts(), new InMemoryBalanceWriter(), engineMetrics,
+                        0, 128, 4096, 3, backoff);
+                sharded.start();
+                balanceEngine = sharded;
+            } else {
+                balanceEngine = new StripedBalanceEngine(accounts(), new InMemoryBalanceWriter(), engineMetrics, 256, 3, backoff);
+            }
+        }
+
+        /**
+         * Account repository finding every account with the initial balance, the engines loading each account once
+         */
+        private static AccountRepository accounts() {
+            return (AccountRepository) Proxy.newProxyInstance(AccountRepository.class.getClassLoader(),
+                    new Class<?>[]{AccountRepository.class}, (proxy, method, args) -> {
+                        if (!method.getName().equals("findById")) throw new UnsupportedOperationException(method.getName());
+                        return Optional.of(Account.builder().id((Long) args[0]).balance(INITIAL_BALANCE).version(0L).build());
+                    });
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            if (balanceEngine instanceof ShardedBalanceEngine sharded) {
+                sharded.stop();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnAccount {
+        Long accountId;
+
+        @Setup(Level.Trial)
+        public void pick(Engine engine) {
+            accountId = engine.nextAccountId.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Money singleThreaded(Engine engine, OwnAccount state) {
+        return engine.balanceEngine.execute(state.accountId, DEBIT_THEN_CREDIT, Account::getBalance);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Money sameAccount(Engine engine) {
+        return engine.balanceEngine.execute(1L, DEBIT_THEN_CREDIT, Account::getBalance);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Money spreadAccounts(Engine engine, OwnAccount state) {
+        return engine.balanceEngine.execute(state.accountId, DEBIT_THEN_CREDIT, Account::getBalance);
+    }
+
+    /**
+     * Balance writer committing nothing
+     */
+    private static final class InMemoryBalanceWriter implements BalanceWriter {
+
+        @Override
+        public <T> T write(Account account, Function<Account, T> writeThrough) {
+            return writeThrough.apply(account);
+        }
+
+        @Override
+        public <T> T writeAll(List<Account> accounts, Function<List<Account>, T> writeThrough) {
+            return writeThrough.apply(accounts);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.bank.kata.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Full Spring MVC path (dispatch, validation, JSON conversion, services, H2) of {@code performOperation}
+ * and {@code getAccount}: alone, contended by every thread on one account, and spread with one account
+ * per thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AccountControllerBenchmark {
+
+    private static final String OPERATION = "{\"type\":\"DEBIT\",\"amount\":10.50}";
+
+    @State(Scope.Benchmark)
+    public static class Application {
+        BenchmarkContext context;
+        MockMvc mvc;
+
+        @Setup(Level.Trial)
+        public void start() throws Exception {
+            context = BenchmarkContext.withWeb();
+            mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context.context()).build();
+            // gives every account a first page of operations to read
+            for (int i = 0; i < BenchmarkContext.ACCOUNTS; i++) {
+                Long accountId = context.nextAccountId();
+                for (int j = 0; j < 20; j++) performOperation(mvc, accountId);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnAccount {
+        Long accountId;
+
+        @Setup(Level.Trial)
+        public void pick(Application application) {
+            accountId = application.context.nextAccountId();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public MvcResult performOperationSingleThreaded(Application application, OwnAccount state) throws Exception {
+        return performOperation(application.mvc, state.accountId);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MvcResult performOperationSameAccount(Application application) throws Exception {
+        return performOperation(application.mvc, application.context.sharedAccountId());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MvcResult performOperationSpreadAccounts(Application application, OwnAccount state) throws Exception {
+        return performOperation(application.mvc, state.accountId);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public MvcResult getAccountSingleThreaded(Application application, OwnAccount state) throws Exception {
+        return getAccount(application.mvc, state.accountId);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MvcResult getAccountSameAccount(Application application) throws Exception {
+        return getAccount(application.mvc, application.context.sharedAccountId());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MvcResult getAccountSpreadAccounts(Application application, OwnAccount state) throws Exception {
+        return getAccount(application.mvc, state.accountId);
+    }
+
+    private static MvcResult performOperation(MockMvc mvc, Long accountId) throws Exception {
+        return mvc.perform(post("/api/v1/accounts/{id}/operations", accountId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(OPERATION))
+                .andReturn();
+    }
+
+    private static MvcResult getAccount(MockMvc mvc, Long accountId) throws Exception {
+        return mvc.perform(get("/api/v1/accounts/{id}/operations", accountId)).andReturn();
+    }
+}
@@ -0,0 +1,72 @@
+package com.bank.kata.benchmark;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import com.bank.kata.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccountService#handleOperation} against the embedded H2 database, through the {@code striped} and
+ * {@code sharded} balance engines and the configured balance writer: alone, contended by every thread on one
+ * account, and spread with one account per thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AccountServiceBenchmark {
+
+    private static final Money AMOUNT = Money.of("10.50");
+
+    @State(Scope.Benchmark)
+    public static class Application {
+        @Param({"striped", "sharded"})
+        String mode;
+
+        BenchmarkContext context;
+        AccountService accountService;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = BenchmarkContext.withoutWeb("--kata.engine.mode=" + mode);
+            accountService = context.getBean(AccountService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnAccount {
+        Long accountId;
+
+        @Setup(Level.Trial)
+        public void pick(Application application) {
+            accountId = application.context.nextAccountId();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public OperationDto singleThreaded(Application application, OwnAccount state) {
+        return application.accountService.handleOperation(state.accountId, OperationType.DEBIT, AMOUNT);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public OperationDto sameAccount(Application application) {
+        return application.accountService.handleOperation(application.context.sharedAccountId(), OperationType.DEBIT, AMOUNT);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public OperationDto spreadAccounts(Application application, OwnAccount state) {
+        return application.accountService.handleOperation(state.accountId, OperationType.DEBIT, AMOUNT);
+    }
+}
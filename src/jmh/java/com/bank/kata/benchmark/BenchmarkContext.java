@@ -0,0 +1,94 @@
+package com.bank.kata.benchmark;
+
+import com.bank.kata.KataApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Application context shared by the benchmarks of one trial, on the embedded H2 database.
+ * <p>
+ * Operation logs and the balance checkpoint are turned off so they do not weigh on the measured path,
+ * and a pool of funded accounts is created so each benchmark thread can work on its own account.
+ */
+final class BenchmarkContext implements AutoCloseable {
+
+    static final int ACCOUNTS = 64;
+    static final long FIRST_ACCOUNT_ID = 1000;
+
+    private final ConfigurableApplicationContext context;
+    private final List<Long> accountIds = new ArrayList<>(ACCOUNTS);
+    private final AtomicInteger nextAccount = new AtomicInteger();
+
+    private BenchmarkContext(WebApplicationType webApplicationType, String... properties) {
+        SpringApplication application = new SpringApplication(KataApplication.class);
+        application.setWebApplicationType(webApplicationType);
+        String[] arguments = Stream.concat(Stream.of(
+                "--server.port=0",
+                "--logging.level.root=WARN",
+                "--kata.snapshot.enabled=false",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL"), Arrays.stream(properties)).toArray(String[]::new);
+        context = application.run(arguments);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (long id = FIRST_ACCOUNT_ID; id < FIRST_ACCOUNT_ID + ACCOUNTS; id++) {
+            jdbcTemplate.update("INSERT INTO account (id, balance) VALUES (?, 1000000000.00)", id);
+            accountIds.add(id);
+        }
+    }
+
+    static BenchmarkContext withoutWeb() {
+        return new BenchmarkContext(WebApplicationType.NONE);
+    }
+
+    /**
+     * @param properties extra properties of the trial, as {@code --name=value} arguments
+     */
+    static BenchmarkContext withoutWeb(String... properties) {
+        return new BenchmarkContext(WebApplicationType.NONE, properties);
+    }
+
+    static BenchmarkContext withWeb() {
+        return new BenchmarkContext(WebApplicationType.SERVLET);
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    ConfigurableApplicationContext context() {
+        return context;
+    }
+
+    /**
+     * @return the account every thread of the trial contends on
+     */
+    Long sharedAccountId() {
+        return accountIds.get(0);
+    }
+
+    /**
+     * @return the account at an index of the pool, the first ones being the hot accounts of the trial
+     */
+    Long accountId(int index) {
+        return accountIds.get(index);
+    }
+
+    /**
+     * @return an account no other thread of the trial works on
+     */
+    Long nextAccountId() {
+        return accountIds.get(nextAccount.getAndIncrement() % ACCOUNTS);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,65 @@
+package com.bank.kata.benchmark;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import com.bank.kata.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposits of every thread on one account through {@link AccountService#handleOperation}, alone or with one
+ * withdrawal every four operations, against the embedded H2 database: as a plain account serialized by the
+ * balance engine ({@code shards = 0}), and as a hot account whose deposits are spread over 1 or 8 sub-balances.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class HotAccountBenchmark {
+
+    private static final Money AMOUNT = Money.of("10.50");
+
+    @Param({"0", "1", "8"})
+    int shards;
+
+    BenchmarkContext context;
+    AccountService accountService;
+    Long accountId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = shards == 0
+                ? BenchmarkContext.withoutWeb()
+                : BenchmarkContext.withoutWeb("--kata.hot-accounts.ids=" + BenchmarkContext.FIRST_ACCOUNT_ID,
+                        "--kata.hot-accounts.shards=" + shards);
+        accountService = context.getBean(AccountService.class);
+        accountId = context.sharedAccountId();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public OperationDto deposits() {
+        return accountService.handleOperation(accountId, OperationType.DEBIT, AMOUNT);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public OperationDto depositsAndWithdrawals(Turn turn) {
+        OperationType type = turn.next++ % 4 == 3 ? OperationType.CREDIT : OperationType.DEBIT;
+        return accountService.handleOperation(accountId, type, AMOUNT);
+    }
+
+    @State(Scope.Thread)
+    public static class Turn {
+        int next;
+    }
+}
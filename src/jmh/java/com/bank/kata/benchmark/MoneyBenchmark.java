@@ -0,0 +1,44 @@
+package com.bank.kata.benchmark;
+
+import com.bank.kata.model.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Arithmetic of one debit then credit as {@code Account} runs it (sign check, add, balance check, subtract),
+ * on {@link BigDecimal} amounts as before and on {@link Money} amounts. Run with {@code -prof gc} to compare
+ * the bytes allocated per operation ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyBenchmark {
+
+    private BigDecimal decimalBalance = new BigDecimal("1000.00");
+    private BigDecimal decimalAmount = new BigDecimal("10.50");
+    private Money moneyBalance = Money.of("1000.00");
+    private Money moneyAmount = Money.of("10.50");
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        if (decimalAmount.compareTo(BigDecimal.ZERO) < 0) throw new IllegalArgumentException();
+        decimalBalance = decimalBalance.add(decimalAmount);
+        if (decimalBalance.compareTo(decimalAmount) < 0) throw new IllegalStateException();
+        decimalBalance = decimalBalance.subtract(decimalAmount);
+        return decimalBalance;
+    }
+
+    @Benchmark
+    public Money money() {
+        if (moneyAmount.isNegative()) throw new IllegalArgumentException();
+        moneyBalance = moneyBalance.add(moneyAmount);
+        if (moneyBalance.isLessThan(moneyAmount)) throw new IllegalStateException();
+        moneyBalance = moneyBalance.subtract(moneyAmount);
+        return moneyBalance;
+    }
+}
@@ -0,0 +1,112 @@
+package com.bank.kata.benchmark;
+
+import com.bank.kata.codec.OperationBinaryCodec;
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.OperationRequestDto;
+import com.bank.kata.dto.OperationSliceDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A slice of the history of operations and an operation request, encoded into a reused buffer and decoded
+ * back, with Jackson JSON configured as Spring Boot does and with {@link OperationBinaryCodec}. Run with
+ * {@code -prof gc} to compare the bytes allocated per payload ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OperationCodecBenchmark {
+
+    private static final ObjectMapper JSON = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    @Param({"10", "100"})
+    int sliceSize;
+
+    OperationSliceDto slice;
+    OperationRequestDto request;
+    byte[] jsonSlice;
+    byte[] binarySlice;
+    byte[] jsonRequest;
+    byte[] binaryRequest;
+    ByteArrayOutputStream buffer;
+    DataOutputStream out;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LocalDateTime start = LocalDateTime.now();
+        List<OperationDto> operations = new ArrayList<>(sliceSize);
+        for (int i = 0; i < sliceSize; i++) {
+            operations.add(new OperationDto(1_000_000L - i, i % 3 == 0 ? OperationType.CREDIT : OperationType.DEBIT,
+                    Money.of("10.50"), new Money(100_000L + i * 1050L), start.minusSeconds(i), i % 10 == 0 ? UUID.randomUUID() : null));
+        }
+        slice = new OperationSliceDto(operations, "MjAyNi0xMC0xN1QwOTozMDoxNXw0Mg");
+        request = new OperationRequestDto(Money.of("200.00"), OperationType.DEBIT);
+        buffer = new ByteArrayOutputStream(sliceSize * 256);
+        out = new DataOutputStream(buffer);
+        jsonSlice = JSON.writeValueAsBytes(slice);
+        jsonRequest = JSON.writeValueAsBytes(request);
+        OperationBinaryCodec.writeSlice(out, slice);
+        binarySlice = buffer.toByteArray();
+        buffer.reset();
+        OperationBinaryCodec.writeRequest(out, request);
+        binaryRequest = buffer.toByteArray();
+    }
+
+    @Benchmark
+    public int writeSliceJson() throws IOException {
+        buffer.reset();
+        JSON.writeValue(buffer, slice);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public int writeSliceBinary() throws IOException {
+        buffer.reset();
+        OperationBinaryCodec.writeSlice(out, slice);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public OperationSliceDto readSliceJson() throws IOException {
+        return JSON.readValue(jsonSlice, OperationSliceDto.class);
+    }
+
+    @Benchmark
+    public OperationSliceDto readSliceBinary() throws IOException {
+        return OperationBinaryCodec.readSlice(new DataInputStream(new ByteArrayInputStream(binarySlice)));
+    }
+
+    @Benchmark
+    public OperationRequestDto readRequestJson() throws IOException {
+        return JSON.readValue(jsonRequest, OperationRequestDto.class);
+    }
+
+    @Benchmark
+    public OperationRequestDto readRequestBinary() throws IOException {
+        return OperationBinaryCodec.readRequest(new DataInputStream(new ByteArrayInputStream(binaryRequest)));
+    }
+}
@@ -0,0 +1,66 @@
+package com.bank.kata.benchmark;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.mapper.OperationMapper;
+import com.bank.kata.mapper.OperationMapperImpl;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of an operation to its DTO, on one thread and on four threads reading the same operation
+ * or each its own.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OperationMapperBenchmark {
+
+    private static final OperationMapper MAPPER = new OperationMapperImpl();
+
+    @State(Scope.Benchmark)
+    public static class SharedOperation {
+        final Operation operation = operation();
+    }
+
+    @State(Scope.Thread)
+    public static class OwnOperation {
+        final Operation operation = operation();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public OperationDto singleThreaded(OwnOperation state) {
+        return MAPPER.toDto(state.operation);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public OperationDto sameOperation(SharedOperation state) {
+        return MAPPER.toDto(state.operation);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public OperationDto spreadOperations(OwnOperation state) {
+        return MAPPER.toDto(state.operation);
+    }
+
+    private static Operation operation() {
+        return Operation.builder()
+                .id(1L)
+                .type(OperationType.DEBIT)
+                .amount(Money.of("10.50"))
+                .balanceAfterOp(Money.of("1010.50"))
+                .dateTime(LocalDateTime.now())
+                .account(Account.builder().id(1L).build())
+                .build();
+    }
+}
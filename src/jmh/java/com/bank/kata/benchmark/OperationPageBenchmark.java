@@ -0,0 +1,74 @@
+package com.bank.kata.benchmark;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.mapper.OperationMapper;
+import com.bank.kata.repository.OperationRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A page of the operations of an account on the embedded H2 database, read as {@code Operation} entities
+ * mapped by {@link OperationMapper} as before, and as {@link OperationDto} projections in a read-only
+ * transaction. Run with {@code -prof gc} to compare the bytes allocated per page ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class OperationPageBenchmark {
+
+    private static final int OPERATIONS = 1000;
+    private static final long FIRST_OPERATION_ID = 1_000_000;
+
+    @Param({"10", "100", "1000"})
+    int pageSize;
+
+    BenchmarkContext context;
+    OperationRepository operationRepository;
+    OperationMapper operationMapper;
+    Long accountId;
+    PageRequest pageRequest;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.withoutWeb();
+        operationRepository = context.getBean(OperationRepository.class);
+        operationMapper = context.getBean(OperationMapper.class);
+        accountId = context.accountId(BenchmarkContext.ACCOUNTS - 1);
+        pageRequest = PageRequest.of(0, pageSize);
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        List<Object[]> rows = new ArrayList<>(OPERATIONS);
+        for (int i = 0; i < OPERATIONS; i++) {
+            rows.add(new Object[]{FIRST_OPERATION_ID + i, accountId, new BigDecimal("10.50"), new BigDecimal("1000.00"),
+                    "DEBIT", Timestamp.valueOf(start.plusSeconds(i))});
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate(
+                "INSERT INTO operation (id, account_id, amount, balance_after_op, type, creation_date_time) VALUES (?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<OperationDto> entities() {
+        return operationRepository.findByAccountId(accountId, pageRequest).map(operationMapper::toDto);
+    }
+
+    @Benchmark
+    public Page<OperationDto> projection() {
+        return operationRepository.findDtoByAccountId(accountId, pageRequest);
+    }
+}
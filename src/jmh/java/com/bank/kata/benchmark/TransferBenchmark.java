@@ -0,0 +1,88 @@
+package com.bank.kata.benchmark;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.TransferDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import com.bank.kata.service.AccountService;
+import com.bank.kata.service.TransferService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TransferService#handleTransfer} against the embedded H2 database: crossing transfers between a
+ * small set of hot accounts in both directions, transfers between accounts of each thread, and the same
+ * hot-account moves made as two separate operations as before transfers existed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TransferBenchmark {
+
+    private static final int HOT_ACCOUNTS = 4;
+    private static final Money AMOUNT = Money.of("10.50");
+
+    @State(Scope.Benchmark)
+    public static class Application {
+        BenchmarkContext context;
+        TransferService transferService;
+        AccountService accountService;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = BenchmarkContext.withoutWeb();
+            transferService = context.getBean(TransferService.class);
+            accountService = context.getBean(AccountService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+
+        Long hotAccountId(int index) {
+            return context.accountId(index);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnAccounts {
+        Long fromAccountId;
+        Long toAccountId;
+
+        @Setup(Level.Trial)
+        public void pick(Application application) {
+            fromAccountId = application.context.nextAccountId();
+            toAccountId = application.context.nextAccountId();
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TransferDto hotAccounts(Application application) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(HOT_ACCOUNTS);
+        int to = (from + 1 + random.nextInt(HOT_ACCOUNTS - 1)) % HOT_ACCOUNTS;
+        return application.transferService.handleTransfer(application.hotAccountId(from), application.hotAccountId(to), AMOUNT);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TransferDto spreadAccounts(Application application, OwnAccounts state) {
+        return application.transferService.handleTransfer(state.fromAccountId, state.toAccountId, AMOUNT);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public OperationDto hotAccountsAsTwoOperations(Application application) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(HOT_ACCOUNTS);
+        int to = (from + 1 + random.nextInt(HOT_ACCOUNTS - 1)) % HOT_ACCOUNTS;
+        application.accountService.handleOperation(application.hotAccountId(from), OperationType.CREDIT, AMOUNT);
+        return application.accountService.handleOperation(application.hotAccountId(to), OperationType.DEBIT, AMOUNT);
+    }
+}
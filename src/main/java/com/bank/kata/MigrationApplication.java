@@ -0,0 +1,27 @@
+package com.bank.kata;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+
+import java.util.stream.Stream;
+
+/**
+ * One-shot migration step: applies the Flyway migrations of {@code spring.flyway.*} to the database of
+ * {@code spring.datasource.*} then exits, without web server, JPA nor any component of the application.
+ * Instances started afterwards with the {@code fast-start} profile skip Flyway altogether.
+ */
+public final class MigrationApplication {
+
+    private MigrationApplication() {
+    }
+
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(DataSourceAutoConfiguration.class, FlywayAutoConfiguration.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        // migrate even when the fast-start profile is active
+        String[] arguments = Stream.concat(Stream.of("--spring.flyway.enabled=true"), Stream.of(args)).toArray(String[]::new);
+        System.exit(SpringApplication.exit(application.run(arguments)));
+    }
+}
@@ -0,0 +1,56 @@
+package com.bank.kata.archive;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Unsorted window of rows starting at any offset: the hot part of a page spanning both tiers starts where the
+ * archived operations of the page end, which is not a multiple of its size.
+ */
+record OffsetPageable(long offset, int size) implements Pageable {
+
+    @Override
+    public int getPageNumber() {
+        return (int) (offset / size);
+    }
+
+    @Override
+    public int getPageSize() {
+        return size;
+    }
+
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public Sort getSort() {
+        return Sort.unsorted();
+    }
+
+    @Override
+    public Pageable next() {
+        return new OffsetPageable(offset + size, size);
+    }
+
+    @Override
+    public Pageable previousOrFirst() {
+        return hasPrevious() ? new OffsetPageable(Math.max(0, offset - size), size) : first();
+    }
+
+    @Override
+    public Pageable first() {
+        return new OffsetPageable(0, size);
+    }
+
+    @Override
+    public Pageable withPage(int pageNumber) {
+        return new OffsetPageable((long) pageNumber * size, size);
+    }
+
+    @Override
+    public boolean hasPrevious() {
+        return offset > 0;
+    }
+}
@@ -0,0 +1,141 @@
+package com.bank.kata.archive;
+
+import com.bank.kata.dto.OperationDto;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cold tier of the operations: the months moved out of the {@code operation} table by the
+ * {@link OperationArchiver}, one {@link OperationArchiveFile} per month in {@code kata.archive.directory}.
+ * <p>
+ * The archived months are listed by the {@code operation_archive} catalog, a file is only read once its month
+ * is recorded there. Months are archived oldest first, so the cold tier holds every operation before
+ * {@link #hotFrom()} and the {@code operation} table every operation from it. Files are immutable: the footer
+ * of each one is read on first use and kept in memory, a read then inflates the block of a single account.
+ */
+@Component
+@Slf4j
+public class OperationArchive {
+
+    private static final String SELECT_MONTHS = "SELECT archive_month FROM operation_archive ORDER BY archive_month";
+    private static final String INSERT_MONTH = "INSERT INTO operation_archive (archive_month, operation_count, archived_at) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path directory;
+    private final Map<YearMonth, Map<Long, OperationArchiveFile.Group>> indexes = new ConcurrentHashMap<>();
+    private volatile List<YearMonth> months = List.of();
+
+    public OperationArchive(JdbcTemplate jdbcTemplate, @Value("${kata.archive.directory:data/archive}") Path directory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.directory = directory;
+    }
+
+    /**
+     * Reload the archived months from the catalog
+     */
+    @PostConstruct
+    public void refresh() {
+        months = jdbcTemplate.queryForList(SELECT_MONTHS, String.class).stream().map(YearMonth::parse).toList();
+        indexes.keySet().retainAll(months);
+        if (!months.isEmpty()) log.info("Operations archived from {} to {} in {}", months.get(0), months.get(months.size() - 1), directory);
+    }
+
+    /**
+     * @return the archived months, oldest first
+     */
+    public List<YearMonth> months() {
+        return months;
+    }
+
+    public boolean isEmpty() {
+        return months.isEmpty();
+    }
+
+    /**
+     * @return the start of the hot tier, every operation before it is archived, null when nothing is archived
+     */
+    public LocalDateTime hotFrom() {
+        List<YearMonth> archived = months;
+        return archived.isEmpty() ? null : archived.get(archived.size() - 1).plusMonths(1).atDay(1).atStartOfDay();
+    }
+
+    /**
+     * @return the number of archived operations of an account
+     */
+    public long count(Long accountId) {
+        long count = 0;
+        for (YearMonth month : months) {
+            count += count(month, accountId);
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of operations of an account archived for a month
+     */
+    public int count(YearMonth month, Long accountId) {
+        return group(month, accountId).map(OperationArchiveFile.Group::count).orElse(0);
+    }
+
+    /**
+     * Read the operations of an account archived for a month
+     *
+     * @return the operations, oldest first
+     */
+    public List<OperationDto> read(YearMonth month, Long accountId) {
+        Optional<OperationArchiveFile.Group> group = group(month, accountId);
+        if (group.isEmpty()) return List.of();
+        try {
+            return OperationArchiveFile.readGroup(path(month), group.get());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * The block of an account in the file of a month, telling without inflating it how many operations it
+     * holds and the period they cover
+     */
+    Optional<OperationArchiveFile.Group> group(YearMonth month, Long accountId) {
+        return Optional.ofNullable(index(month).get(accountId));
+    }
+
+    /**
+     * Record a month in the catalog, within the transaction of the caller
+     */
+    void record(YearMonth month, long operations) {
+        jdbcTemplate.update(INSERT_MONTH, month.toString(), operations, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    Path path(YearMonth month) {
+        return directory.resolve(month + OperationArchiveFile.EXTENSION);
+    }
+
+    private Map<Long, OperationArchiveFile.Group> index(YearMonth month) {
+        return indexes.computeIfAbsent(month, key -> {
+            try {
+                return OperationArchiveFile.readIndex(path(key));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+}
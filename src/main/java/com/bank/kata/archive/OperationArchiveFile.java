@@ -0,0 +1,299 @@
+package com.bank.kata.archive;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Layout of the cold tier file of a month.
+ * <pre>
+ * header   MAGIC, VERSION
+ * groups   one deflated block per account, its operations oldest first, column after column:
+ *          count, ids (first, then deltas), date times in microseconds (first, then deltas), types,
+ *          amounts in minor units, balances (first, then deltas), transfer id presence bits, transfer ids
+ * footer   count, then per account: account id, offset, length, count, first and last date times
+ * trailer  footer offset, MAGIC
+ * </pre>
+ * Deltas and amounts are zigzag varints: the ids and date times of the operations of an account are close to
+ * each other and each balance differs from the previous one by an amount, so most values fit in a few bytes
+ * before compression. The footer is read once per file, then only the block of the requested account is read
+ * and inflated.
+ */
+final class OperationArchiveFile {
+
+    static final String EXTENSION = ".ops";
+    private static final int MAGIC = 0x4B4F5053;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int TRAILER_SIZE = 12;
+    private static final OperationType[] TYPES = OperationType.values();
+
+    private OperationArchiveFile() {
+    }
+
+    /**
+     * Block of the operations of an account within a file
+     *
+     * @param first the date time of the oldest operation of the block
+     * @param last  the date time of the most recent operation of the block
+     */
+    record Group(long offset, int length, int count, LocalDateTime first, LocalDateTime last) {
+    }
+
+    /**
+     * Writes a file group after group, then its footer on {@link #finish()}
+     */
+    static final class Writer implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final Map<Long, Group> groups = new HashMap<>();
+        private final List<Long> accountIds = new ArrayList<>();
+        private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        private long position = HEADER_SIZE;
+        private long operations;
+
+        Writer(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+            write(header, 0);
+        }
+
+        /**
+         * Append the operations of an account, each account once
+         *
+         * @param operations the operations of the account, oldest first
+         */
+        void append(Long accountId, List<OperationDto> operations) throws IOException {
+            if (operations.isEmpty()) return;
+            if (groups.containsKey(accountId)) throw new IllegalStateException("Account " + accountId + " already archived in the file");
+            byte[] block = encode(operations, deflater);
+            write(ByteBuffer.wrap(block), position);
+            groups.put(accountId, new Group(position, block.length, operations.size(),
+                    operations.get(0).dateTime(), operations.get(operations.size() - 1).dateTime()));
+            accountIds.add(accountId);
+            position += block.length;
+            this.operations += operations.size();
+        }
+
+        /**
+         * @return the number of operations appended
+         */
+        long operations() {
+            return operations;
+        }
+
+        /**
+         * Write the footer and force the file to disk
+         */
+        void finish() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + accountIds.size() * 44 + TRAILER_SIZE);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(accountIds.size());
+            for (Long accountId : accountIds) {
+                Group group = groups.get(accountId);
+                out.writeLong(accountId);
+                out.writeLong(group.offset());
+                out.writeInt(group.length());
+                out.writeInt(group.count());
+                out.writeLong(micros(group.first()));
+                out.writeLong(micros(group.last()));
+            }
+            out.writeLong(position);
+            out.writeInt(MAGIC);
+            write(ByteBuffer.wrap(bytes.toByteArray()), position);
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            channel.close();
+        }
+
+        private void write(ByteBuffer buffer, long at) throws IOException {
+            while (buffer.hasRemaining()) {
+                at += channel.write(buffer, at);
+            }
+        }
+    }
+
+    /**
+     * Read the footer of a file
+     *
+     * @return the block of every account of the file
+     */
+    static Map<Long, Group> readIndex(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) throw new IOException("Truncated archive file " + path);
+            ByteBuffer header = read(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) throw new IOException("Not an archive file " + path);
+            ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC) throw new IOException("Truncated archive file " + path);
+            ByteBuffer footer = read(channel, footerOffset, (int) (size - TRAILER_SIZE - footerOffset));
+            int count = footer.getInt();
+            Map<Long, Group> groups = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                groups.put(footer.getLong(), new Group(footer.getLong(), footer.getInt(), footer.getInt(),
+                        dateTime(footer.getLong()), dateTime(footer.getLong())));
+            }
+            return groups;
+        }
+    }
+
+    /**
+     * Read the block of an account
+     *
+     * @return the operations of the account, oldest first
+     */
+    static List<OperationDto> readGroup(Path path, Group group) throws IOException {
+        ByteBuffer block;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            block = read(channel, group.offset(), group.length());
+        }
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(block.array(), 0, group.length())))) {
+            return decode(in);
+        }
+    }
+
+    private static byte[] encode(List<OperationDto> operations, Deflater deflater) throws IOException {
+        int count = operations.size();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(count * 16);
+        deflater.reset();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            writeVarLong(out, count);
+            long previous = 0;
+            for (OperationDto operation : operations) {
+                writeVarLong(out, zigzag(operation.id() - previous));
+                previous = operation.id();
+            }
+            previous = 0;
+            for (OperationDto operation : operations) {
+                long micros = micros(operation.dateTime());
+                writeVarLong(out, zigzag(micros - previous));
+                previous = micros;
+            }
+            for (OperationDto operation : operations) {
+                out.writeByte(operation.type().ordinal());
+            }
+            for (OperationDto operation : operations) {
+                writeVarLong(out, zigzag(operation.amount().minorUnits()));
+            }
+            previous = 0;
+            for (OperationDto operation : operations) {
+                writeVarLong(out, zigzag(operation.balance().minorUnits() - previous));
+                previous = operation.balance().minorUnits();
+            }
+            byte[] transfers = new byte[(count + 7) / 8];
+            for (int i = 0; i < count; i++) {
+                if (operations.get(i).transferId() != null) transfers[i / 8] |= (byte) (1 << (i % 8));
+            }
+            out.write(transfers);
+            for (OperationDto operation : operations) {
+                if (operation.transferId() == null) continue;
+                out.writeLong(operation.transferId().getMostSignificantBits());
+                out.writeLong(operation.transferId().getLeastSignificantBits());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<OperationDto> decode(DataInputStream in) throws IOException {
+        int count = (int) readVarLong(in);
+        long[] ids = new long[count];
+        long[] micros = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            ids[i] = previous += unzigzag(readVarLong(in));
+        }
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            micros[i] = previous += unzigzag(readVarLong(in));
+        }
+        byte[] types = new byte[count];
+        in.readFully(types);
+        long[] amounts = new long[count];
+        for (int i = 0; i < count; i++) {
+            amounts[i] = unzigzag(readVarLong(in));
+        }
+        long[] balances = new long[count];
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            balances[i] = previous += unzigzag(readVarLong(in));
+        }
+        byte[] transfers = new byte[(count + 7) / 8];
+        in.readFully(transfers);
+        List<OperationDto> operations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UUID transferId = (transfers[i / 8] & (1 << (i % 8))) == 0 ? null : new UUID(in.readLong(), in.readLong());
+            operations.add(new OperationDto(ids[i], TYPES[types[i]], new Money(amounts[i]), new Money(balances[i]),
+                    dateTime(micros[i]), transferId));
+        }
+        return operations;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long at, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, at + buffer.position()) < 0) throw new EOFException("Truncated archive file");
+        }
+        return buffer.flip();
+    }
+
+    private static long micros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+    }
+
+    private static LocalDateTime dateTime(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint in archive file");
+    }
+}
@@ -0,0 +1,183 @@
+package com.bank.kata.archive;
+
+import com.bank.kata.cache.AccountReadCache;
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Moves the months of operations before the current one and the {@code kata.archive.hot-months} preceding it
+ * from the {@code operation} table to the {@link OperationArchive}, oldest month first, every
+ * {@code kata.archive.interval}.
+ * <p>
+ * The rows of a month are read with a JDBC cursor ordered by account, written account after account to a
+ * temporary file, forced to disk and renamed to the file of the month. The month is then recorded in the
+ * catalog and its rows deleted in one transaction, rolled back if the rows deleted are not the ones written.
+ * A crash before the commit leaves a file no catalog entry points to, written again by the next run.
+ * <p>
+ * Operations are created with the current date time, so a month older than the hot tier gets no new row
+ * while it is archived.
+ */
+@Component
+@ConditionalOnProperty(name = "kata.archive.enabled", havingValue = "true")
+@Slf4j
+public class OperationArchiver {
+
+    public static final String ARCHIVED_COUNTER = "kata.archive.operations";
+    public static final String MONTHS_GAUGE = "kata.archive.months";
+
+    static final int FETCH_SIZE = 1000;
+    private static final String SELECT_OLDEST = "SELECT MIN(creation_date_time) FROM operation";
+    private static final String SELECT_MONTH = """
+            SELECT account_id, id, type, amount, balance_after_op, creation_date_time, transfer_id FROM operation
+            WHERE creation_date_time >= ? AND creation_date_time < ?
+            ORDER BY account_id, creation_date_time, id""";
+    private static final String DELETE_MONTH = "DELETE FROM operation WHERE creation_date_time >= ? AND creation_date_time < ?";
+
+    private final OperationArchive operationArchive;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountReadCache accountReadCache;
+    private final int hotMonths;
+    private final Counter archived;
+
+    public OperationArchiver(OperationArchive operationArchive,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             AccountReadCache accountReadCache,
+                             MeterRegistry meterRegistry,
+                             @Value("${kata.archive.hot-months:3}") int hotMonths) {
+        if (hotMonths < 1) throw new IllegalArgumentException("Archive hot months must be at least 1");
+        this.operationArchive = operationArchive;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.accountReadCache = accountReadCache;
+        this.hotMonths = hotMonths;
+        this.archived = Counter.builder(ARCHIVED_COUNTER)
+                .description("Operations moved to the cold tier")
+                .register(meterRegistry);
+        Gauge.builder(MONTHS_GAUGE, operationArchive, archive -> archive.months().size())
+                .description("Months of operations in the cold tier")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${kata.archive.interval:PT6H}", fixedDelayString = "${kata.archive.interval:PT6H}")
+    public void run() {
+        try {
+            int months = archive(YearMonth.now().minusMonths(hotMonths));
+            if (months > 0) log.info("{} months of operations archived", months);
+        } catch (RuntimeException ex) {
+            log.error("Archive of the operations failed, retrying on the next run", ex);
+        }
+    }
+
+    /**
+     * Archive the months of operations before a month, oldest first
+     *
+     * @param hotFrom the oldest month kept in the hot tier
+     * @return the number of months archived
+     */
+    int archive(YearMonth hotFrom) {
+        int months = 0;
+        Timestamp oldest;
+        while ((oldest = jdbcTemplate.queryForObject(SELECT_OLDEST, Timestamp.class)) != null) {
+            YearMonth month = YearMonth.from(oldest.toLocalDateTime());
+            if (!month.isBefore(hotFrom)) break;
+            archiveMonth(month);
+            months++;
+        }
+        return months;
+    }
+
+    private void archiveMonth(YearMonth month) {
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        if (operationArchive.months().contains(month)) throw new IllegalStateException("Operations of " + month + " found after its archive");
+        Path path = operationArchive.path(month);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Set<Long> accountIds = new HashSet<>();
+        long written;
+        try {
+            Files.createDirectories(operationArchive.directory());
+            try (OperationArchiveFile.Writer writer = new OperationArchiveFile.Writer(temporary)) {
+                writeMonth(writer, from, to, accountIds);
+                writer.finish();
+                written = writer.operations();
+            }
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            operationArchive.record(month, written);
+            int deleted = jdbcTemplate.update(DELETE_MONTH, from, to);
+            if (deleted != written) {
+                throw new IllegalStateException(deleted + " operations of " + month + " deleted for " + written + " archived");
+            }
+        });
+        operationArchive.refresh();
+        accountIds.forEach(accountReadCache::invalidate);
+        archived.increment(written);
+        log.info("{} operations of {} accounts archived for {} in {}", written, accountIds.size(), month, path);
+    }
+
+    private void writeMonth(OperationArchiveFile.Writer writer, Timestamp from, Timestamp to, Set<Long> accountIds) {
+        List<OperationDto> operations = new ArrayList<>();
+        long[] accountId = {0};
+        jdbcTemplate.query(SELECT_MONTH, ps -> {
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+        }, (RowCallbackHandler) rs -> {
+            long id = rs.getLong("account_id");
+            if (id != accountId[0]) {
+                append(writer, accountId[0], operations);
+                accountId[0] = id;
+                accountIds.add(id);
+            }
+            operations.add(new OperationDto(
+                    rs.getLong("id"),
+                    OperationType.valueOf(rs.getString("type")),
+                    Money.of(rs.getBigDecimal("amount")),
+                    Money.of(rs.getBigDecimal("balance_after_op")),
+                    rs.getTimestamp("creation_date_time").toLocalDateTime(),
+                    rs.getString("transfer_id") == null ? null : UUID.fromString(rs.getString("transfer_id"))));
+        });
+        append(writer, accountId[0], operations);
+    }
+
+    private static void append(OperationArchiveFile.Writer writer, long accountId, List<OperationDto> operations) {
+        if (operations.isEmpty()) return;
+        try {
+            writer.append(accountId, operations);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        operations.clear();
+    }
+}
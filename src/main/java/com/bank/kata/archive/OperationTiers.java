@@ -0,0 +1,159 @@
+package com.bank.kata.archive;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.repository.OperationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Routes the reads of the operations of an account across the hot tier, the {@code operation} table, and the
+ * cold tier, the {@link OperationArchive}. The cold tier only holds operations older than the hot one, so a
+ * read goes to the tier covering its position first and only continues into the other one when it is not
+ * complete. Until a month is archived every read goes straight to the {@link OperationRepository}.
+ */
+@Component
+@RequiredArgsConstructor
+public class OperationTiers {
+
+    private final OperationRepository operationRepository;
+    private final OperationArchive operationArchive;
+
+    /**
+     * Page of the operations of an account, the archived ones first as they are the oldest. The archived
+     * operations before the page are counted from the footers of the files, without being read.
+     */
+    public Page<OperationDto> findPage(Long accountId, PageRequest pageRequest) {
+        long archived = operationArchive.isEmpty() ? 0 : operationArchive.count(accountId);
+        if (archived == 0) return operationRepository.findDtoByAccountId(accountId, pageRequest);
+        int size = pageRequest.getPageSize();
+        List<OperationDto> content = new ArrayList<>(size);
+        long skip = pageRequest.getOffset();
+        for (YearMonth month : operationArchive.months()) {
+            if (content.size() == size) break;
+            int count = operationArchive.count(month, accountId);
+            if (skip >= count) {
+                skip -= count;
+                continue;
+            }
+            List<OperationDto> operations = operationArchive.read(month, accountId);
+            content.addAll(operations.subList((int) skip, (int) Math.min(count, skip + size - content.size())));
+            skip = 0;
+        }
+        long hot;
+        if (content.size() < size) {
+            Page<OperationDto> page = operationRepository.findDtoByAccountId(accountId, new OffsetPageable(skip, size - content.size()));
+            content.addAll(page.getContent());
+            hot = page.getTotalElements();
+        } else {
+            hot = operationRepository.countByAccountId(accountId);
+        }
+        return new PageImpl<>(content, pageRequest, archived + hot);
+    }
+
+    /**
+     * Most recent operations of an account
+     */
+    public List<OperationDto> findLatest(Long accountId, int limit) {
+        List<OperationDto> operations = operationRepository.findLatest(accountId, Limit.of(limit));
+        if (operations.size() == limit || operationArchive.isEmpty()) return operations;
+        return olderArchived(accountId, new ArrayList<>(operations), null, null, limit);
+    }
+
+    /**
+     * Operations of an account strictly older than the position (dateTime, id), most recent first
+     */
+    public List<OperationDto> findOlderThan(Long accountId, LocalDateTime dateTime, Long id, int limit) {
+        List<OperationDto> operations = operationRepository.findOlderThan(accountId, dateTime, id, Limit.of(limit));
+        if (operations.size() == limit || operationArchive.isEmpty()) return operations;
+        return olderArchived(accountId, new ArrayList<>(operations), dateTime, id, limit);
+    }
+
+    /**
+     * Go through the archived operations of an account within a period, oldest first
+     *
+     * @param from the lower bound (inclusive) of the operation date time, optional
+     * @param to   the upper bound (exclusive) of the operation date time, optional
+     */
+    public void forEachArchived(Long accountId, LocalDateTime from, LocalDateTime to, Consumer<OperationDto> consumer) {
+        for (YearMonth month : operationArchive.months()) {
+            if (to != null && !month.atDay(1).atStartOfDay().isBefore(to)) return;
+            Optional<OperationArchiveFile.Group> group = operationArchive.group(month, accountId);
+            if (group.isEmpty() || (from != null && group.get().last().isBefore(from))) continue;
+            for (OperationDto operation : operationArchive.read(month, accountId)) {
+                if (from != null && operation.dateTime().isBefore(from)) continue;
+                if (to != null && !operation.dateTime().isBefore(to)) return;
+                consumer.accept(operation);
+            }
+        }
+    }
+
+    /**
+     * Most recent archived operation of an account after a date time (exclusive) and at or before another one
+     *
+     * @param after the lower bound, null for none
+     */
+    public Optional<OperationDto> findLatestArchived(Long accountId, LocalDateTime after, LocalDateTime at) {
+        List<YearMonth> months = operationArchive.months();
+        for (int i = months.size() - 1; i >= 0; i--) {
+            YearMonth month = months.get(i);
+            if (after != null && !month.atEndOfMonth().plusDays(1).atStartOfDay().isAfter(after)) break;
+            Optional<OperationArchiveFile.Group> group = operationArchive.group(month, accountId);
+            if (group.isEmpty() || group.get().first().isAfter(at)) continue;
+            List<OperationDto> operations = operationArchive.read(month, accountId);
+            for (int j = operations.size() - 1; j >= 0; j--) {
+                OperationDto operation = operations.get(j);
+                if (after != null && !operation.dateTime().isAfter(after)) return Optional.empty();
+                if (!operation.dateTime().isAfter(at)) return Optional.of(operation);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Oldest archived operation of an account after a date time (exclusive)
+     */
+    public Optional<OperationDto> findFirstArchivedAfter(Long accountId, LocalDateTime after) {
+        for (YearMonth month : operationArchive.months()) {
+            Optional<OperationArchiveFile.Group> group = operationArchive.group(month, accountId);
+            if (group.isEmpty() || !group.get().last().isAfter(after)) continue;
+            for (OperationDto operation : operationArchive.read(month, accountId)) {
+                if (operation.dateTime().isAfter(after)) return Optional.of(operation);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Complete operations read from the hot tier, most recent first, with the archived ones older than the
+     * position (dateTime, id) up to the limit
+     */
+    private List<OperationDto> olderArchived(Long accountId, List<OperationDto> operations, LocalDateTime dateTime, Long id, int limit) {
+        List<YearMonth> months = operationArchive.months();
+        for (int i = months.size() - 1; i >= 0 && operations.size() < limit; i--) {
+            YearMonth month = months.get(i);
+            if (dateTime != null && month.atDay(1).atStartOfDay().isAfter(dateTime)) continue;
+            List<OperationDto> archived = operationArchive.read(month, accountId);
+            for (int j = archived.size() - 1; j >= 0 && operations.size() < limit; j--) {
+                OperationDto operation = archived.get(j);
+                if (dateTime == null || isOlder(operation, dateTime, id)) operations.add(operation);
+            }
+        }
+        return operations;
+    }
+
+    private static boolean isOlder(OperationDto operation, LocalDateTime dateTime, Long id) {
+        int compare = operation.dateTime().compareTo(dateTime);
+        return compare < 0 || (compare == 0 && operation.id() < id);
+    }
+}
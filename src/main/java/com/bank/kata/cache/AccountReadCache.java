@@ -0,0 +1,134 @@
+package com.bank.kata.cache;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.event.OperationCreatedEvent;
+import com.bank.kata.model.Money;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the current balance and of the first pages of operations of the accounts.
+ * <p>
+ * Entries are grouped per account, bounded by {@code kata.cache.max-accounts} and expire
+ * {@code kata.cache.ttl} after they are loaded; only the first {@code kata.cache.pages} pages are kept.
+ * The entry of an account is dropped once a transaction creating one of its operations has committed.
+ * A read racing with that commit fills the dropped entry, so it never shows up in later reads.
+ * <p>
+ * Hits and misses are counted as {@code kata.cache.gets} by {@code cache} ({@code operations},
+ * {@code balance}) and {@code result} ({@code hit}, {@code miss}).
+ */
+@Component
+@Slf4j
+public class AccountReadCache {
+
+    public static final String GETS = "kata.cache.gets";
+    public static final String OPERATIONS = "operations";
+    public static final String BALANCE = "balance";
+
+    /** Max number of page requests (page number and size) kept per account */
+    private static final int MAX_PAGE_REQUESTS = 16;
+
+    private final boolean enabled;
+    private final int pages;
+    private final Cache<Long, CachedAccount> cache;
+    private final Counter operationHits;
+    private final Counter operationMisses;
+    private final Counter balanceHits;
+    private final Counter balanceMisses;
+
+    public AccountReadCache(MeterRegistry meterRegistry,
+                            @Value("${kata.cache.enabled:true}") boolean enabled,
+                            @Value("${kata.cache.max-accounts:10000}") long maxAccounts,
+                            @Value("${kata.cache.pages:3}") int pages,
+                            @Value("${kata.cache.ttl:PT1M}") Duration ttl) {
+        this.enabled = enabled;
+        this.pages = pages;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxAccounts)
+                .expireAfterWrite(ttl)
+                .build();
+        this.operationHits = gets(meterRegistry, OPERATIONS, "hit");
+        this.operationMisses = gets(meterRegistry, OPERATIONS, "miss");
+        this.balanceHits = gets(meterRegistry, BALANCE, "hit");
+        this.balanceMisses = gets(meterRegistry, BALANCE, "miss");
+        Gauge.builder("kata.cache.size", cache, Cache::estimatedSize)
+                .description("Accounts held by the read cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get a page of operations of an account, loading it on a miss
+     * @param accountId the id of the account
+     * @param pageRequest the page
+     * @param loader reads the page from the database
+     */
+    public Page<OperationDto> getOperations(Long accountId, PageRequest pageRequest, Supplier<Page<OperationDto>> loader) {
+        if (!enabled || pageRequest.getPageNumber() >= pages) return loader.get();
+        CachedAccount account = cache.get(accountId, id -> new CachedAccount());
+        Page<OperationDto> page = account.pages.get(pageRequest);
+        if (page != null) {
+            operationHits.increment();
+            return page;
+        }
+        operationMisses.increment();
+        page = loader.get();
+        if (account.pages.size() < MAX_PAGE_REQUESTS) account.pages.put(pageRequest, page);
+        return page;
+    }
+
+    /**
+     * Get the current balance of an account, loading it on a miss
+     * @param accountId the id of the account
+     * @param loader reads the balance from the database
+     */
+    public Money getBalance(Long accountId, Supplier<Money> loader) {
+        if (!enabled) return loader.get();
+        CachedAccount account = cache.get(accountId, id -> new CachedAccount());
+        Money balance = account.balance;
+        if (balance != null) {
+            balanceHits.increment();
+            return balance;
+        }
+        balanceMisses.increment();
+        balance = loader.get();
+        account.balance = balance;
+        return balance;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOperationCreated(OperationCreatedEvent event) {
+        invalidate(event.operation().getAccount().getId());
+    }
+
+    public void invalidate(Long accountId) {
+        cache.invalidate(accountId);
+    }
+
+    private static Counter gets(MeterRegistry meterRegistry, String cache, String result) {
+        return Counter.builder(GETS)
+                .description("Reads of the account read cache")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class CachedAccount {
+        private final Map<PageRequest, Page<OperationDto>> pages = new ConcurrentHashMap<>();
+        private volatile Money balance;
+    }
+}
@@ -0,0 +1,165 @@
+package com.bank.kata.cache;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.journal.OperationJournal;
+import com.bank.kata.model.Money;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Results of the operations performed with an {@code Idempotency-Key}, keyed by account and key.
+ * <p>
+ * Lookups are served from memory only: entries are bounded by {@code kata.idempotency.max-keys} and expire
+ * {@code kata.idempotency.ttl} after the operation. Every key is also written to the {@code idempotency_key}
+ * table in the transaction of its operation, its primary key rejecting a second operation with the same key
+ * whose lookup missed (a concurrent retry, an evicted entry). The entries still within their time to live are
+ * loaded back from the table on startup and expired rows are purged every {@code kata.idempotency.purge-interval}.
+ * <p>
+ * Lookups are counted as {@code kata.cache.gets} with the {@code cache} tag {@code idempotency}.
+ * <p>
+ * Keys are turned off with {@code kata.idempotency.enabled: false}, which the journal write mode requires: the key
+ * row would be committed apart from the journal record of its operation, so a crash between the two could perform
+ * a retry twice. The application refuses to start with both.
+ */
+@Component
+@Slf4j
+public class IdempotencyKeyStore {
+
+    public static final String IDEMPOTENCY = "idempotency";
+
+    private static final String INSERT_KEY = "INSERT INTO idempotency_key (account_id, idempotency_key, operation_id, creation_date_time) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_OPERATION = """
+            SELECT k.account_id, k.idempotency_key, o.id, o.type, o.amount, o.balance_after_op, o.creation_date_time, o.transfer_id
+            FROM idempotency_key k JOIN operation o ON o.id = k.operation_id""";
+    private static final String DELETE_EXPIRED = "DELETE FROM idempotency_key WHERE creation_date_time < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long maxKeys;
+    private final Duration ttl;
+    private final Cache<Key, OperationDto> cache;
+    private final Counter hits;
+    private final Counter misses;
+
+    public IdempotencyKeyStore(JdbcTemplate jdbcTemplate,
+                               MeterRegistry meterRegistry,
+                               OperationJournal operationJournal,
+                               @Value("${kata.idempotency.enabled:true}") boolean enabled,
+                               @Value("${kata.idempotency.max-keys:100000}") long maxKeys,
+                               @Value("${kata.idempotency.ttl:PT24H}") Duration ttl) {
+        if (enabled && operationJournal.isEnabled()) {
+            throw new IllegalStateException("Idempotency keys are not recorded in the journal write mode, "
+                    + "set kata.idempotency.enabled to false to run it");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxKeys = maxKeys;
+        this.ttl = ttl;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .build();
+        this.hits = gets(meterRegistry, "hit");
+        this.misses = gets(meterRegistry, "miss");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The operation already performed on an account with a key, looked up in memory only
+     */
+    public Optional<OperationDto> find(Long accountId, String key) {
+        OperationDto operation = cache.getIfPresent(new Key(accountId, key));
+        (operation == null ? misses : hits).increment();
+        return Optional.ofNullable(operation);
+    }
+
+    /**
+     * Record the key of an operation in the transaction creating the operation
+     *
+     * @throws org.springframework.dao.DuplicateKeyException if the key was already used on the account
+     */
+    public void save(Long accountId, String key, OperationDto operation) {
+        jdbcTemplate.update(INSERT_KEY, accountId, key, operation.id(), Timestamp.valueOf(operation.dateTime()));
+    }
+
+    /**
+     * Keep the operation of a key in memory, once the transaction recording it has committed
+     */
+    public void remember(Long accountId, String key, OperationDto operation) {
+        cache.put(new Key(accountId, key), operation);
+    }
+
+    /**
+     * Read the operation of a key from the table, when its insert was rejected by the primary key
+     */
+    public Optional<OperationDto> load(Long accountId, String key) {
+        List<OperationDto> operations = jdbcTemplate.query(SELECT_OPERATION + " WHERE k.account_id = ? AND k.idempotency_key = ?",
+                (rs, rowNum) -> toDto(rs), accountId, key);
+        operations.forEach(operation -> remember(accountId, key, operation));
+        return operations.stream().findFirst();
+    }
+
+    /**
+     * Load the most recent keys still within their time to live, so that retries arriving after a restart are replayed
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) return;
+        LocalDateTime since = LocalDateTime.now().minus(ttl);
+        jdbcTemplate.query(SELECT_OPERATION + " WHERE k.creation_date_time >= ? ORDER BY k.creation_date_time DESC LIMIT ?",
+                (RowCallbackHandler) rs -> remember(rs.getLong("account_id"), rs.getString("idempotency_key"), toDto(rs)),
+                Timestamp.valueOf(since), maxKeys);
+        log.info("{} idempotency keys loaded", cache.estimatedSize());
+    }
+
+    @Scheduled(initialDelayString = "${kata.idempotency.purge-interval:PT1H}", fixedDelayString = "${kata.idempotency.purge-interval:PT1H}")
+    public void purge() {
+        if (!enabled) return;
+        int purged = jdbcTemplate.update(DELETE_EXPIRED, Timestamp.valueOf(LocalDateTime.now().minus(ttl)));
+        log.info("{} expired idempotency keys purged", purged);
+    }
+
+    private static OperationDto toDto(ResultSet rs) throws SQLException {
+        return new OperationDto(
+                rs.getLong("id"),
+                OperationType.valueOf(rs.getString("type")),
+                Money.of(rs.getBigDecimal("amount")),
+                Money.of(rs.getBigDecimal("balance_after_op")),
+                rs.getTimestamp("creation_date_time").toLocalDateTime(),
+                rs.getString("transfer_id") == null ? null : UUID.fromString(rs.getString("transfer_id")));
+    }
+
+    private static Counter gets(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(AccountReadCache.GETS)
+                .description("Lookups of the operations performed with an idempotency key")
+                .tag("cache", IDEMPOTENCY)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Key(Long accountId, String key) {
+    }
+}
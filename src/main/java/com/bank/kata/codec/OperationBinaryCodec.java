@@ -0,0 +1,140 @@
+package com.bank.kata.codec;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.OperationRequestDto;
+import com.bank.kata.dto.OperationSliceDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Fixed-layout binary form of the operation payloads, big-endian, for the callers negotiating
+ * {@link OperationBinaryHttpMessageConverter#MEDIA_TYPE}. Amounts are written as their minor units and date
+ * times as epoch seconds and nanoseconds of the local date time, so neither decimals nor dates go through text.
+ * <pre>
+ * request    type (1, ordinal), amount (8)
+ * operation  id (8), type (1), amount (8), balance (8), date time seconds (8) and nanos (4),
+ *            transfer id flag (1), transfer id (16, zeros without transfer id)
+ * page       total elements (8), page number (4), page size (4), count (4), count operations
+ * slice      count (4), count operations, cursor length (2, -1 without next slice), cursor (ASCII)
+ * </pre>
+ */
+public final class OperationBinaryCodec {
+
+    public static final int REQUEST_SIZE = 9;
+    public static final int OPERATION_SIZE = 54;
+    private static final OperationType[] TYPES = OperationType.values();
+
+    private OperationBinaryCodec() {
+    }
+
+    public static void writeRequest(DataOutput out, OperationRequestDto request) throws IOException {
+        out.writeByte(request.type().ordinal());
+        out.writeLong(request.amount().minorUnits());
+    }
+
+    public static OperationRequestDto readRequest(DataInput in) throws IOException {
+        OperationType type = readType(in);
+        return new OperationRequestDto(new Money(in.readLong()), type);
+    }
+
+    public static void writeOperation(DataOutput out, OperationDto operation) throws IOException {
+        out.writeLong(operation.id());
+        out.writeByte(operation.type().ordinal());
+        out.writeLong(operation.amount().minorUnits());
+        out.writeLong(operation.balance().minorUnits());
+        out.writeLong(operation.dateTime().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(operation.dateTime().getNano());
+        UUID transferId = operation.transferId();
+        out.writeBoolean(transferId != null);
+        out.writeLong(transferId == null ? 0 : transferId.getMostSignificantBits());
+        out.writeLong(transferId == null ? 0 : transferId.getLeastSignificantBits());
+    }
+
+    public static OperationDto readOperation(DataInput in) throws IOException {
+        long id = in.readLong();
+        OperationType type = readType(in);
+        Money amount = new Money(in.readLong());
+        Money balance = new Money(in.readLong());
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        boolean transfer = in.readBoolean();
+        UUID transferId = new UUID(in.readLong(), in.readLong());
+        return new OperationDto(id, type, amount, balance, dateTime, transfer ? transferId : null);
+    }
+
+    public static void writePage(DataOutput out, Page<OperationDto> page) throws IOException {
+        out.writeLong(page.getTotalElements());
+        out.writeInt(page.getNumber());
+        out.writeInt(page.getSize());
+        writeOperations(out, page.getContent());
+    }
+
+    public static Page<OperationDto> readPage(DataInput in) throws IOException {
+        long total = in.readLong();
+        int number = in.readInt();
+        int size = in.readInt();
+        return new PageImpl<>(readOperations(in), PageRequest.of(number, size), total);
+    }
+
+    public static void writeSlice(DataOutput out, OperationSliceDto slice) throws IOException {
+        writeOperations(out, slice.content());
+        if (slice.nextCursor() == null) {
+            out.writeShort(-1);
+        } else {
+            out.writeShort(slice.nextCursor().length());
+            out.writeBytes(slice.nextCursor());
+        }
+    }
+
+    public static OperationSliceDto readSlice(DataInput in) throws IOException {
+        List<OperationDto> content = readOperations(in);
+        short length = in.readShort();
+        if (length < 0) return new OperationSliceDto(content, null);
+        byte[] cursor = new byte[length];
+        in.readFully(cursor);
+        return new OperationSliceDto(content, new String(cursor, StandardCharsets.US_ASCII));
+    }
+
+    public static int length(Page<OperationDto> page) {
+        return 16 + 4 + page.getNumberOfElements() * OPERATION_SIZE;
+    }
+
+    public static int length(OperationSliceDto slice) {
+        return 4 + slice.content().size() * OPERATION_SIZE + 2 + (slice.nextCursor() == null ? 0 : slice.nextCursor().length());
+    }
+
+    private static void writeOperations(DataOutput out, List<OperationDto> operations) throws IOException {
+        out.writeInt(operations.size());
+        for (OperationDto operation : operations) {
+            writeOperation(out, operation);
+        }
+    }
+
+    private static List<OperationDto> readOperations(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) throw new IOException("Invalid operation count " + count);
+        List<OperationDto> operations = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            operations.add(readOperation(in));
+        }
+        return operations;
+    }
+
+    private static OperationType readType(DataInput in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= TYPES.length) throw new IOException("Unknown operation type " + ordinal);
+        return TYPES[ordinal];
+    }
+}
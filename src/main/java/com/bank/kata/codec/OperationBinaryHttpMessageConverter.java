@@ -0,0 +1,101 @@
+package com.bank.kata.codec;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.OperationRequestDto;
+import com.bank.kata.dto.OperationSliceDto;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Reads and writes the operation payloads in the {@link OperationBinaryCodec} layout, for the callers sending
+ * or accepting {@value #MEDIA_TYPE_VALUE}: the operation request, an operation, a page of operations and a
+ * slice of the history. Operations are encoded straight into the response stream, the exact length of each
+ * payload being known up front it is sent as {@code Content-Length}.
+ */
+@Component
+public class OperationBinaryHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.kata.operation+binary";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    public OperationBinaryHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    /**
+     * Pages are only supported through {@link #canWrite(Type, Class, MediaType)}, which checks they hold operations
+     */
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == OperationRequestDto.class || clazz == OperationDto.class || clazz == OperationSliceDto.class;
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return type == OperationRequestDto.class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        if (Page.class.isAssignableFrom(clazz)) {
+            // only pages known to hold operations, a page of unknown elements is left to the other converters
+            return type != null && ResolvableType.forType(type).as(Page.class).getGeneric(0).resolve() == OperationDto.class
+                    && canWrite(mediaType);
+        }
+        return clazz != OperationRequestDto.class && canWrite(clazz, mediaType);
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return readInternal(OperationRequestDto.class, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return OperationBinaryCodec.readRequest(new DataInputStream(inputMessage.getBody()));
+        } catch (EOFException ex) {
+            throw new HttpMessageNotReadableException("Truncated binary operation request", ex, inputMessage);
+        } catch (IOException ex) {
+            throw new HttpMessageNotReadableException("Invalid binary operation request: " + ex.getMessage(), ex, inputMessage);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object payload, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputMessage.getBody());
+        if (payload instanceof OperationDto operation) {
+            OperationBinaryCodec.writeOperation(out, operation);
+        } else if (payload instanceof OperationSliceDto slice) {
+            OperationBinaryCodec.writeSlice(out, slice);
+        } else if (payload instanceof Page<?> page) {
+            OperationBinaryCodec.writePage(out, (Page<OperationDto>) page);
+        } else {
+            throw new IllegalArgumentException("Unsupported binary payload " + payload.getClass());
+        }
+        out.flush();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Long getContentLength(Object payload, @Nullable MediaType contentType) {
+        if (payload instanceof OperationDto) return (long) OperationBinaryCodec.OPERATION_SIZE;
+        if (payload instanceof OperationSliceDto slice) return (long) OperationBinaryCodec.length(slice);
+        if (payload instanceof Page<?> page) return (long) OperationBinaryCodec.length((Page<OperationDto>) page);
+        return null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.bank.kata.config;
+
+import com.bank.kata.model.Money;
+import org.springdoc.core.utils.SpringDocUtils;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+
+@Configuration
+public class OpenApiConfig {
+    static {
+        // Money is written in JSON as a decimal number
+        SpringDocUtils.getConfig().replaceWithClass(Money.class, BigDecimal.class);
+    }
+}
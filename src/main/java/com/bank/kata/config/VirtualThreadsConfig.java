@@ -0,0 +1,23 @@
+package com.bank.kata.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Refuse to start with virtual threads enabled on a runtime older than Java 21, where Spring Boot ignores the
+ * property and the {@code virtual-threads} profile would silently run on platform threads
+ */
+@Configuration
+@ConditionalOnProperty("spring.threads.virtual.enabled")
+public class VirtualThreadsConfig {
+
+    static final int MIN_JAVA_VERSION = 21;
+
+    public VirtualThreadsConfig() {
+        int version = Runtime.version().feature();
+        if (version < MIN_JAVA_VERSION) {
+            throw new IllegalStateException("spring.threads.virtual.enabled needs Java " + MIN_JAVA_VERSION
+                    + " or later, the application runs on Java " + version);
+        }
+    }
+}
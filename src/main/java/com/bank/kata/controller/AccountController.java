@@ -1,44 +1,158 @@
 package com.bank.kata.controller;
 
+import com.bank.kata.codec.OperationBinaryHttpMessageConverter;
+import com.bank.kata.dto.BalanceDto;
+import com.bank.kata.dto.BatchOperationRequestDto;
+import com.bank.kata.dto.BatchOperationResultDto;
 import com.bank.kata.dto.OperationDto;
 import com.bank.kata.dto.OperationRequestDto;
+import com.bank.kata.dto.OperationSliceDto;
+import com.bank.kata.dto.OperationTicketDto;
+import com.bank.kata.dto.StatementDto;
+import com.bank.kata.dto.TransferDto;
+import com.bank.kata.dto.TransferRequestDto;
+import com.bank.kata.enums.ExportFormat;
 import com.bank.kata.service.AccountService;
+import com.bank.kata.service.AsyncOperationService;
+import com.bank.kata.service.BalanceService;
+import com.bank.kata.service.BatchOperationService;
+import com.bank.kata.service.OperationEventService;
+import com.bank.kata.service.OperationExportService;
 import com.bank.kata.service.OperationService;
+import com.bank.kata.service.StatementService;
+import com.bank.kata.service.TransferService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/v1/accounts")
 @RequiredArgsConstructor
 @Tag(name = "Account",description = "Rest Service to manage account")
 @Slf4j
 public class AccountController {
 
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String LAST_EVENT_ID = "Last-Event-ID";
+
     private final AccountService accountService;
     private final OperationService operationService;
+    private final OperationExportService operationExportService;
+    private final BatchOperationService batchOperationService;
+    private final BalanceService balanceService;
+    private final StatementService statementService;
+    private final TransferService transferService;
+    private final AsyncOperationService asyncOperationService;
+    private final OperationEventService operationEventService;
 
 
     /**
      * Perform an operation (debit/credit) on account
      *
      * @param id The id for account to debit
+     * @param idempotencyKey optional key of the operation, a retry with the same key returns the first result
      * @param operationRequestDto  The operation's data to perform (Type,amount ...)
      * @return the created operation
      */
-    @PostMapping(value = "/{id}/operations",consumes = MediaType.APPLICATION_JSON_VALUE,produces = MediaType.APPLICATION_JSON_VALUE)
-    @Operation(summary = "Perform operation",description = "Make a deposit or withdraw operation")
+    @PostMapping(value = "/{id}/operations",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, OperationBinaryHttpMessageConverter.MEDIA_TYPE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, OperationBinaryHttpMessageConverter.MEDIA_TYPE_VALUE})
+    @Operation(summary = "Perform operation",description = "Make a deposit or withdraw operation, at most once per Idempotency-Key")
     @ResponseStatus(HttpStatus.CREATED)
-    public OperationDto performOperation(@PathVariable("id") Long id , @Valid @RequestBody OperationRequestDto operationRequestDto) {
+    public OperationDto performOperation(@PathVariable("id") Long id ,
+                                         @RequestHeader(name = IDEMPOTENCY_KEY, required = false) @Size(min = 1, max = 64) String idempotencyKey,
+                                         @Valid @RequestBody OperationRequestDto operationRequestDto) {
         log.info("Operation {} requested for account {}", operationRequestDto.type(),id);
-        return accountService.handleOperation(id,operationRequestDto.type(),operationRequestDto.amount());
+        return accountService.handleOperation(id,operationRequestDto.type(),operationRequestDto.amount(),idempotencyKey);
+    }
+
+    /**
+     * Submit an operation (debit/credit) on account without waiting for it, its outcome is polled with the ticket
+     *
+     * @param id The id for account to debit
+     * @param operationRequestDto  The operation's data to perform (Type,amount ...)
+     * @return the pending ticket of the operation, located by the Location header
+     */
+    @PostMapping(value = "/{id}/operations:async",consumes = MediaType.APPLICATION_JSON_VALUE,produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Submit operation",description = "Queue a deposit or withdraw operation and return a ticket to poll its outcome, 429 when the queue is full")
+    public ResponseEntity<OperationTicketDto> submitOperation(@PathVariable("id") Long id, @Valid @RequestBody OperationRequestDto operationRequestDto) {
+        log.info("Asynchronous operation {} requested for account {}", operationRequestDto.type(),id);
+        OperationTicketDto ticket = asyncOperationService.submit(id, operationRequestDto.type(), operationRequestDto.amount());
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/v1/accounts/operations/tickets/{ticket}")
+                        .buildAndExpand(ticket.ticket())
+                        .toUri())
+                .body(ticket);
+    }
+
+    /**
+     * Fetch the outcome of an operation submitted asynchronously, waiting for it up to a number of seconds
+     *
+     * @param ticket the ticket returned on submission
+     * @param wait the number of seconds to wait for a pending operation (optional, default to 0, max 30)
+     * @return the ticket, still pending if the operation was not handled within the wait
+     */
+    @GetMapping("/operations/tickets/{ticket}")
+    @Operation(summary = "Get operation ticket",description = "Poll the outcome of an operation submitted asynchronously, long polling with wait")
+    @ResponseStatus(HttpStatus.OK)
+    public CompletableFuture<OperationTicketDto> getOperationTicket(@PathVariable UUID ticket,
+                                                                    @RequestParam(defaultValue = "0") @Min(0) @Max(30) int wait) {
+        return asyncOperationService.awaitTicket(ticket, Duration.ofSeconds(wait));
+    }
+
+    /**
+     * Transfer an amount from an account to another, both operations are applied atomically
+     *
+     * @param id The id of the account to withdraw the amount from
+     * @param transferRequestDto The target account and the amount
+     * @return the transfer and its two operations
+     */
+    @PostMapping(value = "/{id}/transfers",consumes = MediaType.APPLICATION_JSON_VALUE,produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Perform transfer",description = "Withdraw an amount from an account and deposit it on another one in a single transaction")
+    @ResponseStatus(HttpStatus.CREATED)
+    public TransferDto performTransfer(@PathVariable("id") Long id, @Valid @RequestBody TransferRequestDto transferRequestDto) {
+        log.info("Transfer requested from account {} to account {}", id, transferRequestDto.toAccountId());
+        return transferService.handleTransfer(id, transferRequestDto.toAccountId(), transferRequestDto.amount());
+    }
+
+    /**
+     * Perform a batch of operations (debit/credit) on one or many accounts in a single request
+     *
+     * @param batchOperationRequestDto the operations to perform and the batch mode
+     * @return the outcome of each operation
+     */
+    @PostMapping(value = "/operations:batch",consumes = MediaType.APPLICATION_JSON_VALUE,produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Perform batch of operations",description = "Make many deposit or withdraw operations, all or nothing or best effort")
+    @ResponseStatus(HttpStatus.OK)
+    public BatchOperationResultDto performOperations(@Valid @RequestBody BatchOperationRequestDto batchOperationRequestDto) {
+        log.info("Batch of {} operations requested in mode {}", batchOperationRequestDto.operations().size(), batchOperationRequestDto.mode());
+        return batchOperationService.handleOperations(batchOperationRequestDto);
     }
 
 
@@ -52,7 +166,7 @@ public class AccountController {
      * @param size the max number of operation to fetch in the page (optional, default to 10)
      * @return Page<OperationDto> and status OK (200)
      */
-    @GetMapping("/{id}/operations")
+    @GetMapping(value = "/{id}/operations", produces = {MediaType.APPLICATION_JSON_VALUE, OperationBinaryHttpMessageConverter.MEDIA_TYPE_VALUE})
     @ResponseStatus(HttpStatus.OK)
     public Page<OperationDto> getAccount(@PathVariable Long id,
                                                          @RequestParam(defaultValue = "0") int page,
@@ -61,6 +175,120 @@ public class AccountController {
         return operationService.getAccountOperations(id, PageRequest.of(page, size));
     }
 
+    /**
+     *
+     * Fetch the history of operations for an account, most recent first, slice by slice
+     *
+     * @param id     the id of the account
+     * @param cursor the cursor returned with the previous slice (optional, omit it for the first slice)
+     * @param size   the max number of operation to fetch in the slice (optional, default to 10)
+     * @return OperationSliceDto and status OK (200)
+     */
+    @GetMapping(value = "/{id}/operations/history", produces = {MediaType.APPLICATION_JSON_VALUE, OperationBinaryHttpMessageConverter.MEDIA_TYPE_VALUE})
+    @Operation(summary = "Operations history",description = "Fetch the operations slice by slice with a cursor, without total count")
+    @ResponseStatus(HttpStatus.OK)
+    public OperationSliceDto getAccountHistory(@PathVariable Long id,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "10") @Min(1) @Max(1000) int size) {
+        log.info("Received get operations history request for account {}", id);
+        return operationService.getAccountOperationHistory(id, cursor, size);
+    }
+
+    /**
+     *
+     * Fetch the balance of an account, now or at a point in time
+     *
+     * @param id the id of the account
+     * @param at the point in time (optional, default to the current balance)
+     * @return BalanceDto and status OK (200)
+     */
+    @GetMapping("/{id}/balance")
+    @Operation(summary = "Balance",description = "Fetch the current balance or the balance at a point in time")
+    @ResponseStatus(HttpStatus.OK)
+    public BalanceDto getBalance(@PathVariable Long id,
+                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        log.info("Received get balance request for account {}", id);
+        return at == null ? balanceService.getBalance(id) : balanceService.getBalanceAt(id, at);
+    }
+
+    /**
+     *
+     * Fetch the statement of an account over a period: opening and closing balance, totals and counts
+     *
+     * @param id   the id of the account
+     * @param from the first day of the period
+     * @param to   the last day of the period, inclusive
+     * @return StatementDto and status OK (200)
+     */
+    @GetMapping("/{id}/statement")
+    @Operation(summary = "Statement",description = "Fetch the opening and closing balance, the totals and counts of operations over a period")
+    @ResponseStatus(HttpStatus.OK)
+    public StatementDto getStatement(@PathVariable Long id,
+                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.info("Received get statement request for account {}", id);
+        return statementService.getStatement(id, from, to);
+    }
+
+    /**
+     *
+     * Stream the full history of operations for an account, oldest first
+     *
+     * @param id     the id of the account
+     * @param format the format of the export, NDJSON or CSV (optional, default to NDJSON)
+     * @param from   the min date time of the operations, inclusive (optional)
+     * @param to     the max date time of the operations, exclusive (optional)
+     * @return the operations streamed as an attachment and status OK (200)
+     */
+    @GetMapping("/{id}/operations/export")
+    @Operation(summary = "Export operations",description = "Stream all the operations of an account as NDJSON or CSV")
+    public ResponseEntity<StreamingResponseBody> exportOperations(@PathVariable Long id,
+                                                                  @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.info("Received export operations request for account {}", id);
+        StreamingResponseBody body = operationExportService.exportOperations(id, format, from, to);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("account-" + id + "-operations." + format.getExtension()).build().toString())
+                .body(body);
+    }
+
+    /**
+     *
+     * Stream the operations created on an account as Server-Sent Events, from an offset
+     *
+     * @param id          the id of the account
+     * @param from        the offset of the last event already received (optional, default to the new events only)
+     * @param lastEventId the id of the last event received, sent back on reconnection, takes precedence over from
+     * @return the event stream
+     */
+    @GetMapping("/{id}/operations/events")
+    @Operation(summary = "Operation events",description = "Subscribe to the operations of an account as Server-Sent Events, resuming from an offset")
+    public SseEmitter streamAccountOperationEvents(@PathVariable Long id,
+                                                   @RequestParam(required = false) @Min(0) Long from,
+                                                   @RequestHeader(name = LAST_EVENT_ID, required = false) @Min(0) Long lastEventId) {
+        log.info("Received operation events subscription for account {}", id);
+        return operationEventService.subscribe(id, lastEventId != null ? lastEventId : from);
+    }
+
+    /**
+     *
+     * Stream the operations created on all accounts as Server-Sent Events, from an offset
+     *
+     * @param from        the offset of the last event already received (optional, default to the new events only)
+     * @param lastEventId the id of the last event received, sent back on reconnection, takes precedence over from
+     * @return the event stream
+     */
+    @GetMapping("/operations/events")
+    @Operation(summary = "All operation events",description = "Subscribe to the operations of all accounts as Server-Sent Events, resuming from an offset")
+    public SseEmitter streamOperationEvents(@RequestParam(required = false) @Min(0) Long from,
+                                            @RequestHeader(name = LAST_EVENT_ID, required = false) @Min(0) Long lastEventId) {
+        log.info("Received operation events subscription for all accounts");
+        return operationEventService.subscribe(null, lastEventId != null ? lastEventId : from);
+    }
+
 }
 
 
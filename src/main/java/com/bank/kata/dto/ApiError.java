@@ -2,6 +2,7 @@ package com.bank.kata.dto;
 
 import lombok.Builder;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDateTime;
@@ -23,4 +24,14 @@ public record ApiError(
                 .timestamp(LocalDateTime.now())
                 .build();
     }
+
+    public static ApiError create(String message, HttpStatus httpStatus, ServerHttpRequest request){
+        return ApiError.builder()
+                .error(httpStatus.name())
+                .status(httpStatus.value())
+                .message(message)
+                .path(request.getPath().value())
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
 }
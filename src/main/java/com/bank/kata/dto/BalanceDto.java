@@ -0,0 +1,11 @@
+package com.bank.kata.dto;
+
+import com.bank.kata.model.Money;
+
+import java.time.LocalDateTime;
+
+public record BalanceDto(
+     Long accountId,
+     Money balance,
+     LocalDateTime at
+){}
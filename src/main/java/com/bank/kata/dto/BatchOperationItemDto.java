@@ -0,0 +1,23 @@
+package com.bank.kata.dto;
+
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+
+@Schema
+@Builder
+public record BatchOperationItemDto(
+    @Schema
+    @NotNull
+    Long accountId,
+    @Schema
+    @NotNull
+    @DecimalMin(value = "0.0")
+    Money amount,
+    @Schema
+    @NotNull
+    OperationType type){
+}
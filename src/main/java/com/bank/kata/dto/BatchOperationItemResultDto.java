@@ -0,0 +1,20 @@
+package com.bank.kata.dto;
+
+import com.bank.kata.enums.BatchItemStatus;
+
+/**
+ * Outcome of one operation of a batch
+ *
+ * @param index     the position of the operation in the request
+ * @param accountId the id of the account
+ * @param status    the outcome of the operation
+ * @param operation the created operation, only when succeeded
+ * @param error     the reason of the failure, only when failed
+ */
+public record BatchOperationItemResultDto(
+     int index,
+     Long accountId,
+     BatchItemStatus status,
+     OperationDto operation,
+     String error
+){}
@@ -0,0 +1,23 @@
+package com.bank.kata.dto;
+
+import com.bank.kata.enums.BatchMode;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+import java.util.List;
+
+@Schema
+@Builder
+public record BatchOperationRequestDto(
+    @Schema(description = "ALL_OR_NOTHING commits the operations only if all of them succeed, BEST_EFFORT commits every operation that succeeds")
+    @NotNull
+    BatchMode mode,
+    @Schema
+    @NotEmpty
+    @Size(max = 10000)
+    List<@Valid @NotNull BatchOperationItemDto> operations){
+}
@@ -0,0 +1,18 @@
+package com.bank.kata.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch of operations
+ *
+ * @param committed true when at least one operation was committed
+ * @param succeeded the number of committed operations
+ * @param failed    the number of rejected operations
+ * @param results   the outcome of each operation, in the order of the request
+ */
+public record BatchOperationResultDto(
+     boolean committed,
+     int succeeded,
+     int failed,
+     List<BatchOperationItemResultDto> results
+){}
@@ -0,0 +1,42 @@
+package com.bank.kata.dto;
+
+import com.bank.kata.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the history of operations of an account, the history being ordered from the most
+ * recent operation by (creation date time, id). Exposed to clients as an opaque string.
+ */
+public record OperationCursor(LocalDateTime dateTime, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static OperationCursor of(OperationDto operation) {
+        return new OperationCursor(operation.dateTime(), operation.id());
+    }
+
+    public String encode() {
+        String raw = dateTime.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor sent back by a client
+     *
+     * @throws InvalidCursorException if the cursor was not produced by {@link #encode()}
+     */
+    public static OperationCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) throw new InvalidCursorException(cursor);
+            return new OperationCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
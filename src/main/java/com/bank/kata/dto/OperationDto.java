@@ -1,14 +1,20 @@
 package com.bank.kata.dto;
 
 import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 public record OperationDto(
      Long id,
      OperationType type,
-     BigDecimal amount,
-     BigDecimal balance,
-     LocalDateTime dateTime
+     Money amount,
+     Money balance,
+     LocalDateTime dateTime,
+     @Schema(description = "The transfer the operation is one side of, only present on the operations of a transfer")
+     @JsonInclude(JsonInclude.Include.NON_NULL)
+     UUID transferId
 ){}
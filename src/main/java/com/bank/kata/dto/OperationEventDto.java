@@ -0,0 +1,31 @@
+package com.bank.kata.dto;
+
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Operation created on an account, as relayed from the operation outbox to the event sinks
+ *
+ * @param offset      the position of the event in the stream, increasing in the commit order of the operations,
+ *                    to resume a subscription from
+ * @param operationId the id of the operation
+ * @param accountId   the id of the account
+ * @param type        the type of the operation
+ * @param amount      the amount of the operation
+ * @param balance     the balance of the account right after the operation
+ * @param dateTime    the date time of the operation
+ * @param transferId  the transfer the operation is one side of, null for a plain operation
+ */
+public record OperationEventDto(
+     long offset,
+     Long operationId,
+     Long accountId,
+     OperationType type,
+     Money amount,
+     Money balance,
+     LocalDateTime dateTime,
+     UUID transferId
+){}
@@ -0,0 +1,18 @@
+package com.bank.kata.dto;
+
+import java.util.List;
+
+/**
+ * A slice of the history of operations, without total count
+ *
+ * @param content    the operations of the slice, most recent first
+ * @param nextCursor the cursor to fetch the next slice, null when this slice is the last one
+ */
+public record OperationSliceDto(
+     List<OperationDto> content,
+     String nextCursor
+){
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.bank.kata.dto;
+
+import com.bank.kata.enums.TicketStatus;
+
+import java.util.UUID;
+
+/**
+ * Outcome of an operation submitted asynchronously
+ *
+ * @param ticket    the id of the ticket, to poll the outcome with
+ * @param accountId the id of the account
+ * @param status    the outcome of the operation, pending until a worker has handled it
+ * @param operation the created operation, only when succeeded
+ * @param error     the reason of the failure, only when failed
+ */
+public record OperationTicketDto(
+     UUID ticket,
+     Long accountId,
+     TicketStatus status,
+     OperationDto operation,
+     String error
+){}
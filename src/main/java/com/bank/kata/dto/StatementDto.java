@@ -0,0 +1,17 @@
+package com.bank.kata.dto;
+
+import com.bank.kata.model.Money;
+
+import java.time.LocalDate;
+
+public record StatementDto(
+     Long accountId,
+     LocalDate from,
+     LocalDate to,
+     Money openingBalance,
+     Money closingBalance,
+     Money totalDebit,
+     Money totalCredit,
+     long debitCount,
+     long creditCount
+){}
@@ -0,0 +1,15 @@
+package com.bank.kata.dto;
+
+import java.util.UUID;
+
+/**
+ * A transfer and its two operations, linked by the transfer id
+ *
+ * @param from the withdrawal from the source account
+ * @param to   the deposit on the target account
+ */
+public record TransferDto(
+     UUID transferId,
+     OperationDto from,
+     OperationDto to
+){}
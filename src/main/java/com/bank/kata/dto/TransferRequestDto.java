@@ -0,0 +1,19 @@
+package com.bank.kata.dto;
+
+import com.bank.kata.model.Money;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+
+@Schema
+@Builder
+public record TransferRequestDto(
+    @Schema(description = "The account receiving the amount")
+    @NotNull
+    Long toAccountId,
+    @Schema
+    @NotNull
+    @DecimalMin(value = "0.0")
+    Money amount){
+}
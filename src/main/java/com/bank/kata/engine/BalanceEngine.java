@@ -0,0 +1,64 @@
+package com.bank.kata.engine;
+
+import com.bank.kata.model.Account;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Front of the write path for account balances. An engine owns the exclusive access to an account
+ * while an operation is applied, keeps the hot balances in memory and writes every accepted change
+ * through to the database.
+ */
+public interface BalanceEngine {
+
+    /**
+     * Apply a balance change on an account and write it through to the database.
+     *
+     * @param accountId    the id of the account to change
+     * @param mutation     the domain change applied on a working copy of the account (credit/debit),
+     *                     invoked before any transaction is opened so rejected operations stay cheap
+     * @param writeThrough the extra writes to perform in the same transaction as the balance update,
+     *                     receiving the updated working copy of the account
+     * @return the result of the write through
+     * @throws com.bank.kata.exception.AccountNotFoundException if the account does not exist
+     */
+    <T> T execute(Long accountId, Consumer<Account> mutation, Function<Account, T> writeThrough);
+
+    /**
+     * Apply a balance change spanning several accounts, such as a transfer, and write it through to the
+     * database in one transaction. The accounts are acquired in the global order of
+     * {@link #executeExclusively}, so crossing changes cannot deadlock, and their in-memory balances are
+     * kept as for a change on a single account.
+     *
+     * @param accountIds   the distinct ids of the accounts to change
+     * @param mutation     the domain change applied on working copies of the accounts, in the order of the ids,
+     *                     invoked before any transaction is opened
+     * @param writeThrough the extra writes to perform in the same transaction as the balance updates,
+     *                     receiving the updated working copies
+     * @return the result of the write through
+     * @throws com.bank.kata.exception.AccountNotFoundException if one of the accounts does not exist
+     */
+    <T> T executeAll(List<Long> accountIds, Consumer<List<Account>> mutation, Function<List<Account>, T> writeThrough);
+
+    /**
+     * Run a unit of work writing several accounts directly, with exclusive access to all of them.
+     * The accounts are acquired in a global order so concurrent multi-account work cannot deadlock,
+     * and their in-memory balances are dropped once the work is done.
+     *
+     * @param accountIds the ids of the accounts written by the work
+     * @param work       the work to run, responsible for its own transaction
+     * @return the result of the work
+     */
+    <T> T executeExclusively(Collection<Long> accountIds, Supplier<T> work);
+
+    /**
+     * Drop the in-memory balance of an account, forcing the next operation to reload it.
+     *
+     * @param accountId the id of the account
+     */
+    void evict(Long accountId);
+}
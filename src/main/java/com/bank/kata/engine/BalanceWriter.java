@@ -0,0 +1,47 @@
+package com.bank.kata.engine;
+
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Persistence step of the balance engine: writes a new account balance together with the writes
+ * depending on it (the operation row) in one transaction.
+ */
+public interface BalanceWriter {
+
+    /**
+     * Persist the balance of an account and its write through, returning once committed. On success the
+     * stored version of the account is the version of the working copy plus one.
+     *
+     * @param account      the updated working copy of the account, holding the version it was read at
+     * @param writeThrough the writes to perform in the same transaction
+     * @return the result of the write through
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the account was updated concurrently
+     */
+    <T> T write(Account account, Function<Account, T> writeThrough);
+
+    /**
+     * Persist the balances of several accounts and their write through in one transaction, returning once committed.
+     *
+     * @param accounts     the updated working copies of the accounts, holding the versions they were read at
+     * @param writeThrough the writes to perform in the same transaction
+     * @return the result of the write through
+     * @throws org.springframework.dao.OptimisticLockingFailureException if one of the accounts was updated concurrently
+     */
+    <T> T writeAll(List<Account> accounts, Function<List<Account>, T> writeThrough);
+
+    /**
+     * The last balance written for an account when the database may not hold it yet, the engine loads
+     * it instead of the database balance.
+     *
+     * @param accountId the id of the account
+     * @return the balance, empty to read it from the database
+     */
+    default Optional<Money> writtenBalance(Long accountId) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,58 @@
+package com.bank.kata.engine;
+
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+
+import java.util.Collection;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Write path of the hot accounts, the few configured accounts receiving a large share of the operations
+ * (a merchant or settlement account). Their deposits are spread over sub-balances written in parallel
+ * instead of queuing on the single balance of the account, their withdrawals borrow from the sub-balances,
+ * while the transfers and batches run on the account with its sub-balances folded back in.
+ */
+public interface HotAccountEngine {
+
+    /**
+     * @param accountId the id of an account
+     * @return true if the account is configured as hot
+     */
+    boolean isHot(Long accountId);
+
+    /**
+     * Apply an operation on a hot account and write it through to the database. A deposit goes to one of
+     * the sub-balances of the account, a withdrawal is taken from the account and as many sub-balances as
+     * it needs. The balance of the account after the operation is only known once it is committed, in the
+     * order the operations commit: the working copy given to the write through holds the balance expected
+     * after it, and the balance is recorded afterwards when it differs.
+     *
+     * @param accountId     the id of the hot account
+     * @param type          the type of the operation
+     * @param mutation      the domain change applied on a working copy of the account holding the part of its
+     *                      balance the operation needs, none for a deposit
+     * @param writeThrough  the extra writes to perform in the same transaction as the balance update,
+     *                      receiving a working copy of the account holding its expected balance after the operation
+     * @param recordBalance records the balance of the account after the operation once committed, when it differs
+     *                      from the expected one, and gives the result to return
+     * @return the result of the write through, or of the balance record
+     * @throws com.bank.kata.exception.AccountNotFoundException if the account does not exist
+     */
+    <T> T execute(Long accountId, OperationType type, Consumer<Account> mutation, Function<Account, T> writeThrough,
+                  BiFunction<T, Money, T> recordBalance);
+
+    /**
+     * Run work on the {@link BalanceEngine} touching accounts that may be hot, such as a transfer or a batch:
+     * the deposits on the hot ones among them are held, their sub-balances are folded into the account rows,
+     * then the work runs on whole balances. Work without hot accounts runs as is.
+     *
+     * @param accountIds the ids of the accounts touched by the work
+     * @param work       the work to run
+     * @return the result of the work
+     */
+    <T> T exclusively(Collection<Long> accountIds, Supplier<T> work);
+}
@@ -0,0 +1,51 @@
+package com.bank.kata.engine.impl;
+
+import com.bank.kata.engine.BalanceWriter;
+import com.bank.kata.model.Account;
+import com.bank.kata.repository.AccountRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Balance writer committing every operation in its own transaction on the calling thread.
+ */
+@Component
+@ConditionalOnProperty(name = "kata.engine.write-mode", havingValue = "direct", matchIfMissing = true)
+public class DirectBalanceWriter implements BalanceWriter {
+
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public DirectBalanceWriter(AccountRepository accountRepository, PlatformTransactionManager transactionManager) {
+        this.accountRepository = accountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public <T> T write(Account account, Function<Account, T> writeThrough) {
+        return transactionTemplate.execute(status -> {
+            compareAndSet(account);
+            return writeThrough.apply(account);
+        });
+    }
+
+    @Override
+    public <T> T writeAll(List<Account> accounts, Function<List<Account>, T> writeThrough) {
+        return transactionTemplate.execute(status -> {
+            accounts.forEach(this::compareAndSet);
+            return writeThrough.apply(accounts);
+        });
+    }
+
+    private void compareAndSet(Account account) {
+        if (accountRepository.compareAndSetBalance(account.getId(), account.getVersion(), account.getBalance()) == 0) {
+            throw new OptimisticLockingFailureException("Account " + account.getId() + " updated concurrently");
+        }
+    }
+}
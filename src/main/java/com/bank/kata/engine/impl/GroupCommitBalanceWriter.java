@@ -0,0 +1,187 @@
+package com.bank.kata.engine.impl;
+
+import com.bank.kata.engine.BalanceWriter;
+import com.bank.kata.model.Account;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Balance writer grouping the writes of concurrent operations into shared transactions.
+ * <p>
+ * Callers enqueue their write and wait; a single writer thread drains the queue into batches bounded
+ * by {@code kata.engine.group-commit.max-batch-size} and {@code kata.engine.group-commit.max-wait-micros},
+ * updates all balances with one JDBC batch, lets Hibernate batch the operation inserts, and commits once.
+ * A caller is released only after the batch holding its write has committed. When a batch fails, its
+ * writes are committed one by one so only the faulty write is reported to its caller.
+ */
+@Component
+@ConditionalOnProperty(name = "kata.engine.write-mode", havingValue = "group-commit")
+@Slf4j
+public class GroupCommitBalanceWriter implements BalanceWriter {
+
+    private static final String UPDATE_BALANCE = "UPDATE account SET balance = ?, version = version + 1 WHERE id = ? AND version = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<PendingWrite<?>> queue;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    public GroupCommitBalanceWriter(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${kata.engine.group-commit.max-batch-size:128}") int maxBatchSize,
+                                    @Value("${kata.engine.group-commit.max-wait-micros:200}") long maxWaitMicros) {
+        if (maxBatchSize <= 0) throw new IllegalArgumentException("Group commit batch size must be greater than 0");
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.queue = new LinkedBlockingQueue<>(maxBatchSize * 16);
+        this.writerThread = new Thread(this::drain, "group-commit-writer");
+        this.writerThread.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        writerThread.interrupt();
+        PendingWrite<?> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new CancellationException("Group commit writer stopped"));
+        }
+    }
+
+    @Override
+    public <T> T write(Account account, Function<Account, T> writeThrough) {
+        if (!running) throw new IllegalStateException("Group commit writer stopped");
+        PendingWrite<T> pending = new PendingWrite<>(account, writeThrough);
+        try {
+            queue.put(pending);
+            return pending.result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for group commit", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Multi-account writes are not queued but committed on the calling thread in their own transaction:
+     * the engine holds the locks of all their accounts, so no queued write can touch them meanwhile.
+     */
+    @Override
+    public <T> T writeAll(List<Account> accounts, Function<List<Account>, T> writeThrough) {
+        return transactionTemplate.execute(status -> {
+            updateBalances(accounts);
+            return writeThrough.apply(accounts);
+        });
+    }
+
+    private void drain() {
+        List<PendingWrite<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    PendingWrite<?> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.result.completeExceptionally(new CancellationException("Group commit writer stopped")));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingWrite<?>> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeBatch(batch));
+            batch.forEach(PendingWrite::complete);
+            log.debug("Group commit of {} operations", batch.size());
+        } catch (RuntimeException ex) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(ex);
+                return;
+            }
+            log.warn("Group commit of {} operations failed, committing them one by one", batch.size());
+            for (PendingWrite<?> pending : batch) {
+                commit(List.of(pending));
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingWrite<?>> batch) {
+        List<Account> accounts = new ArrayList<>(batch.size());
+        for (PendingWrite<?> pending : batch) {
+            accounts.add(pending.account);
+        }
+        updateBalances(accounts);
+        batch.forEach(PendingWrite::apply);
+    }
+
+    private void updateBalances(List<Account> accounts) {
+        List<Object[]> updates = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            updates.add(new Object[]{account.getBalance().toBigDecimal(), account.getId(), account.getVersion()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_BALANCE, updates);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                throw new OptimisticLockingFailureException("Account " + accounts.get(i).getId() + " updated concurrently");
+            }
+        }
+    }
+
+    private static final class PendingWrite<T> {
+        private final Account account;
+        private final Function<Account, T> writeThrough;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+
+        private PendingWrite(Account account, Function<Account, T> writeThrough) {
+            this.account = account;
+            this.writeThrough = writeThrough;
+        }
+
+        private void apply() {
+            value = writeThrough.apply(account);
+        }
+
+        private void complete() {
+            result.complete(value);
+        }
+    }
+}
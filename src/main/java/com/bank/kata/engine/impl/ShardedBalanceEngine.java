@@ -0,0 +1,450 @@
+package com.bank.kata.engine.impl;
+
+import com.bank.kata.engine.BalanceEngine;
+import com.bank.kata.engine.BalanceWriter;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.metrics.EngineMetrics;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.repository.AccountRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Balance engine handing the operations of an account to the single thread of the shard owning it.
+ * <p>
+ * Each account id is mapped to one of {@code kata.engine.shards} shards. A shard is a thread with its
+ * own mailbox and its own in-memory balances, which no other thread touches while it runs, so the
+ * operations of an account are applied in their arrival order without any lock. The shard drains its
+ * mailbox by batches of up to {@code kata.engine.shard.max-batch-size} operations, applies them one
+ * after the other on the in-memory balances and writes the whole batch through the {@link BalanceWriter}
+ * in one transaction. The caller of an operation waits until the batch holding it has committed.
+ * When a batch fails, its operations are applied again one by one on reloaded balances, so only the
+ * faulty one is reported to its caller, conflicts being retried up to {@code kata.engine.retry.max-attempts}
+ * attempts.
+ * <p>
+ * Changes spanning several accounts pause the shards of all their accounts, in ascending shard order so
+ * crossing changes cannot deadlock, and run on the calling thread while the shards wait.
+ */
+@Component
+@ConditionalOnProperty(name = "kata.engine.mode", havingValue = "sharded")
+@Slf4j
+public class ShardedBalanceEngine implements BalanceEngine {
+
+    private final AccountRepository accountRepository;
+    private final BalanceWriter balanceWriter;
+    private final EngineMetrics engineMetrics;
+    private final int maxBatchSize;
+    private final int maxAttempts;
+    private final long backoffNanos;
+    private final Shard[] shards;
+    private volatile boolean running = true;
+
+    public ShardedBalanceEngine(AccountRepository accountRepository,
+                                BalanceWriter balanceWriter,
+                                EngineMetrics engineMetrics,
+                                @Value("${kata.engine.shards:0}") int shardCount,
+                                @Value("${kata.engine.shard.max-batch-size:128}") int maxBatchSize,
+                                @Value("${kata.engine.shard.mailbox-capacity:4096}") int mailboxCapacity,
+                                @Value("${kata.engine.retry.max-attempts:3}") int maxAttempts,
+                                @Value("${kata.engine.retry.backoff:PT0.001S}") Duration backoff) {
+        if (shardCount < 0) throw new IllegalArgumentException("Shards must not be negative");
+        if (maxBatchSize <= 0) throw new IllegalArgumentException("Shard batch size must be greater than 0");
+        if (mailboxCapacity <= 0) throw new IllegalArgumentException("Shard mailbox capacity must be greater than 0");
+        if (maxAttempts <= 0) throw new IllegalArgumentException("Max attempts must be greater than 0");
+        this.accountRepository = accountRepository;
+        this.balanceWriter = balanceWriter;
+        this.engineMetrics = engineMetrics;
+        this.maxBatchSize = maxBatchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffNanos = backoff.toNanos();
+        this.shards = new Shard[shardCount == 0 ? Runtime.getRuntime().availableProcessors() : shardCount];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i, mailboxCapacity);
+        }
+        engineMetrics.mailboxes(() -> Arrays.stream(shards).mapToInt(shard -> shard.mailbox.size()).sum());
+    }
+
+    @PostConstruct
+    public void start() {
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        log.info("Balance engine started with {} shards", shards.length);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Shard shard : shards) {
+            shard.thread.interrupt();
+            Message message;
+            while ((message = shard.mailbox.poll()) != null) {
+                message.cancel();
+            }
+        }
+    }
+
+    @Override
+    public <T> T execute(Long accountId, Consumer<Account> mutation, Function<Account, T> writeThrough) {
+        Operation<T> operation = new Operation<>(accountId, mutation, writeThrough);
+        shardOf(accountId).post(operation);
+        return await(operation.result);
+    }
+
+    @Override
+    public <T> T executeAll(List<Long> accountIds, Consumer<List<Account>> mutation, Function<List<Account>, T> writeThrough) {
+        for (int attempt = 1; ; attempt++) {
+            List<Pause> pauses = pauseAll(accountIds);
+            try {
+                List<Account> accounts = new ArrayList<>(accountIds.size());
+                for (Long accountId : accountIds) {
+                    accounts.add(shardOf(accountId).workingCopy(accountId));
+                }
+                mutation.accept(accounts);
+                try {
+                    T result = balanceWriter.writeAll(accounts, writeThrough);
+                    accounts.forEach(account -> shardOf(account.getId()).keep(account));
+                    return result;
+                } catch (OptimisticLockingFailureException ex) {
+                    accountIds.forEach(this::drop);
+                    onConflict(ex, attempt, accountIds);
+                } catch (RuntimeException ex) {
+                    accountIds.forEach(this::drop);
+                    throw ex;
+                }
+            } finally {
+                pauses.forEach(Pause::resume);
+            }
+            backoff(attempt);
+        }
+    }
+
+    @Override
+    public <T> T executeExclusively(Collection<Long> accountIds, Supplier<T> work) {
+        List<Pause> pauses = pauseAll(accountIds);
+        try {
+            return work.get();
+        } finally {
+            accountIds.forEach(this::drop);
+            pauses.forEach(Pause::resume);
+        }
+    }
+
+    /**
+     * The balance is dropped by the shard itself, after the operations already in its mailbox
+     */
+    @Override
+    public void evict(Long accountId) {
+        shardOf(accountId).post(new Evict(accountId));
+    }
+
+    /**
+     * Pause the shards of the accounts in ascending shard order, each shard once even when several accounts
+     * share it, waiting for a shard to be paused before pausing the next one
+     *
+     * @return the pauses to resume
+     */
+    private List<Pause> pauseAll(Collection<Long> accountIds) {
+        int[] indexes = accountIds.stream().mapToInt(this::shardIndex).distinct().sorted().toArray();
+        List<Pause> pauses = new ArrayList<>(indexes.length);
+        try {
+            for (int index : indexes) {
+                Pause pause = new Pause();
+                pauses.add(pause);
+                shards[index].post(pause);
+                await(pause.paused);
+            }
+            return pauses;
+        } catch (RuntimeException | Error ex) {
+            pauses.forEach(Pause::resume);
+            throw ex;
+        }
+    }
+
+    /**
+     * Drop an in-memory balance from the calling thread, only while the shard owning it is paused
+     */
+    private void drop(Long accountId) {
+        shardOf(accountId).balances.remove(accountId);
+    }
+
+    /**
+     * Count a conflict and rethrow it once the attempts are exhausted
+     */
+    private void onConflict(OptimisticLockingFailureException ex, int attempt, List<Long> accountIds) {
+        engineMetrics.conflict();
+        if (attempt >= maxAttempts) throw ex;
+        engineMetrics.retry();
+        log.warn("Stale version of accounts {}, reloading (attempt {}/{})", accountIds, attempt, maxAttempts);
+    }
+
+    /**
+     * Pause the calling thread before the next attempt of a change spanning several accounts, with the shards
+     * resumed, for a random time up to the backoff doubled on each attempt (full jitter)
+     */
+    private void backoff(int attempt) {
+        if (backoffNanos <= 0) return;
+        long bound = backoffNanos << Math.min(attempt - 1, 16);
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+
+    private <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the balance engine", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private Shard shardOf(Long accountId) {
+        return shards[shardIndex(accountId)];
+    }
+
+    private int shardIndex(Long accountId) {
+        int hash = accountId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    /**
+     * Single thread owning the balances of its accounts, which are read and written by other threads only
+     * while the shard is paused
+     */
+    private final class Shard implements Runnable {
+
+        private final BlockingQueue<Message> mailbox;
+        private final Map<Long, Balance> balances = new HashMap<>();
+        private final Thread thread;
+
+        private Shard(int index, int mailboxCapacity) {
+            this.mailbox = new LinkedBlockingQueue<>(mailboxCapacity);
+            this.thread = new Thread(this, "balance-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void post(Message message) {
+            if (!running) throw new IllegalStateException("Balance engine stopped");
+            try {
+                mailbox.put(message);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while posting to the balance engine", ex);
+            }
+        }
+
+        @Override
+        public void run() {
+            List<Message> messages = new ArrayList<>(maxBatchSize);
+            while (running) {
+                try {
+                    messages.add(mailbox.take());
+                    mailbox.drainTo(messages, maxBatchSize - 1);
+                    process(messages);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    messages.forEach(Message::cancel);
+                    return;
+                } finally {
+                    messages.clear();
+                }
+            }
+        }
+
+        /**
+         * Apply the drained messages in their arrival order, the operations between two pauses forming one batch
+         */
+        private void process(List<Message> messages) throws InterruptedException {
+            List<Operation<?>> batch = new ArrayList<>(messages.size());
+            for (Message message : messages) {
+                if (message instanceof Operation<?> operation) {
+                    batch.add(operation);
+                } else {
+                    apply(batch);
+                    batch.clear();
+                    if (message instanceof Pause pause) {
+                        pause.paused.complete(null);
+                        pause.resumed.await();
+                    } else if (message instanceof Evict evict) {
+                        balances.remove(evict.accountId());
+                    }
+                }
+            }
+            apply(batch);
+        }
+
+        private void apply(List<Operation<?>> batch) {
+            if (batch.isEmpty()) return;
+            List<Operation<?>> writes = new ArrayList<>(batch.size());
+            for (Operation<?> operation : batch) {
+                try {
+                    Account account = workingCopy(operation.accountId);
+                    operation.mutation.accept(account);
+                    operation.account = account;
+                    keep(account);
+                    writes.add(operation);
+                } catch (RuntimeException ex) {
+                    operation.rejection = ex;
+                }
+            }
+            if (writes.isEmpty()) {
+                batch.forEach(Operation::complete);
+                return;
+            }
+            try {
+                balanceWriter.writeAll(writes.stream().map(operation -> operation.account).toList(), accounts -> {
+                    writes.forEach(Operation::applyWriteThrough);
+                    return null;
+                });
+                batch.forEach(Operation::complete);
+                log.debug("Shard batch of {} operations", batch.size());
+            } catch (RuntimeException ex) {
+                batch.forEach(operation -> balances.remove(operation.accountId));
+                if (batch.size() == 1 && !(ex instanceof OptimisticLockingFailureException)) {
+                    batch.get(0).result.completeExceptionally(ex);
+                    return;
+                }
+                log.warn("Shard batch of {} operations failed, applying them one by one", batch.size());
+                batch.forEach(this::applyAlone);
+            }
+        }
+
+        /**
+         * Apply an operation of a failed batch on its own, on a reloaded balance. The shard does not pause
+         * between the attempts, its other accounts waiting behind it.
+         */
+        private <T> void applyAlone(Operation<T> operation) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    Account account = workingCopy(operation.accountId);
+                    operation.mutation.accept(account);
+                    try {
+                        T result = balanceWriter.writeAll(List.of(account), accounts -> operation.writeThrough.apply(account));
+                        keep(account);
+                        operation.result.complete(result);
+                        return;
+                    } catch (OptimisticLockingFailureException ex) {
+                        balances.remove(operation.accountId);
+                        onConflict(ex, attempt, List.of(operation.accountId));
+                    } catch (RuntimeException ex) {
+                        balances.remove(operation.accountId);
+                        throw ex;
+                    }
+                } catch (RuntimeException ex) {
+                    operation.result.completeExceptionally(ex);
+                    return;
+                }
+            }
+        }
+
+        private Account workingCopy(Long accountId) {
+            Balance balance = balances.get(accountId);
+            if (balance == null) {
+                balance = balanceWriter.writtenBalance(accountId)
+                        .map(written -> new Balance(written, 0))
+                        .orElseGet(() -> accountRepository.findById(accountId)
+                                .map(account -> new Balance(account.getBalance(), account.getVersion()))
+                                .orElseThrow(() -> new AccountNotFoundException(accountId)));
+                balances.put(accountId, balance);
+            }
+            return Account.builder().id(accountId).balance(balance.amount()).version(balance.version()).build();
+        }
+
+        /**
+         * Keep the balance of an applied working copy, at the version following the one it was read at, which
+         * the next operation of the batch on the same account expects
+         */
+        private void keep(Account account) {
+            balances.put(account.getId(), new Balance(account.getBalance(), account.getVersion() + 1));
+        }
+    }
+
+    private sealed interface Message permits Operation, Pause, Evict {
+
+        /**
+         * Release the thread waiting for the message when the engine stops before handling it
+         */
+        default void cancel() {
+        }
+    }
+
+    private static final class Operation<T> implements Message {
+        private final Long accountId;
+        private final Consumer<Account> mutation;
+        private final Function<Account, T> writeThrough;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private Account account;
+        private T value;
+        private RuntimeException rejection;
+
+        private Operation(Long accountId, Consumer<Account> mutation, Function<Account, T> writeThrough) {
+            this.accountId = accountId;
+            this.mutation = mutation;
+            this.writeThrough = writeThrough;
+        }
+
+        private void applyWriteThrough() {
+            value = writeThrough.apply(account);
+        }
+
+        private void complete() {
+            if (rejection != null) {
+                result.completeExceptionally(rejection);
+            } else {
+                result.complete(value);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            result.completeExceptionally(new CancellationException("Balance engine stopped"));
+        }
+    }
+
+    private static final class Pause implements Message {
+        private final CompletableFuture<Void> paused = new CompletableFuture<>();
+        private final CountDownLatch resumed = new CountDownLatch(1);
+
+        private void resume() {
+            resumed.countDown();
+        }
+
+        @Override
+        public void cancel() {
+            paused.completeExceptionally(new CancellationException("Balance engine stopped"));
+        }
+    }
+
+    private record Evict(Long accountId) implements Message {
+    }
+
+    private record Balance(Money amount, long version) {
+    }
+}
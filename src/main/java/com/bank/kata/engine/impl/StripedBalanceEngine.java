@@ -0,0 +1,223 @@
+package com.bank.kata.engine.impl;
+
+import com.bank.kata.engine.BalanceEngine;
+import com.bank.kata.engine.BalanceWriter;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.metrics.EngineMetrics;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Balance engine serializing the operations of an account behind a fixed set of lock stripes.
+ * <p>
+ * Operations on the same account are applied one at a time on the in-memory balance, while
+ * operations on accounts mapped to different stripes run in parallel. The balance is written
+ * through by the {@link BalanceWriter} with a compare-and-set on the version of the account, so an
+ * account updated behind the engine's back is detected, reloaded and the operation re-applied instead
+ * of being overwritten. Conflicts are retried up to {@code kata.engine.retry.max-attempts} attempts,
+ * after a random pause of up to {@code kata.engine.retry.backoff} doubled on each attempt, taken with
+ * the stripes unlocked.
+ */
+@Component
+@ConditionalOnProperty(name = "kata.engine.mode", havingValue = "striped", matchIfMissing = true)
+@Slf4j
+public class StripedBalanceEngine implements BalanceEngine {
+
+    private final AccountRepository accountRepository;
+    private final BalanceWriter balanceWriter;
+    private final EngineMetrics engineMetrics;
+    private final ReentrantLock[] stripes;
+    private final int maxAttempts;
+    private final long backoffNanos;
+    private final Map<Long, Balance> balances = new ConcurrentHashMap<>();
+
+    public StripedBalanceEngine(AccountRepository accountRepository,
+                                BalanceWriter balanceWriter,
+                                EngineMetrics engineMetrics,
+                                @Value("${kata.engine.lock-stripes:256}") int lockStripes,
+                                @Value("${kata.engine.retry.max-attempts:3}") int maxAttempts,
+                                @Value("${kata.engine.retry.backoff:PT0.001S}") Duration backoff) {
+        if (lockStripes <= 0) throw new IllegalArgumentException("Lock stripes must be greater than 0");
+        if (maxAttempts <= 0) throw new IllegalArgumentException("Max attempts must be greater than 0");
+        this.accountRepository = accountRepository;
+        this.balanceWriter = balanceWriter;
+        this.engineMetrics = engineMetrics;
+        this.maxAttempts = maxAttempts;
+        this.backoffNanos = backoff.toNanos();
+        int size = 1;
+        while (size < lockStripes) size <<= 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public <T> T execute(Long accountId, Consumer<Account> mutation, Function<Account, T> writeThrough) {
+        ReentrantLock lock = stripeOf(accountId);
+        for (int attempt = 1; ; attempt++) {
+            lock.lock();
+            try {
+                Account account = workingCopy(accountId);
+                mutation.accept(account);
+                try {
+                    T result = balanceWriter.write(account, writeThrough);
+                    keep(account);
+                    return result;
+                } catch (OptimisticLockingFailureException ex) {
+                    balances.remove(accountId);
+                    onConflict(ex, attempt, List.of(accountId));
+                } catch (RuntimeException ex) {
+                    balances.remove(accountId);
+                    throw ex;
+                }
+            } finally {
+                lock.unlock();
+            }
+            backoff(attempt);
+        }
+    }
+
+    @Override
+    public <T> T executeAll(List<Long> accountIds, Consumer<List<Account>> mutation, Function<List<Account>, T> writeThrough) {
+        for (int attempt = 1; ; attempt++) {
+            int[] indexes = lockAll(accountIds);
+            try {
+                List<Account> accounts = new ArrayList<>(accountIds.size());
+                for (Long accountId : accountIds) {
+                    accounts.add(workingCopy(accountId));
+                }
+                mutation.accept(accounts);
+                try {
+                    T result = balanceWriter.writeAll(accounts, writeThrough);
+                    accounts.forEach(this::keep);
+                    return result;
+                } catch (OptimisticLockingFailureException ex) {
+                    accountIds.forEach(balances::remove);
+                    onConflict(ex, attempt, accountIds);
+                } catch (RuntimeException ex) {
+                    accountIds.forEach(balances::remove);
+                    throw ex;
+                }
+            } finally {
+                unlockAll(indexes);
+            }
+            backoff(attempt);
+        }
+    }
+
+    @Override
+    public <T> T executeExclusively(Collection<Long> accountIds, Supplier<T> work) {
+        int[] indexes = lockAll(accountIds);
+        try {
+            return work.get();
+        } finally {
+            accountIds.forEach(balances::remove);
+            unlockAll(indexes);
+        }
+    }
+
+    @Override
+    public void evict(Long accountId) {
+        balances.remove(accountId);
+    }
+
+    private Account workingCopy(Long accountId) {
+        Balance balance = balances.get(accountId);
+        if (balance == null) {
+            balance = balanceWriter.writtenBalance(accountId)
+                    .map(written -> new Balance(written, 0))
+                    .orElseGet(() -> accountRepository.findById(accountId)
+                            .map(account -> new Balance(account.getBalance(), account.getVersion()))
+                            .orElseThrow(() -> new AccountNotFoundException(accountId)));
+            balances.put(accountId, balance);
+        }
+        return Account.builder().id(accountId).balance(balance.amount()).version(balance.version()).build();
+    }
+
+    /**
+     * Keep the balance of a written working copy, at the version following the one it was read at
+     */
+    private void keep(Account account) {
+        balances.put(account.getId(), new Balance(account.getBalance(), account.getVersion() + 1));
+    }
+
+    /**
+     * Count a conflict and rethrow it once the attempts are exhausted
+     */
+    private void onConflict(OptimisticLockingFailureException ex, int attempt, List<Long> accountIds) {
+        engineMetrics.conflict();
+        if (attempt >= maxAttempts) throw ex;
+        engineMetrics.retry();
+        log.warn("Stale version of accounts {}, reloading (attempt {}/{})", accountIds, attempt, maxAttempts);
+    }
+
+    /**
+     * Pause before the next attempt for a random time up to the backoff doubled on each attempt (full jitter),
+     * so that conflicting writers do not retry in lockstep
+     */
+    private void backoff(int attempt) {
+        if (backoffNanos <= 0) return;
+        long bound = backoffNanos << Math.min(attempt - 1, 16);
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+
+    /**
+     * Lock the stripes of the accounts in ascending stripe order, the global order preventing deadlocks
+     * between multi-account work, each stripe once even when several accounts share it
+     *
+     * @return the indexes of the locked stripes, to unlock
+     */
+    private int[] lockAll(Collection<Long> accountIds) {
+        int[] indexes = accountIds.stream().mapToInt(this::stripeIndex).distinct().sorted().toArray();
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                locked++;
+            }
+            return indexes;
+        } catch (RuntimeException | Error ex) {
+            unlockAll(Arrays.copyOf(indexes, locked));
+            throw ex;
+        }
+    }
+
+    private void unlockAll(int[] indexes) {
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    private ReentrantLock stripeOf(Long accountId) {
+        return stripes[stripeIndex(accountId)];
+    }
+
+    private int stripeIndex(Long accountId) {
+        int hash = accountId.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    private record Balance(Money amount, long version) {
+    }
+}
@@ -0,0 +1,326 @@
+package com.bank.kata.engine.impl;
+
+import com.bank.kata.engine.BalanceEngine;
+import com.bank.kata.engine.HotAccountEngine;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.exception.InsufficientBalanceException;
+import com.bank.kata.journal.OperationJournal;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.repository.AccountRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Hot account engine splitting the balance of each hot account into {@code kata.hot-accounts.shards}
+ * sub-balances, rows of {@code account_balance_shard} added to the account row to get the whole balance.
+ * <p>
+ * A deposit takes a free sub-balance and adds its amount to it in its own transaction, so deposits on different
+ * sub-balances do not queue on one row. A withdrawal takes the account row, then borrows the sub-balances one
+ * by one until the funds cover it, and takes its amount from them; deposits go on meanwhile on the sub-balances
+ * it did not need. Transfers and batches take the account in exclusive mode, once the operations in flight are
+ * done, fold the sub-balances into the account row and run on the balance engine.
+ * <p>
+ * No lock of the account is held across a commit, so the balance after an operation is only known once it is
+ * committed, in the order the operations commit in. Each operation is written with the balance expected after it,
+ * then adds its change to the balance the engine keeps for the account and records the balance it gets when it
+ * differs from the expected one: the recorded balances follow one another as if the operations ran one at a time.
+ * The daily rollups, which hold totals only, are split by sub-balance as well.
+ * <p>
+ * In the journal write mode no account is hot: deposits are appended to the journal, not written to the
+ * account row, so they do not queue on it.
+ */
+@Component
+@Slf4j
+public class SubBalanceHotAccountEngine implements HotAccountEngine {
+
+    private static final String ADD_TO_SHARD = "UPDATE account_balance_shard SET balance = balance + ? WHERE account_id = ? AND shard = ?";
+    private static final String INSERT_SHARD = "INSERT INTO account_balance_shard (account_id, shard, balance) VALUES (?, ?, ?)";
+    private static final String SUM_SHARDS = "SELECT COALESCE(SUM(balance), 0) FROM account_balance_shard WHERE account_id = ?";
+    private static final String FOLD_INTO_ACCOUNT = "UPDATE account SET balance = balance + ?, version = version + 1 WHERE id = ?";
+    private static final String RESET_SHARDS = "UPDATE account_balance_shard SET balance = 0 WHERE account_id = ?";
+    private static final String ACCOUNTS_WITH_SHARDS = "SELECT DISTINCT account_id FROM account_balance_shard WHERE balance <> 0";
+    private static final String SHARDS_OF_ACCOUNT = "SELECT shard FROM account_balance_shard WHERE account_id = ?";
+    private static final String ACCOUNT_BALANCE = "SELECT balance FROM account WHERE id = ?";
+    private static final String SHARD_BALANCE = "SELECT balance FROM account_balance_shard WHERE account_id = ? AND shard = ?";
+    private static final String TAKE_FROM_ACCOUNT = "UPDATE account SET balance = balance - ?, version = version + 1 WHERE id = ?";
+    private static final String TAKE_FROM_SHARD = "UPDATE account_balance_shard SET balance = balance - ? WHERE account_id = ? AND shard = ?";
+
+    private final BalanceEngine balanceEngine;
+    private final AccountRepository accountRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, HotAccount> hotAccounts;
+
+    public SubBalanceHotAccountEngine(BalanceEngine balanceEngine,
+                                      AccountRepository accountRepository,
+                                      JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      OperationJournal operationJournal,
+                                      @Value("${kata.hot-accounts.ids:}") Set<Long> accountIds,
+                                      @Value("${kata.hot-accounts.shards:8}") int shards) {
+        if (shards <= 0) throw new IllegalArgumentException("Hot account shards must be greater than 0");
+        if (!accountIds.isEmpty() && operationJournal.isEnabled()) {
+            // the journal already takes the deposits off the database, the accounts run on the balance engine
+            log.warn("Hot accounts {} ignored in journal write mode", accountIds);
+            accountIds = Set.of();
+        }
+        this.balanceEngine = balanceEngine;
+        this.accountRepository = accountRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hotAccounts = accountIds.stream().collect(Collectors.toUnmodifiableMap(Function.identity(), id -> new HotAccount(shards)));
+    }
+
+    /**
+     * Fold the sub-balances left on accounts removed from the hot accounts into their balance, as only the
+     * hot accounts have their sub-balances read when funds are checked
+     */
+    @PostConstruct
+    public void foldRetiredAccounts() {
+        List<Long> retired = jdbcTemplate.queryForList(ACCOUNTS_WITH_SHARDS, Long.class).stream()
+                .filter(accountId -> !isHot(accountId))
+                .toList();
+        if (retired.isEmpty()) return;
+        fold(retired);
+        log.info("Sub-balances of the accounts {} no longer hot folded into their balance", retired);
+    }
+
+    @Override
+    public boolean isHot(Long accountId) {
+        return hotAccounts.containsKey(accountId);
+    }
+
+    @Override
+    public <T> T execute(Long accountId, OperationType type, Consumer<Account> mutation, Function<Account, T> writeThrough,
+                         BiFunction<T, Money, T> recordBalance) {
+        HotAccount hot = hotAccounts.get(accountId);
+        if (hot == null) throw new IllegalArgumentException("Account " + accountId + " is not a hot account");
+        hot.lock.readLock().lock();
+        try {
+            open(accountId, hot);
+            return type == OperationType.DEBIT
+                    ? deposit(accountId, hot, mutation, writeThrough, recordBalance)
+                    : withdraw(accountId, hot, mutation, writeThrough, recordBalance);
+        } finally {
+            hot.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public <T> T exclusively(Collection<Long> accountIds, Supplier<T> work) {
+        List<Long> hotIds = accountIds.stream().filter(this::isHot).distinct().sorted().toList();
+        if (hotIds.isEmpty()) return work.get();
+        // ascending ids, so that crossing transfers between hot accounts cannot deadlock
+        int locked = 0;
+        try {
+            for (Long accountId : hotIds) {
+                hotAccounts.get(accountId).lock.writeLock().lock();
+                locked++;
+            }
+            fold(hotIds);
+            return work.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                HotAccount hot = hotAccounts.get(hotIds.get(i));
+                // the work changed the balance, it is read again by the next operation
+                hot.opened = false;
+                hot.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Add the amount of a deposit, the change it makes on an empty balance as a deposit only adds, to a free
+     * sub-balance, held until the transaction is over
+     */
+    private <T> T deposit(Long accountId, HotAccount hot, Consumer<Account> mutation, Function<Account, T> writeThrough,
+                          BiFunction<T, Money, T> recordBalance) {
+        Account account = Account.builder().id(accountId).balance(Money.ZERO).build();
+        mutation.accept(account);
+        Money amount = account.getBalance();
+        int shard = lockFreeShard(hot.shards);
+        Money expected = hot.balance().add(amount);
+        T result;
+        try {
+            result = transactionTemplate.execute(status -> {
+                jdbcTemplate.update(ADD_TO_SHARD, amount.toBigDecimal(), accountId, shard);
+                return writeThrough.apply(Account.builder().id(accountId).balance(expected).shard(shard + 1).build());
+            });
+        } finally {
+            hot.shards[shard].unlock();
+        }
+        Money balance = hot.record(amount);
+        return balance.equals(expected) ? result : recordBalance.apply(result, balance);
+    }
+
+    /**
+     * Check the funds of a withdrawal on the balance recorded, then take its amount from the account row first,
+     * borrowing the sub-balances in ascending order until they cover the rest. The recorded balance is at most
+     * the committed one while the row is held, as the deposits committed and not recorded yet only add to it, so
+     * a deposit counts for the withdrawals once recorded. The row and the borrowed sub-balances are held until the
+     * withdrawal is recorded, their committed balances read here cannot change, while deposits go on on the others.
+     */
+    private <T> T withdraw(Long accountId, HotAccount hot, Consumer<Account> mutation, Function<Account, T> writeThrough,
+                           BiFunction<T, Money, T> recordBalance) {
+        hot.row.lock();
+        int borrowed = 0;
+        T result;
+        Money expected;
+        Money balance;
+        try {
+            Money before = hot.balance();
+            Account account = Account.builder().id(accountId).balance(before).build();
+            mutation.accept(account);
+            expected = account.getBalance();
+            Money amount = before.subtract(expected);
+            Money accountBalance = Money.of(jdbcTemplate.queryForObject(ACCOUNT_BALANCE, BigDecimal.class, accountId));
+            Money[] subBalances = new Money[hot.shards.length];
+            Money available = accountBalance;
+            while (available.isLessThan(amount)) {
+                if (borrowed == hot.shards.length) throw new InsufficientBalanceException();
+                hot.shards[borrowed].lock();
+                subBalances[borrowed] = shardBalance(accountId, borrowed);
+                available = available.add(subBalances[borrowed++]);
+            }
+            Money fromAccount = amount.isLessThan(accountBalance) ? amount : accountBalance;
+            Money fromShards = amount.subtract(fromAccount);
+            int sources = borrowed;
+            result = transactionTemplate.execute(status -> {
+                jdbcTemplate.update(TAKE_FROM_ACCOUNT, fromAccount.toBigDecimal(), accountId);
+                Money remaining = fromShards;
+                for (int shard = 0; shard < sources && Money.ZERO.isLessThan(remaining); shard++) {
+                    Money taken = remaining.isLessThan(subBalances[shard]) ? remaining : subBalances[shard];
+                    jdbcTemplate.update(TAKE_FROM_SHARD, taken.toBigDecimal(), accountId, shard);
+                    remaining = remaining.subtract(taken);
+                }
+                return writeThrough.apply(Account.builder().id(accountId).balance(expected).build());
+            });
+            balance = hot.record(Money.ZERO.subtract(amount));
+        } finally {
+            for (int shard = borrowed - 1; shard >= 0; shard--) {
+                hot.shards[shard].unlock();
+            }
+            hot.row.unlock();
+        }
+        return balance.equals(expected) ? result : recordBalance.apply(result, balance);
+    }
+
+    private Money shardBalance(Long accountId, int shard) {
+        return Money.of(jdbcTemplate.queryForObject(SHARD_BALANCE, BigDecimal.class, accountId, shard));
+    }
+
+    /**
+     * Read the whole balance of the account and create its missing sub-balances, once, outside of the operations:
+     * a row inserted by a deposit would lock the account row it references until the deposit is committed
+     */
+    private void open(Long accountId, HotAccount hot) {
+        if (hot.opened) return;
+        synchronized (hot) {
+            if (hot.opened) return;
+            Money balance = accountRepository.findTotalBalance(accountId)
+                    .map(Money::of)
+                    .orElseThrow(() -> new AccountNotFoundException(accountId));
+            List<Integer> existing = jdbcTemplate.queryForList(SHARDS_OF_ACCOUNT, Integer.class, accountId);
+            for (int shard = 0; shard < hot.shards.length; shard++) {
+                if (!existing.contains(shard)) jdbcTemplate.update(INSERT_SHARD, accountId, shard, BigDecimal.ZERO);
+            }
+            hot.balance = balance;
+            hot.opened = true;
+        }
+    }
+
+    /**
+     * Add the sub-balances of accounts to their row in one transaction, with the accounts held on the balance
+     * engine which reloads them afterwards
+     */
+    private void fold(List<Long> accountIds) {
+        balanceEngine.executeExclusively(accountIds, () -> transactionTemplate.execute(status -> {
+            for (Long accountId : accountIds) {
+                BigDecimal subBalances = jdbcTemplate.queryForObject(SUM_SHARDS, BigDecimal.class, accountId);
+                if (subBalances == null || subBalances.signum() == 0) continue;
+                jdbcTemplate.update(FOLD_INTO_ACCOUNT, subBalances, accountId);
+                jdbcTemplate.update(RESET_SHARDS, accountId);
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Lock the first free sub-balance from a random one, or wait for the random one when all are taken,
+     * so deposits do not hold a connection while queuing on the row of a busy sub-balance
+     */
+    private static int lockFreeShard(ReentrantLock[] shards) {
+        int start = ThreadLocalRandom.current().nextInt(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            int shard = (start + i) % shards.length;
+            if (shards[shard].tryLock()) return shard;
+        }
+        shards[start].lock();
+        return start;
+    }
+
+    private static final class HotAccount {
+        /**
+         * Shared by the deposits and withdrawals, exclusive for the transfers and batches
+         */
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        /**
+         * Account row, taken by the withdrawals until they are recorded
+         */
+        final ReentrantLock row = new ReentrantLock();
+        /**
+         * Sub-balance rows, each held by a deposit or a withdrawal until its transaction is over
+         */
+        final ReentrantLock[] shards;
+        /**
+         * Whether the account was found with all its sub-balances and its balance read
+         */
+        volatile boolean opened;
+        /**
+         * Balance after the last operation recorded
+         */
+        private Money balance;
+
+        HotAccount(int shards) {
+            this.shards = new ReentrantLock[shards];
+            for (int i = 0; i < shards; i++) {
+                this.shards[i] = new ReentrantLock();
+            }
+        }
+
+        synchronized Money balance() {
+            return balance;
+        }
+
+        /**
+         * Add the change of a committed operation to the balance
+         *
+         * @return the balance after the operation
+         */
+        synchronized Money record(Money change) {
+            balance = balance.add(change);
+            return balance;
+        }
+    }
+}
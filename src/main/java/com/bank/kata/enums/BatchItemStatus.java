@@ -0,0 +1,5 @@
+package com.bank.kata.enums;
+
+public enum BatchItemStatus {
+    SUCCEEDED,FAILED,ROLLED_BACK
+}
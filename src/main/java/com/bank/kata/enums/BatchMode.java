@@ -0,0 +1,5 @@
+package com.bank.kata.enums;
+
+public enum BatchMode {
+    ALL_OR_NOTHING,BEST_EFFORT
+}
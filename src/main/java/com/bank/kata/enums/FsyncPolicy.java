@@ -0,0 +1,13 @@
+package com.bank.kata.enums;
+
+/**
+ * When appended journal records are forced to disk.
+ */
+public enum FsyncPolicy {
+    /** every append is forced before it returns */
+    PER_OPERATION,
+    /** concurrent appends share one force, every append returns once forced */
+    PER_BATCH,
+    /** appends return at once, the journal is forced every {@code kata.journal.fsync-interval} */
+    INTERVAL
+}
@@ -0,0 +1,5 @@
+package com.bank.kata.enums;
+
+public enum TicketStatus {
+    PENDING,SUCCEEDED,FAILED
+}
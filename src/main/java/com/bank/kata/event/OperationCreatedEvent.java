@@ -0,0 +1,12 @@
+package com.bank.kata.event;
+
+import com.bank.kata.model.Operation;
+
+/**
+ * Published when an operation is created, within the transaction persisting it, so synchronous
+ * listeners write in the same transaction and transactional listeners run once it is committed.
+ *
+ * @param operation the created operation
+ */
+public record OperationCreatedEvent(Operation operation) {
+}
@@ -2,63 +2,134 @@ package com.bank.kata.exception;
 
 import com.bank.kata.dto.ApiError;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.validation.method.ParameterErrors;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.bind.annotation.ResponseBody;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 import java.util.HashMap;
 import java.util.Map;
 
 @ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Slf4j
 public class GlobalExceptionHandler {
 
-    @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler(AccountNotFoundException.class)
-    @ResponseBody
-    public ApiError handleAccountNotFoundException(AccountNotFoundException ex, WebRequest request) {
+    public ResponseEntity<ApiError> handleAccountNotFoundException(AccountNotFoundException ex, WebRequest request) {
         log.error(ex.getMessage());
-        return ApiError.create(ex.getMessage(),HttpStatus.NOT_FOUND,request);
+        return json(ApiError.create(ex.getMessage(),HttpStatus.NOT_FOUND,request));
     }
 
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    @ResponseBody
-    public ApiError handleValidationErrors(MethodArgumentNotValidException ex, WebRequest request) {
+    public ResponseEntity<ApiError> handleValidationErrors(MethodArgumentNotValidException ex, WebRequest request) {
         Map<String, String> errors = new HashMap<>();
         ex.getBindingResult().getFieldErrors().forEach(error ->
                 errors.put(error.getField(), error.getDefaultMessage()));
-        return ApiError.create(errors.toString(), HttpStatus.BAD_REQUEST, request);
+        return json(ApiError.create(errors.toString(), HttpStatus.BAD_REQUEST, request));
+    }
+
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public ResponseEntity<ApiError> handleMethodValidationErrors(HandlerMethodValidationException ex, WebRequest request) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getParameterValidationResults().forEach(result -> {
+            if (result instanceof ParameterErrors bodyErrors) {
+                // a @Valid body validated along with constrained parameters reports its fields as before
+                bodyErrors.getFieldErrors().forEach(error -> errors.put(error.getField(), error.getDefaultMessage()));
+            } else {
+                result.getResolvableErrors().forEach(error ->
+                        errors.put(result.getMethodParameter().getParameterName(), error.getDefaultMessage()));
+            }
+        });
+        return json(ApiError.create(errors.toString(), HttpStatus.BAD_REQUEST, request));
     }
 
-    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
     @ExceptionHandler(InsufficientBalanceException.class)
-    @ResponseBody
-    public ApiError handleInsufficientBalanceException(InsufficientBalanceException ex, WebRequest request) {
+    public ResponseEntity<ApiError> handleInsufficientBalanceException(InsufficientBalanceException ex, WebRequest request) {
+        log.error(ex.getMessage());
+        return json(ApiError.create(ex.getMessage(),HttpStatus.UNPROCESSABLE_ENTITY,request));
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ApiError> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex, WebRequest request) {
+        log.error(ex.getMessage());
+        return json(ApiError.create(ex.getMessage(),HttpStatus.UNPROCESSABLE_ENTITY,request));
+    }
+
+    @ExceptionHandler(IdempotencyKeysDisabledException.class)
+    public ResponseEntity<ApiError> handleIdempotencyKeysDisabledException(IdempotencyKeysDisabledException ex, WebRequest request) {
+        log.error(ex.getMessage());
+        return json(ApiError.create(ex.getMessage(),HttpStatus.BAD_REQUEST,request));
+    }
+
+    @ExceptionHandler(TicketNotFoundException.class)
+    public ResponseEntity<ApiError> handleTicketNotFoundException(TicketNotFoundException ex, WebRequest request) {
         log.error(ex.getMessage());
-        return ApiError.create(ex.getMessage(),HttpStatus.UNPROCESSABLE_ENTITY,request);
+        return json(ApiError.create(ex.getMessage(),HttpStatus.NOT_FOUND,request));
+    }
+
+    @ExceptionHandler(OperationQueueFullException.class)
+    public ResponseEntity<ApiError> handleOperationQueueFullException(OperationQueueFullException ex, WebRequest request) {
+        log.warn(ex.getMessage());
+        return json(ApiError.create(ex.getMessage(),HttpStatus.TOO_MANY_REQUESTS,request));
     }
 
-    @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler(OperationsNotFoundException.class)
-    @ResponseBody
-    public ApiError handleOperationsNotFoundException(OperationsNotFoundException ex, WebRequest request) {
+    public ResponseEntity<ApiError> handleOperationsNotFoundException(OperationsNotFoundException ex, WebRequest request) {
         log.error(ex.getMessage());
-        return ApiError.create(ex.getMessage(),HttpStatus.NOT_FOUND,request);
+        return json(ApiError.create(ex.getMessage(),HttpStatus.NOT_FOUND,request));
     }
 
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(HttpMessageNotReadableException.class)
-    @ResponseBody
-    public ApiError handleHttpMessageNotReadableException(HttpMessageNotReadableException ex, WebRequest request) {
+    public ResponseEntity<ApiError> handleHttpMessageNotReadableException(HttpMessageNotReadableException ex, WebRequest request) {
         log.error(ex.getMessage());
-        return ApiError.create(ex.getMessage(),HttpStatus.BAD_REQUEST,request);
+        return json(ApiError.create(ex.getMessage(),HttpStatus.BAD_REQUEST,request));
     }
 
-}
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ApiError> handleInvalidCursorException(InvalidCursorException ex, WebRequest request) {
+        log.error(ex.getMessage());
+        return json(ApiError.create(ex.getMessage(),HttpStatus.BAD_REQUEST,request));
+    }
+
+    @ExceptionHandler(InvalidPeriodException.class)
+    public ResponseEntity<ApiError> handleInvalidPeriodException(InvalidPeriodException ex, WebRequest request) {
+        log.error(ex.getMessage());
+        return json(ApiError.create(ex.getMessage(),HttpStatus.BAD_REQUEST,request));
+    }
 
+    @ExceptionHandler(InvalidTransferException.class)
+    public ResponseEntity<ApiError> handleInvalidTransferException(InvalidTransferException ex, WebRequest request) {
+        log.error(ex.getMessage());
+        return json(ApiError.create(ex.getMessage(),HttpStatus.BAD_REQUEST,request));
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiError> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex, WebRequest request) {
+        log.error(ex.getMessage());
+        return json(ApiError.create(ex.getMessage(),HttpStatus.CONFLICT,request));
+    }
+
+    @ExceptionHandler(UnsupportedOperationException.class)
+    public ResponseEntity<ApiError> handleUnsupportedOperationException(UnsupportedOperationException ex, WebRequest request) {
+        log.error(ex.getMessage());
+        return json(ApiError.create(ex.getMessage(),HttpStatus.NOT_IMPLEMENTED,request));
+    }
+
+    /**
+     * The error written as JSON whatever the Accept header of the request, such as the {@code text/event-stream}
+     * of the operation event subscribers or the binary media type of the operation payloads, which no converter
+     * could answer for an error
+     */
+    private static ResponseEntity<ApiError> json(ApiError error) {
+        return ResponseEntity.status(error.status()).contentType(MediaType.APPLICATION_JSON).body(error);
+    }
+}
@@ -0,0 +1,7 @@
+package com.bank.kata.exception;
+
+public class IdempotencyKeyReusedException extends RuntimeException{
+    public IdempotencyKeyReusedException(String key){
+        super("Idempotency key already used for another operation: "+key);
+    }
+}
@@ -0,0 +1,7 @@
+package com.bank.kata.exception;
+
+public class IdempotencyKeysDisabledException extends IllegalArgumentException{
+    public IdempotencyKeysDisabledException(){
+        super("Idempotency keys are disabled on this instance");
+    }
+}
@@ -0,0 +1,7 @@
+package com.bank.kata.exception;
+
+public class InvalidCursorException extends IllegalArgumentException{
+    public InvalidCursorException(String cursor){
+        super("Invalid cursor: "+cursor);
+    }
+}
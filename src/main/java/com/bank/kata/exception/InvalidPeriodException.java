@@ -0,0 +1,7 @@
+package com.bank.kata.exception;
+
+public class InvalidPeriodException extends IllegalArgumentException{
+    public InvalidPeriodException(){
+        super("Period Invalid: start date must not be after end date");
+    }
+}
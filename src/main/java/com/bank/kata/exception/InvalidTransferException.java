@@ -0,0 +1,7 @@
+package com.bank.kata.exception;
+
+public class InvalidTransferException extends IllegalArgumentException{
+    public InvalidTransferException(){
+        super("Transfer Invalid: source and target accounts must be different");
+    }
+}
@@ -0,0 +1,7 @@
+package com.bank.kata.exception;
+
+public class OperationQueueFullException extends RuntimeException{
+    public OperationQueueFullException(){
+        super("Too many operations waiting, retry later");
+    }
+}
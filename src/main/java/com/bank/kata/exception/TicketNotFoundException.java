@@ -0,0 +1,9 @@
+package com.bank.kata.exception;
+
+import java.util.UUID;
+
+public class TicketNotFoundException extends RuntimeException{
+    public TicketNotFoundException(UUID ticket){
+        super("Ticket not found or expired: "+ticket);
+    }
+}
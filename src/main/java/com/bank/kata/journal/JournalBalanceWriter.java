@@ -0,0 +1,43 @@
+package com.bank.kata.journal;
+
+import com.bank.kata.engine.BalanceWriter;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Balance writer of the {@code journal} write mode: no transaction is opened, the write through appends the
+ * operation to the {@link OperationJournal} (see {@code OperationService#createOperation}) and the record
+ * carries the new balance. The operations of a change spanning several accounts are appended as one group of
+ * records, replayed and projected whole or not at all. The database is updated later by the {@link JournalProjector}, so the engine
+ * loads the balances of the journaled accounts from the journal. Account versions are not checked: the journal is
+ * only appended by the engine, under the lock of the account.
+ */
+@Component
+@ConditionalOnProperty(name = "kata.engine.write-mode", havingValue = "journal")
+@RequiredArgsConstructor
+public class JournalBalanceWriter implements BalanceWriter {
+
+    private final OperationJournal operationJournal;
+
+    @Override
+    public <T> T write(Account account, Function<Account, T> writeThrough) {
+        return writeThrough.apply(account);
+    }
+
+    @Override
+    public <T> T writeAll(List<Account> accounts, Function<List<Account>, T> writeThrough) {
+        return operationJournal.atomically(() -> writeThrough.apply(accounts));
+    }
+
+    @Override
+    public Optional<Money> writtenBalance(Long accountId) {
+        return operationJournal.balanceOf(accountId);
+    }
+}
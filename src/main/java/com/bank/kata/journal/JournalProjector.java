@@ -0,0 +1,144 @@
+package com.bank.kata.journal;
+
+import com.bank.kata.event.OperationCreatedEvent;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import com.bank.kata.outbox.OperationOutbox;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Projects the {@link OperationJournal} into the database in the {@code journal} write mode.
+ * <p>
+ * A single thread reads the journal from the last projected sequence number, kept in
+ * {@code journal_position}, and applies the records by batches of {@code kata.journal.projector-batch-size}
+ * in one transaction, a group of records never being split across two batches: operation rows inserted with
+ * their journal ids and their {@link OperationOutbox} rows,
+ * account balances updated, position moved forward, and an {@link OperationCreatedEvent} published per operation for the read side (rollups,
+ * cache). With an in-memory database the whole journal is projected again on startup.
+ * <p>
+ * The projection starts once the application is ready, so the listeners of these events are registered.
+ */
+@Component
+@ConditionalOnProperty(name = "kata.engine.write-mode", havingValue = "journal")
+@Slf4j
+public class JournalProjector {
+
+    private static final String INSERT_OPERATION = "INSERT INTO operation (id, account_id, amount, balance_after_op, type, creation_date_time, transfer_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_BALANCE = "UPDATE account SET balance = ?, version = version + 1 WHERE id = ?";
+    private static final String UPDATE_POSITION = "UPDATE journal_position SET seq = ? WHERE id = 1";
+    private static final Duration IDLE_WAIT = Duration.ofMillis(100);
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final OperationJournal operationJournal;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OperationOutbox operationOutbox;
+    private final int batchSize;
+    private final Thread projectorThread;
+    private volatile boolean running = true;
+    private volatile long projectedSeq;
+
+    public JournalProjector(OperationJournal operationJournal,
+                            JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            ApplicationEventPublisher eventPublisher,
+                            OperationOutbox operationOutbox,
+                            @Value("${kata.journal.projector-batch-size:500}") int batchSize) {
+        this.operationJournal = operationJournal;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.operationOutbox = operationOutbox;
+        this.batchSize = batchSize;
+        this.projectorThread = new Thread(this::project, "journal-projector");
+        this.projectorThread.setDaemon(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        projectedSeq = jdbcTemplate.queryForObject("SELECT seq FROM journal_position WHERE id = 1", Long.class);
+        log.info("Projecting the operation journal from {} to {}", projectedSeq, operationJournal.lastSeq());
+        projectorThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        projectorThread.interrupt();
+        projectorThread.join(Duration.ofSeconds(5).toMillis());
+    }
+
+    /**
+     * @return the sequence number of the last journal record projected into the database
+     */
+    public long projectedSeq() {
+        return projectedSeq;
+    }
+
+    private void project() {
+        while (running) {
+            try {
+                OperationJournal.Records records = operationJournal.read(projectedSeq, batchSize);
+                if (records.operations().isEmpty()) {
+                    operationJournal.awaitAppend(projectedSeq, IDLE_WAIT);
+                    continue;
+                }
+                apply(records);
+                projectedSeq = records.lastSeq();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Projection of the operation journal after {} failed, retrying", projectedSeq, ex);
+                try {
+                    Thread.sleep(RETRY_DELAY.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    void apply(OperationJournal.Records records) {
+        List<Operation> operations = records.operations();
+        Map<Long, Money> balances = new LinkedHashMap<>();
+        operations.forEach(operation -> balances.put(operation.getAccount().getId(), operation.getBalanceAfterOp()));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_OPERATION, operations, operations.size(), (statement, operation) -> {
+                statement.setLong(1, operation.getId());
+                statement.setLong(2, operation.getAccount().getId());
+                statement.setBigDecimal(3, operation.getAmount().toBigDecimal());
+                statement.setBigDecimal(4, operation.getBalanceAfterOp().toBigDecimal());
+                statement.setString(5, operation.getType().name());
+                statement.setTimestamp(6, Timestamp.valueOf(operation.getDateTime()));
+                statement.setString(7, operation.getTransferId() == null ? null : operation.getTransferId().toString());
+            });
+            operationOutbox.addAll(operations);
+            jdbcTemplate.batchUpdate(UPDATE_BALANCE, balances.entrySet(), balances.size(), (statement, balance) -> {
+                statement.setBigDecimal(1, balance.getValue().toBigDecimal());
+                statement.setLong(2, balance.getKey());
+            });
+            jdbcTemplate.update(UPDATE_POSITION, records.lastSeq());
+            operations.forEach(operation -> eventPublisher.publishEvent(new OperationCreatedEvent(operation)));
+        });
+        log.debug("Projected {} journaled operations", operations.size());
+    }
+}
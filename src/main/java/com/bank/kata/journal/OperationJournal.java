@@ -0,0 +1,612 @@
+package com.bank.kata.journal;
+
+import com.bank.kata.enums.FsyncPolicy;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the account operations, source of truth of the balances in the {@code journal}
+ * write mode ({@code kata.engine.write-mode}).
+ * <p>
+ * Operations are written as fixed-size records into memory-mapped segment files of
+ * {@code kata.journal.directory}; the sequence number of a record gives its position in the segments, the id
+ * of its operation comes from the {@link OperationSequence} shared with the other write modes. The operations
+ * of a change spanning several accounts, appended within {@link #atomically}, are written as one group: a
+ * header record holding the number of records of the group and the transfer they belong to, then the records.
+ * Records are forced to disk following {@code kata.journal.fsync}.
+ * <p>
+ * The balance of every journaled account is kept in memory. A checkpoint of these balances is written every
+ * {@code kata.journal.checkpoint-interval}, so on startup they are rebuilt from the last checkpoint and the
+ * records appended after it. Replay stops at the first record failing its checksum or at the header of a group
+ * missing some of its records, and the records torn by a crash after this point are cleared, so a group is
+ * either replayed and projected whole or not at all.
+ * <p>
+ * The database is updated from the journal by the {@link JournalProjector}. In the other write modes the
+ * journal is disabled and opens no file.
+ */
+@Component
+@Slf4j
+public class OperationJournal {
+
+    static final int RECORD_SIZE = 64;
+    private static final int ID_OFFSET = 48;
+    private static final int CHECKSUM_OFFSET = RECORD_SIZE - Integer.BYTES;
+    private static final int KIND_OFFSET = 19;
+    private static final byte OPERATION = 0;
+    private static final byte GROUP = 1;
+    private static final int READ_CHUNK = 4096;
+    private static final String CHECKPOINT = "checkpoint";
+    private static final String SEGMENT_FILE = "journal-%06d.log";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final FsyncPolicy fsyncPolicy;
+    private final Duration fsyncInterval;
+    private final Duration checkpointInterval;
+    private final OperationSequence operationSequence;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition appended = appendLock.newCondition();
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private final Map<Long, Money> balances = new ConcurrentHashMap<>();
+    private final ThreadLocal<List<Operation>> group = new ThreadLocal<>();
+    private final byte[] record = new byte[RECORD_SIZE];
+    private final CRC32 checksum = new CRC32();
+
+    private ScheduledExecutorService scheduler;
+    private volatile Segment segment;
+    private volatile long lastSeq;
+    private volatile long durableSeq;
+    private long checkpointSeq;
+    private long maxId;
+
+    public OperationJournal(@Value("${kata.engine.write-mode:direct}") String writeMode,
+                            @Value("${kata.journal.directory:data/journal}") Path directory,
+                            @Value("${kata.journal.segment-size:64MB}") DataSize segmentSize,
+                            @Value("${kata.journal.fsync:per-batch}") FsyncPolicy fsyncPolicy,
+                            @Value("${kata.journal.fsync-interval:PT0.01S}") Duration fsyncInterval,
+                            @Value("${kata.journal.checkpoint-interval:PT1M}") Duration checkpointInterval,
+                            OperationSequence operationSequence) {
+        this.enabled = "journal".equals(writeMode);
+        this.directory = directory;
+        this.recordsPerSegment = (int) Math.min(segmentSize.toBytes() / RECORD_SIZE, Integer.MAX_VALUE / RECORD_SIZE);
+        if (recordsPerSegment <= 0) throw new IllegalArgumentException("Journal segment size must hold at least one record");
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncInterval = fsyncInterval;
+        this.checkpointInterval = checkpointInterval;
+        this.operationSequence = operationSequence;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) return;
+        Files.createDirectories(directory);
+        checkpointSeq = readCheckpoint();
+        long seq = checkpointSeq;
+        int replayed = 0;
+        for (Records records; !(records = read(seq, READ_CHUNK, Long.MAX_VALUE)).operations().isEmpty(); ) {
+            for (Operation operation : records.operations()) {
+                balances.put(operation.getAccount().getId(), operation.getBalanceAfterOp());
+                maxId = Math.max(maxId, operation.getId());
+            }
+            replayed += records.operations().size();
+            seq = records.lastSeq();
+        }
+        lastSeq = seq;
+        durableSeq = seq;
+        clearAfter(seq);
+        segment = Segment.open(segmentPath(segmentIndex(seq + 1)), segmentIndex(seq + 1), recordsPerSegment);
+        operationSequence.skipPast(maxId);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "operation-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            long period = fsyncInterval.toNanos();
+            scheduler.scheduleAtFixedRate(() -> force(lastSeq), period, period, TimeUnit.NANOSECONDS);
+        }
+        long period = checkpointInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::checkpoint, period, period, TimeUnit.MILLISECONDS);
+        log.info("Operation journal opened in {}: {} operations replayed from checkpoint {}, {} accounts",
+                directory, replayed, checkpointSeq, balances.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (!enabled) return;
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint();
+        segment.channel.close();
+    }
+
+    /**
+     * Append an operation, returning once it is durable according to the fsync policy. Within
+     * {@link #atomically} the operation is only added to the group of the calling thread.
+     * @param operation the operation to append, its id is set to the next id of the {@link OperationSequence}
+     * @return the appended operation
+     */
+    public Operation append(Operation operation) {
+        operation.setId(operationSequence.nextId());
+        List<Operation> operations = group.get();
+        if (operations != null) {
+            operations.add(operation);
+        } else {
+            write(List.of(operation));
+        }
+        return operation;
+    }
+
+    /**
+     * Run work appending the operations of one change as a single group of records, written once the work
+     * returns: a crash leaves either the whole group or none of it. The group is dropped if the work fails.
+     * Work run within a group joins it.
+     * @param work the work appending the operations, all one side of the same transfer or of none
+     * @return the result of the work, once the group is durable according to the fsync policy
+     */
+    public <T> T atomically(Supplier<T> work) {
+        if (group.get() != null) return work.get();
+        List<Operation> operations = new ArrayList<>();
+        group.set(operations);
+        T result;
+        try {
+            result = work.get();
+        } finally {
+            group.remove();
+        }
+        if (!operations.isEmpty()) write(operations);
+        return result;
+    }
+
+    /**
+     * @return the balance of the account after its last journaled operation, empty if the account has none
+     */
+    public Optional<Money> balanceOf(Long accountId) {
+        return Optional.ofNullable(balances.get(accountId));
+    }
+
+    /**
+     * @return the sequence number of the last appended record
+     */
+    public long lastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Read the operations appended after a sequence number, in order. The operations of a group are read
+     * together, so more than the max number of operations may be read to end on a whole group.
+     * @param afterSeq the sequence number of the last record already read
+     * @param max      the max number of operations to read
+     * @return the operations read, none if nothing was appended after the sequence number, and the sequence
+     * number of the last record read
+     */
+    public Records read(long afterSeq, int max) {
+        try {
+            return read(afterSeq, max, lastSeq);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Wait until an operation is appended after a sequence number
+     * @return true if an operation was appended after the sequence number before the timeout
+     */
+    public boolean awaitAppend(long afterSeq, Duration timeout) throws InterruptedException {
+        long nanos = timeout.toNanos();
+        appendLock.lock();
+        try {
+            while (lastSeq <= afterSeq) {
+                if (nanos <= 0) return false;
+                nanos = appended.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Write a checkpoint of the balances of the accounts, once the records it covers are forced
+     */
+    void checkpoint() {
+        long seq;
+        long id;
+        Map<Long, Money> snapshot;
+        appendLock.lock();
+        try {
+            seq = lastSeq;
+            if (seq == checkpointSeq) return;
+            id = maxId;
+            snapshot = new HashMap<>(balances);
+        } finally {
+            appendLock.unlock();
+        }
+        force(seq);
+        Path temporary = directory.resolve(CHECKPOINT + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))) {
+            out.writeLong(seq);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<Long, Money> balance : snapshot.entrySet()) {
+                out.writeLong(balance.getKey());
+                out.writeInt(Money.SCALE);
+                out.writeLong(balance.getValue().minorUnits());
+            }
+            out.writeLong(id);
+        } catch (IOException ex) {
+            log.error("Journal checkpoint at {} failed", seq, ex);
+            return;
+        }
+        try {
+            Files.move(temporary, directory.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            checkpointSeq = seq;
+            log.debug("Journal checkpoint at {}: {} accounts", seq, snapshot.size());
+        } catch (IOException ex) {
+            log.error("Journal checkpoint at {} failed", seq, ex);
+        }
+    }
+
+    /**
+     * Write the records of operations after the last one, preceded by a group header when they are several or
+     * part of a transfer, then publish them at once by moving the last sequence number
+     */
+    private void write(List<Operation> operations) {
+        UUID transferId = operations.get(0).getTransferId();
+        if (operations.stream().anyMatch(operation -> !Objects.equals(operation.getTransferId(), transferId))) {
+            throw new IllegalArgumentException("The operations of a journal group must belong to the same transfer");
+        }
+        long seq;
+        appendLock.lock();
+        try {
+            seq = lastSeq;
+            try {
+                if (operations.size() > 1 || transferId != null) {
+                    encodeGroup(++seq, operations.size(), transferId);
+                    put(seq);
+                }
+                for (Operation operation : operations) {
+                    encode(++seq, operation);
+                    put(seq);
+                }
+            } catch (RuntimeException ex) {
+                clear(lastSeq + 1, seq);
+                throw ex;
+            }
+            if (fsyncPolicy == FsyncPolicy.PER_OPERATION) {
+                // segments are forced when rolled, the records left to force are in the current one
+                long first = Math.max(lastSeq + 1, (long) segment.index * recordsPerSegment + 1);
+                segment.buffer.force(slotOf(first) * RECORD_SIZE, (int) (seq - first + 1) * RECORD_SIZE);
+                durableSeq = seq;
+            }
+            for (Operation operation : operations) {
+                balances.put(operation.getAccount().getId(), operation.getBalanceAfterOp());
+                maxId = Math.max(maxId, operation.getId());
+            }
+            lastSeq = seq;
+            appended.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+        if (fsyncPolicy == FsyncPolicy.PER_BATCH) force(seq);
+    }
+
+    /**
+     * Copy the encoded record to its slot, rolling to its segment first
+     */
+    private void put(long seq) {
+        if (segmentIndex(seq) != segment.index) roll(segmentIndex(seq));
+        segment.buffer.put(slotOf(seq) * RECORD_SIZE, record);
+    }
+
+    /**
+     * Zero the records of a group left half written by a failed append, so they cannot be replayed once
+     * followed by new records
+     */
+    private void clear(long fromSeq, long toSeq) {
+        byte[] zeros = new byte[RECORD_SIZE];
+        for (long seq = fromSeq; seq <= toSeq; seq++) {
+            if (segmentIndex(seq) == segment.index) segment.buffer.put(slotOf(seq) * RECORD_SIZE, zeros);
+        }
+    }
+
+    /**
+     * Force the records up to a sequence number; concurrent callers share the same force
+     */
+    private void force(long seq) {
+        if (durableSeq >= seq) return;
+        forceLock.lock();
+        try {
+            if (durableSeq >= seq) return;
+            long target = lastSeq;
+            // segments are forced when rolled, the records up to the target are in the current one or before
+            segment.buffer.force();
+            durableSeq = target;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    private void roll(int index) {
+        try {
+            segment.buffer.force();
+            segment.channel.close();
+            segment = Segment.open(segmentPath(index), index, recordsPerSegment);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot roll the journal to segment " + index, ex);
+        }
+    }
+
+    /**
+     * Clear the records left after the last replayed one by a crash, the rest of a torn group or a record
+     * failing its checksum: zero the ones of its segment and delete the following segments, so none of them
+     * is read again once new records are appended before them
+     */
+    private void clearAfter(long seq) throws IOException {
+        int index = segmentIndex(seq + 1);
+        Path path = segmentPath(index);
+        if (Files.exists(path)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer zeros = ByteBuffer.allocate(RECORD_SIZE);
+                ByteBuffer chunk = ByteBuffer.allocate(READ_CHUNK * RECORD_SIZE);
+                for (long start = (long) slotOf(seq + 1) * RECORD_SIZE; start < channel.size(); start += chunk.capacity()) {
+                    chunk.clear();
+                    while (chunk.hasRemaining()) {
+                        if (channel.read(chunk, start + chunk.position()) < 0) break;
+                    }
+                    for (int offset = 0; offset + RECORD_SIZE <= chunk.position(); offset += RECORD_SIZE) {
+                        if (chunk.getLong(offset) == 0) continue;
+                        channel.write(zeros.clear(), start + offset);
+                        log.warn("Journal record {} left after the last valid record {} cleared", chunk.getLong(offset), seq);
+                    }
+                }
+                channel.force(false);
+            }
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path later : files.filter(file -> segmentIndexOf(file) > index).toList()) {
+                Files.delete(later);
+                log.warn("Journal segment {} after the last valid record {} deleted", later.getFileName(), seq);
+            }
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        if (!Files.exists(checkpoint)) return 0;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(checkpoint))) {
+            long seq = in.readLong();
+            int accounts = in.readInt();
+            for (int i = 0; i < accounts; i++) {
+                long accountId = in.readLong();
+                int scale = in.readInt();
+                balances.put(accountId, Money.of(in.readLong(), scale));
+            }
+            // checkpoints written before the ids came from the sequence end with the balances
+            maxId = in.available() >= Long.BYTES ? in.readLong() : seq;
+            return seq;
+        }
+    }
+
+    /**
+     * Read the operations of the records following a sequence number, stopping at the first record failing its
+     * checksum or group missing some of its records
+     */
+    private Records read(long afterSeq, int max, long untilSeq) throws IOException {
+        List<Operation> operations = new ArrayList<>();
+        long seq = afterSeq;
+        Cursor cursor = new Cursor(afterSeq, untilSeq);
+        while (operations.size() < max) {
+            ByteBuffer next = cursor.next();
+            if (!isValid(next, seq + 1)) break;
+            if (next.get(KIND_OFFSET) == OPERATION) {
+                operations.add(decode(next, seq + 1, null));
+                seq++;
+                continue;
+            }
+            int count = next.getInt(8);
+            UUID transferId = next.get(12) == 0 ? null : new UUID(next.getLong(20), next.getLong(28));
+            List<Operation> members = new ArrayList<>(count);
+            for (int i = 1; i <= count; i++) {
+                ByteBuffer member = cursor.next();
+                if (!isValid(member, seq + 1 + i) || member.get(KIND_OFFSET) != OPERATION) break;
+                members.add(decode(member, seq + 1 + i, transferId));
+            }
+            if (members.size() < count) break;
+            operations.addAll(members);
+            seq += count + 1;
+        }
+        return new Records(operations, seq);
+    }
+
+    private void encode(long seq, Operation operation) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putLong(seq)
+                .putLong(operation.getAccount().getId())
+                .put((byte) operation.getType().ordinal())
+                .put((byte) Money.SCALE)
+                .put((byte) Money.SCALE)
+                .put(OPERATION)
+                .putLong(operation.getAmount().minorUnits())
+                .putLong(operation.getBalanceAfterOp().minorUnits())
+                .putLong(operation.getDateTime().toEpochSecond(ZoneOffset.UTC))
+                .putInt(operation.getDateTime().getNano())
+                .putLong(operation.getId());
+        sign();
+    }
+
+    /**
+     * Encode a group header: its sequence number, the number of records of the group, whether they belong to
+     * a transfer, the group kind in place of the operation kind, and the transfer id
+     */
+    private void encodeGroup(long seq, int count, UUID transferId) {
+        Arrays.fill(record, (byte) 0);
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putLong(seq)
+                .putInt(count)
+                .put((byte) (transferId == null ? 0 : 1));
+        buffer.put(KIND_OFFSET, GROUP);
+        if (transferId != null) {
+            buffer.putLong(20, transferId.getMostSignificantBits()).putLong(28, transferId.getLeastSignificantBits());
+        }
+        sign();
+    }
+
+    private void sign() {
+        checksum.reset();
+        checksum.update(record, 0, CHECKSUM_OFFSET);
+        ByteBuffer.wrap(record).putInt(CHECKSUM_OFFSET, (int) checksum.getValue());
+    }
+
+    private static boolean isValid(ByteBuffer record, long seq) {
+        if (record == null || record.getLong(0) != seq) return false;
+        CRC32 crc = new CRC32();
+        crc.update(record.slice(0, CHECKSUM_OFFSET));
+        return record.getInt(CHECKSUM_OFFSET) == (int) crc.getValue();
+    }
+
+    private static Operation decode(ByteBuffer record, long seq, UUID transferId) {
+        long accountId = record.getLong(8);
+        OperationType type = OperationType.values()[record.get(16)];
+        Money amount = Money.of(record.getLong(20), record.get(17));
+        Money balance = Money.of(record.getLong(28), record.get(18));
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(record.getLong(36), record.getInt(44), ZoneOffset.UTC);
+        long id = record.getLong(ID_OFFSET);
+        return Operation.builder()
+                // records written before the ids came from the sequence used their sequence number
+                .id(id == 0 ? seq : id)
+                .account(Account.builder().id(accountId).build())
+                .type(type)
+                .amount(amount)
+                .balanceAfterOp(balance)
+                .dateTime(dateTime)
+                .transferId(transferId)
+                .build();
+    }
+
+    private int segmentIndex(long seq) {
+        return (int) ((seq - 1) / recordsPerSegment);
+    }
+
+    private int slotOf(long seq) {
+        return (int) ((seq - 1) % recordsPerSegment);
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(SEGMENT_FILE.formatted(index));
+    }
+
+    private static int segmentIndexOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith("journal-") || !name.endsWith(".log")) return -1;
+        return Integer.parseInt(name, "journal-".length(), name.length() - ".log".length(), 10);
+    }
+
+    /**
+     * Operations read from the journal
+     * @param operations the operations read, in order
+     * @param lastSeq    the sequence number of the last record read, to read the following ones from
+     */
+    public record Records(List<Operation> operations, long lastSeq) {
+    }
+
+    /**
+     * Reads the records following a sequence number across the segments, a chunk of a segment at a time
+     */
+    private final class Cursor {
+
+        private final long untilSeq;
+        private long seq;
+        private ByteBuffer chunk = ByteBuffer.allocate(0);
+
+        private Cursor(long afterSeq, long untilSeq) {
+            this.seq = afterSeq + 1;
+            this.untilSeq = untilSeq;
+        }
+
+        /**
+         * @return the next record, null past the last sequence number or the end of the segment files
+         */
+        private ByteBuffer next() throws IOException {
+            if (seq > untilSeq) return null;
+            if (chunk.remaining() < RECORD_SIZE && !load()) return null;
+            ByteBuffer next = chunk.slice(chunk.position(), RECORD_SIZE);
+            chunk.position(chunk.position() + RECORD_SIZE);
+            seq++;
+            return next;
+        }
+
+        private boolean load() throws IOException {
+            Path path = segmentPath(segmentIndex(seq));
+            if (!Files.exists(path)) return false;
+            int slot = slotOf(seq);
+            int count = (int) Math.min(Math.min(READ_CHUNK, recordsPerSegment - slot), untilSeq - seq + 1);
+            chunk = ByteBuffer.allocate(count * RECORD_SIZE);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long position = (long) slot * RECORD_SIZE;
+                while (chunk.hasRemaining()) {
+                    if (channel.read(chunk, position + chunk.position()) < 0) break;
+                }
+            }
+            chunk.flip();
+            return chunk.remaining() >= RECORD_SIZE;
+        }
+    }
+
+    private record Segment(int index, FileChannel channel, MappedByteBuffer buffer) {
+
+        static Segment open(Path path, int index, int records) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(index, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) records * RECORD_SIZE));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.bank.kata.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ids of the journaled operations, taken from {@code operation_seq} by blocks of {@link #ALLOCATION_SIZE} as
+ * Hibernate allocates them for the operations it saves: the value read from the sequence is the last id of
+ * the block, so a journaled operation never shares its id with one saved by another write mode.
+ */
+@Component
+@Slf4j
+public class OperationSequence {
+
+    static final int ALLOCATION_SIZE = 50;
+
+    private static final String NEXT_VALUE = "SELECT NEXT VALUE FOR operation_seq";
+    private static final String RESTART = "ALTER SEQUENCE operation_seq RESTART WITH ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private long nextId;
+    private long lastId;
+
+    public OperationSequence(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Take the next id of the current block, or read a new block from the sequence once it is used up
+     */
+    public synchronized long nextId() {
+        if (nextId == 0 || nextId > lastId) newBlock(jdbcTemplate.queryForObject(NEXT_VALUE, Long.class));
+        return nextId++;
+    }
+
+    /**
+     * Move the sequence past an id already given, when the database was rebuilt behind the journal holding it
+     * (an in-memory database projected again on startup)
+     */
+    public synchronized void skipPast(long id) {
+        if (nextId > id) return;
+        long last = jdbcTemplate.queryForObject(NEXT_VALUE, Long.class);
+        if (last - ALLOCATION_SIZE >= id) {
+            newBlock(last);
+            return;
+        }
+        jdbcTemplate.execute(RESTART + (id + ALLOCATION_SIZE));
+        newBlock(jdbcTemplate.queryForObject(NEXT_VALUE, Long.class));
+        log.info("Operation sequence moved past the journaled id {}", id);
+    }
+
+    /**
+     * Start the block ending at a value read from the sequence, the first value only covers itself
+     */
+    private void newBlock(long last) {
+        lastId = last;
+        nextId = Math.max(last - ALLOCATION_SIZE + 1, 1);
+    }
+}
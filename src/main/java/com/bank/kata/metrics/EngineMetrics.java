@@ -0,0 +1,54 @@
+package com.bank.kata.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Meters of the optimistic concurrency of the balance engine.
+ * <ul>
+ *     <li>{@code kata.engine.conflicts}: counter of the writes rejected because the account was updated concurrently</li>
+ *     <li>{@code kata.engine.retries}: counter of the writes retried after a conflict, conflicts not retried are
+ *     answered with {@code 409 CONFLICT}</li>
+ *     <li>{@code kata.engine.mailbox.size}: gauge of the operations waiting in the mailboxes of the shards, in the
+ *     {@code sharded} engine mode</li>
+ * </ul>
+ */
+@Component
+public class EngineMetrics {
+
+    public static final String CONFLICT_COUNTER = "kata.engine.conflicts";
+    public static final String RETRY_COUNTER = "kata.engine.retries";
+    public static final String MAILBOX_GAUGE = "kata.engine.mailbox.size";
+
+    private final MeterRegistry meterRegistry;
+    private final Counter conflicts;
+    private final Counter retries;
+
+    public EngineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.conflicts = Counter.builder(CONFLICT_COUNTER)
+                .description("Balance writes rejected by a concurrent update of the account")
+                .register(meterRegistry);
+        this.retries = Counter.builder(RETRY_COUNTER)
+                .description("Balance writes retried after a concurrent update of the account")
+                .register(meterRegistry);
+    }
+
+    public void conflict() {
+        conflicts.increment();
+    }
+
+    public void retry() {
+        retries.increment();
+    }
+
+    public void mailboxes(Supplier<Number> size) {
+        Gauge.builder(MAILBOX_GAUGE, size)
+                .description("Operations waiting in the mailboxes of the balance engine shards")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,64 @@
+package com.bank.kata.metrics;
+
+import com.bank.kata.enums.OperationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters of the account operations.
+ * <ul>
+ *     <li>{@code kata.operation}: timer of the handled operations, tagged by {@code type} ({@code DEBIT}, {@code CREDIT}
+ *     or {@code TRANSFER}) and {@code outcome},
+ *     {@code success} or the simple name of the exception the operation failed with</li>
+ *     <li>{@code kata.operation.rejected}: counter of the failed operations, tagged by {@code type} and {@code reason}</li>
+ * </ul>
+ * Percentile histograms are turned on with {@code management.metrics.distribution.percentiles-histogram.kata}.
+ */
+@Component
+@RequiredArgsConstructor
+public class OperationMetrics {
+
+    public static final String OPERATION_TIMER = "kata.operation";
+    public static final String REJECTED_COUNTER = "kata.operation.rejected";
+    public static final String SUCCESS = "success";
+    public static final String TRANSFER = "TRANSFER";
+
+    private final MeterRegistry meterRegistry;
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Stop the sample of an operation
+     * @param sample sample started with the operation
+     * @param type type of the operation
+     * @param failure exception the operation failed with, null on success
+     */
+    public void stop(Timer.Sample sample, OperationType type, Throwable failure) {
+        stop(sample, String.valueOf(type), failure);
+    }
+
+    /**
+     * Stop the sample of an operation with a type outside {@link OperationType}, such as {@link #TRANSFER}
+     */
+    public void stop(Timer.Sample sample, String type, Throwable failure) {
+        String outcome = failure == null ? SUCCESS : failure.getClass().getSimpleName();
+        sample.stop(Timer.builder(OPERATION_TIMER)
+                .description("Duration of the account operations")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        if (failure != null) {
+            Counter.builder(REJECTED_COUNTER)
+                    .description("Account operations rejected")
+                    .tag("type", type)
+                    .tag("reason", outcome)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.bank.kata.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Time to the first request of the API, the startup as seen by the callers.
+ * <ul>
+ *     <li>{@code kata.startup.first-request}: gauge of the time from the JVM start to the end of the first request
+ *     under {@code /api/}, probes and scrapes excluded; registered once that request is served</li>
+ * </ul>
+ * Spring Boot adds {@code application.started.time} and {@code application.ready.time} for the context alone.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class StartupMetrics {
+
+    public static final String FIRST_REQUEST_GAUGE = "kata.startup.first-request";
+
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier uptimeMillis;
+    private final AtomicBoolean served = new AtomicBoolean();
+
+    @Autowired
+    public StartupMetrics(MeterRegistry meterRegistry) {
+        this(meterRegistry, ManagementFactory.getRuntimeMXBean()::getUptime);
+    }
+
+    StartupMetrics(MeterRegistry meterRegistry, LongSupplier uptimeMillis) {
+        this.meterRegistry = meterRegistry;
+        this.uptimeMillis = uptimeMillis;
+    }
+
+    /**
+     * Published by the dispatcher servlet once a request has been handled
+     */
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (served.get() || !event.getRequestUrl().startsWith("/api/") || !served.compareAndSet(false, true)) return;
+        long firstRequest = uptimeMillis.getAsLong();
+        TimeGauge.builder(FIRST_REQUEST_GAUGE, () -> firstRequest, TimeUnit.MILLISECONDS)
+                .description("Time from the JVM start to the end of the first API request")
+                .register(meterRegistry);
+        log.info("First API request served {} ms after the JVM start", firstRequest);
+    }
+}
@@ -0,0 +1,52 @@
+package com.bank.kata.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times the transactions of the transaction manager, from begin to commit or rollback, as
+ * {@code kata.transaction} tagged by {@code name} (the transactional method, {@code anonymous} for
+ * programmatic transactions) and {@code outcome}. Registered on the transaction manager by Spring Boot.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionMetrics implements TransactionExecutionListener {
+
+    public static final String TRANSACTION_TIMER = "kata.transaction";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<TransactionExecution, Timer.Sample> running = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        if (beginFailure == null) running.put(transaction, Timer.start(meterRegistry));
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        stop(transaction, commitFailure == null ? "commit" : "commit-failure");
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+        stop(transaction, rollbackFailure == null ? "rollback" : "rollback-failure");
+    }
+
+    private void stop(TransactionExecution transaction, String outcome) {
+        Timer.Sample sample = running.remove(transaction);
+        if (sample == null) return;
+        String name = transaction.getTransactionName();
+        sample.stop(Timer.builder(TRANSACTION_TIMER)
+                .description("Duration of the transactions")
+                .tag("name", name == null || name.isEmpty() ? "anonymous" : name)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+}
@@ -5,8 +5,6 @@ import com.bank.kata.exception.InvalidAmountException;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.math.BigDecimal;
-
 @Entity
 @Builder
 @Getter
@@ -20,7 +18,21 @@ public class Account {
     private Long id;
 
     @Column(nullable = false,scale = 2)
-    private BigDecimal balance = BigDecimal.ZERO;
+    private Money balance = Money.ZERO;
+
+    /**
+     * Incremented by every balance update, an update made from a stale read of the account fails
+     * instead of overwriting the balance written meanwhile.
+     */
+    @Version
+    private long version;
+
+    /**
+     * The part of the balance a working copy of a hot account is written to: 0 for the account row, n + 1 for its
+     * sub-balance n. Not persisted, it spreads the daily rollups of concurrent deposits over separate rows.
+     */
+    @Transient
+    private int shard;
 
     /**
      * Debits the specified amount to the account. This method encapsulates the debits logic
@@ -29,8 +41,8 @@ public class Account {
      * @param amount the amount to be credited; must be non-null and positive
      * @throws InvalidAmountException if the amount is null or non-positive
      */
-    public void debit(BigDecimal amount) {
-        if (amount == null || amount.compareTo(BigDecimal.ZERO)<0) throw new InvalidAmountException();
+    public void debit(Money amount) {
+        if (amount == null || amount.isNegative()) throw new InvalidAmountException();
         balance = balance.add(amount);
     }
 
@@ -42,9 +54,9 @@ public class Account {
      * @throws InvalidAmountException if the amount is null or non-positive
      * @throws InsufficientBalanceException if the amount exceed the current balance
      */
-    public void credit(BigDecimal amount) {
-        if (amount == null || amount.compareTo(BigDecimal.ZERO)<0) throw new InvalidAmountException();
-        if(balance.compareTo(amount)<0) throw new InsufficientBalanceException();
+    public void credit(Money amount) {
+        if (amount == null || amount.isNegative()) throw new InvalidAmountException();
+        if(balance.isLessThan(amount)) throw new InsufficientBalanceException();
         balance = balance.subtract(amount);
     }
 }
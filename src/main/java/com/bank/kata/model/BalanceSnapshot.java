@@ -0,0 +1,38 @@
+package com.bank.kata.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Balance of an account at a point in time, written by the periodic checkpoint
+ */
+@Entity
+@Table(name = "balance_snapshot")
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "balance_snapshot_seq")
+    @SequenceGenerator(name = "balance_snapshot_seq", sequenceName = "balance_snapshot_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "snapshot_date_time", nullable = false)
+    private LocalDateTime dateTime;
+
+    @Column(nullable = false)
+    private Money balance;
+
+    /**
+     * The last operation included in the balance
+     */
+    @Column(nullable = false)
+    private Long lastOperationId;
+}
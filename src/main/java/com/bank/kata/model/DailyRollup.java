@@ -0,0 +1,50 @@
+package com.bank.kata.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Totals of the operations of an account over one day written to one shard of its balance, maintained as
+ * operations are created by {@link com.bank.kata.repository.DailyRollupRepository#upsert}. The totals of the
+ * day are the sum of its rows.
+ */
+@Entity
+@Table(name = "daily_rollup")
+@IdClass(DailyRollupId.class)
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class DailyRollup {
+
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "rollup_date")
+    private LocalDate date;
+
+    /**
+     * 0 for the operations written to the account row, n + 1 for the deposits written to the sub-balance n
+     * of a hot account
+     */
+    @Id
+    private int shard;
+
+    @Column(nullable = false)
+    private Money totalDebit;
+
+    @Column(nullable = false)
+    private Money totalCredit;
+
+    @Column(nullable = false)
+    private long debitCount;
+
+    @Column(nullable = false)
+    private long creditCount;
+}
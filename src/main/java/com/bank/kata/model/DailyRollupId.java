@@ -0,0 +1,17 @@
+package com.bank.kata.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyRollupId implements Serializable {
+    private Long accountId;
+    private LocalDate date;
+    private int shard;
+}
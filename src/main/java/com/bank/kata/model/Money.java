@@ -0,0 +1,87 @@
+package com.bank.kata.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amount of money held as a fixed-point number of minor units (cents) in a {@code long}.
+ * <p>
+ * Replaces {@link BigDecimal} on the operation hot path: comparisons are primitive and an addition allocates
+ * one small object at most. The scale is always {@link #SCALE}, amounts with more decimals are rejected instead
+ * of being silently rounded, and arithmetic fails with an {@link ArithmeticException} on overflow.
+ * <p>
+ * Stored in the {@code DECIMAL} columns by {@link MoneyConverter} and written in JSON as a plain number by
+ * {@link MoneyJson}, so neither the schema nor the API change.
+ *
+ * @param minorUnits the amount in minor units, {@code 1050} for {@code 10.50}
+ */
+@JsonSerialize(using = MoneyJson.Serializer.class)
+@JsonDeserialize(using = MoneyJson.Deserializer.class)
+public record Money(long minorUnits) implements Comparable<Money> {
+
+    /**
+     * Number of decimals of every amount, the scale of the {@code DECIMAL(19, 2)} columns
+     */
+    public static final int SCALE = 2;
+
+    public static final Money ZERO = new Money(0);
+
+    /**
+     * @throws ArithmeticException if the amount has more than {@link #SCALE} decimals or does not fit in a long
+     */
+    public static Money of(BigDecimal amount) {
+        return new Money(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+    }
+
+    /**
+     * @throws NumberFormatException if the amount is not a decimal number
+     * @throws ArithmeticException if the amount has more than {@link #SCALE} decimals or does not fit in a long
+     */
+    public static Money of(String amount) {
+        return of(new BigDecimal(amount));
+    }
+
+    /**
+     * The amount {@code unscaled * 10^-scale}, without going through a {@link BigDecimal} when the scale is already
+     * {@link #SCALE}
+     */
+    public static Money of(long unscaled, int scale) {
+        return scale == SCALE ? new Money(unscaled) : of(BigDecimal.valueOf(unscaled, scale));
+    }
+
+    public Money add(Money other) {
+        return new Money(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money subtract(Money other) {
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return minorUnits < other.minorUnits;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    /**
+     * The amount as a plain decimal number, {@code 10.50}
+     */
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.bank.kata.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * JSON form of {@link Money}: a decimal number, {@code 10.50}, as the {@link BigDecimal} amounts were written before
+ */
+public final class MoneyJson {
+
+    private MoneyJson() {
+    }
+
+    public static class Serializer extends StdScalarSerializer<Money> {
+
+        public Serializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public void serialize(Money money, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(money.toBigDecimal());
+        }
+    }
+
+    /**
+     * Reads a number or a string holding a number, an amount with more than {@link Money#SCALE} decimals is
+     * rejected as an invalid format
+     */
+    public static class Deserializer extends StdScalarDeserializer<Money> {
+
+        public Deserializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_STRING) {
+                return (Money) context.handleUnexpectedToken(Money.class, parser);
+            }
+            String text = parser.getText().trim();
+            try {
+                return token == JsonToken.VALUE_STRING ? Money.of(text) : Money.of(parser.getDecimalValue());
+            } catch (ArithmeticException | NumberFormatException e) {
+                return (Money) context.handleWeirdStringValue(Money.class, text,
+                        "not an amount with at most %d decimals", Money.SCALE);
+            }
+        }
+    }
+}
@@ -3,9 +3,11 @@ package com.bank.kata.model;
 import com.bank.kata.enums.OperationType;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Builder
@@ -15,7 +17,8 @@ import java.time.LocalDateTime;
 public class Operation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "operation_seq")
+    @SequenceGenerator(name = "operation_seq", sequenceName = "operation_seq", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -23,10 +26,10 @@ public class Operation {
     private OperationType type;
 
     @Column(nullable = false)
-    private BigDecimal amount;
+    private Money amount;
 
     @Column(nullable = false)
-    private BigDecimal balanceAfterOp;
+    private Money balanceAfterOp;
 
     @Column(name = "creation_date_time",nullable = false)
     private LocalDateTime dateTime;
@@ -35,5 +38,19 @@ public class Operation {
     @JoinColumn(name = "account_id", nullable = false)
     private Account account;
 
+    /**
+     * The transfer this operation is one side of, shared with the operation on the other account.
+     * Null for a plain deposit or withdrawal.
+     */
+    @JdbcTypeCode(SqlTypes.CHAR)
+    @Column(name = "transfer_id", length = 36)
+    private UUID transferId;
+
+    /**
+     * The balance of the account right before this operation
+     */
+    public Money balanceBeforeOp() {
+        return type == OperationType.DEBIT ? balanceAfterOp.subtract(amount) : balanceAfterOp.add(amount);
+    }
 
 }
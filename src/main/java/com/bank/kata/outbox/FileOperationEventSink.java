@@ -0,0 +1,59 @@
+package com.bank.kata.outbox;
+
+import com.bank.kata.dto.OperationEventDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Event sink appending the operation events to a local NDJSON file, one event per line, for consumers
+ * tailing the file without any broker. Enabled with {@code kata.outbox.file.enabled}, the file is
+ * {@code kata.outbox.file.path}. A batch published again after a failure may repeat lines, consumers skip
+ * the offsets they have already read.
+ */
+@Component
+@ConditionalOnProperty(name = "kata.outbox.file.enabled", havingValue = "true")
+@Slf4j
+public class FileOperationEventSink implements OperationEventSink {
+
+    private final ObjectMapper objectMapper;
+    private final BufferedWriter writer;
+
+    public FileOperationEventSink(ObjectMapper objectMapper,
+                                  @Value("${kata.outbox.file.path:data/outbox/operation-events.ndjson}") Path path) throws IOException {
+        this.objectMapper = objectMapper;
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        log.info("Appending the operation events to {}", path.toAbsolutePath());
+    }
+
+    @Override
+    public synchronized void publish(List<OperationEventDto> events) {
+        try {
+            for (OperationEventDto event : events) {
+                writer.write(objectMapper.writeValueAsString(event));
+                writer.newLine();
+            }
+            writer.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
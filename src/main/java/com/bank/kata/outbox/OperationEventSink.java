@@ -0,0 +1,22 @@
+package com.bank.kata.outbox;
+
+import com.bank.kata.dto.OperationEventDto;
+
+import java.util.List;
+
+/**
+ * Destination of the operation events relayed from the {@link OperationOutbox}.
+ * <p>
+ * Delivery is at least once: a batch whose publication fails, or whose position could not be recorded,
+ * is published again to every sink, so consumers skip the events whose offset they have already seen.
+ */
+public interface OperationEventSink {
+
+    /**
+     * Publish a batch of events
+     *
+     * @param events the events, in increasing offset order
+     * @throws RuntimeException to have the batch published again later
+     */
+    void publish(List<OperationEventDto> events);
+}
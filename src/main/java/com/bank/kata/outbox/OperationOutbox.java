@@ -0,0 +1,98 @@
+package com.bank.kata.outbox;
+
+import com.bank.kata.dto.OperationEventDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outbox of the operation events: every operation written to the database also writes an
+ * {@code operation_outbox} row in the same transaction, so an event exists if and only if its operation
+ * has committed. The {@link OutboxRelay} then numbers the committed rows and hands them to the
+ * {@link OperationEventSink}s. Turned off with {@code kata.outbox.enabled: false}.
+ */
+@Component
+public class OperationOutbox {
+
+    private static final String INSERT_ENTRY = "INSERT INTO operation_outbox (operation_id, creation_date_time) VALUES (?, ?)";
+    private static final String SELECT_EVENTS = """
+            SELECT x.event_offset, o.id, o.account_id, o.type, o.amount, o.balance_after_op, o.creation_date_time, o.transfer_id
+            FROM operation_outbox x JOIN operation o ON o.id = x.operation_id
+            WHERE x.event_offset > ?""";
+    private static final String SELECT_LAST_OFFSET = "SELECT assigned_offset FROM outbox_position WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    public OperationOutbox(JdbcTemplate jdbcTemplate, @Value("${kata.outbox.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Record the event of an operation in the transaction persisting the operation
+     */
+    public void add(Operation operation) {
+        if (!enabled) return;
+        jdbcTemplate.update(INSERT_ENTRY, operation.getId(), Timestamp.valueOf(operation.getDateTime()));
+    }
+
+    /**
+     * Record the events of operations inserted as a batch, in the transaction inserting them
+     */
+    public void addAll(List<Operation> operations) {
+        if (!enabled) return;
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, operations, operations.size(), (statement, operation) -> {
+            statement.setLong(1, operation.getId());
+            statement.setTimestamp(2, Timestamp.valueOf(operation.getDateTime()));
+        });
+    }
+
+    /**
+     * Read the numbered events following an offset, in offset order
+     *
+     * @param afterOffset the offset to read from, exclusive
+     * @param accountId   the account to read the events of, null for all accounts
+     * @param limit       the max number of events
+     */
+    public List<OperationEventDto> read(long afterOffset, Long accountId, int limit) {
+        if (accountId == null) {
+            return jdbcTemplate.query(SELECT_EVENTS + " ORDER BY x.event_offset LIMIT ?",
+                    (rs, rowNum) -> toEvent(rs), afterOffset, limit);
+        }
+        return jdbcTemplate.query(SELECT_EVENTS + " AND o.account_id = ? ORDER BY x.event_offset LIMIT ?",
+                (rs, rowNum) -> toEvent(rs), afterOffset, accountId, limit);
+    }
+
+    /**
+     * @return the offset of the last numbered event, where a subscription to the new events only starts from
+     */
+    public long lastOffset() {
+        return jdbcTemplate.queryForObject(SELECT_LAST_OFFSET, Long.class);
+    }
+
+    private static OperationEventDto toEvent(ResultSet rs) throws SQLException {
+        return new OperationEventDto(
+                rs.getLong("event_offset"),
+                rs.getLong("id"),
+                rs.getLong("account_id"),
+                OperationType.valueOf(rs.getString("type")),
+                Money.of(rs.getBigDecimal("amount")),
+                Money.of(rs.getBigDecimal("balance_after_op")),
+                rs.getTimestamp("creation_date_time").toLocalDateTime(),
+                rs.getString("transfer_id") == null ? null : UUID.fromString(rs.getString("transfer_id")));
+    }
+}
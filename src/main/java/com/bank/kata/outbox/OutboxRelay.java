@@ -0,0 +1,158 @@
+package com.bank.kata.outbox;
+
+import com.bank.kata.dto.OperationEventDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Relays the {@link OperationOutbox} to the {@link OperationEventSink}s.
+ * <p>
+ * Every {@code kata.outbox.relay-interval}, the relay first numbers the outbox rows committed since its last
+ * run: offsets are given in the order the rows are found, so an operation committing late gets a later offset
+ * instead of a gap behind the ones already relayed. It then reads the numbered events following the published
+ * position by batches of {@code kata.outbox.batch-size}, publishes each batch to all the sinks and moves the
+ * position, kept with the last offset in {@code outbox_position}. A failing sink stops the run, the batch is
+ * published again on the next one.
+ * <p>
+ * Relayed rows are purged {@code kata.outbox.retention} after their operation, subscribers can resume from an
+ * offset within that time.
+ */
+@Component
+@ConditionalOnProperty(name = "kata.outbox.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class OutboxRelay {
+
+    public static final String PUBLISHED_COUNTER = "kata.outbox.published";
+    public static final String LAG_GAUGE = "kata.outbox.lag";
+
+    private static final String SELECT_POSITION = "SELECT assigned_offset, published_offset FROM outbox_position WHERE id = 1";
+    private static final String SELECT_UNASSIGNED = "SELECT operation_id FROM operation_outbox WHERE event_offset IS NULL ORDER BY operation_id LIMIT ?";
+    private static final String ASSIGN_OFFSET = "UPDATE operation_outbox SET event_offset = ? WHERE operation_id = ?";
+    private static final String UPDATE_ASSIGNED = "UPDATE outbox_position SET assigned_offset = ? WHERE id = 1";
+    private static final String UPDATE_PUBLISHED = "UPDATE outbox_position SET published_offset = ? WHERE id = 1";
+    private static final String DELETE_EXPIRED = "DELETE FROM operation_outbox WHERE event_offset <= ? AND creation_date_time < ?";
+
+    private final OperationOutbox operationOutbox;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<OperationEventSink> sinks;
+    private final int batchSize;
+    private final Duration retention;
+    private final Counter published;
+    private volatile long assignedOffset;
+    private volatile long publishedOffset;
+
+    public OutboxRelay(OperationOutbox operationOutbox,
+                       JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       List<OperationEventSink> sinks,
+                       MeterRegistry meterRegistry,
+                       @Value("${kata.outbox.batch-size:500}") int batchSize,
+                       @Value("${kata.outbox.retention:PT24H}") Duration retention) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Outbox batch size must be greater than 0");
+        this.operationOutbox = operationOutbox;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sinks = sinks;
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.published = Counter.builder(PUBLISHED_COUNTER)
+                .description("Operation events published to the event sinks")
+                .register(meterRegistry);
+        Gauge.builder(LAG_GAUGE, () -> assignedOffset - publishedOffset)
+                .description("Operation events numbered but not published yet")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        jdbcTemplate.query(SELECT_POSITION, rs -> {
+            assignedOffset = rs.getLong("assigned_offset");
+            publishedOffset = rs.getLong("published_offset");
+        });
+        log.info("Relaying the operation outbox from offset {} to {} sinks", publishedOffset, sinks.size());
+    }
+
+    /**
+     * @return the offset of the last event published to the sinks
+     */
+    public long publishedOffset() {
+        return publishedOffset;
+    }
+
+    @Scheduled(initialDelayString = "${kata.outbox.relay-interval:PT0.2S}", fixedDelayString = "${kata.outbox.relay-interval:PT0.2S}")
+    public void relay() {
+        try {
+            int assigned;
+            int relayed;
+            do {
+                assigned = assignOffsets();
+                relayed = publish();
+            } while (assigned == batchSize || relayed == batchSize);
+        } catch (RuntimeException ex) {
+            log.error("Relay of the operation outbox after offset {} failed, retrying", publishedOffset, ex);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${kata.outbox.purge-interval:PT1H}", fixedDelayString = "${kata.outbox.purge-interval:PT1H}")
+    public void purge() {
+        int purged = jdbcTemplate.update(DELETE_EXPIRED, publishedOffset, Timestamp.valueOf(LocalDateTime.now().minus(retention)));
+        log.info("{} relayed outbox events purged", purged);
+    }
+
+    /**
+     * Number the committed rows not numbered yet, following the last offset
+     *
+     * @return the number of rows numbered
+     */
+    int assignOffsets() {
+        List<Long> operationIds = jdbcTemplate.queryForList(SELECT_UNASSIGNED, Long.class, batchSize);
+        if (operationIds.isEmpty()) return 0;
+        long lastOffset = assignedOffset + operationIds.size();
+        List<Object[]> offsets = new ArrayList<>(operationIds.size());
+        for (int i = 0; i < operationIds.size(); i++) {
+            offsets.add(new Object[]{assignedOffset + 1 + i, operationIds.get(i)});
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(ASSIGN_OFFSET, offsets);
+            jdbcTemplate.update(UPDATE_ASSIGNED, lastOffset);
+        });
+        assignedOffset = lastOffset;
+        return operationIds.size();
+    }
+
+    /**
+     * Publish the batch of events following the published position to every sink, then move the position
+     *
+     * @return the number of events published
+     */
+    int publish() {
+        List<OperationEventDto> events = operationOutbox.read(publishedOffset, null, batchSize);
+        if (events.isEmpty()) return 0;
+        for (OperationEventSink sink : sinks) {
+            sink.publish(events);
+        }
+        long lastOffset = events.get(events.size() - 1).offset();
+        jdbcTemplate.update(UPDATE_PUBLISHED, lastOffset);
+        publishedOffset = lastOffset;
+        published.increment(events.size());
+        log.debug("Relayed {} operation events up to offset {}", events.size(), lastOffset);
+        return events.size();
+    }
+}
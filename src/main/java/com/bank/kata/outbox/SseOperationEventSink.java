@@ -0,0 +1,116 @@
+package com.bank.kata.outbox;
+
+import com.bank.kata.dto.OperationEventDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Event sink streaming the operation events to Server-Sent Events subscribers.
+ * <p>
+ * A subscription starts from an offset: the events already numbered after it are replayed from the
+ * {@link OperationOutbox}, then the events published by the relay are pushed as they come. Each subscriber
+ * tracks the offset of the last event it went through, so an event both replayed and published is sent once.
+ * Every event carries its offset as the SSE {@code id}: a client reconnecting with {@code Last-Event-ID}
+ * resumes right after the last event it received. Subscriptions are closed after {@code kata.outbox.sse.timeout}.
+ */
+@Component
+@Slf4j
+public class SseOperationEventSink implements OperationEventSink {
+
+    public static final String EVENT_NAME = "operation";
+    public static final String SUBSCRIBERS_GAUGE = "kata.outbox.subscribers";
+
+    private final OperationOutbox operationOutbox;
+    private final long timeoutMillis;
+    private final int batchSize;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    public SseOperationEventSink(OperationOutbox operationOutbox,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${kata.outbox.sse.timeout:PT10M}") Duration timeout,
+                                 @Value("${kata.outbox.batch-size:500}") int batchSize) {
+        this.operationOutbox = operationOutbox;
+        this.timeoutMillis = timeout.toMillis();
+        this.batchSize = batchSize;
+        Gauge.builder(SUBSCRIBERS_GAUGE, subscribers, List::size)
+                .description("Subscribers of the operation event stream")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Subscribe to the events following an offset, replaying the numbered ones before returning
+     *
+     * @param accountId  the account to stream the events of, null for all accounts
+     * @param fromOffset the offset of the last event already received, exclusive
+     * @return the emitter of the subscription
+     */
+    public SseEmitter subscribe(Long accountId, long fromOffset) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, accountId, fromOffset);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(ex -> subscribers.remove(subscriber));
+        synchronized (subscriber) {
+            subscribers.add(subscriber);
+            List<OperationEventDto> events;
+            do {
+                events = operationOutbox.read(subscriber.lastOffset, accountId, batchSize);
+            } while (subscriber.send(events) && events.size() == batchSize);
+        }
+        log.info("Subscription to the operation events of {} from offset {}", accountId == null ? "all accounts" : "account " + accountId, fromOffset);
+        return emitter;
+    }
+
+    @Override
+    public void publish(List<OperationEventDto> events) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.send(events);
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Long accountId;
+        private long lastOffset;
+
+        private Subscriber(SseEmitter emitter, Long accountId, long lastOffset) {
+            this.emitter = emitter;
+            this.accountId = accountId;
+            this.lastOffset = lastOffset;
+        }
+
+        /**
+         * Send the events after the last offset of the subscriber, dropping the subscriber once its connection is gone
+         *
+         * @return false when the subscriber was dropped
+         */
+        private synchronized boolean send(List<OperationEventDto> events) {
+            try {
+                for (OperationEventDto event : events) {
+                    if (event.offset() <= lastOffset) continue;
+                    lastOffset = event.offset();
+                    if (accountId != null && !accountId.equals(event.accountId())) continue;
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(event.offset()))
+                            .name(EVENT_NAME)
+                            .data(event, MediaType.APPLICATION_JSON));
+                }
+                return true;
+            } catch (IOException | IllegalStateException ex) {
+                log.debug("Subscriber of the operation events gone at offset {}", lastOffset);
+                subscribers.remove(this);
+                return false;
+            }
+        }
+    }
+}
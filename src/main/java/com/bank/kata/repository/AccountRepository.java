@@ -1,9 +1,34 @@
 package com.bank.kata.repository;
 
 import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Optional;
+
 @Repository
 public interface AccountRepository extends JpaRepository<Account,Long> {
+
+    /**
+     * Update the balance of an account and increment its version, only if it is still at the expected version
+     *
+     * @return the number of updated rows, 0 when the account was updated concurrently
+     */
+    @Modifying
+    @Query("update Account a set a.balance = :balance, a.version = a.version + 1 where a.id = :id and a.version = :version")
+    int compareAndSetBalance(@Param("id") Long id, @Param("version") long version, @Param("balance") Money balance);
+
+    /**
+     * Read the whole balance of an account, its row plus the sub-balances of a hot account
+     *
+     * @return the balance, empty when the account does not exist
+     */
+    @Query(value = "select a.balance + coalesce((select sum(s.balance) from account_balance_shard s where s.account_id = a.id), 0) "
+            + "from account a where a.id = :id", nativeQuery = true)
+    Optional<BigDecimal> findTotalBalance(@Param("id") Long id);
 }
@@ -0,0 +1,36 @@
+package com.bank.kata.repository;
+
+import com.bank.kata.model.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot,Long> {
+    Optional<BalanceSnapshot> findFirstByAccountIdAndDateTimeLessThanEqualOrderByDateTimeDesc(Long accountId, LocalDateTime at);
+
+    /**
+     * Write in one statement a snapshot at a point in time for every account whose latest operation at or before
+     * it is not the last operation of one of its snapshots yet, holding the balance after that operation. Each row
+     * takes its own value of {@code balance_snapshot_seq}, the last id of a block Hibernate would allocate.
+     *
+     * @return the number of snapshots written
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into balance_snapshot (id, account_id, snapshot_date_time, balance, last_operation_id)
+            select next value for balance_snapshot_seq, o.account_id, :at, o.balance_after_op, o.id
+            from account a
+            join operation o on o.id = (select l.id from operation l where l.account_id = a.id and l.creation_date_time <= :at
+                                        order by l.creation_date_time desc, l.id desc limit 1)
+            where not exists (select 1 from balance_snapshot s where s.account_id = a.id and s.last_operation_id = o.id)""",
+            nativeQuery = true)
+    int insertLatestUntil(@Param("at") LocalDateTime at);
+}
@@ -0,0 +1,51 @@
+package com.bank.kata.repository;
+
+import com.bank.kata.model.DailyRollup;
+import com.bank.kata.model.DailyRollupId;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DailyRollupRepository extends JpaRepository<DailyRollup, DailyRollupId> {
+    List<DailyRollup> findByAccountIdAndDateBetweenOrderByDate(Long accountId, LocalDate from, LocalDate to);
+
+    /**
+     * Read the balance of an account at the start of a day: its whole balance, the row plus the sub-balances of
+     * a hot account, less the totals of the rollups since that day. Both are read by one statement, so the
+     * operations committed meanwhile are either counted in both or in none.
+     *
+     * @return the balance, empty when the account does not exist
+     */
+    @Query(value = "select a.balance + coalesce((select sum(s.balance) from account_balance_shard s where s.account_id = a.id), 0) "
+            + "- coalesce((select sum(r.total_debit - r.total_credit) from daily_rollup r where r.account_id = a.id and r.rollup_date >= :date), 0) "
+            + "from account a where a.id = :accountId", nativeQuery = true)
+    Optional<BigDecimal> findBalanceBefore(@Param("accountId") Long accountId, @Param("date") LocalDate date);
+
+    /**
+     * Add an operation to the rollup of its day and shard in one atomic statement: no read of the rollup, and no
+     * update lost between concurrent writers of the same row. Only the {@code daily_rollup} table is synchronized,
+     * so the pending writes of the session are not flushed.
+     *
+     * @return the number of inserted or updated rows
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "daily_rollup"))
+    @Query(value = "insert into daily_rollup (account_id, rollup_date, shard, total_debit, total_credit, debit_count, credit_count) "
+            + "values (:accountId, :date, :shard, :debit, :credit, :debitCount, :creditCount) "
+            + "on duplicate key update total_debit = total_debit + values(total_debit), total_credit = total_credit + values(total_credit), "
+            + "debit_count = debit_count + values(debit_count), credit_count = credit_count + values(credit_count)", nativeQuery = true)
+    int upsert(@Param("accountId") Long accountId, @Param("date") LocalDate date, @Param("shard") int shard,
+               @Param("debit") BigDecimal debit, @Param("credit") BigDecimal credit,
+               @Param("debitCount") long debitCount, @Param("creditCount") long creditCount);
+}
@@ -1,12 +1,103 @@
 package com.bank.kata.repository;
 
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.model.Money;
 import com.bank.kata.model.Operation;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Repository
 public interface OperationRepository extends JpaRepository<Operation,Long> {
+
+    /**
+     * Constructor expression of an {@link OperationDto} on the operation {@code o}
+     */
+    String DTO = "new com.bank.kata.dto.OperationDto(o.id, o.type, o.amount, o.balanceAfterOp, o.dateTime, o.transferId)";
+
     Page<Operation> findByAccountId(Long accountId,Pageable pageable);
+
+    long countByAccountId(Long accountId);
+
+    /**
+     * Page of the operations of an account read straight into {@link OperationDto}s by a constructor expression:
+     * no entity, account proxy nor mapping pass, and a read-only transaction in which Hibernate never flushes
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "select " + DTO + " from Operation o where o.account.id = :accountId",
+            countQuery = "select count(o) from Operation o where o.account.id = :accountId")
+    Page<OperationDto> findDtoByAccountId(@Param("accountId") Long accountId, Pageable pageable);
+
+    /**
+     * Most recent operations of an account, served by the (account_id, creation_date_time, id) index
+     */
+    @Transactional(readOnly = true)
+    @Query("select " + DTO + " from Operation o where o.account.id = :accountId order by o.dateTime desc, o.id desc")
+    List<OperationDto> findLatest(@Param("accountId") Long accountId, Limit limit);
+
+    /**
+     * Operations of an account strictly older than the position (dateTime, id), most recent first.
+     * The redundant {@code o.dateTime <= :dateTime} bound lets the index seek to the position
+     * instead of scanning the whole history of the account.
+     */
+    @Transactional(readOnly = true)
+    @Query("select " + DTO + """
+             from Operation o
+            where o.account.id = :accountId
+              and o.dateTime <= :dateTime
+              and (o.dateTime < :dateTime or o.id < :id)
+            order by o.dateTime desc, o.id desc""")
+    List<OperationDto> findOlderThan(@Param("accountId") Long accountId,
+                                     @Param("dateTime") LocalDateTime dateTime,
+                                     @Param("id") Long id,
+                                     Limit limit);
+
+    /**
+     * Most recent operations of an account at or before a date time
+     */
+    @Query("""
+            select o from Operation o
+            where o.account.id = :accountId and o.dateTime <= :at
+            order by o.dateTime desc, o.id desc""")
+    List<Operation> findLatestUntil(@Param("accountId") Long accountId, @Param("at") LocalDateTime at, Limit limit);
+
+    /**
+     * Most recent operations of an account after a date time (exclusive) and at or before another one
+     */
+    @Query("""
+            select o from Operation o
+            where o.account.id = :accountId and o.dateTime > :after and o.dateTime <= :at
+            order by o.dateTime desc, o.id desc""")
+    List<Operation> findLatestBetween(@Param("accountId") Long accountId,
+                                      @Param("after") LocalDateTime after,
+                                      @Param("at") LocalDateTime at,
+                                      Limit limit);
+
+    /**
+     * Oldest operations of an account after a date time (exclusive)
+     */
+    @Query("""
+            select o from Operation o
+            where o.account.id = :accountId and o.dateTime > :after
+            order by o.dateTime, o.id""")
+    List<Operation> findFirstAfter(@Param("accountId") Long accountId, @Param("after") LocalDateTime after, Limit limit);
+
+    /**
+     * Record the balance after an operation, in its own transaction
+     *
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query("update Operation o set o.balanceAfterOp = :balance where o.id = :id")
+    int updateBalanceAfterOp(@Param("id") Long id, @Param("balance") Money balance);
 }
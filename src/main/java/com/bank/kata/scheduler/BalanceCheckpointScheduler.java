@@ -0,0 +1,38 @@
+package com.bank.kata.scheduler;
+
+import com.bank.kata.service.BalanceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Periodically writes the balance snapshots used to answer point-in-time balance queries.
+ * Snapshots are taken {@code kata.snapshot.lag} in the past so operations still being committed
+ * when the checkpoint runs are not missed.
+ */
+@Component
+@ConditionalOnProperty(name = "kata.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class BalanceCheckpointScheduler {
+
+    private final BalanceService balanceService;
+    private final Duration lag;
+
+    public BalanceCheckpointScheduler(BalanceService balanceService, @Value("${kata.snapshot.lag:PT1M}") Duration lag) {
+        this.balanceService = balanceService;
+        this.lag = lag;
+    }
+
+    @Scheduled(initialDelayString = "${kata.snapshot.interval:PT1H}", fixedDelayString = "${kata.snapshot.interval:PT1H}")
+    public void checkpoint() {
+        LocalDateTime at = LocalDateTime.now().minus(lag);
+        log.info("[START] balance checkpoint at {}", at);
+        int written = balanceService.checkpoint(at);
+        log.info("[END] balance checkpoint at {}: {} snapshots written", at, written);
+    }
+}
@@ -2,9 +2,9 @@ package com.bank.kata.service;
 
 import com.bank.kata.dto.OperationDto;
 import com.bank.kata.enums.OperationType;
-
-import java.math.BigDecimal;
+import com.bank.kata.model.Money;
 
 public interface AccountService {
-    OperationDto handleOperation(Long accountId, OperationType type, BigDecimal amount);
+    OperationDto handleOperation(Long accountId, OperationType type, Money amount);
+    OperationDto handleOperation(Long accountId, OperationType type, Money amount, String idempotencyKey);
 }
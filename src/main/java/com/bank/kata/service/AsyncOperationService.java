@@ -0,0 +1,15 @@
+package com.bank.kata.service;
+
+import com.bank.kata.dto.OperationTicketDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncOperationService {
+    OperationTicketDto submit(Long accountId, OperationType type, Money amount);
+    OperationTicketDto getTicket(UUID ticket);
+    CompletableFuture<OperationTicketDto> awaitTicket(UUID ticket, Duration wait);
+}
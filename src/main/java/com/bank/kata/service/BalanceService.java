@@ -0,0 +1,11 @@
+package com.bank.kata.service;
+
+import com.bank.kata.dto.BalanceDto;
+
+import java.time.LocalDateTime;
+
+public interface BalanceService {
+    BalanceDto getBalance(Long accountId);
+    BalanceDto getBalanceAt(Long accountId, LocalDateTime at);
+    int checkpoint(LocalDateTime at);
+}
@@ -0,0 +1,8 @@
+package com.bank.kata.service;
+
+import com.bank.kata.dto.BatchOperationRequestDto;
+import com.bank.kata.dto.BatchOperationResultDto;
+
+public interface BatchOperationService {
+    BatchOperationResultDto handleOperations(BatchOperationRequestDto request);
+}
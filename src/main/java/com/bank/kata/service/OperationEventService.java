@@ -0,0 +1,7 @@
+package com.bank.kata.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface OperationEventService {
+    SseEmitter subscribe(Long accountId, Long fromOffset);
+}
@@ -0,0 +1,10 @@
+package com.bank.kata.service;
+
+import com.bank.kata.enums.ExportFormat;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+public interface OperationExportService {
+    StreamingResponseBody exportOperations(Long accountId, ExportFormat format, LocalDateTime from, LocalDateTime to);
+}
@@ -1,14 +1,19 @@
 package com.bank.kata.service;
 
 import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.OperationSliceDto;
 import com.bank.kata.enums.OperationType;
 import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 
-import java.math.BigDecimal;
+import java.util.UUID;
 
 public interface OperationService {
     Page<OperationDto> getAccountOperations(Long accountId, PageRequest pageRequest);
-    OperationDto createOperation(Account account, OperationType debit, BigDecimal amount);
+    OperationSliceDto getAccountOperationHistory(Long accountId, String cursor, int size);
+    OperationDto createOperation(Account account, OperationType debit, Money amount);
+    OperationDto createOperation(Account account, OperationType type, Money amount, UUID transferId);
+    OperationDto recordBalance(Long accountId, OperationDto operation, Money balance);
 }
@@ -0,0 +1,9 @@
+package com.bank.kata.service;
+
+import com.bank.kata.dto.StatementDto;
+
+import java.time.LocalDate;
+
+public interface StatementService {
+    StatementDto getStatement(Long accountId, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,8 @@
+package com.bank.kata.service;
+
+import com.bank.kata.dto.TransferDto;
+import com.bank.kata.model.Money;
+
+public interface TransferService {
+    TransferDto handleTransfer(Long fromAccountId, Long toAccountId, Money amount);
+}
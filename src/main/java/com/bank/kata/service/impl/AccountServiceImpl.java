@@ -1,58 +1,123 @@
 package com.bank.kata.service.impl;
 
+import com.bank.kata.cache.IdempotencyKeyStore;
 import com.bank.kata.dto.OperationDto;
+import com.bank.kata.engine.BalanceEngine;
+import com.bank.kata.engine.HotAccountEngine;
 import com.bank.kata.enums.OperationType;
-import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.exception.IdempotencyKeyReusedException;
+import com.bank.kata.exception.IdempotencyKeysDisabledException;
+import com.bank.kata.metrics.OperationMetrics;
 import com.bank.kata.model.Account;
-import com.bank.kata.repository.AccountRepository;
+import com.bank.kata.model.Money;
 import com.bank.kata.service.AccountService;
 import com.bank.kata.service.OperationService;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AccountServiceImpl implements AccountService {
 
-    private final AccountRepository accountRepository;
+    private final BalanceEngine balanceEngine;
+    private final HotAccountEngine hotAccountEngine;
     private final OperationService operationService;
+    private final OperationMetrics operationMetrics;
+    private final IdempotencyKeyStore idempotencyKeyStore;
 
     /**
-     * Handle the possible operation on account
+     * Handle the possible operation on account, the balance change and the operation creation
+     * are applied by the balance engine in a single transaction, or by the {@link HotAccountEngine}
+     * for the hot accounts. The duration and outcome of the
+     * operation are recorded by {@link OperationMetrics}
      * @param accountId Account ID
      * @param type Type of operation
      * @param amount amount of operation
      * @return Operation created is returned
      */
-    @Transactional
     @Override
-    public OperationDto handleOperation(Long accountId, OperationType type, BigDecimal amount) {
+    public OperationDto handleOperation(Long accountId, OperationType type, Money amount) {
+        return handleOperation(accountId, type, amount, null);
+    }
+
+    /**
+     * Handle an operation at most once per idempotency key, see {@link #handleOperation(Long, OperationType, Money)}.
+     * A key already used on the account replays the operation it was first used for, read from the
+     * {@link IdempotencyKeyStore} without touching the account.
+     * @param idempotencyKey key chosen by the client for the operation, null to always perform it
+     * @throws IdempotencyKeyReusedException if the key was used for an operation of another type or amount
+     * @throws IdempotencyKeysDisabledException if a key is given while {@code kata.idempotency.enabled} is off
+     */
+    @Override
+    public OperationDto handleOperation(Long accountId, OperationType type, Money amount, String idempotencyKey) {
         log.info("[START] processing {} request on account {}",type,accountId);
         if (Objects.isNull(type)){
             throw new IllegalArgumentException("Operation Type must not be null");
         }
-        Account account = updateAccount(accountId, type, amount);
-        OperationDto operation = operationService.createOperation(account, type, amount);
+        if (idempotencyKey != null) {
+            if (!idempotencyKeyStore.isEnabled()) throw new IdempotencyKeysDisabledException();
+            Optional<OperationDto> replay = idempotencyKeyStore.find(accountId, idempotencyKey);
+            if (replay.isPresent()) {
+                log.info("[END] {} request on account {} replayed for key {}",type,accountId,idempotencyKey);
+                return sameOperation(replay.get(), type, amount, idempotencyKey);
+            }
+        }
+        Timer.Sample sample = operationMetrics.start();
+        OperationDto operation;
+        try {
+            operation = perform(accountId, type, amount, idempotencyKey);
+        } catch (RuntimeException ex) {
+            operationMetrics.stop(sample, type, ex);
+            throw ex;
+        }
+        operationMetrics.stop(sample, type, null);
+        if (idempotencyKey != null) idempotencyKeyStore.remember(accountId, idempotencyKey, operation);
         log.info("[END] processing {} request on account {}",type,accountId);
         return operation;
     }
 
-    private Account updateAccount(Long accountId, OperationType type, BigDecimal amount) {
-        Account account = accountRepository.findById(accountId)
-                .orElseThrow(() -> new AccountNotFoundException(accountId));
+    private OperationDto perform(Long accountId, OperationType type, Money amount, String idempotencyKey) {
+        Consumer<Account> mutation = account -> updateAccount(account, type, amount);
+        Function<Account, OperationDto> writeThrough = account -> {
+            OperationDto created = operationService.createOperation(account, type, amount);
+            if (idempotencyKey != null) idempotencyKeyStore.save(accountId, idempotencyKey, created);
+            return created;
+        };
+        try {
+            return hotAccountEngine.isHot(accountId)
+                    ? hotAccountEngine.execute(accountId, type, mutation, writeThrough,
+                            (created, balance) -> operationService.recordBalance(accountId, created, balance))
+                    : balanceEngine.execute(accountId, mutation, writeThrough);
+        } catch (DuplicateKeyException ex) {
+            // a concurrent request with the same key committed first, its operation is replayed
+            if (idempotencyKey == null) throw ex;
+            OperationDto first = idempotencyKeyStore.load(accountId, idempotencyKey).orElseThrow(() -> ex);
+            return sameOperation(first, type, amount, idempotencyKey);
+        }
+    }
+
+    static OperationDto sameOperation(OperationDto operation, OperationType type, Money amount, String idempotencyKey) {
+        if (operation.type() != type || !operation.amount().equals(amount)) {
+            throw new IdempotencyKeyReusedException(idempotencyKey);
+        }
+        return operation;
+    }
+
+    static void updateAccount(Account account, OperationType type, Money amount) {
         switch (type){
             case CREDIT -> account.credit(amount);
             case DEBIT -> account.debit(amount);
             default -> throw new IllegalArgumentException("Unhandled Operation Type: "+ type);
         }
-        return accountRepository.save(account);
     }
 
-
 }
@@ -0,0 +1,196 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.OperationTicketDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.enums.TicketStatus;
+import com.bank.kata.exception.OperationQueueFullException;
+import com.bank.kata.exception.TicketNotFoundException;
+import com.bank.kata.model.Money;
+import com.bank.kata.service.AccountService;
+import com.bank.kata.service.AsyncOperationService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations submitted without waiting for their outcome.
+ * <p>
+ * A submitted operation is given a ticket and put on the queue of one of {@code kata.async.workers} worker
+ * threads, chosen by account so the operations of an account are handled one after the other in submission
+ * order, by {@link AccountService#handleOperation}. The queues hold at most {@code kata.async.queue-capacity}
+ * operations in total, a submission finding the queue of its account full is rejected instead of waiting.
+ * Pending tickets are held until their operation completes, bounded by the queues, then kept with their outcome
+ * among the last {@code kata.async.max-tickets} completed ones for {@code kata.async.ticket-ttl}.
+ * <p>
+ * Waiting operations are gauged as {@code kata.async.queue.size} and rejected submissions counted as
+ * {@code kata.async.rejected}.
+ */
+@Service
+@Slf4j
+public class AsyncOperationServiceImpl implements AsyncOperationService {
+
+    private final AccountService accountService;
+    private final List<BlockingQueue<Ticket>> queues;
+    private final List<Thread> workers;
+    private final Map<UUID, Ticket> pending = new ConcurrentHashMap<>();
+    private final Cache<UUID, Ticket> completed;
+    private final Counter rejected;
+    private volatile boolean running = true;
+
+    public AsyncOperationServiceImpl(AccountService accountService,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${kata.async.workers:4}") int workers,
+                                     @Value("${kata.async.queue-capacity:10000}") int queueCapacity,
+                                     @Value("${kata.async.max-tickets:100000}") long maxTickets,
+                                     @Value("${kata.async.ticket-ttl:PT10M}") Duration ticketTtl) {
+        if (workers <= 0) throw new IllegalArgumentException("Async workers must be greater than 0");
+        if (queueCapacity < workers) throw new IllegalArgumentException("Async queue capacity must be at least the number of workers");
+        this.accountService = accountService;
+        this.queues = new ArrayList<>(workers);
+        this.workers = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            BlockingQueue<Ticket> queue = new ArrayBlockingQueue<>(queueCapacity / workers);
+            Thread worker = new Thread(() -> drain(queue), "async-operation-worker-" + i);
+            worker.setDaemon(true);
+            this.queues.add(queue);
+            this.workers.add(worker);
+        }
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maxTickets)
+                .expireAfterWrite(ticketTtl)
+                .build();
+        this.rejected = Counter.builder("kata.async.rejected")
+                .description("Asynchronous operations rejected because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("kata.async.queue.size", queues, all -> all.stream().mapToInt(BlockingQueue::size).sum())
+                .description("Asynchronous operations waiting for a worker")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        workers.forEach(Thread::start);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (BlockingQueue<Ticket> queue : queues) {
+            Ticket ticket;
+            while ((ticket = queue.poll()) != null) {
+                ticket.result.completeExceptionally(new CancellationException("Asynchronous operations stopped"));
+            }
+        }
+    }
+
+    /**
+     * Queue an operation on an account and return its pending ticket at once
+     *
+     * @throws OperationQueueFullException if the queue of the account is full
+     */
+    @Override
+    public OperationTicketDto submit(Long accountId, OperationType type, Money amount) {
+        if (Objects.isNull(type)){
+            throw new IllegalArgumentException("Operation Type must not be null");
+        }
+        Ticket ticket = new Ticket(UUID.randomUUID(), accountId, type, amount, new CompletableFuture<>());
+        pending.put(ticket.id, ticket);
+        // kept once completed, before leaving the pending ones so a poll always finds it
+        ticket.result.whenComplete((operation, failure) -> {
+            completed.put(ticket.id, ticket);
+            pending.remove(ticket.id);
+        });
+        if (!running || !queueOf(accountId).offer(ticket)) {
+            pending.remove(ticket.id);
+            rejected.increment();
+            throw new OperationQueueFullException();
+        }
+        log.info("{} operation on account {} queued with ticket {}", type, accountId, ticket.id);
+        return toDto(ticket);
+    }
+
+    @Override
+    public OperationTicketDto getTicket(UUID ticket) {
+        return toDto(find(ticket));
+    }
+
+    /**
+     * Wait for the outcome of a ticket without holding a thread
+     *
+     * @param wait the longest time to wait, the ticket is returned still pending after it
+     */
+    @Override
+    public CompletableFuture<OperationTicketDto> awaitTicket(UUID ticket, Duration wait) {
+        Ticket found = find(ticket);
+        if (found.result.isDone() || wait.isZero()) return CompletableFuture.completedFuture(toDto(found));
+        return found.result
+                .handle((operation, failure) -> toDto(found))
+                .completeOnTimeout(toDto(found), wait.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private Ticket find(UUID ticket) {
+        Ticket found = pending.get(ticket);
+        if (found == null) found = completed.getIfPresent(ticket);
+        if (found == null) throw new TicketNotFoundException(ticket);
+        return found;
+    }
+
+    private BlockingQueue<Ticket> queueOf(Long accountId) {
+        return queues.get(Math.floorMod(accountId.hashCode(), queues.size()));
+    }
+
+    private void drain(BlockingQueue<Ticket> queue) {
+        while (running) {
+            Ticket ticket;
+            try {
+                ticket = queue.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                ticket.result.complete(accountService.handleOperation(ticket.accountId, ticket.type, ticket.amount));
+            } catch (RuntimeException ex) {
+                ticket.result.completeExceptionally(ex);
+            }
+        }
+    }
+
+    private static OperationTicketDto toDto(Ticket ticket) {
+        if (!ticket.result.isDone()) {
+            return new OperationTicketDto(ticket.id, ticket.accountId, TicketStatus.PENDING, null, null);
+        }
+        try {
+            return new OperationTicketDto(ticket.id, ticket.accountId, TicketStatus.SUCCEEDED, ticket.result.join(), null);
+        } catch (CompletionException | CancellationException ex) {
+            Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+            return new OperationTicketDto(ticket.id, ticket.accountId, TicketStatus.FAILED, null, cause.getMessage());
+        }
+    }
+
+    private record Ticket(UUID id, Long accountId, OperationType type, Money amount, CompletableFuture<OperationDto> result) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.archive.OperationTiers;
+import com.bank.kata.cache.AccountReadCache;
+import com.bank.kata.dto.BalanceDto;
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.model.BalanceSnapshot;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import com.bank.kata.repository.AccountRepository;
+import com.bank.kata.repository.BalanceSnapshotRepository;
+import com.bank.kata.repository.OperationRepository;
+import com.bank.kata.service.BalanceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceServiceImpl implements BalanceService {
+
+    private static final Limit FIRST = Limit.of(1);
+
+    private final AccountRepository accountRepository;
+    private final OperationRepository operationRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AccountReadCache accountReadCache;
+    private final OperationTiers operationTiers;
+
+    @Override
+    public BalanceDto getBalance(Long accountId) {
+        return new BalanceDto(accountId, currentBalance(accountId), LocalDateTime.now());
+    }
+
+    /**
+     * Compute the balance of an account at a point in time with a bounded number of index lookups,
+     * whatever the length of the history: the nearest snapshot before the date time is the starting
+     * point, and as every operation carries the balance right after it, replaying the operations
+     * recorded since the snapshot comes down to reading the last of them. Only when the operation table has
+     * none is the cold tier read, the archived operations being older than the ones of the table.
+     *
+     * @param accountId the id of the account
+     * @param at        the point in time
+     * @return the balance of the account at this point in time
+     */
+    @Override
+    public BalanceDto getBalanceAt(Long accountId, LocalDateTime at) {
+        log.info("Get balance of account {} at {}", accountId, at);
+        Optional<BalanceSnapshot> snapshot = balanceSnapshotRepository.findFirstByAccountIdAndDateTimeLessThanEqualOrderByDateTimeDesc(accountId, at);
+        if (snapshot.isPresent()) {
+            Money balance = first(operationRepository.findLatestBetween(accountId, snapshot.get().getDateTime(), at, FIRST))
+                    .map(Operation::getBalanceAfterOp)
+                    .or(() -> operationTiers.findLatestArchived(accountId, snapshot.get().getDateTime(), at).map(OperationDto::balance))
+                    .orElse(snapshot.get().getBalance());
+            return new BalanceDto(accountId, balance, at);
+        }
+        Optional<Money> last = first(operationRepository.findLatestUntil(accountId, at, FIRST))
+                .map(Operation::getBalanceAfterOp)
+                .or(() -> operationTiers.findLatestArchived(accountId, null, at).map(OperationDto::balance));
+        if (last.isPresent()) return new BalanceDto(accountId, last.get(), at);
+        Money balance = operationTiers.findFirstArchivedAfter(accountId, at)
+                .map(BalanceServiceImpl::balanceBeforeOp)
+                .or(() -> first(operationRepository.findFirstAfter(accountId, at, FIRST)).map(Operation::balanceBeforeOp))
+                .orElseGet(() -> currentBalance(accountId));
+        return new BalanceDto(accountId, balance, at);
+    }
+
+    /**
+     * Write a snapshot of the balance at a point in time for every account having operations
+     * since its last snapshot, with one set-based statement whatever the number of accounts
+     *
+     * @param at the point in time of the snapshots, operations after it are not included
+     * @return the number of snapshots written
+     */
+    @Override
+    public int checkpoint(LocalDateTime at) {
+        return balanceSnapshotRepository.insertLatestUntil(at);
+    }
+
+    private Money currentBalance(Long accountId) {
+        return accountReadCache.getBalance(accountId, () -> accountRepository.findTotalBalance(accountId)
+                .map(Money::of)
+                .orElseThrow(() -> new AccountNotFoundException(accountId)));
+    }
+
+    private static Money balanceBeforeOp(OperationDto operation) {
+        return operation.type() == OperationType.DEBIT
+                ? operation.balance().subtract(operation.amount())
+                : operation.balance().add(operation.amount());
+    }
+
+    private static <T> Optional<T> first(List<T> list) {
+        return list.stream().findFirst();
+    }
+}
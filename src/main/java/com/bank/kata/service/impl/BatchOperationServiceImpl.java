@@ -0,0 +1,152 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.dto.BatchOperationItemDto;
+import com.bank.kata.dto.BatchOperationItemResultDto;
+import com.bank.kata.dto.BatchOperationRequestDto;
+import com.bank.kata.dto.BatchOperationResultDto;
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.engine.BalanceEngine;
+import com.bank.kata.engine.HotAccountEngine;
+import com.bank.kata.enums.BatchItemStatus;
+import com.bank.kata.enums.BatchMode;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.exception.InsufficientBalanceException;
+import com.bank.kata.exception.InvalidAmountException;
+import com.bank.kata.journal.OperationJournal;
+import com.bank.kata.model.Account;
+import com.bank.kata.repository.AccountRepository;
+import com.bank.kata.service.BatchOperationService;
+import com.bank.kata.service.OperationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class BatchOperationServiceImpl implements BatchOperationService {
+
+    private final BalanceEngine balanceEngine;
+    private final HotAccountEngine hotAccountEngine;
+    private final AccountRepository accountRepository;
+    private final OperationService operationService;
+    private final TransactionTemplate transactionTemplate;
+    private final OperationJournal operationJournal;
+
+    public BatchOperationServiceImpl(BalanceEngine balanceEngine,
+                                     HotAccountEngine hotAccountEngine,
+                                     AccountRepository accountRepository,
+                                     OperationService operationService,
+                                     PlatformTransactionManager transactionManager,
+                                     OperationJournal operationJournal) {
+        this.balanceEngine = balanceEngine;
+        this.hotAccountEngine = hotAccountEngine;
+        this.accountRepository = accountRepository;
+        this.operationService = operationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.operationJournal = operationJournal;
+    }
+
+    /**
+     * Handle a batch of operations in a single transaction: all the touched accounts are loaded
+     * with one query, the operations are applied in the order of the request, and the operation
+     * rows are flushed as batched inserts on commit. The sub-balances of the hot accounts of the
+     * batch are folded into their rows before they are loaded. In the journal write mode the accounts hold
+     * their journaled balance and the operations are appended as a single group of journal records.
+     *
+     * @param request the operations and the batch mode
+     * @return the outcome of each operation
+     */
+    @Override
+    public BatchOperationResultDto handleOperations(BatchOperationRequestDto request) {
+        List<BatchOperationItemDto> items = request.operations();
+        Set<Long> accountIds = items.stream().map(BatchOperationItemDto::accountId).collect(Collectors.toSet());
+        log.info("[START] processing batch of {} operations on {} accounts", items.size(), accountIds.size());
+        BatchOperationResultDto result = hotAccountEngine.exclusively(accountIds, () -> balanceEngine.executeExclusively(accountIds,
+                () -> operationJournal.isEnabled() ? journalAll(items, accountIds, request.mode()) : transactionTemplate.execute(status -> {
+                    BatchOperationResultDto outcome = applyAll(items, accountIds, request.mode());
+                    if (!outcome.committed()) status.setRollbackOnly();
+                    return outcome;
+                })));
+        log.info("[END] processing batch: {} succeeded, {} failed", result.succeeded(), result.failed());
+        return result;
+    }
+
+    /**
+     * Apply the batch on copies of the accounts holding their journaled balance, the group of records of its
+     * operations being dropped when the batch does not commit
+     */
+    private BatchOperationResultDto journalAll(List<BatchOperationItemDto> items, Set<Long> accountIds, BatchMode mode) {
+        try {
+            return operationJournal.atomically(() -> {
+                BatchOperationResultDto outcome = applyAll(items, accountIds, mode);
+                if (!outcome.committed()) throw new RolledBack(outcome);
+                return outcome;
+            });
+        } catch (RolledBack ex) {
+            return ex.outcome;
+        }
+    }
+
+    private BatchOperationResultDto applyAll(List<BatchOperationItemDto> items, Set<Long> accountIds, BatchMode mode) {
+        Map<Long, Account> accounts = accountRepository.findAllById(accountIds).stream()
+                .map(this::withJournaledBalance)
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+        List<BatchOperationItemResultDto> results = new ArrayList<>(items.size());
+        int failed = 0;
+        for (int index = 0; index < items.size(); index++) {
+            BatchOperationItemDto item = items.get(index);
+            Account account = accounts.get(item.accountId());
+            try {
+                if (account == null) throw new AccountNotFoundException(item.accountId());
+                AccountServiceImpl.updateAccount(account, item.type(), item.amount());
+                OperationDto operation = operationService.createOperation(account, item.type(), item.amount());
+                results.add(new BatchOperationItemResultDto(index, item.accountId(), BatchItemStatus.SUCCEEDED, operation, null));
+            } catch (AccountNotFoundException | InsufficientBalanceException | InvalidAmountException ex) {
+                failed++;
+                results.add(new BatchOperationItemResultDto(index, item.accountId(), BatchItemStatus.FAILED, null, ex.getMessage()));
+            }
+        }
+        if (mode == BatchMode.ALL_OR_NOTHING && failed > 0) {
+            return new BatchOperationResultDto(false, 0, failed, results.stream().map(BatchOperationServiceImpl::rollBack).toList());
+        }
+        return new BatchOperationResultDto(items.size() > failed, items.size() - failed, failed, results);
+    }
+
+    /**
+     * A copy of the account holding its journaled balance in the journal write mode, the database balance
+     * lagging behind the projection of the journal. The account itself otherwise.
+     */
+    private Account withJournaledBalance(Account account) {
+        if (!operationJournal.isEnabled()) return account;
+        return Account.builder()
+                .id(account.getId())
+                .balance(operationJournal.balanceOf(account.getId()).orElse(account.getBalance()))
+                .version(account.getVersion())
+                .build();
+    }
+
+    private static BatchOperationItemResultDto rollBack(BatchOperationItemResultDto result) {
+        if (result.status() != BatchItemStatus.SUCCEEDED) return result;
+        return new BatchOperationItemResultDto(result.index(), result.accountId(), BatchItemStatus.ROLLED_BACK, null, null);
+    }
+
+    /**
+     * Abort the journal group of a batch which does not commit
+     */
+    private static final class RolledBack extends RuntimeException {
+        private final transient BatchOperationResultDto outcome;
+
+        private RolledBack(BatchOperationResultDto outcome) {
+            super(null, null, false, false);
+            this.outcome = outcome;
+        }
+    }
+}
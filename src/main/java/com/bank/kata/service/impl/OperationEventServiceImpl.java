@@ -0,0 +1,33 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.outbox.OperationOutbox;
+import com.bank.kata.outbox.SseOperationEventSink;
+import com.bank.kata.repository.AccountRepository;
+import com.bank.kata.service.OperationEventService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Service
+@RequiredArgsConstructor
+public class OperationEventServiceImpl implements OperationEventService {
+
+    private final OperationOutbox operationOutbox;
+    private final SseOperationEventSink sseOperationEventSink;
+    private final AccountRepository accountRepository;
+
+    /**
+     * Subscribe to the operation events relayed from the outbox, instead of polling the pages of operations
+     *
+     * @param accountId  the account to stream the events of, null for all accounts
+     * @param fromOffset the offset of the last event already received, null for the new events only
+     * @throws UnsupportedOperationException when the outbox is disabled
+     */
+    @Override
+    public SseEmitter subscribe(Long accountId, Long fromOffset) {
+        if (!operationOutbox.isEnabled()) throw new UnsupportedOperationException("The operation event stream is disabled");
+        if (accountId != null && !accountRepository.existsById(accountId)) throw new AccountNotFoundException(accountId);
+        return sseOperationEventSink.subscribe(accountId, fromOffset == null ? operationOutbox.lastOffset() : fromOffset);
+    }
+}
@@ -0,0 +1,145 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.archive.OperationTiers;
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.ExportFormat;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.model.Money;
+import com.bank.kata.repository.AccountRepository;
+import com.bank.kata.service.OperationExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Export of the full history of an account. Rows are read with a JDBC cursor and written to the
+ * response one by one, without entities nor intermediate list, so the memory used does not depend
+ * on the length of the history. The archived operations, the oldest, are read first from the cold tier.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OperationExportServiceImpl implements OperationExportService {
+
+    static final int FETCH_SIZE = 500;
+    private static final String CSV_HEADER = "id,type,amount,balance,dateTime,transferId\n";
+
+    private final AccountRepository accountRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final OperationTiers operationTiers;
+
+    /**
+     * Export the operations of an account, oldest first
+     *
+     * @param accountId the id of the account
+     * @param format    the format of the export
+     * @param from      the lower bound (inclusive) of the operation date time, optional
+     * @param to        the upper bound (exclusive) of the operation date time, optional
+     * @throws AccountNotFoundException if the account does not exist, checked before the streaming starts
+     */
+    @Override
+    public StreamingResponseBody exportOperations(Long accountId, ExportFormat format, LocalDateTime from, LocalDateTime to) {
+        if (!accountRepository.existsById(accountId)) throw new AccountNotFoundException(accountId);
+        return out -> {
+            log.info("Export {} operations for account {}", format, accountId);
+            switch (format) {
+                case NDJSON -> writeNdjson(accountId, from, to, out);
+                case CSV -> writeCsv(accountId, from, to, out);
+                default -> throw new IllegalArgumentException("Unhandled export format: " + format);
+            }
+        };
+    }
+
+    private void writeNdjson(Long accountId, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        streamOperations(accountId, from, to, operation -> {
+            try {
+                objectMapper.writeValue(generator, operation);
+                generator.writeRaw('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        generator.close();
+    }
+
+    private void writeCsv(Long accountId, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        streamOperations(accountId, from, to, operation -> {
+            try {
+                writer.append(String.valueOf(operation.id())).append(',')
+                        .append(operation.type().name()).append(',')
+                        .append(operation.amount().toString()).append(',')
+                        .append(operation.balance().toString()).append(',')
+                        .append(operation.dateTime().toString()).append(',')
+                        .append(operation.transferId() == null ? "" : operation.transferId().toString()).append('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        writer.flush();
+    }
+
+    private void streamOperations(Long accountId, LocalDateTime from, LocalDateTime to, Consumer<OperationDto> consumer) throws IOException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, type, amount, balance_after_op, creation_date_time, transfer_id FROM operation WHERE account_id = ?");
+        List<Object> args = new ArrayList<>(3);
+        args.add(accountId);
+        if (from != null) {
+            sql.append(" AND creation_date_time >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND creation_date_time < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        sql.append(" ORDER BY creation_date_time, id");
+        try {
+            operationTiers.forEachArchived(accountId, from, to, consumer);
+            jdbcTemplate.query(sql.toString(), ps -> {
+                ps.setFetchSize(FETCH_SIZE);
+                for (int i = 0; i < args.size(); i++) {
+                    ps.setObject(i + 1, args.get(i));
+                }
+            }, (RowCallbackHandler) rs -> consumer.accept(toDto(rs)));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private static OperationDto toDto(ResultSet rs) throws SQLException {
+        return new OperationDto(
+                rs.getLong("id"),
+                OperationType.valueOf(rs.getString("type")),
+                Money.of(rs.getBigDecimal("amount")),
+                Money.of(rs.getBigDecimal("balance_after_op")),
+                rs.getTimestamp("creation_date_time").toLocalDateTime(),
+                rs.getString("transfer_id") == null ? null : UUID.fromString(rs.getString("transfer_id")));
+    }
+}
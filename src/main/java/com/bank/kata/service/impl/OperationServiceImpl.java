@@ -1,21 +1,31 @@
 package com.bank.kata.service.impl;
 
+import com.bank.kata.archive.OperationTiers;
+import com.bank.kata.cache.AccountReadCache;
+import com.bank.kata.dto.OperationCursor;
 import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.OperationSliceDto;
 import com.bank.kata.enums.OperationType;
+import com.bank.kata.event.OperationCreatedEvent;
 import com.bank.kata.exception.OperationsNotFoundException;
+import com.bank.kata.journal.OperationJournal;
 import com.bank.kata.mapper.OperationMapper;
 import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
 import com.bank.kata.model.Operation;
+import com.bank.kata.outbox.OperationOutbox;
 import com.bank.kata.repository.OperationRepository;
 import com.bank.kata.service.OperationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -24,25 +34,98 @@ public class OperationServiceImpl implements OperationService {
 
     private final OperationRepository operationRepository;
     private final OperationMapper operationMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AccountReadCache accountReadCache;
+    private final OperationJournal operationJournal;
+    private final OperationOutbox operationOutbox;
+    private final OperationTiers operationTiers;
 
+    /**
+     * Fetch a page of the operations of an account, the first pages are served by the {@link AccountReadCache}.
+     * Pages are read as DTO projections, the operation entities are never loaded, across the hot and
+     * cold tiers by the {@link OperationTiers}.
+     */
     @Override
     public Page<OperationDto> getAccountOperations(Long accountId, PageRequest pageRequest) {
         log.info("Get Operations for account {}",accountId);
-        Page<OperationDto> map = operationRepository.findByAccountId(accountId, pageRequest).map(operationMapper::toDto);
+        Page<OperationDto> map = accountReadCache.getOperations(accountId, pageRequest,
+                () -> operationTiers.findPage(accountId, pageRequest));
         if (map.getTotalElements()==0) throw new OperationsNotFoundException();
         return map;
     }
 
+    /**
+     * Fetch a slice of the history of an account with keyset pagination: the slice is read from
+     * the position of the cursor, so neither an offset nor a total count is computed. A slice reaching
+     * the archived months continues into the cold tier.
+     *
+     * @param accountId the id of the account
+     * @param cursor    the cursor returned with the previous slice, null for the most recent operations
+     * @param size      the max number of operations in the slice
+     */
     @Override
-    public OperationDto createOperation(Account account, OperationType type, BigDecimal amount) {
-        Operation operation = operationRepository.save(Operation.builder()
+    public OperationSliceDto getAccountOperationHistory(Long accountId, String cursor, int size) {
+        log.info("Get Operations history for account {}",accountId);
+        List<OperationDto> operations;
+        if (cursor == null) {
+            operations = operationTiers.findLatest(accountId, size + 1);
+            if (operations.isEmpty()) throw new OperationsNotFoundException();
+        } else {
+            OperationCursor position = OperationCursor.decode(cursor);
+            operations = operationTiers.findOlderThan(accountId, position.dateTime(), position.id(), size + 1);
+        }
+        List<OperationDto> content = operations.size() > size ? operations.subList(0, size) : operations;
+        String nextCursor = operations.size() > size ? OperationCursor.of(content.get(size - 1)).encode() : null;
+        return new OperationSliceDto(content, nextCursor);
+    }
+
+    /**
+     * Persist an operation with its {@link OperationOutbox} row and publish an {@link OperationCreatedEvent},
+     * all within the transaction of the caller. When the operation journal is enabled, the operation is appended
+     * to the journal instead, the rows and the event come later from its projection.
+     */
+    @Override
+    public OperationDto createOperation(Account account, OperationType type, Money amount) {
+        return createOperation(account, type, amount, null);
+    }
+
+    /**
+     * Persist one side of a transfer, see {@link #createOperation(Account, OperationType, Money)}
+     *
+     * @param transferId the id shared by the two operations of the transfer, null for a plain operation
+     */
+    @Override
+    public OperationDto createOperation(Account account, OperationType type, Money amount, UUID transferId) {
+        Operation operation = Operation.builder()
                 .account(account)
                 .amount(amount)
                 .type(type)
                 .balanceAfterOp(account.getBalance())
                 .dateTime(LocalDateTime.now())
-                .build());
+                .transferId(transferId)
+                .build();
+        if (operationJournal.isEnabled()) {
+            log.info(" {} Operation journaled for account {}",type, account.getId());
+            return operationMapper.toDto(operationJournal.append(operation));
+        }
+        operation = operationRepository.save(operation);
+        operationOutbox.add(operation);
+        eventPublisher.publishEvent(new OperationCreatedEvent(operation));
         log.info(" {} Operation created for account {}",type, account.getId());
         return operationMapper.toDto(operation);
     }
+
+    /**
+     * Record the balance of an account after one of its operations, known once the operation is committed and
+     * different from the balance it was written with, as for the concurrent deposits on a hot account. Readers
+     * of the operation see the balance it was written with until then.
+     *
+     * @return the operation with the recorded balance
+     */
+    @Override
+    public OperationDto recordBalance(Long accountId, OperationDto operation, Money balance) {
+        operationRepository.updateBalanceAfterOp(operation.id(), balance);
+        accountReadCache.invalidate(accountId);
+        return new OperationDto(operation.id(), operation.type(), operation.amount(), balance, operation.dateTime(), operation.transferId());
+    }
 }
@@ -0,0 +1,73 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.dto.StatementDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.event.OperationCreatedEvent;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.exception.InvalidPeriodException;
+import com.bank.kata.model.DailyRollup;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import com.bank.kata.repository.DailyRollupRepository;
+import com.bank.kata.service.StatementService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StatementServiceImpl implements StatementService {
+
+    private final DailyRollupRepository dailyRollupRepository;
+
+    /**
+     * Build the statement of an account over a period from the daily rollups, so at most one row per day and
+     * shard of the period is read whatever the number of operations. The opening balance is the balance less the
+     * totals since the first day, the closing balance the opening one plus the totals of the period.
+     *
+     * @param accountId the id of the account
+     * @param from      the first day of the period
+     * @param to        the last day of the period, inclusive
+     * @throws AccountNotFoundException if the account does not exist
+     */
+    @Override
+    public StatementDto getStatement(Long accountId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) throw new InvalidPeriodException();
+        log.info("Get statement of account {} from {} to {}", accountId, from, to);
+        List<DailyRollup> rollups = dailyRollupRepository.findByAccountIdAndDateBetweenOrderByDate(accountId, from, to);
+        Money openingBalance = dailyRollupRepository.findBalanceBefore(accountId, from)
+                .map(Money::of)
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+        Money totalDebit = Money.ZERO;
+        Money totalCredit = Money.ZERO;
+        long debitCount = 0;
+        long creditCount = 0;
+        for (DailyRollup rollup : rollups) {
+            totalDebit = totalDebit.add(rollup.getTotalDebit());
+            totalCredit = totalCredit.add(rollup.getTotalCredit());
+            debitCount += rollup.getDebitCount();
+            creditCount += rollup.getCreditCount();
+        }
+        Money closingBalance = openingBalance.add(totalDebit).subtract(totalCredit);
+        return new StatementDto(accountId, from, to, openingBalance, closingBalance, totalDebit, totalCredit, debitCount, creditCount);
+    }
+
+    /**
+     * Add a new operation to the rollup of its day and of the shard it was written to, in the transaction creating
+     * the operation, with an atomic upsert rather than a read then a write of the rollup. Concurrent deposits on
+     * the sub-balances of a hot account each update their own row.
+     */
+    @EventListener
+    public void onOperationCreated(OperationCreatedEvent event) {
+        Operation operation = event.operation();
+        boolean debit = operation.getType() == OperationType.DEBIT;
+        dailyRollupRepository.upsert(operation.getAccount().getId(), operation.getDateTime().toLocalDate(), operation.getAccount().getShard(),
+                (debit ? operation.getAmount() : Money.ZERO).toBigDecimal(), (debit ? Money.ZERO : operation.getAmount()).toBigDecimal(),
+                debit ? 1 : 0, debit ? 0 : 1);
+    }
+}
@@ -0,0 +1,67 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.dto.TransferDto;
+import com.bank.kata.engine.BalanceEngine;
+import com.bank.kata.engine.HotAccountEngine;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.exception.InvalidTransferException;
+import com.bank.kata.metrics.OperationMetrics;
+import com.bank.kata.model.Money;
+import com.bank.kata.service.OperationService;
+import com.bank.kata.service.TransferService;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransferServiceImpl implements TransferService {
+
+    private final BalanceEngine balanceEngine;
+    private final HotAccountEngine hotAccountEngine;
+    private final OperationService operationService;
+    private final OperationMetrics operationMetrics;
+
+    /**
+     * Move an amount from an account to another: the withdrawal, the deposit and their two operations,
+     * linked by a transfer id, are applied by the balance engine in a single transaction (a single group
+     * of journal records in the journal write mode) with both accounts locked, after the sub-balances of
+     * the hot ones are folded in. The duration and outcome are recorded by {@link OperationMetrics} as a
+     * {@code TRANSFER}
+     * @param fromAccountId the account the amount is withdrawn from
+     * @param toAccountId the account the amount is deposited on
+     * @param amount amount of the transfer
+     * @return the transfer and its two operations
+     */
+    @Override
+    public TransferDto handleTransfer(Long fromAccountId, Long toAccountId, Money amount) {
+        if (Objects.equals(fromAccountId, toAccountId)) throw new InvalidTransferException();
+        log.info("[START] processing transfer from account {} to account {}", fromAccountId, toAccountId);
+        Timer.Sample sample = operationMetrics.start();
+        UUID transferId = UUID.randomUUID();
+        TransferDto transfer;
+        try {
+            List<Long> accountIds = List.of(fromAccountId, toAccountId);
+            transfer = hotAccountEngine.exclusively(accountIds, () -> balanceEngine.executeAll(accountIds,
+                    accounts -> {
+                        accounts.get(0).credit(amount);
+                        accounts.get(1).debit(amount);
+                    },
+                    accounts -> new TransferDto(transferId,
+                            operationService.createOperation(accounts.get(0), OperationType.CREDIT, amount, transferId),
+                            operationService.createOperation(accounts.get(1), OperationType.DEBIT, amount, transferId))));
+        } catch (RuntimeException ex) {
+            operationMetrics.stop(sample, OperationMetrics.TRANSFER, ex);
+            throw ex;
+        }
+        operationMetrics.stop(sample, OperationMetrics.TRANSFER, null);
+        log.info("[END] processing transfer {} from account {} to account {}", transferId, fromAccountId, toAccountId);
+        return transfer;
+    }
+}
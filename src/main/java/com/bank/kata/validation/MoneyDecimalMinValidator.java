@@ -0,0 +1,31 @@
+package com.bank.kata.validation;
+
+import com.bank.kata.model.Money;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import jakarta.validation.constraints.DecimalMin;
+
+import java.math.BigDecimal;
+
+/**
+ * Lets {@link DecimalMin} validate {@link Money} amounts, registered with Hibernate Validator through
+ * {@code META-INF/services/jakarta.validation.ConstraintValidator}
+ */
+public class MoneyDecimalMinValidator implements ConstraintValidator<DecimalMin, Money> {
+
+    private BigDecimal min;
+    private boolean inclusive;
+
+    @Override
+    public void initialize(DecimalMin constraint) {
+        min = new BigDecimal(constraint.value());
+        inclusive = constraint.inclusive();
+    }
+
+    @Override
+    public boolean isValid(Money money, ConstraintValidatorContext context) {
+        if (money == null) return true;
+        int comparison = money.toBigDecimal().compareTo(min);
+        return inclusive ? comparison >= 0 : comparison > 0;
+    }
+}
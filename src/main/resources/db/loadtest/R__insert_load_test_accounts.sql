@@ -0,0 +1,2 @@
+MERGE INTO account (id, balance) KEY (id)
+SELECT X, 1000000.00 FROM SYSTEM_RANGE(1000, 1999);
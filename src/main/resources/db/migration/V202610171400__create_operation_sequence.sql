@@ -0,0 +1,4 @@
+CREATE SEQUENCE operation_seq START WITH 1 INCREMENT BY 50;
+-- operations already inserted with IDENTITY ids: Hibernate's pooled optimizer hands out the block of 50 ids
+-- ending at the value it reads, so the first value read must be at least MAX(id) + 50
+ALTER SEQUENCE operation_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM operation);
@@ -0,0 +1 @@
+CREATE INDEX idx_operation_account_date_id ON operation (account_id, creation_date_time, id);
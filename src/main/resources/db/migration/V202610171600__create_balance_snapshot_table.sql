@@ -0,0 +1,12 @@
+CREATE TABLE balance_snapshot (
+    id BIGINT PRIMARY KEY,
+    account_id BIGINT NOT NULL,
+    snapshot_date_time TIMESTAMP NOT NULL,
+    balance DECIMAL(19, 2) NOT NULL,
+    last_operation_id BIGINT NOT NULL,
+    FOREIGN KEY (account_id) REFERENCES account(id)
+);
+
+CREATE INDEX idx_balance_snapshot_account_date ON balance_snapshot (account_id, snapshot_date_time);
+
+CREATE SEQUENCE balance_snapshot_seq START WITH 1 INCREMENT BY 50;
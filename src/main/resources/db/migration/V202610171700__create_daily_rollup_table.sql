@@ -0,0 +1,28 @@
+CREATE TABLE daily_rollup (
+    account_id BIGINT NOT NULL,
+    rollup_date DATE NOT NULL,
+    opening_balance DECIMAL(19, 2) NOT NULL,
+    closing_balance DECIMAL(19, 2) NOT NULL,
+    total_debit DECIMAL(19, 2) NOT NULL,
+    total_credit DECIMAL(19, 2) NOT NULL,
+    debit_count BIGINT NOT NULL,
+    credit_count BIGINT NOT NULL,
+    PRIMARY KEY (account_id, rollup_date),
+    FOREIGN KEY (account_id) REFERENCES account(id)
+);
+
+-- Roll up the operations created before the rollups existed: the balance before the first operation of the day
+-- opens its rollup, the balance after the last one closes it
+INSERT INTO daily_rollup (account_id, rollup_date, opening_balance, closing_balance, total_debit, total_credit, debit_count, credit_count)
+SELECT d.account_id, d.rollup_date,
+       (SELECT CASE f.type WHEN 'DEBIT' THEN f.balance_after_op - f.amount ELSE f.balance_after_op + f.amount END
+        FROM operation f WHERE f.id = d.first_id),
+       (SELECT l.balance_after_op FROM operation l WHERE l.id = d.last_id),
+       d.total_debit, d.total_credit, d.debit_count, d.credit_count
+FROM (SELECT account_id, CAST(creation_date_time AS DATE) AS rollup_date, MIN(id) AS first_id, MAX(id) AS last_id,
+             SUM(CASE type WHEN 'DEBIT' THEN amount ELSE 0 END) AS total_debit,
+             SUM(CASE type WHEN 'DEBIT' THEN 0 ELSE amount END) AS total_credit,
+             SUM(CASE type WHEN 'DEBIT' THEN 1 ELSE 0 END) AS debit_count,
+             SUM(CASE type WHEN 'DEBIT' THEN 0 ELSE 1 END) AS credit_count
+      FROM operation
+      GROUP BY account_id, CAST(creation_date_time AS DATE)) d;
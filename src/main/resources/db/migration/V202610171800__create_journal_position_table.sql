@@ -0,0 +1,6 @@
+CREATE TABLE journal_position (
+    id INT PRIMARY KEY,
+    seq BIGINT NOT NULL
+);
+
+INSERT INTO journal_position (id, seq) VALUES (1, 0);
@@ -0,0 +1 @@
+ALTER TABLE operation ADD COLUMN transfer_id CHAR(36) NULL;
@@ -0,0 +1,11 @@
+-- no foreign key on operation_id: the operation row is only flushed by Hibernate at commit, after this insert
+CREATE TABLE idempotency_key (
+    account_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(64) NOT NULL,
+    operation_id BIGINT NOT NULL,
+    creation_date_time TIMESTAMP NOT NULL,
+    PRIMARY KEY (account_id, idempotency_key),
+    FOREIGN KEY (account_id) REFERENCES account(id)
+);
+
+CREATE INDEX idx_idempotency_key_creation ON idempotency_key (creation_date_time);
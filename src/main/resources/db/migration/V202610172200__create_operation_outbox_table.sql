@@ -0,0 +1,18 @@
+-- no foreign key on operation_id: the operation row is only flushed by Hibernate at commit, after this insert.
+-- event_offset is set by the relay once the row is committed, so offsets follow the commit order.
+CREATE TABLE operation_outbox (
+    operation_id BIGINT PRIMARY KEY,
+    creation_date_time TIMESTAMP NOT NULL,
+    event_offset BIGINT,
+    CONSTRAINT uk_operation_outbox_offset UNIQUE (event_offset)
+);
+
+CREATE INDEX idx_operation_outbox_creation ON operation_outbox (creation_date_time);
+
+CREATE TABLE outbox_position (
+    id INT PRIMARY KEY,
+    assigned_offset BIGINT NOT NULL,
+    published_offset BIGINT NOT NULL
+);
+
+INSERT INTO outbox_position (id, assigned_offset, published_offset) VALUES (1, 0, 0);
@@ -0,0 +1,10 @@
+-- months of operations moved from the operation table to the cold tier files, see OperationArchiver.
+-- a file is only read once its month is recorded here, in the transaction deleting the archived rows.
+CREATE TABLE operation_archive (
+    archive_month CHAR(7) PRIMARY KEY,
+    operation_count BIGINT NOT NULL,
+    archived_at TIMESTAMP NOT NULL
+);
+
+-- finds the oldest month still in the operation table and the rows of a month to archive
+CREATE INDEX idx_operation_creation_date_time ON operation (creation_date_time);
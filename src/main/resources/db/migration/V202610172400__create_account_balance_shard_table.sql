@@ -0,0 +1,8 @@
+-- Sub-balances of the hot accounts: the balance of such an account is its row plus the sum of its shards
+CREATE TABLE account_balance_shard (
+    account_id BIGINT NOT NULL,
+    shard INT NOT NULL,
+    balance DECIMAL(19, 2) NOT NULL,
+    PRIMARY KEY (account_id, shard),
+    FOREIGN KEY (account_id) REFERENCES account(id)
+);
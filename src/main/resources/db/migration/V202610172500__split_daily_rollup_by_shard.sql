@@ -0,0 +1,8 @@
+-- Rollups of a day are split by shard, the sub-balance a deposit on a hot account is written to (0 for the account
+-- row), so concurrent deposits do not update the same row. They keep the totals only: a statement opens with the
+-- current balance less the totals since its first day, see DailyRollupRepository#findBalanceBefore.
+ALTER TABLE daily_rollup ADD COLUMN shard INT NOT NULL DEFAULT 0;
+ALTER TABLE daily_rollup DROP PRIMARY KEY;
+ALTER TABLE daily_rollup ADD PRIMARY KEY (account_id, rollup_date, shard);
+ALTER TABLE daily_rollup DROP COLUMN opening_balance;
+ALTER TABLE daily_rollup DROP COLUMN closing_balance;
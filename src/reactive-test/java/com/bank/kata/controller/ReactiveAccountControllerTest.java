@@ -0,0 +1,165 @@
+package com.bank.kata.controller;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.exception.IdempotencyKeyReusedException;
+import com.bank.kata.exception.IdempotencyKeysDisabledException;
+import com.bank.kata.exception.InsufficientBalanceException;
+import com.bank.kata.exception.OperationsNotFoundException;
+import com.bank.kata.model.Money;
+import com.bank.kata.service.ReactiveAccountService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.bank.kata.enums.OperationType.CREDIT;
+import static com.bank.kata.enums.OperationType.DEBIT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+@WebFluxTest(ReactiveAccountController.class)
+class ReactiveAccountControllerTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @MockitoBean
+    private ReactiveAccountService accountService;
+
+    private final static String API_URL_OPERATIONS = "/api/v1/accounts/{id}/operations";
+
+    @Test
+    void shouldSucceedDebit_WhenAmountIsValid() {
+        when(accountService.handleOperation(1L, DEBIT, Money.of("200"), null))
+                .thenReturn(Mono.just(new OperationDto(7L, DEBIT, Money.of("200"), Money.of("1200"), LocalDateTime.now(), null)));
+        post("{\"type\":\"DEBIT\",\"amount\":200}")
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(7)
+                .jsonPath("$.balance").isEqualTo(1200.0);
+    }
+
+    @Test
+    void shouldFailDebit_whenAmountIsNegative() {
+        post("{\"type\":\"DEBIT\",\"amount\":-1}")
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("{amount=must be greater than or equal to 0.0}");
+        verifyNoInteractions(accountService);
+    }
+
+    @Test
+    void shouldFailOperation_whenTypeIsNull() {
+        post("{\"amount\":1}")
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("{type=must not be null}");
+    }
+
+    @Test
+    void shouldFailOperation_whenAmountHasMoreThanTwoDecimals() {
+        post("{\"type\":\"DEBIT\",\"amount\":20.999}")
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").value(message -> assertThat((String) message).contains("at most 2 decimals"));
+    }
+
+    @Test
+    void shouldFailCredit_whenAccountDoesNotExist() {
+        when(accountService.handleOperation(1L, CREDIT, Money.of("1"), null)).thenReturn(Mono.error(new AccountNotFoundException(1L)));
+        post("{\"type\":\"CREDIT\",\"amount\":1}")
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404)
+                .jsonPath("$.path").isEqualTo("/api/v1/accounts/1/operations");
+    }
+
+    @Test
+    void shouldFailCredit_whenBalanceIsInsufficient() {
+        when(accountService.handleOperation(1L, CREDIT, Money.of("1"), null)).thenReturn(Mono.error(new InsufficientBalanceException()));
+        post("{\"type\":\"CREDIT\",\"amount\":1}")
+                .expectStatus().isEqualTo(422)
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("UNPROCESSABLE_ENTITY");
+    }
+
+    @Test
+    void shouldPassIdempotencyKey_whenHeaderIsGiven() {
+        when(accountService.handleOperation(1L, DEBIT, Money.of("1"), "key-1"))
+                .thenReturn(Mono.just(new OperationDto(7L, DEBIT, Money.of("1"), Money.of("1001"), LocalDateTime.now(), null)));
+        post("{\"type\":\"DEBIT\",\"amount\":1}", "key-1")
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(7);
+    }
+
+    @Test
+    void shouldFailDebit_whenIdempotencyKeyIsTooLong() {
+        post("{\"type\":\"DEBIT\",\"amount\":1}", "k".repeat(65))
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").value(message -> assertThat((String) message).contains("idempotencyKey=size must be between 1 and 64"));
+        verifyNoInteractions(accountService);
+    }
+
+    @Test
+    void shouldFailDebit_whenIdempotencyKeyIsReused() {
+        when(accountService.handleOperation(any(), any(), any(), any())).thenReturn(Mono.error(new IdempotencyKeyReusedException("key-1")));
+        post("{\"type\":\"DEBIT\",\"amount\":1}", "key-1")
+                .expectStatus().isEqualTo(422);
+    }
+
+    @Test
+    void shouldFailDebit_whenIdempotencyKeysAreDisabled() {
+        when(accountService.handleOperation(any(), any(), any(), any())).thenReturn(Mono.error(new IdempotencyKeysDisabledException()));
+        post("{\"type\":\"DEBIT\",\"amount\":1}", "key-1")
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldReturnPageOfOperations() {
+        OperationDto operation = new OperationDto(7L, DEBIT, Money.of("200"), Money.of("1200"), LocalDateTime.now(), null);
+        when(accountService.getAccountOperations(1L, PageRequest.of(2, 5)))
+                .thenReturn(Mono.just(new PageImpl<>(List.of(operation), PageRequest.of(2, 5), 11)));
+        client.get().uri(uri -> uri.path(API_URL_OPERATIONS).queryParam("page", 2).queryParam("size", 5).build(1L))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content[0].id").isEqualTo(7)
+                .jsonPath("$.totalElements").isEqualTo(11);
+    }
+
+    @Test
+    void shouldFailGetOperations_whenAccountHasNoOperations() {
+        when(accountService.getAccountOperations(any(), any())).thenReturn(Mono.error(new OperationsNotFoundException()));
+        client.get().uri(API_URL_OPERATIONS, 1L)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    private WebTestClient.ResponseSpec post(String body) {
+        return client.post().uri(API_URL_OPERATIONS, 1L)
+                .contentType(APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange();
+    }
+
+    private WebTestClient.ResponseSpec post(String body, String idempotencyKey) {
+        return client.post().uri(API_URL_OPERATIONS, 1L)
+                .contentType(APPLICATION_JSON)
+                .header(AccountController.IDEMPOTENCY_KEY, idempotencyKey)
+                .bodyValue(body)
+                .exchange();
+    }
+}
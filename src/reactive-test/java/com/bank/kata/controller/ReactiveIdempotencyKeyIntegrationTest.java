@@ -0,0 +1,80 @@
+package com.bank.kata.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Operations sent with an {@code Idempotency-Key} through WebFlux and R2DBC, on the database migrated by Flyway
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive-idempotency;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-idempotency?options=MODE=MySQL;DB_CLOSE_DELAY=-1"})
+@ActiveProfiles("reactive")
+class ReactiveIdempotencyKeyIntegrationTest {
+
+    private final static String API_URL_OPERATIONS = "/api/v1/accounts/{id}/operations";
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Retry with the same key replays the operation, the same key with another amount is rejected")
+    void shouldReplayOperation_whenKeyIsSentAgain() {
+        BigDecimal balance = balance(2L);
+
+        Integer id = post(2L, "{\"type\":\"DEBIT\",\"amount\":10}", "retry-1")
+                .expectStatus().isCreated()
+                .expectBody(OperationBody.class).returnResult().getResponseBody().id();
+
+        post(2L, "{\"type\":\"DEBIT\",\"amount\":10}", "retry-1")
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(id);
+        assertThat(balance(2L)).isEqualByComparingTo(balance.add(BigDecimal.TEN));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_key WHERE idempotency_key = 'retry-1'", Integer.class))
+                .isEqualTo(1);
+
+        post(2L, "{\"type\":\"DEBIT\",\"amount\":20}", "retry-1")
+                .expectStatus().isEqualTo(422);
+        assertThat(balance(2L)).isEqualByComparingTo(balance.add(BigDecimal.TEN));
+    }
+
+    @Test
+    @DisplayName("The same key on another account is a new operation")
+    void shouldPerformOperation_whenKeyWasUsedOnAnotherAccount() {
+        post(1L, "{\"type\":\"DEBIT\",\"amount\":5}", "shared-1").expectStatus().isCreated();
+        BigDecimal balance = balance(2L);
+
+        post(2L, "{\"type\":\"DEBIT\",\"amount\":5}", "shared-1").expectStatus().isCreated();
+
+        assertThat(balance(2L)).isEqualByComparingTo(balance.add(BigDecimal.valueOf(5)));
+    }
+
+    private BigDecimal balance(Long accountId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM account WHERE id = ?", BigDecimal.class, accountId);
+    }
+
+    private WebTestClient.ResponseSpec post(Long accountId, String body, String idempotencyKey) {
+        return client.post().uri(API_URL_OPERATIONS, accountId)
+                .contentType(APPLICATION_JSON)
+                .header(AccountController.IDEMPOTENCY_KEY, idempotencyKey)
+                .bodyValue(body)
+                .exchange();
+    }
+
+    private record OperationBody(Integer id) {
+    }
+}
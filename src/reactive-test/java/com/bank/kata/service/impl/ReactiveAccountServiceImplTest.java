@@ -0,0 +1,305 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.exception.IdempotencyKeyReusedException;
+import com.bank.kata.exception.IdempotencyKeysDisabledException;
+import com.bank.kata.exception.InsufficientBalanceException;
+import com.bank.kata.exception.OperationsNotFoundException;
+import com.bank.kata.journal.OperationJournal;
+import com.bank.kata.mapper.OperationMapper;
+import com.bank.kata.metrics.EngineMetrics;
+import com.bank.kata.metrics.OperationMetrics;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import com.bank.kata.outbox.OperationOutbox;
+import com.bank.kata.repository.reactive.ReactiveAccountRepository;
+import com.bank.kata.repository.reactive.ReactiveIdempotencyKeyRepository;
+import com.bank.kata.repository.reactive.ReactiveOperationRepository;
+import com.bank.kata.service.AccountService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static com.bank.kata.enums.OperationType.CREDIT;
+import static com.bank.kata.enums.OperationType.DEBIT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReactiveAccountServiceImplTest {
+
+    @Mock
+    ReactiveAccountRepository accountRepository;
+
+    @Mock
+    ReactiveOperationRepository operationRepository;
+
+    @Mock
+    ReactiveIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    OperationOutbox operationOutbox;
+
+    @Mock
+    OperationJournal operationJournal;
+
+    @Mock
+    AccountService blockingAccountService;
+
+    @Mock
+    ConnectionFactory connectionFactory;
+
+    @Mock
+    Connection connection;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    ReactiveAccountServiceImpl accountService;
+
+    /*
+     * The R2DBC transaction runs on a mocked connection, the statements themselves are run by the reactive
+     * repositories, mocked here.
+     */
+    @BeforeEach
+    void setUp() {
+        doReturn(Mono.just(connection)).when(connectionFactory).create();
+        doReturn(Mono.empty()).when(connection).beginTransaction(any(io.r2dbc.spi.TransactionDefinition.class));
+        doReturn(Mono.empty()).when(connection).commitTransaction();
+        doReturn(Mono.empty()).when(connection).rollbackTransaction();
+        doReturn(Mono.empty()).when(connection).close();
+        when(operationOutbox.isEnabled()).thenReturn(true);
+        when(operationRepository.save(any())).thenAnswer(invocation -> {
+            Operation operation = invocation.getArgument(0);
+            operation.setId(10L);
+            return Mono.just(operation);
+        });
+        when(operationRepository.addToOutbox(any())).thenReturn(Mono.empty());
+        when(operationRepository.addToDailyRollup(any())).thenReturn(Mono.empty());
+        when(idempotencyKeyRepository.findOperation(any(), any())).thenReturn(Mono.empty());
+        when(idempotencyKeyRepository.save(any(), any(), any())).thenReturn(Mono.empty());
+        accountService = service(3);
+    }
+
+    @Test
+    @DisplayName("Operation fails with AccountNotFoundException when account does not exist")
+    void shouldFail_whenAccountDoesNotExist() {
+        when(accountRepository.findById(1L)).thenReturn(Mono.empty());
+        Mono<OperationDto> operation = accountService.handleOperation(1L, DEBIT, Money.of("1"));
+        assertThrows(AccountNotFoundException.class, operation::block);
+        verify(accountRepository, never()).compareAndSetBalance(any(), anyLong(), any());
+        verify(connection).rollbackTransaction();
+    }
+
+    @Test
+    @DisplayName("Debit writes the balance at the read version, the operation, its outbox row and its rollup")
+    void shouldWriteBalanceAndOperation_whenDebit() {
+        givenAccount(1L, "100", 4);
+        when(accountRepository.compareAndSetBalance(1L, 4L, Money.of("110"))).thenReturn(Mono.just(1L));
+
+        OperationDto operation = accountService.handleOperation(1L, DEBIT, Money.of("10")).block();
+
+        assertThat(operation.id()).isEqualTo(10L);
+        assertThat(operation.balance()).isEqualTo(Money.of("110"));
+        verify(operationRepository).addToOutbox(argThat(saved -> saved.getId() == 10L));
+        verify(operationRepository).addToDailyRollup(argThat(saved -> saved.getType() == DEBIT && saved.getAmount().equals(Money.of("10"))));
+        verify(connection).commitTransaction();
+        assertThat(meterRegistry.get(OperationMetrics.OPERATION_TIMER).tag("outcome", OperationMetrics.SUCCESS).timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Credit beyond the balance is rejected before any write")
+    void shouldNotWrite_whenCreditExceedsBalance() {
+        givenAccount(1L, "5", 0);
+        Mono<OperationDto> operation = accountService.handleOperation(1L, CREDIT, Money.of("10"));
+        assertThrows(InsufficientBalanceException.class, operation::block);
+        verify(accountRepository, never()).compareAndSetBalance(any(), anyLong(), any());
+        verify(operationRepository, never()).save(any());
+        assertThat(meterRegistry.get(OperationMetrics.REJECTED_COUNTER).tag("reason", "InsufficientBalanceException").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Account updated concurrently is read again and the operation re-applied")
+    void shouldReloadAndRetry_whenAccountUpdatedConcurrently() {
+        when(accountRepository.findById(1L)).thenReturn(
+                Mono.fromSupplier(() -> Account.builder().id(1L).balance(Money.of("100")).version(0).build()),
+                Mono.fromSupplier(() -> Account.builder().id(1L).balance(Money.of("50")).version(1).build()));
+        when(accountRepository.compareAndSetBalance(1L, 0L, Money.of("110"))).thenReturn(Mono.just(0L));
+        when(accountRepository.compareAndSetBalance(1L, 1L, Money.of("60"))).thenReturn(Mono.just(1L));
+
+        OperationDto operation = accountService.handleOperation(1L, DEBIT, Money.of("10")).block();
+
+        assertThat(operation.balance()).isEqualTo(Money.of("60"));
+        verify(operationRepository, times(1)).save(any());
+        assertThat(meterRegistry.get(EngineMetrics.CONFLICT_COUNTER).counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(EngineMetrics.RETRY_COUNTER).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Conflict on the last attempt fails the operation with OptimisticLockingFailureException")
+    void shouldFail_whenConflictsExhaustAttempts() {
+        givenAccount(1L, "100", 0);
+        when(accountRepository.compareAndSetBalance(any(), anyLong(), any())).thenReturn(Mono.just(0L));
+
+        Mono<OperationDto> operation = accountService.handleOperation(1L, DEBIT, Money.of("10"));
+
+        assertThrows(OptimisticLockingFailureException.class, operation::block);
+        verify(accountRepository, times(3)).compareAndSetBalance(any(), anyLong(), any());
+        assertThat(meterRegistry.get(EngineMetrics.RETRY_COUNTER).counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("No outbox row is written when the outbox is disabled")
+    void shouldNotWriteOutbox_whenOutboxDisabled() {
+        when(operationOutbox.isEnabled()).thenReturn(false);
+        givenAccount(1L, "100", 0);
+        when(accountRepository.compareAndSetBalance(any(), anyLong(), any())).thenReturn(Mono.just(1L));
+
+        accountService.handleOperation(1L, DEBIT, Money.of("10")).block();
+
+        verify(operationRepository, never()).addToOutbox(any());
+        verify(operationRepository).addToDailyRollup(any());
+    }
+
+    @Test
+    @DisplayName("Page of operations is read with the total count, no operation fails with OperationsNotFoundException")
+    void shouldReadPage_withTotalCount() {
+        OperationDto dto = new OperationDto(1L, DEBIT, Money.of("10"), Money.of("110"), LocalDateTime.now(), null);
+        PageRequest pageRequest = PageRequest.of(1, 1);
+        when(operationRepository.countByAccountId(1L)).thenReturn(Mono.just(2L));
+        when(operationRepository.findDtoByAccountId(1L, pageRequest)).thenReturn(Flux.just(dto));
+        when(operationRepository.countByAccountId(2L)).thenReturn(Mono.just(0L));
+
+        Page<OperationDto> page = accountService.getAccountOperations(1L, pageRequest).block();
+
+        assertThat(page.getContent()).isEqualTo(List.of(dto));
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        Mono<Page<OperationDto>> empty = accountService.getAccountOperations(2L, pageRequest);
+        assertThrows(OperationsNotFoundException.class, empty::block);
+        verify(operationRepository, never()).findDtoByAccountId(eq(2L), any());
+    }
+
+    @Test
+    @DisplayName("In the journal write mode operations are handed to the blocking account service, off the event loop")
+    void shouldHandOperationsToAccountService_whenJournalIsEnabled() {
+        when(operationJournal.isEnabled()).thenReturn(true);
+        OperationDto dto = new OperationDto(1L, DEBIT, Money.of("10"), Money.of("110"), LocalDateTime.now(), null);
+        when(blockingAccountService.handleOperation(1L, DEBIT, Money.of("10"), null)).thenAnswer(invocation -> {
+            assertThat(Thread.currentThread().getName()).startsWith("boundedElastic");
+            return dto;
+        });
+
+        assertThat(service(3).handleOperation(1L, DEBIT, Money.of("10")).block()).isEqualTo(dto);
+        verifyNoInteractions(accountRepository, operationRepository);
+    }
+
+    @Test
+    @DisplayName("Key of an operation is inserted in its transaction")
+    void shouldSaveKey_whenOperationIsPerformed() {
+        givenAccount(1L, "100", 0);
+        when(accountRepository.compareAndSetBalance(1L, 0L, Money.of("110"))).thenReturn(Mono.just(1L));
+
+        OperationDto operation = accountService.handleOperation(1L, DEBIT, Money.of("10"), "key-1").block();
+
+        assertThat(operation.id()).isEqualTo(10L);
+        verify(idempotencyKeyRepository).save(1L, "key-1", operation);
+        verify(connection).commitTransaction();
+    }
+
+    @Test
+    @DisplayName("Key already used replays its operation without touching the account")
+    void shouldReplayOperation_whenKeyWasUsed() {
+        OperationDto first = new OperationDto(7L, DEBIT, Money.of("10"), Money.of("110"), LocalDateTime.now(), null);
+        when(idempotencyKeyRepository.findOperation(1L, "key-1")).thenReturn(Mono.just(first));
+
+        assertThat(accountService.handleOperation(1L, DEBIT, Money.of("10"), "key-1").block()).isEqualTo(first);
+        verifyNoInteractions(accountRepository);
+        verify(operationRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Key already used for another amount fails with IdempotencyKeyReusedException")
+    void shouldFail_whenKeyWasUsedForAnotherOperation() {
+        OperationDto first = new OperationDto(7L, DEBIT, Money.of("10"), Money.of("110"), LocalDateTime.now(), null);
+        when(idempotencyKeyRepository.findOperation(1L, "key-1")).thenReturn(Mono.just(first));
+
+        Mono<OperationDto> operation = accountService.handleOperation(1L, DEBIT, Money.of("20"), "key-1");
+
+        assertThrows(IdempotencyKeyReusedException.class, operation::block);
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    @DisplayName("Key inserted by a concurrent request rolls the operation back and replays the operation committed first")
+    void shouldReplayOperation_whenKeyIsInsertedConcurrently() {
+        OperationDto first = new OperationDto(7L, DEBIT, Money.of("10"), Money.of("110"), LocalDateTime.now(), null);
+        givenAccount(1L, "100", 0);
+        when(accountRepository.compareAndSetBalance(1L, 0L, Money.of("110"))).thenReturn(Mono.just(1L));
+        when(idempotencyKeyRepository.findOperation(1L, "key-1")).thenReturn(Mono.empty(), Mono.just(first));
+        when(idempotencyKeyRepository.save(eq(1L), eq("key-1"), any())).thenReturn(Mono.error(new DuplicateKeyException("key-1")));
+
+        assertThat(accountService.handleOperation(1L, DEBIT, Money.of("10"), "key-1").block()).isEqualTo(first);
+        verify(connection).rollbackTransaction();
+        verify(connection, never()).commitTransaction();
+    }
+
+    @Test
+    @DisplayName("Key is rejected with IdempotencyKeysDisabledException when the keys are disabled")
+    void shouldFail_whenIdempotencyKeysAreDisabled() {
+        ReactiveAccountServiceImpl withoutKeys = new ReactiveAccountServiceImpl(accountRepository, operationRepository,
+                idempotencyKeyRepository, Mappers.getMapper(OperationMapper.class), new OperationMetrics(meterRegistry),
+                new EngineMetrics(meterRegistry), operationOutbox, operationJournal, blockingAccountService, Set.of(), false,
+                connectionFactory, 3, Duration.ZERO);
+
+        Mono<OperationDto> operation = withoutKeys.handleOperation(1L, DEBIT, Money.of("10"), "key-1");
+
+        assertThrows(IdempotencyKeysDisabledException.class, operation::block);
+        verifyNoInteractions(accountRepository, idempotencyKeyRepository);
+    }
+
+    @Test
+    @DisplayName("Hot accounts are rejected on startup")
+    void shouldRejectHotAccounts() {
+        assertThrows(IllegalStateException.class, () -> new ReactiveAccountServiceImpl(accountRepository, operationRepository,
+                idempotencyKeyRepository, Mappers.getMapper(OperationMapper.class), new OperationMetrics(meterRegistry),
+                new EngineMetrics(meterRegistry), operationOutbox, operationJournal, blockingAccountService, Set.of(1L), true,
+                connectionFactory, 3, Duration.ZERO));
+    }
+
+    private ReactiveAccountServiceImpl service(int maxAttempts) {
+        return new ReactiveAccountServiceImpl(accountRepository, operationRepository, idempotencyKeyRepository,
+                Mappers.getMapper(OperationMapper.class), new OperationMetrics(meterRegistry), new EngineMetrics(meterRegistry),
+                operationOutbox, operationJournal, blockingAccountService, Set.of(), true, connectionFactory, maxAttempts,
+                Duration.ZERO);
+    }
+
+    private void givenAccount(Long id, String balance, long version) {
+        when(accountRepository.findById(id)).thenReturn(
+                Mono.fromSupplier(() -> Account.builder().id(id).balance(Money.of(balance)).version(version).build()));
+    }
+}
@@ -0,0 +1,68 @@
+package com.bank.kata.controller;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.OperationRequestDto;
+import com.bank.kata.service.ReactiveAccountService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux handlers of the {@code reactive} profile, serving the operation endpoints of {@link AccountController}
+ * with the same contract, from request to database without blocking a thread.
+ */
+@RestController
+@RequestMapping("/api/v1/accounts")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Tag(name = "Account",description = "Rest Service to manage account")
+@Slf4j
+public class ReactiveAccountController {
+
+    private final ReactiveAccountService accountService;
+
+    /**
+     * Perform an operation (debit/credit) on account
+     *
+     * @param id The id for account to debit
+     * @param idempotencyKey optional key of the operation, a retry with the same key returns the first result
+     * @param operationRequestDto  The operation's data to perform (Type,amount ...)
+     * @return the created operation
+     */
+    @PostMapping(value = "/{id}/operations",consumes = MediaType.APPLICATION_JSON_VALUE,produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Perform operation",description = "Make a deposit or withdraw operation")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<OperationDto> performOperation(@PathVariable("id") Long id,
+                                               @RequestHeader(name = AccountController.IDEMPOTENCY_KEY, required = false) @Size(min = 1, max = 64) String idempotencyKey,
+                                               @Valid @RequestBody OperationRequestDto operationRequestDto) {
+        log.info("Operation {} requested for account {}", operationRequestDto.type(),id);
+        return accountService.handleOperation(id,operationRequestDto.type(),operationRequestDto.amount(),idempotencyKey);
+    }
+
+    /**
+     * Fetch the operations for an account
+     *
+     * @param id the id of the account
+     * @param page the page number (optional, default to 0)
+     * @param size the max number of operation to fetch in the page (optional, default to 10)
+     * @return Page<OperationDto> and status OK (200)
+     */
+    @GetMapping("/{id}/operations")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<Page<OperationDto>> getAccount(@PathVariable Long id,
+                                               @RequestParam(defaultValue = "0") int page,
+                                               @RequestParam(defaultValue = "10") int size) {
+        log.info("Received get operations request for account {}", id);
+        return accountService.getAccountOperations(id, PageRequest.of(page, size));
+    }
+}
@@ -0,0 +1,113 @@
+package com.bank.kata.exception;
+
+import com.bank.kata.dto.ApiError;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.validation.method.ParameterErrors;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counterpart of {@link GlobalExceptionHandler} for the WebFlux handlers of the {@code reactive} profile,
+ * answering the exceptions of the operation endpoints with the same statuses and {@link ApiError} body
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Slf4j
+public class ReactiveExceptionHandler {
+
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ExceptionHandler(AccountNotFoundException.class)
+    @ResponseBody
+    public ApiError handleAccountNotFoundException(AccountNotFoundException ex, ServerHttpRequest request) {
+        log.error(ex.getMessage());
+        return ApiError.create(ex.getMessage(),HttpStatus.NOT_FOUND,request);
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(WebExchangeBindException.class)
+    @ResponseBody
+    public ApiError handleValidationErrors(WebExchangeBindException ex, ServerHttpRequest request) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getBindingResult().getFieldErrors().forEach(error ->
+                errors.put(error.getField(), error.getDefaultMessage()));
+        return ApiError.create(errors.toString(), HttpStatus.BAD_REQUEST, request);
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    @ResponseBody
+    public ApiError handleMethodValidationErrors(HandlerMethodValidationException ex, ServerHttpRequest request) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getParameterValidationResults().forEach(result -> {
+            if (result instanceof ParameterErrors bodyErrors) {
+                // a @Valid body validated along with constrained parameters reports its fields as before
+                bodyErrors.getFieldErrors().forEach(error -> errors.put(error.getField(), error.getDefaultMessage()));
+            } else {
+                result.getResolvableErrors().forEach(error ->
+                        errors.put(result.getMethodParameter().getParameterName(), error.getDefaultMessage()));
+            }
+        });
+        return ApiError.create(errors.toString(), HttpStatus.BAD_REQUEST, request);
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(ServerWebInputException.class)
+    @ResponseBody
+    public ApiError handleServerWebInputException(ServerWebInputException ex, ServerHttpRequest request) {
+        log.error(ex.getMessage());
+        // the reason alone does not tell which field could not be read
+        return ApiError.create(ex.getMostSpecificCause().getMessage(),HttpStatus.BAD_REQUEST,request);
+    }
+
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    @ExceptionHandler(InsufficientBalanceException.class)
+    @ResponseBody
+    public ApiError handleInsufficientBalanceException(InsufficientBalanceException ex, ServerHttpRequest request) {
+        log.error(ex.getMessage());
+        return ApiError.create(ex.getMessage(),HttpStatus.UNPROCESSABLE_ENTITY,request);
+    }
+
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    @ResponseBody
+    public ApiError handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex, ServerHttpRequest request) {
+        log.error(ex.getMessage());
+        return ApiError.create(ex.getMessage(),HttpStatus.UNPROCESSABLE_ENTITY,request);
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(IdempotencyKeysDisabledException.class)
+    @ResponseBody
+    public ApiError handleIdempotencyKeysDisabledException(IdempotencyKeysDisabledException ex, ServerHttpRequest request) {
+        log.error(ex.getMessage());
+        return ApiError.create(ex.getMessage(),HttpStatus.BAD_REQUEST,request);
+    }
+
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ExceptionHandler(OperationsNotFoundException.class)
+    @ResponseBody
+    public ApiError handleOperationsNotFoundException(OperationsNotFoundException ex, ServerHttpRequest request) {
+        log.error(ex.getMessage());
+        return ApiError.create(ex.getMessage(),HttpStatus.NOT_FOUND,request);
+    }
+
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseBody
+    public ApiError handleOptimisticLockingFailureException(OptimisticLockingFailureException ex, ServerHttpRequest request) {
+        log.error(ex.getMessage());
+        return ApiError.create(ex.getMessage(),HttpStatus.CONFLICT,request);
+    }
+}
@@ -0,0 +1,54 @@
+package com.bank.kata.repository.reactive;
+
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.repository.AccountRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+/**
+ * R2DBC counterpart of {@link AccountRepository} for the reactive stack, on the same {@code account} table
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAccountRepository {
+
+    private static final String SELECT_ACCOUNT = "SELECT id, balance, version FROM account WHERE id = :id";
+    private static final String COMPARE_AND_SET_BALANCE =
+            "UPDATE account SET balance = :balance, version = version + 1 WHERE id = :id AND version = :version";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveAccountRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Account> findById(Long id) {
+        return databaseClient.sql(SELECT_ACCOUNT)
+                .bind("id", id)
+                .map((row, metadata) -> Account.builder()
+                        .id(row.get("id", Long.class))
+                        .balance(Money.of(row.get("balance", BigDecimal.class)))
+                        .version(row.get("version", Long.class))
+                        .build())
+                .one();
+    }
+
+    /**
+     * Update the balance of an account and increment its version, only if it is still at the expected version
+     *
+     * @return the number of updated rows, 0 when the account was updated concurrently
+     */
+    public Mono<Long> compareAndSetBalance(Long id, long version, Money balance) {
+        return databaseClient.sql(COMPARE_AND_SET_BALANCE)
+                .bind("balance", balance.toBigDecimal())
+                .bind("id", id)
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated();
+    }
+}
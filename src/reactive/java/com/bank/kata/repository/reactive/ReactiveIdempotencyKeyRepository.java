@@ -0,0 +1,55 @@
+package com.bank.kata.repository.reactive;
+
+import com.bank.kata.dto.OperationDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC access to the {@code idempotency_key} table shared with {@link com.bank.kata.cache.IdempotencyKeyStore}:
+ * the key of an operation is inserted in the transaction of the operation, its primary key rejecting a second
+ * operation with the same key on the account.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveIdempotencyKeyRepository {
+
+    private static final String INSERT_KEY = """
+            INSERT INTO idempotency_key (account_id, idempotency_key, operation_id, creation_date_time)
+            VALUES (:accountId, :key, :operationId, :dateTime)""";
+    private static final String SELECT_OPERATION = """
+            SELECT o.id, o.type, o.amount, o.balance_after_op, o.creation_date_time, o.transfer_id
+            FROM idempotency_key k JOIN operation o ON o.id = k.operation_id
+            WHERE k.account_id = :accountId AND k.idempotency_key = :key""";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveIdempotencyKeyRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Record the key of an operation, failing with a {@link org.springframework.dao.DuplicateKeyException}
+     * when the key was already used on the account
+     */
+    public Mono<Void> save(Long accountId, String key, OperationDto operation) {
+        return databaseClient.sql(INSERT_KEY)
+                .bind("accountId", accountId)
+                .bind("key", key)
+                .bind("operationId", operation.id())
+                .bind("dateTime", operation.dateTime())
+                .then();
+    }
+
+    /**
+     * Read the operation a key was used for on an account
+     */
+    public Mono<OperationDto> findOperation(Long accountId, String key) {
+        return databaseClient.sql(SELECT_OPERATION)
+                .bind("accountId", accountId)
+                .bind("key", key)
+                .map(ReactiveOperationRepository::toDto)
+                .one();
+    }
+}
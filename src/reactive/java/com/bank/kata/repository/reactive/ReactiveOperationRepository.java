@@ -0,0 +1,162 @@
+package com.bank.kata.repository.reactive;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.DailyRollup;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import com.bank.kata.outbox.OperationOutbox;
+import com.bank.kata.repository.OperationRepository;
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Pageable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * R2DBC counterpart of {@link OperationRepository} for the reactive stack, on the same {@code operation} table.
+ * It also writes the rows the servlet stack writes along with an operation: the {@link OperationOutbox} row and
+ * the {@link DailyRollup} of the day.
+ * <p>
+ * Operation ids come from {@code operation_seq} by blocks of {@link #ALLOCATION_SIZE}, as Hibernate allocates
+ * them: the value read from the sequence is the last id of the block, so both stacks never share an id.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOperationRepository {
+
+    static final int ALLOCATION_SIZE = 50;
+
+    private static final String NEXT_ID = "SELECT NEXT VALUE FOR operation_seq";
+    private static final String INSERT_OPERATION = """
+            INSERT INTO operation (id, account_id, amount, balance_after_op, type, creation_date_time)
+            VALUES (:id, :accountId, :amount, :balanceAfterOp, :type, :dateTime)""";
+    private static final String INSERT_OUTBOX_ENTRY =
+            "INSERT INTO operation_outbox (operation_id, creation_date_time) VALUES (:operationId, :dateTime)";
+    private static final String UPSERT_DAILY_ROLLUP = """
+            INSERT INTO daily_rollup (account_id, rollup_date, shard, total_debit, total_credit, debit_count, credit_count)
+            VALUES (:accountId, :date, 0, :debit, :credit, :debitCount, :creditCount)
+            ON DUPLICATE KEY UPDATE total_debit = total_debit + VALUES(total_debit), total_credit = total_credit + VALUES(total_credit),
+                debit_count = debit_count + VALUES(debit_count), credit_count = credit_count + VALUES(credit_count)""";
+    private static final String SELECT_PAGE = """
+            SELECT id, type, amount, balance_after_op, creation_date_time, transfer_id FROM operation
+            WHERE account_id = :accountId ORDER BY id LIMIT :limit OFFSET :offset""";
+    private static final String COUNT = "SELECT COUNT(*) FROM operation WHERE account_id = :accountId";
+
+    private final DatabaseClient databaseClient;
+    private long nextId;
+    private long lastId;
+
+    public ReactiveOperationRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Insert a new operation with the next id
+     *
+     * @return the operation with its id
+     */
+    public Mono<Operation> save(Operation operation) {
+        return nextId()
+                .flatMap(id -> {
+                    operation.setId(id);
+                    return databaseClient.sql(INSERT_OPERATION)
+                            .bind("id", id)
+                            .bind("accountId", operation.getAccount().getId())
+                            .bind("amount", operation.getAmount().toBigDecimal())
+                            .bind("balanceAfterOp", operation.getBalanceAfterOp().toBigDecimal())
+                            .bind("type", operation.getType().name())
+                            .bind("dateTime", operation.getDateTime())
+                            .then();
+                })
+                .thenReturn(operation);
+    }
+
+    /**
+     * Record the event of an operation in the transaction inserting the operation
+     */
+    public Mono<Void> addToOutbox(Operation operation) {
+        return databaseClient.sql(INSERT_OUTBOX_ENTRY)
+                .bind("operationId", operation.getId())
+                .bind("dateTime", operation.getDateTime())
+                .then();
+    }
+
+    /**
+     * Add an operation to the rollup of its day, on the shard of the account row
+     */
+    public Mono<Void> addToDailyRollup(Operation operation) {
+        boolean debit = operation.getType() == OperationType.DEBIT;
+        return databaseClient.sql(UPSERT_DAILY_ROLLUP)
+                .bind("accountId", operation.getAccount().getId())
+                .bind("date", operation.getDateTime().toLocalDate())
+                .bind("debit", (debit ? operation.getAmount() : Money.ZERO).toBigDecimal())
+                .bind("credit", (debit ? Money.ZERO : operation.getAmount()).toBigDecimal())
+                .bind("debitCount", debit ? 1L : 0L)
+                .bind("creditCount", debit ? 0L : 1L)
+                .then();
+    }
+
+    /**
+     * Read a page of the operations of an account as DTOs, in id order
+     */
+    public Flux<OperationDto> findDtoByAccountId(Long accountId, Pageable pageable) {
+        return databaseClient.sql(SELECT_PAGE)
+                .bind("accountId", accountId)
+                .bind("limit", pageable.getPageSize())
+                .bind("offset", pageable.getOffset())
+                .map(ReactiveOperationRepository::toDto)
+                .all();
+    }
+
+    public Mono<Long> countByAccountId(Long accountId) {
+        return databaseClient.sql(COUNT)
+                .bind("accountId", accountId)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    /**
+     * Take the next id of the current block, or read a new block from the sequence once it is used up
+     */
+    Mono<Long> nextId() {
+        Long id = nextIdOfBlock();
+        if (id != null) return Mono.just(id);
+        return databaseClient.sql(NEXT_ID)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(this::newBlock);
+    }
+
+    private synchronized Long nextIdOfBlock() {
+        return nextId != 0 && nextId <= lastId ? nextId++ : null;
+    }
+
+    /**
+     * Start the block ending at a value read from the sequence, the first value only covers itself
+     *
+     * @return the first id of the block
+     */
+    private synchronized long newBlock(long last) {
+        lastId = last;
+        nextId = Math.max(last - ALLOCATION_SIZE + 1, 1);
+        return nextId++;
+    }
+
+    static OperationDto toDto(Readable row) {
+        String transferId = row.get("transfer_id", String.class);
+        return new OperationDto(
+                row.get("id", Long.class),
+                OperationType.valueOf(row.get("type", String.class)),
+                Money.of(row.get("amount", BigDecimal.class)),
+                Money.of(row.get("balance_after_op", BigDecimal.class)),
+                row.get("creation_date_time", LocalDateTime.class),
+                transferId == null ? null : UUID.fromString(transferId));
+    }
+}
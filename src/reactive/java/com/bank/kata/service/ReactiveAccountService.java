@@ -0,0 +1,14 @@
+package com.bank.kata.service;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveAccountService {
+    Mono<OperationDto> handleOperation(Long accountId, OperationType type, Money amount);
+    Mono<OperationDto> handleOperation(Long accountId, OperationType type, Money amount, String idempotencyKey);
+    Mono<Page<OperationDto>> getAccountOperations(Long accountId, PageRequest pageRequest);
+}
@@ -0,0 +1,233 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.exception.IdempotencyKeyReusedException;
+import com.bank.kata.exception.IdempotencyKeysDisabledException;
+import com.bank.kata.exception.OperationsNotFoundException;
+import com.bank.kata.journal.OperationJournal;
+import com.bank.kata.mapper.OperationMapper;
+import com.bank.kata.metrics.EngineMetrics;
+import com.bank.kata.metrics.OperationMetrics;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import com.bank.kata.outbox.OperationOutbox;
+import com.bank.kata.repository.reactive.ReactiveAccountRepository;
+import com.bank.kata.repository.reactive.ReactiveIdempotencyKeyRepository;
+import com.bank.kata.repository.reactive.ReactiveOperationRepository;
+import com.bank.kata.service.AccountService;
+import com.bank.kata.service.ReactiveAccountService;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Non-blocking version of the operation flow of {@link AccountServiceImpl}, on R2DBC.
+ * <p>
+ * There is no balance engine on this stack: each operation reads the account, applies the credit/debit rules
+ * and writes the balance by compare-and-set on its version, with the operation, its outbox row and its daily
+ * rollup, in one R2DBC transaction. A conflict is retried from the read up to {@code kata.engine.retry.max-attempts}
+ * attempts after a jittered pause of {@code kata.engine.retry.backoff} doubled on each attempt, as in the balance
+ * engine. In the journal write mode, which keeps the balances in memory, the operations are handed to the
+ * balance engine through {@link AccountService} on the bounded elastic scheduler. The hot accounts, whose
+ * balances are split into sub-balances, are not supported.
+ * <p>
+ * The key of an operation sent with an {@code Idempotency-Key} is inserted into the {@code idempotency_key} table
+ * in the transaction of the operation, as on the servlet stack: a key already used on the account replays its
+ * operation, read from the table as there is no in-memory copy of the keys here.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Slf4j
+public class ReactiveAccountServiceImpl implements ReactiveAccountService {
+
+    private final ReactiveAccountRepository accountRepository;
+    private final ReactiveOperationRepository operationRepository;
+    private final ReactiveIdempotencyKeyRepository idempotencyKeyRepository;
+    private final OperationMapper operationMapper;
+    private final OperationMetrics operationMetrics;
+    private final EngineMetrics engineMetrics;
+    private final OperationOutbox operationOutbox;
+    private final TransactionalOperator transactionalOperator;
+    private final Retry retry;
+    private final AccountService journaledAccountService;
+    private final boolean idempotencyKeysEnabled;
+
+    public ReactiveAccountServiceImpl(ReactiveAccountRepository accountRepository,
+                                      ReactiveOperationRepository operationRepository,
+                                      ReactiveIdempotencyKeyRepository idempotencyKeyRepository,
+                                      OperationMapper operationMapper,
+                                      OperationMetrics operationMetrics,
+                                      EngineMetrics engineMetrics,
+                                      OperationOutbox operationOutbox,
+                                      OperationJournal operationJournal,
+                                      AccountService accountService,
+                                      @Value("${kata.hot-accounts.ids:}") Set<Long> hotAccountIds,
+                                      @Value("${kata.idempotency.enabled:true}") boolean idempotencyKeysEnabled,
+                                      ConnectionFactory connectionFactory,
+                                      @Value("${kata.engine.retry.max-attempts:3}") int maxAttempts,
+                                      @Value("${kata.engine.retry.backoff:PT0.001S}") Duration backoff) {
+        if (!hotAccountIds.isEmpty()) {
+            throw new IllegalStateException("The reactive stack does not support hot accounts");
+        }
+        if (maxAttempts <= 0) throw new IllegalArgumentException("Max attempts must be greater than 0");
+        this.accountRepository = accountRepository;
+        this.operationRepository = operationRepository;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.operationMapper = operationMapper;
+        this.operationMetrics = operationMetrics;
+        this.engineMetrics = engineMetrics;
+        this.operationOutbox = operationOutbox;
+        this.journaledAccountService = operationJournal.isEnabled() ? accountService : null;
+        this.idempotencyKeysEnabled = idempotencyKeysEnabled;
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+        this.retry = Retry.backoff(maxAttempts - 1, backoff.isZero() ? Duration.ofNanos(1) : backoff)
+                .jitter(1.0)
+                .filter(OptimisticLockingFailureException.class::isInstance)
+                .doBeforeRetry(signal -> {
+                    engineMetrics.retry();
+                    log.warn("Stale version of account, reloading (attempt {}/{})", signal.totalRetries() + 2, maxAttempts);
+                })
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    /**
+     * Handle an operation on account without blocking: the balance change and the operation creation are
+     * written in a single transaction, retried on a concurrent update of the account. The duration and
+     * outcome of the operation are recorded by {@link OperationMetrics}
+     * @param accountId Account ID
+     * @param type Type of operation
+     * @param amount amount of operation
+     * @return the created operation
+     */
+    @Override
+    public Mono<OperationDto> handleOperation(Long accountId, OperationType type, Money amount) {
+        return handleOperation(accountId, type, amount, null);
+    }
+
+    /**
+     * Handle an operation at most once per idempotency key, see {@link #handleOperation(Long, OperationType, Money)}.
+     * A key already used on the account replays the operation it was first used for without touching the account,
+     * as does a key inserted by a concurrent request committed first.
+     * @param idempotencyKey key chosen by the client for the operation, null to always perform it
+     * @throws IdempotencyKeyReusedException if the key was used for an operation of another type or amount
+     * @throws IdempotencyKeysDisabledException if a key is given while {@code kata.idempotency.enabled} is off
+     */
+    @Override
+    public Mono<OperationDto> handleOperation(Long accountId, OperationType type, Money amount, String idempotencyKey) {
+        if (journaledAccountService != null) {
+            return Mono.fromCallable(() -> journaledAccountService.handleOperation(accountId, type, amount, idempotencyKey))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+        return Mono.defer(() -> {
+            log.info("[START] processing {} request on account {}",type,accountId);
+            if (type == null) {
+                return Mono.error(new IllegalArgumentException("Operation Type must not be null"));
+            }
+            if (idempotencyKey == null) return perform(accountId, type, amount, null);
+            if (!idempotencyKeysEnabled) return Mono.error(new IdempotencyKeysDisabledException());
+            return replay(accountId, type, amount, idempotencyKey)
+                    .switchIfEmpty(Mono.defer(() -> perform(accountId, type, amount, idempotencyKey)));
+        });
+    }
+
+    /**
+     * Fetch a page of the operations of an account, read as DTO projections
+     */
+    @Override
+    public Mono<Page<OperationDto>> getAccountOperations(Long accountId, PageRequest pageRequest) {
+        log.info("Get Operations for account {}",accountId);
+        return operationRepository.countByAccountId(accountId)
+                .flatMap(total -> {
+                    if (total == 0) return Mono.error(new OperationsNotFoundException());
+                    return operationRepository.findDtoByAccountId(accountId, pageRequest)
+                            .collectList()
+                            .map(operations -> new PageImpl<>(operations, pageRequest, total));
+                });
+    }
+
+    private Mono<OperationDto> perform(Long accountId, OperationType type, Money amount, String idempotencyKey) {
+        Timer.Sample sample = operationMetrics.start();
+        // every attempt reads the account again, in a new transaction
+        return transactionalOperator.transactional(Mono.defer(() -> update(accountId, type, amount, idempotencyKey)))
+                .retryWhen(retry)
+                .onErrorResume(DuplicateKeyException.class, ex -> {
+                    // a concurrent request with the same key committed first, its operation is replayed
+                    if (idempotencyKey == null) return Mono.error(ex);
+                    return replay(accountId, type, amount, idempotencyKey).switchIfEmpty(Mono.error(ex));
+                })
+                .doOnSuccess(operation -> {
+                    operationMetrics.stop(sample, type, null);
+                    log.info("[END] processing {} request on account {}",type,accountId);
+                })
+                .doOnError(ex -> operationMetrics.stop(sample, type, ex));
+    }
+
+    /**
+     * Read the operation a key was first used for on the account, empty when the key is new
+     */
+    private Mono<OperationDto> replay(Long accountId, OperationType type, Money amount, String idempotencyKey) {
+        return idempotencyKeyRepository.findOperation(accountId, idempotencyKey)
+                .map(first -> {
+                    log.info("[END] {} request on account {} replayed for key {}",type,accountId,idempotencyKey);
+                    return AccountServiceImpl.sameOperation(first, type, amount, idempotencyKey);
+                });
+    }
+
+    private Mono<OperationDto> update(Long accountId, OperationType type, Money amount, String idempotencyKey) {
+        return accountRepository.findById(accountId)
+                .switchIfEmpty(Mono.error(() -> new AccountNotFoundException(accountId)))
+                .flatMap(account -> {
+                    long version = account.getVersion();
+                    AccountServiceImpl.updateAccount(account, type, amount);
+                    return accountRepository.compareAndSetBalance(accountId, version, account.getBalance())
+                            .flatMap(updated -> {
+                                if (updated == 0) {
+                                    engineMetrics.conflict();
+                                    return Mono.error(new OptimisticLockingFailureException("Account " + accountId + " updated concurrently"));
+                                }
+                                return createOperation(account, type, amount);
+                            });
+                })
+                .flatMap(created -> idempotencyKey == null
+                        ? Mono.just(created)
+                        : idempotencyKeyRepository.save(accountId, idempotencyKey, created).thenReturn(created));
+    }
+
+    private Mono<OperationDto> createOperation(Account account, OperationType type, Money amount) {
+        Operation operation = Operation.builder()
+                .account(account)
+                .amount(amount)
+                .type(type)
+                .balanceAfterOp(account.getBalance())
+                .dateTime(LocalDateTime.now())
+                .build();
+        return operationRepository.save(operation)
+                .flatMap(saved -> (operationOutbox.isEnabled() ? operationRepository.addToOutbox(saved) : Mono.<Void>empty())
+                        .then(operationRepository.addToDailyRollup(saved))
+                        .thenReturn(saved))
+                .map(saved -> {
+                    log.info(" {} Operation created for account {}",type, account.getId());
+                    return operationMapper.toDto(saved);
+                });
+    }
+}
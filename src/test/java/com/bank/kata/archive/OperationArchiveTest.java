@@ -0,0 +1,98 @@
+package com.bank.kata.archive;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OperationArchiveTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2024, 6);
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldReadBackOperationsOfOneAccount_fromColumnarFile() throws IOException {
+        OperationArchive archive = new OperationArchive(jdbcTemplate, directory);
+        List<OperationDto> operations = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2024, 6, 1, 0, 0, 0, 123_456_000);
+        long balance = 0;
+        for (int i = 0; i < 1000; i++) {
+            OperationType type = i % 3 == 2 ? OperationType.CREDIT : OperationType.DEBIT;
+            long amount = 100 + i;
+            balance += type == OperationType.DEBIT ? amount : -amount;
+            operations.add(new OperationDto(1000L + i * 50L, type, new Money(amount), new Money(balance),
+                    start.plusSeconds(i * 37L), i % 10 == 0 ? UUID.randomUUID() : null));
+        }
+        OperationDto other = new OperationDto(7L, OperationType.CREDIT, Money.of("1.50"), Money.of("-1.50"), start, null);
+        try (OperationArchiveFile.Writer writer = new OperationArchiveFile.Writer(archive.path(MONTH))) {
+            writer.append(1L, operations);
+            writer.append(2L, List.of(other));
+            writer.finish();
+        }
+        givenCatalog("2024-06");
+
+        archive.refresh();
+
+        Assertions.assertThat(archive.read(MONTH, 1L)).isEqualTo(operations);
+        Assertions.assertThat(archive.read(MONTH, 2L)).containsExactly(other);
+        Assertions.assertThat(archive.read(MONTH, 3L)).isEmpty();
+        Assertions.assertThat(archive.count(1L)).isEqualTo(1000);
+        Assertions.assertThat(archive.hotFrom()).isEqualTo(LocalDateTime.of(2024, 7, 1, 0, 0));
+        Assertions.assertThat(Files.size(archive.path(MONTH))).isLessThan(1000 * 16);
+    }
+
+    @Test
+    void shouldHaveNoHotBound_whenNothingArchived() {
+        givenCatalog();
+
+        OperationArchive archive = new OperationArchive(jdbcTemplate, directory);
+        archive.refresh();
+
+        Assertions.assertThat(archive.isEmpty()).isTrue();
+        Assertions.assertThat(archive.hotFrom()).isNull();
+        Assertions.assertThat(archive.count(1L)).isZero();
+    }
+
+    @Test
+    void shouldRejectTruncatedFile() throws IOException {
+        OperationArchive archive = new OperationArchive(jdbcTemplate, directory);
+        try (OperationArchiveFile.Writer writer = new OperationArchiveFile.Writer(archive.path(MONTH))) {
+            writer.append(1L, List.of(new OperationDto(1L, OperationType.DEBIT, Money.of("1"), Money.of("1"), LocalDateTime.of(2024, 6, 2, 0, 0), null)));
+        }
+        givenCatalog("2024-06");
+        archive.refresh();
+
+        assertThrows(UncheckedIOException.class, () -> archive.read(MONTH, 1L));
+    }
+
+    private void givenCatalog(String... months) {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of(months));
+    }
+}
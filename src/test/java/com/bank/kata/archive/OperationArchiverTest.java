@@ -0,0 +1,117 @@
+package com.bank.kata.archive;
+
+import com.bank.kata.cache.AccountReadCache;
+import com.bank.kata.dto.OperationDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OperationArchiverTest {
+
+    private static final YearMonth MAY = YearMonth.of(2024, 5);
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    AccountReadCache accountReadCache = spy(new AccountReadCache(meterRegistry, true, 10, 1, Duration.ofMinutes(1)));
+
+    OperationArchive operationArchive;
+
+    OperationArchiver operationArchiver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        operationArchive = new OperationArchive(jdbcTemplate, directory.resolve("archive"));
+        operationArchiver = new OperationArchiver(operationArchive, jdbcTemplate, transactionManager, accountReadCache, meterRegistry, 2);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Timestamp.class))).thenReturn(
+                Timestamp.valueOf(LocalDateTime.of(2024, 5, 3, 8, 0)),
+                Timestamp.valueOf(LocalDateTime.of(2024, 7, 1, 0, 0)));
+        doAnswer(invocation -> {
+            invocation.<PreparedStatementSetter>getArgument(1).setValues(mock(PreparedStatement.class));
+            RowCallbackHandler handler = invocation.getArgument(2);
+            handler.processRow(row(1L, 10L, "DEBIT", "100.00", "100.00", LocalDateTime.of(2024, 5, 3, 8, 0)));
+            handler.processRow(row(1L, 60L, "CREDIT", "40.00", "60.00", LocalDateTime.of(2024, 5, 20, 9, 30)));
+            handler.processRow(row(2L, 11L, "DEBIT", "5.00", "5.00", LocalDateTime.of(2024, 5, 4, 10, 0)));
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+        when(jdbcTemplate.update(startsWith("INSERT"), any(), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    void shouldMoveMonthsBeforeHotTier_toColdFile_andDeleteTheirRows() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("2024-05"));
+        when(jdbcTemplate.update(startsWith("DELETE"), any(Timestamp.class), any(Timestamp.class))).thenReturn(3);
+
+        int months = operationArchiver.archive(YearMonth.of(2024, 7));
+
+        Assertions.assertThat(months).isEqualTo(1);
+        Assertions.assertThat(operationArchive.read(MAY, 1L)).extracting(OperationDto::id).containsExactly(10L, 60L);
+        Assertions.assertThat(operationArchive.read(MAY, 2L)).extracting(OperationDto::id).containsExactly(11L);
+        Assertions.assertThat(operationArchive.hotFrom()).isEqualTo(LocalDateTime.of(2024, 6, 1, 0, 0));
+        Assertions.assertThat(meterRegistry.get(OperationArchiver.ARCHIVED_COUNTER).counter().count()).isEqualTo(3);
+        verify(jdbcTemplate).update(startsWith("INSERT INTO operation_archive"), eq("2024-05"), eq(3L), any(Timestamp.class));
+        verify(jdbcTemplate).update(startsWith("DELETE"), eq(Timestamp.valueOf(LocalDateTime.of(2024, 5, 1, 0, 0))), eq(Timestamp.valueOf(LocalDateTime.of(2024, 6, 1, 0, 0))));
+        verify(transactionManager).commit(any());
+        verify(accountReadCache).invalidate(1L);
+        verify(accountReadCache).invalidate(2L);
+    }
+
+    @Test
+    void shouldRollBack_whenDeletedRowsAreNotTheArchivedOnes() {
+        when(jdbcTemplate.update(startsWith("DELETE"), any(Timestamp.class), any(Timestamp.class))).thenReturn(4);
+
+        assertThrows(IllegalStateException.class, () -> operationArchiver.archive(YearMonth.of(2024, 7)));
+
+        verify(transactionManager).rollback(any());
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class));
+        Assertions.assertThat(operationArchive.isEmpty()).isTrue();
+        Assertions.assertThat(Files.exists(operationArchive.path(MAY))).isTrue();
+    }
+
+    private static ResultSet row(Long accountId, Long id, String type, String amount, String balance, LocalDateTime dateTime) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("account_id")).thenReturn(accountId);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getString("type")).thenReturn(type);
+        when(rs.getBigDecimal("amount")).thenReturn(new BigDecimal(amount));
+        when(rs.getBigDecimal("balance_after_op")).thenReturn(new BigDecimal(balance));
+        when(rs.getTimestamp("creation_date_time")).thenReturn(Timestamp.valueOf(dateTime));
+        return rs;
+    }
+}
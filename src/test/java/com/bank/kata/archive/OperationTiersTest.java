@@ -0,0 +1,155 @@
+package com.bank.kata.archive;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import com.bank.kata.repository.OperationRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OperationTiersTest {
+
+    private static final LocalDateTime MAY = LocalDateTime.of(2024, 5, 10, 12, 0);
+    private static final LocalDateTime JUNE = LocalDateTime.of(2024, 6, 10, 12, 0);
+    private static final LocalDateTime JULY = LocalDateTime.of(2024, 7, 10, 12, 0);
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    OperationRepository operationRepository;
+
+    OperationArchive operationArchive;
+
+    OperationTiers operationTiers;
+
+    // account 1: ids 1 to 3 archived for May, 4 and 5 for June, 6 and 7 in the operation table
+    List<OperationDto> may = List.of(operation(1L, MAY), operation(2L, MAY.plusDays(1)), operation(3L, MAY.plusDays(2)));
+    List<OperationDto> june = List.of(operation(4L, JUNE), operation(5L, JUNE.plusDays(1)));
+    List<OperationDto> hot = List.of(operation(6L, JULY), operation(7L, JULY.plusDays(1)));
+
+    @BeforeEach
+    void setUp() throws IOException {
+        operationArchive = new OperationArchive(jdbcTemplate, directory);
+        write(YearMonth.of(2024, 5), may);
+        write(YearMonth.of(2024, 6), june);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("2024-05", "2024-06"));
+        operationArchive.refresh();
+        operationTiers = new OperationTiers(operationRepository, operationArchive);
+    }
+
+    @Test
+    void shouldReadPageFromOperationTable_whenAccountHasNothingArchived() {
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Page<OperationDto> page = new PageImpl<>(hot);
+        when(operationRepository.findDtoByAccountId(2L, pageRequest)).thenReturn(page);
+
+        Assertions.assertThat(operationTiers.findPage(2L, pageRequest)).isSameAs(page);
+    }
+
+    @Test
+    void shouldReadPageAcrossTiers_continuingAfterArchivedOperations() {
+        when(operationRepository.findDtoByAccountId(eq(1L), any())).thenReturn(new PageImpl<>(hot, PageRequest.of(0, 3), 2));
+
+        Page<OperationDto> page = operationTiers.findPage(1L, PageRequest.of(1, 4));
+
+        Assertions.assertThat(page.getContent()).extracting(OperationDto::id).containsExactly(5L, 6L, 7L);
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(7);
+        verify(operationRepository).findDtoByAccountId(1L, new OffsetPageable(0, 3));
+    }
+
+    @Test
+    void shouldReadPageFromArchive_andCountOperationTable() {
+        when(operationRepository.countByAccountId(1L)).thenReturn(2L);
+
+        Page<OperationDto> page = operationTiers.findPage(1L, PageRequest.of(1, 2));
+
+        Assertions.assertThat(page.getContent()).extracting(OperationDto::id).containsExactly(3L, 4L);
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(7);
+        verify(operationRepository, never()).findDtoByAccountId(any(), any());
+    }
+
+    @Test
+    void shouldContinueLatestIntoArchive_mostRecentFirst() {
+        when(operationRepository.findLatest(1L, Limit.of(5))).thenReturn(List.of(hot.get(1), hot.get(0)));
+
+        List<OperationDto> operations = operationTiers.findLatest(1L, 5);
+
+        Assertions.assertThat(operations).extracting(OperationDto::id).containsExactly(7L, 6L, 5L, 4L, 3L);
+    }
+
+    @Test
+    void shouldNotContinueIntoArchive_whenOperationTableFillsTheLimit() {
+        when(operationRepository.findLatest(1L, Limit.of(2))).thenReturn(List.of(hot.get(1), hot.get(0)));
+
+        Assertions.assertThat(operationTiers.findLatest(1L, 2)).extracting(OperationDto::id).containsExactly(7L, 6L);
+    }
+
+    @Test
+    void shouldReadOlderThanCursor_fromArchive() {
+        when(operationRepository.findOlderThan(1L, MAY.plusDays(2), 3L, Limit.of(5))).thenReturn(List.of());
+
+        List<OperationDto> operations = operationTiers.findOlderThan(1L, MAY.plusDays(2), 3L, 5);
+
+        Assertions.assertThat(operations).extracting(OperationDto::id).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void shouldGoThroughArchivedOperationsWithinPeriod_oldestFirst() {
+        List<Long> ids = new ArrayList<>();
+
+        operationTiers.forEachArchived(1L, MAY.plusDays(1), JUNE.plusHours(1), operation -> ids.add(operation.id()));
+
+        Assertions.assertThat(ids).containsExactly(2L, 3L, 4L);
+    }
+
+    @Test
+    void shouldFindLatestArchived_atOrBeforeDateTime_andAfterLowerBound() {
+        Assertions.assertThat(operationTiers.findLatestArchived(1L, null, JUNE.minusDays(1))).map(OperationDto::id).contains(3L);
+        Assertions.assertThat(operationTiers.findLatestArchived(1L, MAY.plusDays(2), JUNE.minusDays(1))).isEmpty();
+        Assertions.assertThat(operationTiers.findLatestArchived(1L, null, MAY.minusDays(1))).isEmpty();
+    }
+
+    @Test
+    void shouldFindFirstArchivedAfterDateTime() {
+        Assertions.assertThat(operationTiers.findFirstArchivedAfter(1L, MAY.plusDays(3))).map(OperationDto::id).contains(4L);
+        Assertions.assertThat(operationTiers.findFirstArchivedAfter(1L, JULY)).isEmpty();
+    }
+
+    private void write(YearMonth month, List<OperationDto> operations) throws IOException {
+        try (OperationArchiveFile.Writer writer = new OperationArchiveFile.Writer(operationArchive.path(month))) {
+            writer.append(1L, operations);
+            writer.finish();
+        }
+    }
+
+    private static OperationDto operation(Long id, LocalDateTime dateTime) {
+        return new OperationDto(id, OperationType.DEBIT, Money.of("10"), Money.of(String.valueOf(10 * id)), dateTime, null);
+    }
+}
@@ -0,0 +1,96 @@
+package com.bank.kata.cache;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.event.OperationCreatedEvent;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+class AccountReadCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AccountReadCache cache = new AccountReadCache(meterRegistry, true, 100, 2, Duration.ofMinutes(1));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void shouldLoadFirstPagesOnce(){
+        cache.getOperations(1L, PageRequest.of(0, 10), page());
+        Page<OperationDto> page = cache.getOperations(1L, PageRequest.of(0, 10), page());
+
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(1);
+        Assertions.assertThat(loads).hasValue(1);
+        Assertions.assertThat(gets(AccountReadCache.OPERATIONS, "hit")).isEqualTo(1);
+        Assertions.assertThat(gets(AccountReadCache.OPERATIONS, "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCachePagesBeyondFirstPages(){
+        cache.getOperations(1L, PageRequest.of(2, 10), page());
+        cache.getOperations(1L, PageRequest.of(2, 10), page());
+
+        Assertions.assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldKeepPagesOfEachSizeApart(){
+        cache.getOperations(1L, PageRequest.of(0, 10), page());
+        cache.getOperations(1L, PageRequest.of(0, 20), page());
+
+        Assertions.assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldDropAccountEntries_whenOperationOfAccountCommitted(){
+        cache.getOperations(1L, PageRequest.of(0, 10), page());
+        cache.getBalance(1L, balance());
+        cache.getBalance(2L, balance());
+
+        cache.onOperationCreated(new OperationCreatedEvent(Operation.builder().account(Account.builder().id(1L).build()).build()));
+        cache.getOperations(1L, PageRequest.of(0, 10), page());
+        cache.getBalance(1L, balance());
+        cache.getBalance(2L, balance());
+
+        Assertions.assertThat(loads).hasValue(5);
+        Assertions.assertThat(gets(AccountReadCache.BALANCE, "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAlwaysLoad_whenDisabled(){
+        AccountReadCache disabled = new AccountReadCache(meterRegistry, false, 100, 2, Duration.ofMinutes(1));
+        disabled.getBalance(1L, balance());
+        disabled.getBalance(1L, balance());
+
+        Assertions.assertThat(loads).hasValue(2);
+    }
+
+    private Supplier<Page<OperationDto>> page() {
+        return () -> {
+            loads.incrementAndGet();
+            return new PageImpl<>(List.of(new OperationDto(1L, OperationType.DEBIT, Money.of("10"), Money.of("10"), LocalDateTime.now(), null)));
+        };
+    }
+
+    private Supplier<Money> balance() {
+        return () -> {
+            loads.incrementAndGet();
+            return Money.of("10");
+        };
+    }
+
+    private double gets(String name, String result) {
+        return meterRegistry.get(AccountReadCache.GETS).tag("cache", name).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,80 @@
+package com.bank.kata.cache;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.journal.OperationJournal;
+import com.bank.kata.model.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.bank.kata.enums.OperationType.DEBIT;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class IdempotencyKeyStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final OperationJournal operationJournal = mock(OperationJournal.class);
+    private final IdempotencyKeyStore store = new IdempotencyKeyStore(jdbcTemplate, meterRegistry, operationJournal, true, 100, Duration.ofHours(1));
+    private final OperationDto operation = new OperationDto(7L, DEBIT, Money.of("20"), Money.of("120"), LocalDateTime.now(), null);
+
+    @Test
+    void shouldFindRememberedOperation_inMemoryOnly(){
+        store.remember(1L, "retry-1", operation);
+
+        Assertions.assertThat(store.find(1L, "retry-1")).contains(operation);
+        Assertions.assertThat(store.find(1L, "retry-2")).isEmpty();
+        Assertions.assertThat(gets("hit")).isEqualTo(1);
+        Assertions.assertThat(gets("miss")).isEqualTo(1);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void shouldKeepKeysOfEachAccountApart(){
+        store.remember(1L, "retry-1", operation);
+
+        Assertions.assertThat(store.find(2L, "retry-1")).isEmpty();
+    }
+
+    @Test
+    void shouldInsertKey_withOperationIdAndDate(){
+        store.save(1L, "retry-1", operation);
+
+        verify(jdbcTemplate).update(anyString(), eq(1L), eq("retry-1"), eq(7L), eq(Timestamp.valueOf(operation.dateTime())));
+        Assertions.assertThat(store.find(1L, "retry-1")).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldRememberLoadedOperation(){
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(1L), eq("retry-1"))).thenReturn(List.of(operation));
+
+        Assertions.assertThat(store.load(1L, "retry-1")).contains(operation);
+        Assertions.assertThat(store.find(1L, "retry-1")).contains(operation);
+    }
+
+    @Test
+    void shouldRefuseToStart_whenEnabledInJournalMode(){
+        when(operationJournal.isEnabled()).thenReturn(true);
+
+        assertThrows(IllegalStateException.class,
+                () -> new IdempotencyKeyStore(jdbcTemplate, meterRegistry, operationJournal, true, 100, Duration.ofHours(1)));
+        Assertions.assertThat(new IdempotencyKeyStore(jdbcTemplate, meterRegistry, operationJournal, false, 100, Duration.ofHours(1))
+                .isEnabled()).isFalse();
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get(AccountReadCache.GETS).tag("cache", IdempotencyKeyStore.IDEMPOTENCY).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,105 @@
+package com.bank.kata.codec;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.OperationRequestDto;
+import com.bank.kata.dto.OperationSliceDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OperationBinaryCodecTest {
+
+    private static final OperationDto DEPOSIT = new OperationDto(42L, OperationType.DEBIT, Money.of("1250.75"), Money.of("1250.75"),
+            LocalDateTime.of(2026, 10, 17, 9, 30, 15, 123_456_789), null);
+    private static final OperationDto TRANSFER = new OperationDto(43L, OperationType.CREDIT, Money.of("2000"), Money.of("-749.25"),
+            LocalDateTime.of(1999, 12, 31, 23, 59), UUID.randomUUID());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+
+    @Test
+    void shouldReadBackRequest() throws IOException {
+        OperationRequestDto request = new OperationRequestDto(Money.of("99.99"), OperationType.CREDIT);
+
+        OperationBinaryCodec.writeRequest(out, request);
+
+        Assertions.assertThat(bytes.size()).isEqualTo(OperationBinaryCodec.REQUEST_SIZE);
+        Assertions.assertThat(OperationBinaryCodec.readRequest(in())).isEqualTo(request);
+    }
+
+    @Test
+    void shouldReadBackOperations_withAndWithoutTransferId() throws IOException {
+        OperationBinaryCodec.writeOperation(out, DEPOSIT);
+        OperationBinaryCodec.writeOperation(out, TRANSFER);
+
+        Assertions.assertThat(bytes.size()).isEqualTo(2 * OperationBinaryCodec.OPERATION_SIZE);
+        DataInputStream in = in();
+        Assertions.assertThat(OperationBinaryCodec.readOperation(in)).isEqualTo(DEPOSIT);
+        Assertions.assertThat(OperationBinaryCodec.readOperation(in)).isEqualTo(TRANSFER);
+    }
+
+    @Test
+    void shouldReadBackPage() throws IOException {
+        Page<OperationDto> page = new PageImpl<>(List.of(DEPOSIT, TRANSFER), PageRequest.of(3, 2), 40);
+
+        OperationBinaryCodec.writePage(out, page);
+
+        Assertions.assertThat(bytes.size()).isEqualTo(OperationBinaryCodec.length(page));
+        Page<OperationDto> read = OperationBinaryCodec.readPage(in());
+        Assertions.assertThat(read.getContent()).containsExactly(DEPOSIT, TRANSFER);
+        Assertions.assertThat(read.getNumber()).isEqualTo(3);
+        Assertions.assertThat(read.getSize()).isEqualTo(2);
+        Assertions.assertThat(read.getTotalElements()).isEqualTo(40);
+    }
+
+    @Test
+    void shouldReadBackSlices_withAndWithoutCursor() throws IOException {
+        OperationSliceDto first = new OperationSliceDto(List.of(TRANSFER, DEPOSIT), "MjAyNi0xMC0xN1QwOTozMDoxNXw0Mg");
+        OperationSliceDto last = new OperationSliceDto(List.of(), null);
+
+        OperationBinaryCodec.writeSlice(out, first);
+        OperationBinaryCodec.writeSlice(out, last);
+
+        Assertions.assertThat(bytes.size()).isEqualTo(OperationBinaryCodec.length(first) + OperationBinaryCodec.length(last));
+        DataInputStream in = in();
+        Assertions.assertThat(OperationBinaryCodec.readSlice(in)).isEqualTo(first);
+        Assertions.assertThat(OperationBinaryCodec.readSlice(in)).isEqualTo(last);
+    }
+
+    @Test
+    void shouldRejectUnknownType_andTruncatedRequest() {
+        Assertions.assertThatThrownBy(() -> OperationBinaryCodec.readRequest(in(new byte[]{9, 0, 0, 0, 0, 0, 0, 0, 1})))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Unknown operation type 9");
+        assertThrows(EOFException.class, () -> OperationBinaryCodec.readRequest(in(new byte[]{0, 0, 0})));
+    }
+
+    @Test
+    void shouldRejectNegativeCount() {
+        assertThrows(IOException.class, () -> OperationBinaryCodec.readSlice(in(new byte[]{-1, -1, -1, -1})));
+    }
+
+    private DataInputStream in() {
+        return in(bytes.toByteArray());
+    }
+
+    private static DataInputStream in(byte[] content) {
+        return new DataInputStream(new ByteArrayInputStream(content));
+    }
+}
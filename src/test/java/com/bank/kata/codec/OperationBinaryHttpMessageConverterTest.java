@@ -0,0 +1,48 @@
+package com.bank.kata.codec;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.OperationRequestDto;
+import com.bank.kata.dto.OperationSliceDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.http.MediaType;
+
+import java.lang.reflect.Type;
+
+import static com.bank.kata.codec.OperationBinaryHttpMessageConverter.MEDIA_TYPE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OperationBinaryHttpMessageConverterTest {
+
+    OperationBinaryHttpMessageConverter converter = new OperationBinaryHttpMessageConverter();
+
+    @Test
+    void shouldWriteOperationsAndSlices_butNotRequests() {
+        assertThat(converter.canWrite(OperationDto.class, OperationDto.class, MEDIA_TYPE)).isTrue();
+        assertThat(converter.canWrite(OperationSliceDto.class, OperationSliceDto.class, MEDIA_TYPE)).isTrue();
+        assertThat(converter.canWrite(OperationRequestDto.class, OperationRequestDto.class, MEDIA_TYPE)).isFalse();
+        assertThat(converter.canWrite(OperationDto.class, OperationDto.class, MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    @Test
+    void shouldWritePage_onlyWhenItHoldsOperations() {
+        assertThat(converter.canWrite(pageOf(OperationDto.class), Page.class, MEDIA_TYPE)).isTrue();
+        assertThat(converter.canWrite(ResolvableType.forClassWithGenerics(PageImpl.class, OperationDto.class).getType(),
+                PageImpl.class, MEDIA_TYPE)).isTrue();
+        assertThat(converter.canWrite(pageOf(String.class), Page.class, MEDIA_TYPE)).isFalse();
+        assertThat(converter.canWrite(pageOf(OperationDto.class), Page.class, MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    @Test
+    void shouldNotWritePage_whenItsElementTypeIsUnknown() {
+        assertThat(converter.canWrite(null, PageImpl.class, MEDIA_TYPE)).isFalse();
+        assertThat(converter.canWrite(PageImpl.class, PageImpl.class, MEDIA_TYPE)).isFalse();
+        assertThat(converter.canWrite(PageImpl.class, MEDIA_TYPE)).isFalse();
+    }
+
+    private static Type pageOf(Class<?> element) {
+        return ResolvableType.forClassWithGenerics(Page.class, element).getType();
+    }
+}
@@ -1,35 +1,87 @@
 package com.bank.kata.controller;
 
+import com.bank.kata.codec.OperationBinaryCodec;
+import com.bank.kata.codec.OperationBinaryHttpMessageConverter;
+import com.bank.kata.dto.BalanceDto;
+import com.bank.kata.dto.BatchOperationItemDto;
+import com.bank.kata.dto.BatchOperationRequestDto;
+import com.bank.kata.dto.BatchOperationResultDto;
 import com.bank.kata.dto.OperationDto;
 import com.bank.kata.dto.OperationRequestDto;
+import com.bank.kata.dto.OperationSliceDto;
+import com.bank.kata.dto.OperationTicketDto;
+import com.bank.kata.dto.StatementDto;
+import com.bank.kata.dto.TransferDto;
+import com.bank.kata.dto.TransferRequestDto;
 import com.bank.kata.enums.OperationType;
 import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.exception.IdempotencyKeyReusedException;
+import com.bank.kata.exception.IdempotencyKeysDisabledException;
 import com.bank.kata.exception.InsufficientBalanceException;
+import com.bank.kata.exception.InvalidCursorException;
+import com.bank.kata.exception.InvalidPeriodException;
+import com.bank.kata.exception.InvalidTransferException;
+import com.bank.kata.exception.OperationQueueFullException;
 import com.bank.kata.exception.OperationsNotFoundException;
+import com.bank.kata.exception.TicketNotFoundException;
+import com.bank.kata.enums.BatchMode;
+import com.bank.kata.enums.ExportFormat;
+import com.bank.kata.enums.TicketStatus;
+import com.bank.kata.model.Money;
 import com.bank.kata.service.AccountService;
+import com.bank.kata.service.AsyncOperationService;
+import com.bank.kata.service.BalanceService;
+import com.bank.kata.service.BatchOperationService;
+import com.bank.kata.service.OperationEventService;
+import com.bank.kata.service.OperationExportService;
 import com.bank.kata.service.OperationService;
+import com.bank.kata.service.StatementService;
+import com.bank.kata.service.TransferService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.math.BigDecimal;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static com.bank.kata.enums.OperationType.CREDIT;
 import static com.bank.kata.enums.OperationType.DEBIT;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AccountController.class)
@@ -43,13 +95,37 @@ class AccountControllerTest {
 
     @MockitoBean
     private OperationService operationService;
+
+    @MockitoBean
+    private OperationExportService operationExportService;
+
+    @MockitoBean
+    private BatchOperationService batchOperationService;
+
+    @MockitoBean
+    private BalanceService balanceService;
+
+    @MockitoBean
+    private StatementService statementService;
+
+    @MockitoBean
+    private TransferService transferService;
+
+    @MockitoBean
+    private AsyncOperationService asyncOperationService;
+
+    @MockitoBean
+    private OperationEventService operationEventService;
     
     private final static String API_URL_OPERATIONS = "/api/v1/accounts/{id}/operations";
+    private final static String API_URL_BATCH = "/api/v1/accounts/operations:batch";
+    private final static String API_URL_TRANSFERS = "/api/v1/accounts/{id}/transfers";
+    private final static String API_URL_TICKETS = "/api/v1/accounts/operations/tickets/{ticket}";
     private final static ObjectMapper objectMapper = new ObjectMapper();
 
     @Test
     void shouldSucceedDebit_WhenAmountIsValid() throws Exception {
-        OperationRequestDto requestDto = buildRequestDto(DEBIT,BigDecimal.valueOf(200));
+        OperationRequestDto requestDto = buildRequestDto(DEBIT,Money.of("200"));
         mvc.perform(post(API_URL_OPERATIONS,1L)
                 .contentType(APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(requestDto))
@@ -58,7 +134,7 @@ class AccountControllerTest {
 
     @Test
     void shouldSucceedCredit_WhenAmountIsValid() throws Exception {
-        OperationRequestDto requestDto = buildRequestDto(CREDIT,BigDecimal.valueOf(200));
+        OperationRequestDto requestDto = buildRequestDto(CREDIT,Money.of("200"));
         mvc.perform(post(API_URL_OPERATIONS,1L)
                 .contentType(APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsString(requestDto))
@@ -68,7 +144,7 @@ class AccountControllerTest {
     @Test
     void shouldFailDebit_whenAmountIsNegative() throws Exception {
         String errorMsg = "amount=must be greater than or equal to 0.0";
-        OperationRequestDto requestDto = buildRequestDto(DEBIT,BigDecimal.valueOf(-1));
+        OperationRequestDto requestDto = buildRequestDto(DEBIT,Money.of("-1"));
         MvcResult result = mvc.perform(post(API_URL_OPERATIONS, 1L)
                 .contentType(APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsString(requestDto))
@@ -80,7 +156,7 @@ class AccountControllerTest {
     @Test
     void shouldFailCredit_whenAmountIsNegative() throws Exception {
         String errorMsg = "amount=must be greater than or equal to 0.0";
-        OperationRequestDto requestDto = buildRequestDto(CREDIT,BigDecimal.valueOf(-1));
+        OperationRequestDto requestDto = buildRequestDto(CREDIT,Money.of("-1"));
         MvcResult result = mvc.perform(post(API_URL_OPERATIONS, 1L)
                         .contentType(APPLICATION_JSON)
                         .content(new ObjectMapper().writeValueAsString(requestDto))
@@ -134,7 +210,6 @@ class AccountControllerTest {
         assertThat(result.getResponse().getContentAsString()).contains(errorMsg);
     }
 
-
     @Test
     void shouldFailCredit_whenTypeIsNotCorrectEnumValue() throws Exception {
         String errorMsg = "not one of the values accepted for Enum class: [CREDIT, DEBIT]";
@@ -153,21 +228,37 @@ class AccountControllerTest {
 
     }
 
+    @Test
+    void shouldFailDebit_whenAmountHasMoreThanTwoDecimals() throws Exception {
+        String errorMsg = "not an amount with at most 2 decimals";
+        String content = """
+                {
+                    "type":"DEBIT",
+                    "amount": 20.999
+                }
+                """;
+        MvcResult result = mvc.perform(
+                        post(API_URL_OPERATIONS, 1L)
+                                .contentType(APPLICATION_JSON)
+                                .content(content))
+                .andExpect(status().isBadRequest()).andReturn();
+        assertThat(result.getResponse().getContentAsString()).contains(errorMsg);
+    }
+
     @Test
     void shouldFailCreditWithNotFound_whenAccountNotFound() throws Exception  {
-        doThrow(AccountNotFoundException.class).when(accountService).handleOperation(anyLong(), any(),any());
-        OperationRequestDto requestDto = buildRequestDto(CREDIT,BigDecimal.ONE);
+        doThrow(AccountNotFoundException.class).when(accountService).handleOperation(anyLong(), any(),any(),any());
+        OperationRequestDto requestDto = buildRequestDto(CREDIT,Money.of("1"));
         mvc.perform(post(API_URL_OPERATIONS,1L)
                         .contentType(APPLICATION_JSON)
                         .content(new ObjectMapper().writeValueAsString(requestDto)))
                 .andExpect(status().isNotFound());
     }
 
-
     @Test
     void shouldFailCredit_whenInsufficientBalance() throws Exception  {
-        doThrow(InsufficientBalanceException.class).when(accountService).handleOperation(anyLong(), any(),any());
-        OperationRequestDto requestDto = buildRequestDto(CREDIT,BigDecimal.ONE);
+        doThrow(InsufficientBalanceException.class).when(accountService).handleOperation(anyLong(), any(),any(),any());
+        OperationRequestDto requestDto = buildRequestDto(CREDIT,Money.of("1"));
         MvcResult result = mvc.perform(post(API_URL_OPERATIONS, 1L)
                         .contentType(APPLICATION_JSON)
                         .content(new ObjectMapper().writeValueAsString(requestDto)))
@@ -175,13 +266,107 @@ class AccountControllerTest {
                 .andReturn();
     }
 
+    @Test
+    void shouldPassIdempotencyKey_whenHeaderIsGiven() throws Exception {
+        OperationRequestDto requestDto = buildRequestDto(DEBIT,Money.of("200"));
+        mvc.perform(post(API_URL_OPERATIONS,1L)
+                .header(AccountController.IDEMPOTENCY_KEY, "retry-1")
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto))
+        ).andExpect(status().isCreated());
+        verify(accountService).handleOperation(1L, DEBIT, Money.of("200"), "retry-1");
+    }
+
+    @Test
+    void shouldFailDebit_whenIdempotencyKeyIsTooLong() throws Exception {
+        OperationRequestDto requestDto = buildRequestDto(DEBIT,Money.of("200"));
+        MvcResult result = mvc.perform(post(API_URL_OPERATIONS,1L)
+                .header(AccountController.IDEMPOTENCY_KEY, "k".repeat(65))
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto))
+        ).andExpect(status().isBadRequest()).andReturn();
+        assertThat(result.getResponse().getContentAsString()).contains("idempotencyKey=size must be between 1 and 64");
+    }
+
+    @Test
+    void shouldFailDebit_whenIdempotencyKeyIsReused() throws Exception {
+        doThrow(new IdempotencyKeyReusedException("retry-1")).when(accountService).handleOperation(anyLong(), any(),any(),any());
+        OperationRequestDto requestDto = buildRequestDto(DEBIT,Money.of("200"));
+        mvc.perform(post(API_URL_OPERATIONS,1L)
+                .header(AccountController.IDEMPOTENCY_KEY, "retry-1")
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto))
+        ).andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void shouldFailDebit_whenIdempotencyKeysAreDisabled() throws Exception {
+        doThrow(new IdempotencyKeysDisabledException()).when(accountService).handleOperation(anyLong(), any(),any(),any());
+        OperationRequestDto requestDto = buildRequestDto(DEBIT,Money.of("200"));
+        mvc.perform(post(API_URL_OPERATIONS,1L)
+                .header(AccountController.IDEMPOTENCY_KEY, "retry-1")
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto))
+        ).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldAcceptSubmittedOperation_withTicketLocation() throws Exception {
+        UUID ticket = UUID.fromString("8f14e45f-ceea-467f-a0e6-7d4a3c2b1a90");
+        when(asyncOperationService.submit(1L, DEBIT, Money.of("200")))
+                .thenReturn(new OperationTicketDto(ticket, 1L, TicketStatus.PENDING, null, null));
+        mvc.perform(post(API_URL_OPERATIONS + ":async",1L)
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(buildRequestDto(DEBIT,Money.of("200"))))
+        ).andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/api/v1/accounts/operations/tickets/" + ticket))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    void shouldFailSubmittedOperation_withTooManyRequests_whenQueueIsFull() throws Exception {
+        when(asyncOperationService.submit(anyLong(), any(), any())).thenThrow(new OperationQueueFullException());
+        mvc.perform(post(API_URL_OPERATIONS + ":async",1L)
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(buildRequestDto(DEBIT,Money.of("200"))))
+        ).andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void shouldReturnTicket_whenPolled() throws Exception {
+        UUID ticket = UUID.fromString("8f14e45f-ceea-467f-a0e6-7d4a3c2b1a90");
+        OperationDto operation = new OperationDto(1L, DEBIT, Money.of("200"), Money.of("200"), null, null);
+        when(asyncOperationService.awaitTicket(ticket, Duration.ofSeconds(5))).thenReturn(CompletableFuture.completedFuture(
+                new OperationTicketDto(ticket, 1L, TicketStatus.SUCCEEDED, operation, null)));
+        MvcResult result = mvc.perform(get(API_URL_TICKETS, ticket).param("wait", "5")).andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("SUCCEEDED"))
+                .andExpect(jsonPath("$.operation.balance").value(200.0));
+    }
+
+    @Test
+    void shouldFail_withNotFound_whenTicketIsUnknown() throws Exception {
+        UUID ticket = UUID.fromString("8f14e45f-ceea-467f-a0e6-7d4a3c2b1a90");
+        when(asyncOperationService.awaitTicket(ticket, Duration.ZERO)).thenThrow(new TicketNotFoundException(ticket));
+        mvc.perform(get(API_URL_TICKETS, ticket))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldFail_whenTicketWaitIsTooLong() throws Exception {
+        mvc.perform(get(API_URL_TICKETS, UUID.randomUUID()).param("wait", "31"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldSuccess_whenRetrieveOperations() throws Exception{
-        PageImpl<OperationDto> page = new PageImpl<>(List.of(new OperationDto(1L, DEBIT, BigDecimal.TEN, BigDecimal.TEN, null)));
+        PageImpl<OperationDto> page = new PageImpl<>(List.of(new OperationDto(1L, DEBIT, Money.of("10"), Money.of("10"), null, null)));
         when(operationService.getAccountOperations(any(),any())).thenReturn(page);
         mvc.perform(get(API_URL_OPERATIONS,1L))
                 .andExpect(status().isOk())
-                .andExpect(result -> result.getResponse().getContentAsString())
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(content().string(not(containsString("transferId"))))
         ;
     }
 
@@ -192,11 +377,284 @@ class AccountControllerTest {
                 .andExpect(status().isNotFound());
     }
 
-    private static OperationRequestDto buildRequestDto(OperationType type, BigDecimal amount) {
+    @Test
+    void shouldSuccess_whenRetrieveOperationsHistory() throws Exception{
+        OperationSliceDto slice = new OperationSliceDto(List.of(new OperationDto(1L, DEBIT, Money.of("10"), Money.of("10"), null, null)), "next");
+        when(operationService.getAccountOperationHistory(1L, "cursor", 5)).thenReturn(slice);
+        mvc.perform(get(API_URL_OPERATIONS + "/history",1L).param("cursor", "cursor").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void shouldFail_withBadRequest_whenHistoryCursorIsInvalid() throws Exception{
+        doThrow(new InvalidCursorException("bad")).when(operationService).getAccountOperationHistory(anyLong(), eq("bad"), anyInt());
+        mvc.perform(get(API_URL_OPERATIONS + "/history",1L).param("cursor", "bad"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldFail_withBadRequest_whenHistorySizeIsOutOfRange() throws Exception{
+        MvcResult result = mvc.perform(get(API_URL_OPERATIONS + "/history",1L).param("size", "0"))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+        assertThat(result.getResponse().getContentAsString()).contains("size=must be greater than or equal to 1");
+    }
+
+    @Test
+    void shouldStreamOperations_whenExportAsCsv() throws Exception{
+        when(operationExportService.exportOperations(1L, ExportFormat.CSV, null, null))
+                .thenReturn(out -> out.write("id,type\n".getBytes(StandardCharsets.UTF_8)));
+        MvcResult result = mvc.perform(get(API_URL_OPERATIONS + "/export",1L).param("format", "CSV"))
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"account-1-operations.csv\""))
+                .andExpect(content().string("id,type\n"));
+    }
+
+    @Test
+    void shouldFail_withNotFound_whenExportNonExistingAccount() throws Exception{
+        doThrow(new AccountNotFoundException(1L)).when(operationExportService).exportOperations(anyLong(), any(), any(), any());
+        mvc.perform(get(API_URL_OPERATIONS + "/export",1L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldSucceedBatch_whenOperationsAreValid() throws Exception {
+        BatchOperationRequestDto requestDto = BatchOperationRequestDto.builder()
+                .mode(BatchMode.BEST_EFFORT)
+                .operations(List.of(BatchOperationItemDto.builder().accountId(1L).type(DEBIT).amount(Money.of("10")).build()))
+                .build();
+        when(batchOperationService.handleOperations(requestDto)).thenReturn(new BatchOperationResultDto(true, 1, 0, List.of()));
+        mvc.perform(post(API_URL_BATCH)
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto))
+        ).andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1));
+    }
+
+    @Test
+    void shouldFailBatch_whenAnOperationAmountIsNegative() throws Exception {
+        String errorMsg = "operations[0].amount=must be greater than or equal to 0.0";
+        BatchOperationRequestDto requestDto = BatchOperationRequestDto.builder()
+                .mode(BatchMode.ALL_OR_NOTHING)
+                .operations(List.of(BatchOperationItemDto.builder().accountId(1L).type(DEBIT).amount(Money.of("-1")).build()))
+                .build();
+        MvcResult result = mvc.perform(post(API_URL_BATCH)
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto))
+        ).andExpect(status().isBadRequest()).andReturn();
+
+        assertThat(result.getResponse().getContentAsString()).contains(errorMsg);
+    }
+
+    @Test
+    void shouldSucceedTransfer_whenRequestIsValid() throws Exception {
+        TransferRequestDto requestDto = TransferRequestDto.builder().toAccountId(2L).amount(Money.of("10")).build();
+        UUID transferId = UUID.randomUUID();
+        when(transferService.handleTransfer(1L, 2L, Money.of("10"))).thenReturn(new TransferDto(transferId,
+                new OperationDto(1L, CREDIT, Money.of("10"), Money.of("90"), null, transferId),
+                new OperationDto(2L, DEBIT, Money.of("10"), Money.of("10"), null, transferId)));
+        mvc.perform(post(API_URL_TRANSFERS, 1L)
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto))
+        ).andExpect(status().isCreated())
+                .andExpect(jsonPath("$.transferId").value(transferId.toString()))
+                .andExpect(jsonPath("$.from.transferId").value(transferId.toString()))
+                .andExpect(jsonPath("$.to.balance").value(10.0));
+    }
+
+    @Test
+    void shouldFailTransfer_whenTargetIsSourceAccount() throws Exception {
+        String errorMsg = "Transfer Invalid: source and target accounts must be different";
+        TransferRequestDto requestDto = TransferRequestDto.builder().toAccountId(1L).amount(Money.of("10")).build();
+        when(transferService.handleTransfer(1L, 1L, Money.of("10"))).thenThrow(new InvalidTransferException());
+        MvcResult result = mvc.perform(post(API_URL_TRANSFERS, 1L)
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto))
+        ).andExpect(status().isBadRequest()).andReturn();
+
+        assertThat(result.getResponse().getContentAsString()).contains(errorMsg);
+    }
+
+    @Test
+    void shouldFailTransfer_whenTargetAccountIsNull() throws Exception {
+        String errorMsg = "toAccountId=must not be null";
+        TransferRequestDto requestDto = TransferRequestDto.builder().amount(Money.of("10")).build();
+        MvcResult result = mvc.perform(post(API_URL_TRANSFERS, 1L)
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto))
+        ).andExpect(status().isBadRequest()).andReturn();
+
+        assertThat(result.getResponse().getContentAsString()).contains(errorMsg);
+    }
+
+    @Test
+    void shouldFailBatch_whenNoOperation() throws Exception {
+        String content = """
+                {
+                    "mode":"BEST_EFFORT",
+                    "operations": []
+                }
+                """;
+        mvc.perform(post(API_URL_BATCH)
+                .contentType(APPLICATION_JSON)
+                .content(content)
+        ).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnBalanceAtPointInTime_whenAtIsGiven() throws Exception{
+        LocalDateTime at = LocalDateTime.of(2024, 12, 16, 10, 0);
+        when(balanceService.getBalanceAt(1L, at)).thenReturn(new BalanceDto(1L, Money.of("10"), at));
+        mvc.perform(get("/api/v1/accounts/{id}/balance",1L).param("at", "2024-12-16T10:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(10));
+    }
+
+    @Test
+    void shouldReturnCurrentBalance_whenAtIsMissing() throws Exception{
+        when(balanceService.getBalance(1L)).thenReturn(new BalanceDto(1L, Money.of("1"), null));
+        mvc.perform(get("/api/v1/accounts/{id}/balance",1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(1));
+    }
+
+    @Test
+    void shouldReturnStatement_whenPeriodIsValid() throws Exception{
+        LocalDate from = LocalDate.of(2024, 12, 1);
+        LocalDate to = LocalDate.of(2024, 12, 31);
+        when(statementService.getStatement(1L, from, to)).thenReturn(
+                new StatementDto(1L, from, to, Money.of("1"), Money.of("10"), Money.of("10"), Money.of("1"), 2, 1));
+        mvc.perform(get("/api/v1/accounts/{id}/statement",1L).param("from", "2024-12-01").param("to", "2024-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.closingBalance").value(10))
+                .andExpect(jsonPath("$.debitCount").value(2));
+    }
+
+    @Test
+    void shouldFail_withBadRequest_whenStatementPeriodIsInvalid() throws Exception{
+        doThrow(new InvalidPeriodException()).when(statementService).getStatement(anyLong(), any(), any());
+        mvc.perform(get("/api/v1/accounts/{id}/statement",1L).param("from", "2024-12-31").param("to", "2024-12-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldSubscribeToAccountOperationEvents_fromOffset() throws Exception{
+        when(operationEventService.subscribe(1L, 5L)).thenReturn(new SseEmitter());
+        mvc.perform(get(API_URL_OPERATIONS + "/events",1L).param("from", "5").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+        verify(operationEventService).subscribe(1L, 5L);
+    }
+
+    @Test
+    void shouldResumeOperationEvents_fromLastEventId() throws Exception{
+        when(operationEventService.subscribe(null, 12L)).thenReturn(new SseEmitter());
+        mvc.perform(get("/api/v1/accounts/operations/events").param("from", "5").header(AccountController.LAST_EVENT_ID, "12"))
+                .andExpect(request().asyncStarted());
+        verify(operationEventService).subscribe(null, 12L);
+    }
+
+    @Test
+    void shouldFail_withNotFoundAsJson_whenSubscribingToEventsOfNonExistingAccount() throws Exception{
+        when(operationEventService.subscribe(1L, null)).thenThrow(new AccountNotFoundException(1L));
+        mvc.perform(get(API_URL_OPERATIONS + "/events",1L).accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON))
+                .andExpect(jsonPath("$.status").value(404));
+    }
+
+    @Test
+    void shouldFail_withBadRequest_whenEventOffsetIsNegative() throws Exception{
+        mvc.perform(get("/api/v1/accounts/operations/events").param("from", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReadAndWriteBinaryOperation_whenNegotiated() throws Exception{
+        OperationDto operation = new OperationDto(1L, DEBIT, Money.of("200"), Money.of("1200"), LocalDateTime.of(2026, 10, 17, 10, 0), null);
+        when(accountService.handleOperation(1L, DEBIT, Money.of("200"), null)).thenReturn(operation);
+        MvcResult result = mvc.perform(post(API_URL_OPERATIONS,1L)
+                        .contentType(OperationBinaryHttpMessageConverter.MEDIA_TYPE)
+                        .accept(OperationBinaryHttpMessageConverter.MEDIA_TYPE)
+                        .content(binary(out -> OperationBinaryCodec.writeRequest(out, buildRequestDto(DEBIT, Money.of("200"))))))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(OperationBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(header().longValue("Content-Length", OperationBinaryCodec.OPERATION_SIZE))
+                .andReturn();
+        assertThat(OperationBinaryCodec.readOperation(decode(result))).isEqualTo(operation);
+    }
+
+    @Test
+    void shouldFail_withBadRequestAsJson_whenBinaryAmountIsNegative() throws Exception{
+        mvc.perform(post(API_URL_OPERATIONS,1L)
+                        .contentType(OperationBinaryHttpMessageConverter.MEDIA_TYPE)
+                        .accept(OperationBinaryHttpMessageConverter.MEDIA_TYPE)
+                        .content(binary(out -> OperationBinaryCodec.writeRequest(out, buildRequestDto(DEBIT, Money.of("-1"))))))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON));
+    }
+
+    @Test
+    void shouldFail_withBadRequest_whenBinaryRequestIsTruncated() throws Exception{
+        mvc.perform(post(API_URL_OPERATIONS,1L)
+                        .contentType(OperationBinaryHttpMessageConverter.MEDIA_TYPE)
+                        .content(new byte[]{0, 1, 2}))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("Truncated binary operation request")));
+    }
+
+    @Test
+    void shouldFail_withUnprocessableEntityAsJson_whenBinaryCallerHasInsufficientBalance() throws Exception{
+        when(accountService.handleOperation(1L, CREDIT, Money.of("200"), null)).thenThrow(new InsufficientBalanceException());
+        mvc.perform(post(API_URL_OPERATIONS,1L)
+                        .contentType(OperationBinaryHttpMessageConverter.MEDIA_TYPE)
+                        .accept(OperationBinaryHttpMessageConverter.MEDIA_TYPE)
+                        .content(binary(out -> OperationBinaryCodec.writeRequest(out, buildRequestDto(CREDIT, Money.of("200"))))))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.status").value(422));
+    }
+
+    @Test
+    void shouldWriteBinaryPageAndHistory_whenNegotiated() throws Exception{
+        OperationDto operation = new OperationDto(1L, DEBIT, Money.of("10"), Money.of("10"), LocalDateTime.of(2026, 10, 17, 10, 0), UUID.randomUUID());
+        when(operationService.getAccountOperations(any(), any())).thenReturn(new PageImpl<>(List.of(operation), PageRequest.of(0, 10), 1));
+        when(operationService.getAccountOperationHistory(1L, null, 10)).thenReturn(new OperationSliceDto(List.of(operation), "next"));
+
+        MvcResult page = mvc.perform(get(API_URL_OPERATIONS,1L).accept(OperationBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andReturn();
+        MvcResult slice = mvc.perform(get(API_URL_OPERATIONS + "/history",1L).accept(OperationBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(OperationBinaryCodec.readPage(decode(page)).getContent()).containsExactly(operation);
+        assertThat(OperationBinaryCodec.readSlice(decode(slice))).isEqualTo(new OperationSliceDto(List.of(operation), "next"));
+    }
+
+    private static OperationRequestDto buildRequestDto(OperationType type, Money amount) {
         return OperationRequestDto.builder()
                 .type(type)
                 .amount(amount)
                 .build();
     }
 
+    private static byte[] binary(BinaryWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writer.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream decode(MvcResult result) {
+        return new DataInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+    }
+
+    private interface BinaryWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
 }
@@ -0,0 +1,144 @@
+package com.bank.kata.engine.impl;
+
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupCommitBalanceWriterTest {
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    GroupCommitBalanceWriter balanceWriter;
+
+    @BeforeEach
+    void setUp() {
+        balanceWriter = new GroupCommitBalanceWriter(jdbcTemplate, transactionManager, 64, 50_000);
+        balanceWriter.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        balanceWriter.stop();
+    }
+
+    @Test
+    @DisplayName("Concurrent writes are committed together and every caller gets its own result")
+    void shouldGroupConcurrentWrites_inSharedTransactions() throws Exception {
+        AtomicInteger batches = new AtomicInteger();
+        AtomicInteger rows = new AtomicInteger();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            int[] counts = new int[invocation.<List<?>>getArgument(1).size()];
+            Arrays.fill(counts, 1);
+            batches.incrementAndGet();
+            rows.addAndGet(counts.length);
+            return counts;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (long id = 1; id <= 64; id++) {
+            Account account = Account.builder().id(id).balance(Money.of("10")).build();
+            futures.add(executor.submit(() -> {
+                start.await();
+                return balanceWriter.write(account, Account::getId);
+            }));
+        }
+        start.countDown();
+        for (int i = 0; i < futures.size(); i++) {
+            assertThat(futures.get(i).get()).isEqualTo(i + 1L);
+        }
+        executor.shutdown();
+
+        assertThat(rows.get()).isEqualTo(64);
+        assertThat(batches.get()).isLessThan(64);
+        verify(transactionManager, times(batches.get())).commit(any());
+    }
+
+    @Test
+    @DisplayName("A conflicting write fails alone, the other writes of its batch are committed")
+    void shouldFailOnlyConflictingWrite_whenBatchFails() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            int[] counts = new int[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                counts[i] = Long.valueOf(2L).equals(rows.get(i)[1]) ? 0 : 1;
+            }
+            return counts;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            Account account = Account.builder().id(id).balance(Money.of("10")).build();
+            futures.add(executor.submit(() -> {
+                start.await();
+                return balanceWriter.write(account, Account::getId);
+            }));
+        }
+        start.countDown();
+
+        assertThat(futures.get(0).get()).isEqualTo(1L);
+        Exception thrown = assertThrows(Exception.class, () -> futures.get(1).get());
+        assertThat(thrown).hasCauseInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(futures.get(2).get()).isEqualTo(3L);
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Write spanning several accounts is committed on the calling thread in one transaction")
+    void shouldWriteAllAccounts_inOneTransaction() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1});
+        List<Account> accounts = List.of(
+                Account.builder().id(1L).balance(Money.of("90")).version(4).build(),
+                Account.builder().id(2L).balance(Money.of("10")).build());
+
+        String result = balanceWriter.writeAll(accounts, written -> Thread.currentThread().getName());
+
+        assertThat(result).isEqualTo(Thread.currentThread().getName());
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> rows) -> rows.size() == 2
+                && Money.of("90").toBigDecimal().equals(rows.get(0)[0]) && Long.valueOf(4).equals(rows.get(0)[2])));
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    @DisplayName("Write spanning several accounts fails when one of the accounts was updated concurrently")
+    void shouldFailWriteAll_whenOneBalanceChanged() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+        List<Account> accounts = List.of(
+                Account.builder().id(1L).balance(Money.of("90")).build(),
+                Account.builder().id(2L).balance(Money.of("10")).build());
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> balanceWriter.writeAll(accounts, written -> null));
+        verify(transactionManager, never()).commit(any());
+    }
+}
@@ -0,0 +1,268 @@
+package com.bank.kata.engine.impl;
+
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.exception.InsufficientBalanceException;
+import com.bank.kata.metrics.EngineMetrics;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.repository.AccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StripedBalanceEngineTest {
+
+    @Mock
+    AccountRepository accountRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    StripedBalanceEngine balanceEngine;
+
+    @BeforeEach
+    void setUp() {
+        balanceEngine = new StripedBalanceEngine(accountRepository, new DirectBalanceWriter(accountRepository, transactionManager),
+                new EngineMetrics(meterRegistry), 16, 3, Duration.ZERO);
+    }
+
+    @Test
+    @DisplayName("Operation fails with AccountNotFoundException when account does not exist")
+    void shouldThrowException_whenAccountDoesNotExist() {
+        when(accountRepository.findById(1L)).thenReturn(Optional.empty());
+        assertThrows(
+                AccountNotFoundException.class,
+                () -> balanceEngine.execute(1L, account -> account.debit(Money.of("1")), Account::getBalance)
+        );
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    @DisplayName("Account is loaded once, next operations are applied on the in-memory balance")
+    void shouldLoadAccountOnce_andKeepBalanceInMemory() {
+        givenAccount(1L, Money.of("100"));
+        when(accountRepository.compareAndSetBalance(any(), anyLong(), any())).thenReturn(1);
+
+        balanceEngine.execute(1L, account -> account.debit(Money.of("10")), Account::getBalance);
+        Money balance = balanceEngine.execute(1L, account -> account.credit(Money.of("1")), Account::getBalance);
+
+        assertThat(balance).isEqualTo(Money.of("109"));
+        verify(accountRepository, times(1)).findById(1L);
+        verify(accountRepository).compareAndSetBalance(1L, 0L, Money.of("110"));
+        verify(accountRepository).compareAndSetBalance(1L, 1L, Money.of("109"));
+    }
+
+    @Test
+    @DisplayName("Rejected operation does not open any transaction nor change the balance")
+    void shouldNotWrite_whenMutationIsRejected() {
+        givenAccount(1L, Money.of("1"));
+        assertThrows(
+                InsufficientBalanceException.class,
+                () -> balanceEngine.execute(1L, account -> account.credit(Money.of("10")), Account::getBalance)
+        );
+        verifyNoInteractions(transactionManager);
+        verify(accountRepository, never()).compareAndSetBalance(any(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Stale in-memory account is reloaded and the operation re-applied")
+    void shouldReloadAndRetry_whenAccountUpdatedConcurrently() {
+        when(accountRepository.findById(1L)).thenReturn(
+                Optional.of(Account.builder().id(1L).balance(Money.of("100")).build()),
+                Optional.of(Account.builder().id(1L).balance(Money.of("50")).version(5).build()));
+        when(accountRepository.compareAndSetBalance(any(), anyLong(), any())).thenReturn(0, 1);
+
+        Money balance = balanceEngine.execute(1L, account -> account.debit(Money.of("10")), Account::getBalance);
+
+        assertThat(balance).isEqualTo(Money.of("60"));
+        verify(accountRepository, times(2)).findById(1L);
+        verify(accountRepository).compareAndSetBalance(1L, 5L, Money.of("60"));
+        assertThat(meterRegistry.get(EngineMetrics.CONFLICT_COUNTER).counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(EngineMetrics.RETRY_COUNTER).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Operation conflicting on every attempt fails once the attempts are exhausted")
+    void shouldGiveUp_whenConflictOnEveryAttempt() {
+        givenAccount(1L, Money.of("100"));
+        when(accountRepository.compareAndSetBalance(any(), anyLong(), any())).thenReturn(0);
+
+        assertThrows(
+                OptimisticLockingFailureException.class,
+                () -> balanceEngine.execute(1L, account -> account.debit(Money.of("10")), Account::getBalance)
+        );
+
+        verify(accountRepository, times(3)).compareAndSetBalance(any(), anyLong(), any());
+        assertThat(meterRegistry.get(EngineMetrics.CONFLICT_COUNTER).counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get(EngineMetrics.RETRY_COUNTER).counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Failed write through drops the in-memory balance")
+    void shouldEvictBalance_whenWriteThroughFails() {
+        givenAccount(1L, Money.of("100"));
+        when(accountRepository.compareAndSetBalance(any(), anyLong(), any())).thenReturn(1);
+
+        assertThrows(
+                IllegalStateException.class,
+                () -> balanceEngine.execute(1L, account -> account.debit(Money.of("10")), account -> {
+                    throw new IllegalStateException("insert failed");
+                })
+        );
+        balanceEngine.execute(1L, account -> account.debit(Money.of("10")), Account::getBalance);
+
+        verify(accountRepository, times(2)).findById(1L);
+        verify(accountRepository, times(2)).compareAndSetBalance(1L, 0L, Money.of("110"));
+    }
+
+    @Test
+    @DisplayName("Concurrent operations on the same account never lose an update")
+    void shouldSerializeOperations_whenConcurrentOnSameAccount() throws Exception {
+        givenAccount(1L, Money.ZERO);
+        StoredAccount stored = new StoredAccount(Money.ZERO);
+        when(accountRepository.compareAndSetBalance(eq(1L), anyLong(), any())).thenAnswer(invocation ->
+                stored.compareAndSet(invocation.getArgument(1), invocation.getArgument(2)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 800; i++) {
+            futures.add(executor.submit(() ->
+                    balanceEngine.execute(1L, account -> account.debit(Money.of("1")), Account::getBalance)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(stored.balance).isEqualTo(Money.of("800"));
+        assertThat(stored.version).isEqualTo(800);
+        verify(accountRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Exclusive work on several accounts drops their in-memory balances")
+    void shouldEvictBalances_afterExclusiveWork() {
+        givenAccount(1L, Money.of("100"));
+        when(accountRepository.compareAndSetBalance(any(), anyLong(), any())).thenReturn(1);
+        balanceEngine.execute(1L, account -> account.debit(Money.of("10")), Account::getBalance);
+
+        String result = balanceEngine.executeExclusively(List.of(2L, 1L), () -> "done");
+        balanceEngine.execute(1L, account -> account.debit(Money.of("10")), Account::getBalance);
+
+        assertThat(result).isEqualTo("done");
+        verify(accountRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Change on several accounts writes all balances and keeps them in memory")
+    void shouldWriteAllBalances_andKeepThemInMemory_whenChangeSpansAccounts() {
+        givenAccount(1L, Money.of("100"));
+        givenAccount(2L, Money.ZERO);
+        when(accountRepository.compareAndSetBalance(any(), anyLong(), any())).thenReturn(1);
+
+        List<Money> balances = balanceEngine.executeAll(List.of(1L, 2L), accounts -> {
+            accounts.get(0).credit(Money.of("10"));
+            accounts.get(1).debit(Money.of("10"));
+        }, accounts -> accounts.stream().map(Account::getBalance).toList());
+        balanceEngine.execute(1L, account -> account.credit(Money.of("1")), Account::getBalance);
+
+        assertThat(balances).containsExactly(Money.of("90"), Money.of("10"));
+        verify(accountRepository).compareAndSetBalance(1L, 0L, Money.of("90"));
+        verify(accountRepository).compareAndSetBalance(2L, 0L, Money.of("10"));
+        verify(accountRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Rejected change on several accounts writes none of them")
+    void shouldNotWrite_whenChangeSpanningAccountsIsRejected() {
+        givenAccount(1L, Money.of("1"));
+        givenAccount(2L, Money.ZERO);
+        assertThrows(
+                InsufficientBalanceException.class,
+                () -> balanceEngine.executeAll(List.of(1L, 2L), accounts -> {
+                    accounts.get(1).debit(Money.of("10"));
+                    accounts.get(0).credit(Money.of("10"));
+                }, accounts -> null)
+        );
+        verifyNoInteractions(transactionManager);
+        verify(accountRepository, never()).compareAndSetBalance(any(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Crossing changes on the same accounts neither deadlock nor lose an update")
+    void shouldNotDeadlock_whenChangesCrossTheSameAccounts() throws Exception {
+        Map<Long, StoredAccount> stored = Map.of(
+                1L, new StoredAccount(Money.of("1000")),
+                2L, new StoredAccount(Money.of("1000")),
+                3L, new StoredAccount(Money.of("1000")));
+        stored.forEach((id, account) -> givenAccount(id, account.balance));
+        when(accountRepository.compareAndSetBalance(any(), anyLong(), any())).thenAnswer(invocation ->
+                stored.get(invocation.<Long>getArgument(0)).compareAndSet(invocation.getArgument(1), invocation.getArgument(2)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 900; i++) {
+            long from = i % 3 + 1;
+            long to = (i / 3) % 2 == 0 ? from % 3 + 1 : (from + 1) % 3 + 1;
+            futures.add(executor.submit(() -> balanceEngine.executeAll(List.of(from, to), accounts -> {
+                accounts.get(0).credit(Money.of("1"));
+                accounts.get(1).debit(Money.of("1"));
+            }, accounts -> null)));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(stored.values().stream().map(account -> account.balance).reduce(Money.ZERO, Money::add)).isEqualTo(Money.of("3000"));
+        verify(accountRepository, times(1)).findById(1L);
+    }
+
+    private void givenAccount(Long id, Money balance) {
+        when(accountRepository.findById(id)).thenReturn(Optional.of(Account.builder().id(id).balance(balance).build()));
+    }
+
+    /**
+     * Account row as stored by the database, updated by version compare-and-set
+     */
+    private static final class StoredAccount {
+        private long version;
+        private Money balance;
+
+        private StoredAccount(Money balance) {
+            this.balance = balance;
+        }
+
+        private synchronized int compareAndSet(long expectedVersion, Money newBalance) {
+            if (version != expectedVersion) return 0;
+            version++;
+            balance = newBalance;
+            return 1;
+        }
+    }
+}
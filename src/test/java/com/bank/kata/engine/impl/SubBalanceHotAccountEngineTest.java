@@ -0,0 +1,375 @@
+package com.bank.kata.engine.impl;
+
+import com.bank.kata.cache.AccountReadCache;
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.StatementDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.event.OperationCreatedEvent;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.exception.InsufficientBalanceException;
+import com.bank.kata.journal.OperationJournal;
+import com.bank.kata.mapper.OperationMapper;
+import com.bank.kata.metrics.EngineMetrics;
+import com.bank.kata.model.Money;
+import com.bank.kata.outbox.OperationOutbox;
+import com.bank.kata.repository.AccountRepository;
+import com.bank.kata.repository.DailyRollupRepository;
+import com.bank.kata.repository.OperationRepository;
+import com.bank.kata.service.impl.OperationServiceImpl;
+import com.bank.kata.service.impl.StatementServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The engine runs its own transactions, from several threads, so the tests commit instead of rolling back
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:hot-accounts;MODE=MySQL")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SubBalanceHotAccountEngineTest {
+
+    private static final AtomicLong ACCOUNT_IDS = new AtomicLong(200);
+    private static final int SHARDS = 4;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    OperationRepository operationRepository;
+
+    @Autowired
+    DailyRollupRepository dailyRollupRepository;
+
+    OperationJournal operationJournal = mock(OperationJournal.class);
+    StripedBalanceEngine balanceEngine;
+    OperationServiceImpl operationService;
+    StatementServiceImpl statementService;
+
+    @BeforeEach
+    void setUp() {
+        balanceEngine = new StripedBalanceEngine(accountRepository, new DirectBalanceWriter(accountRepository, transactionManager),
+                new EngineMetrics(new SimpleMeterRegistry()), 16, 3, Duration.ZERO);
+        statementService = new StatementServiceImpl(dailyRollupRepository);
+        operationService = new OperationServiceImpl(operationRepository, Mappers.getMapper(OperationMapper.class),
+                event -> statementService.onOperationCreated((OperationCreatedEvent) event),
+                new AccountReadCache(new SimpleMeterRegistry(), false, 1, 1, Duration.ofMinutes(1)), operationJournal,
+                new OperationOutbox(jdbcTemplate, false), null);
+    }
+
+    @Test
+    @DisplayName("Deposits are added to the sub-balances, each recording the whole balance after it")
+    void shouldAddDepositsToSubBalances_withCommittedBalanceAfter() {
+        long accountId = account("100.00");
+        SubBalanceHotAccountEngine hotAccountEngine = engine(accountId);
+
+        assertThat(execute(hotAccountEngine, accountId, OperationType.DEBIT, "10.00").balance()).isEqualTo(Money.of("110"));
+        assertThat(execute(hotAccountEngine, accountId, OperationType.DEBIT, "20.00").balance()).isEqualTo(Money.of("130"));
+
+        assertThat(accountBalance(accountId)).isEqualByComparingTo("100.00");
+        assertThat(subBalances(accountId)).hasSize(SHARDS);
+        assertThat(subBalances(accountId).stream().reduce(BigDecimal.ZERO, BigDecimal::add)).isEqualByComparingTo("30.00");
+        assertThat(accountRepository.findTotalBalance(accountId)).hasValueSatisfying(total -> assertThat(total).isEqualByComparingTo("130.00"));
+    }
+
+    @Test
+    @DisplayName("A deposit rolled back leaves its sub-balance and the balance of the next deposit untouched")
+    void shouldLeaveNoTrace_whenDepositFails() {
+        long accountId = account("100.00");
+        SubBalanceHotAccountEngine hotAccountEngine = engine(accountId);
+
+        assertThrows(IllegalStateException.class, () -> hotAccountEngine.execute(accountId, OperationType.DEBIT,
+                account -> account.debit(Money.of("50")),
+                account -> {
+                    throw new IllegalStateException("write through failed");
+                },
+                (operation, balance) -> operation));
+
+        assertThat(execute(hotAccountEngine, accountId, OperationType.DEBIT, "10.00").balance()).isEqualTo(Money.of("110"));
+        assertThat(subBalances(accountId).stream().reduce(BigDecimal.ZERO, BigDecimal::add)).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    @DisplayName("A withdrawal takes from the account row, then borrows the sub-balances it needs without folding the others")
+    void shouldBorrowSubBalances_whenAccountRowDoesNotCoverWithdrawal() {
+        long accountId = account("10.00");
+        SubBalanceHotAccountEngine hotAccountEngine = engine(accountId);
+        givenSubBalances(accountId, "30.00", "20.00", "7.00", "0.00");
+
+        OperationDto withdrawal = execute(hotAccountEngine, accountId, OperationType.CREDIT, "45.00");
+
+        assertThat(withdrawal.balance()).isEqualTo(Money.of("22"));
+        assertThat(accountBalance(accountId)).isEqualByComparingTo("0.00");
+        assertThat(subBalances(accountId)).usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("0.00"), new BigDecimal("15.00"), new BigDecimal("7.00"), new BigDecimal("0.00"));
+    }
+
+    @Test
+    @DisplayName("A withdrawal above the whole balance is refused, changes nothing and releases the sub-balances")
+    void shouldRefuseWithdrawal_whenWholeBalanceDoesNotCoverIt() throws Exception {
+        long accountId = account("10.00");
+        SubBalanceHotAccountEngine hotAccountEngine = engine(accountId);
+        givenSubBalances(accountId, "30.00", "20.00", "7.00", "0.00");
+
+        assertThrows(InsufficientBalanceException.class, () -> execute(hotAccountEngine, accountId, OperationType.CREDIT, "67.01"));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            OperationDto deposit = executor.submit(() -> execute(hotAccountEngine, accountId, OperationType.DEBIT, "1.00"))
+                    .get(10, TimeUnit.SECONDS);
+            assertThat(deposit.balance()).isEqualTo(Money.of("68"));
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(accountBalance(accountId)).isEqualByComparingTo("10.00");
+        assertThat(accountRepository.findTotalBalance(accountId)).hasValueSatisfying(total -> assertThat(total).isEqualByComparingTo("68.00"));
+    }
+
+    @Test
+    @DisplayName("Deposits on different sub-balances run their transactions at the same time")
+    void shouldOverlapDeposits_onDifferentSubBalances() throws Exception {
+        long accountId = account("100.00");
+        SubBalanceHotAccountEngine hotAccountEngine = engine(accountId);
+        CountDownLatch inTransaction = new CountDownLatch(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<OperationDto>> deposits = new ArrayList<>();
+            for (String amount : List.of("10.00", "20.00")) {
+                Money money = Money.of(amount);
+                deposits.add(executor.submit(() -> hotAccountEngine.execute(accountId, OperationType.DEBIT,
+                        account -> account.debit(money),
+                        account -> {
+                            OperationDto created = operationService.createOperation(account, OperationType.DEBIT, money);
+                            // each deposit waits within its transaction for the other one to be in its own
+                            inTransaction.countDown();
+                            if (!awaitQuietly(inTransaction)) throw new IllegalStateException("deposits did not overlap");
+                            return created;
+                        },
+                        (operation, balance) -> operationService.recordBalance(accountId, operation, balance))));
+            }
+            List<OperationDto> operations = new ArrayList<>();
+            for (Future<OperationDto> deposit : deposits) {
+                operations.add(deposit.get(10, TimeUnit.SECONDS));
+            }
+
+            // the balances recorded follow the order the deposits were recorded in, the last one holds both
+            assertThat(operations).extracting(OperationDto::balance).contains(Money.of("130"))
+                    .containsAnyOf(Money.of("110"), Money.of("120"));
+            for (OperationDto operation : operations) {
+                assertThat(jdbcTemplate.queryForObject("SELECT balance_after_op FROM operation WHERE id = ?", BigDecimal.class, operation.id()))
+                        .isEqualByComparingTo(operation.balance().toBigDecimal());
+            }
+            assertThat(subBalances(accountId)).filteredOn(subBalance -> subBalance.signum() > 0).hasSize(2);
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM daily_rollup WHERE account_id = ?", Integer.class, accountId)).isEqualTo(2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent deposits and withdrawals record balances following one another, and the statement is built from the rollups")
+    void shouldRecordChainedBalances_whenConcurrentOperations() throws Exception {
+        long accountId = account("0.00");
+        SubBalanceHotAccountEngine hotAccountEngine = engine(accountId);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            boolean withdrawal = i % 3 == 2;
+            futures.add(executor.submit(() -> withdrawal
+                    ? execute(hotAccountEngine, accountId, OperationType.CREDIT, "2.50")
+                    : execute(hotAccountEngine, accountId, OperationType.DEBIT, "1.00")));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException ex) {
+                assertThat(ex.getCause()).isInstanceOf(InsufficientBalanceException.class);
+            }
+        }
+        executor.shutdown();
+
+        // each operation goes from the balance before it to the balance after it: the operations follow one another
+        // from the opening balance to the closing one when every balance but these two is left as often as reached
+        List<Map<String, Object>> operations = jdbcTemplate.queryForList(
+                "SELECT type, amount, balance_after_op FROM operation WHERE account_id = ?", accountId);
+        Map<BigDecimal, Integer> leftMinusReached = new HashMap<>();
+        BigDecimal closing = BigDecimal.ZERO;
+        BigDecimal debit = BigDecimal.ZERO;
+        BigDecimal credit = BigDecimal.ZERO;
+        for (Map<String, Object> operation : operations) {
+            BigDecimal amount = (BigDecimal) operation.get("AMOUNT");
+            BigDecimal after = ((BigDecimal) operation.get("BALANCE_AFTER_OP")).stripTrailingZeros();
+            boolean deposit = OperationType.DEBIT.name().equals(operation.get("TYPE"));
+            BigDecimal before = (deposit ? after.subtract(amount) : after.add(amount)).stripTrailingZeros();
+            assertThat(after.signum()).isNotNegative();
+            leftMinusReached.merge(before, 1, Integer::sum);
+            leftMinusReached.merge(after, -1, Integer::sum);
+            closing = deposit ? closing.add(amount) : closing.subtract(amount);
+            if (deposit) debit = debit.add(amount);
+            else credit = credit.add(amount);
+        }
+        leftMinusReached.merge(BigDecimal.ZERO, -1, Integer::sum);
+        leftMinusReached.merge(closing.stripTrailingZeros(), 1, Integer::sum);
+        assertThat(leftMinusReached.values()).allSatisfy(count -> assertThat(count).isZero());
+        assertThat(operations).hasSizeGreaterThan(200);
+        BigDecimal total = closing;
+        assertThat(accountRepository.findTotalBalance(accountId)).hasValueSatisfying(balance -> assertThat(balance).isEqualByComparingTo(total));
+        StatementDto statement = statementService.getStatement(accountId, LocalDate.now(), LocalDate.now());
+        assertThat(statement.openingBalance()).isEqualTo(Money.ZERO);
+        assertThat(statement.closingBalance()).isEqualTo(Money.of(closing));
+        assertThat(statement.totalDebit()).isEqualTo(Money.of(debit));
+        assertThat(statement.totalCredit()).isEqualTo(Money.of(credit));
+        assertThat(statement.debitCount() + statement.creditCount()).isEqualTo(operations.size());
+    }
+
+    @Test
+    @DisplayName("The balance changed by transfers and batches is read again by the next operation")
+    void shouldReadBalanceAgain_afterExclusiveWork() {
+        long accountId = account("10.00");
+        SubBalanceHotAccountEngine hotAccountEngine = engine(accountId);
+        execute(hotAccountEngine, accountId, OperationType.DEBIT, "5.00");
+
+        hotAccountEngine.exclusively(List.of(accountId), () -> jdbcTemplate.update("UPDATE account SET balance = balance + 100 WHERE id = ?", accountId));
+
+        assertThat(execute(hotAccountEngine, accountId, OperationType.DEBIT, "1.00").balance()).isEqualTo(Money.of("116"));
+    }
+
+    @Test
+    @DisplayName("Transfers and batches fold the sub-balances into the account row before running")
+    void shouldFoldSubBalances_beforeExclusiveWork() {
+        long accountId = account("10.00");
+        SubBalanceHotAccountEngine hotAccountEngine = engine(accountId);
+        givenSubBalances(accountId, "30.00", "20.00", "7.00", "0.00");
+
+        BigDecimal balance = hotAccountEngine.exclusively(List.of(accountId, 1L), () -> accountBalance(accountId));
+
+        assertThat(balance).isEqualByComparingTo("67.00");
+        assertThat(subBalances(accountId)).allSatisfy(subBalance -> assertThat(subBalance).isEqualByComparingTo("0.00"));
+    }
+
+    @Test
+    @DisplayName("Work without hot accounts runs as is")
+    void shouldRunWorkAsIs_whenNoHotAccount() {
+        SubBalanceHotAccountEngine hotAccountEngine = engine(account("0.00"));
+        assertThat(hotAccountEngine.exclusively(List.of(2L, 3L), () -> "done")).isEqualTo("done");
+    }
+
+    @Test
+    @DisplayName("An operation on a missing hot account fails with AccountNotFoundException")
+    void shouldThrowException_whenHotAccountDoesNotExist() {
+        long accountId = ACCOUNT_IDS.getAndIncrement();
+        SubBalanceHotAccountEngine hotAccountEngine = engine(accountId);
+
+        assertThrows(AccountNotFoundException.class, () -> execute(hotAccountEngine, accountId, OperationType.DEBIT, "10.00"));
+        assertThrows(AccountNotFoundException.class, () -> execute(hotAccountEngine, accountId, OperationType.CREDIT, "10.00"));
+        assertThat(subBalances(accountId)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Sub-balances of accounts no longer hot are folded on startup")
+    void shouldFoldRetiredAccounts_onStartup() {
+        long retired = account("10.00");
+        givenSubBalances(retired, "5.00", "0.00", "0.00", "0.00");
+
+        engine(account("0.00")).foldRetiredAccounts();
+
+        assertThat(accountBalance(retired)).isEqualByComparingTo("15.00");
+        assertThat(subBalances(retired)).allSatisfy(subBalance -> assertThat(subBalance).isEqualByComparingTo("0.00"));
+    }
+
+    @Test
+    @DisplayName("No account is hot in the journal write mode")
+    void shouldTreatNoAccountAsHot_whenJournalIsEnabled() {
+        long accountId = account("0.00");
+        when(operationJournal.isEnabled()).thenReturn(true);
+        SubBalanceHotAccountEngine journaled = engine(accountId);
+
+        assertThat(journaled.isHot(accountId)).isFalse();
+        assertThat(journaled.exclusively(List.of(accountId), () -> "done")).isEqualTo("done");
+    }
+
+    private SubBalanceHotAccountEngine engine(long accountId) {
+        return new SubBalanceHotAccountEngine(balanceEngine, accountRepository, jdbcTemplate, transactionManager,
+                operationJournal, Set.of(accountId), SHARDS);
+    }
+
+    private OperationDto execute(SubBalanceHotAccountEngine hotAccountEngine, long accountId, OperationType type, String amount) {
+        Money money = Money.of(amount);
+        return hotAccountEngine.execute(accountId, type,
+                account -> {
+                    if (type == OperationType.DEBIT) account.debit(money);
+                    else account.credit(money);
+                },
+                account -> operationService.createOperation(account, type, money),
+                (operation, balance) -> operationService.recordBalance(accountId, operation, balance));
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private long account(String balance) {
+        long id = ACCOUNT_IDS.getAndIncrement();
+        jdbcTemplate.update("INSERT INTO account (id, balance, version) VALUES (?, ?, 0)", id, new BigDecimal(balance));
+        return id;
+    }
+
+    private void givenSubBalances(long accountId, String... balances) {
+        for (int shard = 0; shard < balances.length; shard++) {
+            jdbcTemplate.update("MERGE INTO account_balance_shard (account_id, shard, balance) KEY (account_id, shard) VALUES (?, ?, ?)",
+                    accountId, shard, new BigDecimal(balances[shard]));
+        }
+    }
+
+    private BigDecimal accountBalance(long accountId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM account WHERE id = ?", BigDecimal.class, accountId);
+    }
+
+    private List<BigDecimal> subBalances(long accountId) {
+        return jdbcTemplate.queryForList("SELECT balance FROM account_balance_shard WHERE account_id = ? ORDER BY shard",
+                BigDecimal.class, accountId);
+    }
+}
@@ -0,0 +1,266 @@
+package com.bank.kata.journal;
+
+import com.bank.kata.engine.BalanceWriter;
+import com.bank.kata.engine.HotAccountEngine;
+import com.bank.kata.engine.impl.DirectBalanceWriter;
+import com.bank.kata.engine.impl.StripedBalanceEngine;
+import com.bank.kata.enums.FsyncPolicy;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.exception.InsufficientBalanceException;
+import com.bank.kata.mapper.OperationMapper;
+import com.bank.kata.metrics.EngineMetrics;
+import com.bank.kata.metrics.OperationMetrics;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import com.bank.kata.outbox.OperationOutbox;
+import com.bank.kata.repository.AccountRepository;
+import com.bank.kata.repository.OperationRepository;
+import com.bank.kata.service.impl.AccountServiceImpl;
+import com.bank.kata.service.impl.OperationServiceImpl;
+import com.bank.kata.service.impl.TransferServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The projector runs its own transactions on its thread, so the tests commit instead of rolling back
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:journal-projector;MODE=MySQL")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JournalProjectorTest {
+
+    private static final AtomicLong ACCOUNT_IDS = new AtomicLong(100);
+
+    @TempDir
+    Path directory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    OperationRepository operationRepository;
+
+    OperationSequence operationSequence;
+
+    private final List<OperationJournal> journals = new ArrayList<>();
+    private final List<JournalProjector> projectors = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        operationSequence = new OperationSequence(jdbcTemplate);
+        jdbcTemplate.update("UPDATE journal_position SET seq = 0 WHERE id = 1");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (JournalProjector projector : projectors) projector.stop();
+        for (OperationJournal journal : journals) journal.close();
+    }
+
+    @Test
+    @DisplayName("A group torn by a crash is dropped on replay and never projected, the records appended after it are")
+    void shouldProjectNothingOfTornGroup_afterReplay() throws Exception {
+        long from = account("1000.00");
+        long to = account("500.00");
+        OperationJournal journal = journal();
+        journal.append(operation(from, OperationType.DEBIT, "100.00", "1100.00", null));
+        UUID tornTransfer = UUID.randomUUID();
+        journal.atomically(() -> List.of(
+                journal.append(operation(from, OperationType.CREDIT, "300.00", "800.00", tornTransfer)),
+                journal.append(operation(to, OperationType.DEBIT, "300.00", "800.00", tornTransfer))));
+        // the deposit side of the transfer, record 4 after the deposit and the group header, torn by a crash
+        corrupt(directory.resolve("journal-000000.log"), 3);
+
+        OperationJournal reopened = journal();
+        UUID transfer = UUID.randomUUID();
+        reopened.atomically(() -> List.of(
+                reopened.append(operation(from, OperationType.CREDIT, "50.00", "1050.00", transfer)),
+                reopened.append(operation(to, OperationType.DEBIT, "50.00", "550.00", transfer))));
+        awaitProjected(projector(reopened), reopened);
+
+        assertThat(balanceOf(from)).isEqualByComparingTo("1050.00");
+        assertThat(balanceOf(to)).isEqualByComparingTo("550.00");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM operation WHERE transfer_id = ?", Integer.class, tornTransfer.toString())).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM operation WHERE transfer_id = ?", Integer.class, transfer.toString())).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM operation WHERE account_id IN (?, ?)", Integer.class, from, to)).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("A restarted projector resumes from its position in the database without projecting a record twice")
+    void shouldResumeFromPosition_whenRestarted() throws Exception {
+        long accountId = account("0.00");
+        OperationJournal journal = journal();
+        for (int i = 1; i <= 5; i++) journal.append(operation(accountId, OperationType.DEBIT, "1.00", i + ".00", null));
+        JournalProjector projector = projector(journal);
+        awaitProjected(projector, journal);
+        projector.stop();
+
+        for (int i = 6; i <= 8; i++) journal.append(operation(accountId, OperationType.DEBIT, "1.00", i + ".00", null));
+        JournalProjector restarted = projector(journal);
+
+        assertThat(restarted.projectedSeq()).isEqualTo(5L);
+        awaitProjected(restarted, journal);
+        assertThat(jdbcTemplate.queryForObject("SELECT seq FROM journal_position WHERE id = 1", Long.class)).isEqualTo(8L);
+        assertThat(jdbcTemplate.queryForList("SELECT balance_after_op FROM operation WHERE account_id = ? ORDER BY id", BigDecimal.class, accountId))
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(amounts("1.00", "2.00", "3.00", "4.00", "5.00", "6.00", "7.00", "8.00"));
+        assertThat(balanceOf(accountId)).isEqualByComparingTo("8.00");
+    }
+
+    @Test
+    @DisplayName("Operations and transfers written through the journal project the balances and rows the direct write mode commits")
+    void shouldProjectSameBalancesAndOperations_asDirectWriteMode() throws Exception {
+        long directFrom = account("1000.00");
+        long directTo = account("500.00");
+        OperationJournal disabled = new OperationJournal("direct", directory.resolve("disabled"), DataSize.ofKilobytes(4),
+                FsyncPolicy.PER_BATCH, Duration.ofMillis(10), Duration.ofHours(1), operationSequence);
+        run(new DirectBalanceWriter(accountRepository, transactionManager), disabled, directFrom, directTo);
+
+        long journalFrom = account("1000.00");
+        long journalTo = account("500.00");
+        OperationJournal journal = journal();
+        run(new JournalBalanceWriter(journal), journal, journalFrom, journalTo);
+        awaitProjected(projector(journal), journal);
+
+        assertThat(balanceOf(journalFrom)).isEqualByComparingTo(balanceOf(directFrom));
+        assertThat(balanceOf(journalTo)).isEqualByComparingTo(balanceOf(directTo));
+        assertThat(rows(journalFrom)).isEqualTo(rows(directFrom));
+        assertThat(rows(journalTo)).isEqualTo(rows(directTo));
+        assertThat(rows(journalTo)).hasSize(3);
+    }
+
+    /**
+     * Deposits, withdrawals and transfers, one of them refused, through the services on the given write mode
+     */
+    private void run(BalanceWriter balanceWriter, OperationJournal journal, long from, long to) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StripedBalanceEngine balanceEngine = new StripedBalanceEngine(accountRepository, balanceWriter,
+                new EngineMetrics(meterRegistry), 16, 3, Duration.ZERO);
+        HotAccountEngine hotAccountEngine = mock(HotAccountEngine.class);
+        when(hotAccountEngine.exclusively(any(), any())).thenAnswer(invocation -> invocation.getArgument(1, Supplier.class).get());
+        OperationMetrics operationMetrics = new OperationMetrics(meterRegistry);
+        OperationServiceImpl operationService = new OperationServiceImpl(operationRepository, Mappers.getMapper(OperationMapper.class),
+                event -> { }, null, journal, new OperationOutbox(jdbcTemplate, true), null);
+        AccountServiceImpl accountService = new AccountServiceImpl(balanceEngine, hotAccountEngine, operationService,
+                operationMetrics, null);
+        TransferServiceImpl transferService = new TransferServiceImpl(balanceEngine, hotAccountEngine, operationService, operationMetrics);
+
+        accountService.handleOperation(from, OperationType.DEBIT, Money.of("100.00"));
+        accountService.handleOperation(to, OperationType.CREDIT, Money.of("30.00"));
+        transferService.handleTransfer(from, to, Money.of("250.00"));
+        assertThrows(InsufficientBalanceException.class, () -> transferService.handleTransfer(to, from, Money.of("2000.00")));
+        transferService.handleTransfer(to, from, Money.of("0.01"));
+        accountService.handleOperation(from, OperationType.CREDIT, Money.of("849.99"));
+    }
+
+    /**
+     * The operation rows of an account in id order, without their ids, dates and transfer ids
+     */
+    private List<Map<String, Object>> rows(long accountId) {
+        return jdbcTemplate.queryForList("""
+                SELECT type, amount, balance_after_op, transfer_id IS NOT NULL AS transfer FROM operation
+                WHERE account_id = ? ORDER BY id""", accountId);
+    }
+
+    private OperationJournal journal() throws IOException {
+        // four records per segment, the first groups of a test being written in the first segment
+        OperationJournal journal = new OperationJournal("journal", directory, DataSize.ofBytes(4 * OperationJournal.RECORD_SIZE),
+                FsyncPolicy.PER_OPERATION, Duration.ofMillis(10), Duration.ofHours(1), operationSequence);
+        journal.open();
+        journals.add(journal);
+        return journal;
+    }
+
+    private JournalProjector projector(OperationJournal journal) {
+        JournalProjector projector = new JournalProjector(journal, jdbcTemplate, transactionManager, event -> { },
+                new OperationOutbox(jdbcTemplate, true), 2);
+        projector.start();
+        projectors.add(projector);
+        return projector;
+    }
+
+    private static void awaitProjected(JournalProjector projector, OperationJournal journal) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (projector.projectedSeq() < journal.lastSeq()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("Journal not projected up to " + journal.lastSeq());
+            Thread.sleep(10);
+        }
+    }
+
+    private long account(String balance) {
+        long id = ACCOUNT_IDS.getAndIncrement();
+        jdbcTemplate.update("INSERT INTO account (id, balance, version) VALUES (?, ?, 0)", id, new BigDecimal(balance));
+        return id;
+    }
+
+    private BigDecimal balanceOf(long accountId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM account WHERE id = ?", BigDecimal.class, accountId);
+    }
+
+    /**
+     * Flip a byte in the middle of a record, as a write torn by a crash
+     */
+    private static void corrupt(Path segment, int slot) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek((long) slot * OperationJournal.RECORD_SIZE + 30);
+            file.write(0x7f);
+        }
+    }
+
+    private static BigDecimal[] amounts(String... amounts) {
+        return Arrays.stream(amounts).map(BigDecimal::new).toArray(BigDecimal[]::new);
+    }
+
+    private static Operation operation(long accountId, OperationType type, String amount, String balanceAfter, UUID transferId) {
+        return Operation.builder()
+                .account(Account.builder().id(accountId).build())
+                .type(type)
+                .amount(Money.of(amount))
+                .balanceAfterOp(Money.of(balanceAfter))
+                .dateTime(LocalDateTime.now())
+                .transferId(transferId)
+                .build();
+    }
+}
@@ -0,0 +1,249 @@
+package com.bank.kata.journal;
+
+import com.bank.kata.enums.FsyncPolicy;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+class OperationJournalTest {
+
+    private static final long FIRST_ID = 101;
+
+    @TempDir
+    Path directory;
+
+    private final List<OperationJournal> opened = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong(FIRST_ID);
+    private final OperationSequence operationSequence = mock(OperationSequence.class);
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(operationSequence.nextId()).thenAnswer(invocation -> ids.getAndIncrement());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (OperationJournal journal : opened) journal.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(FsyncPolicy.class)
+    void shouldAppendOperations_withIdsFromSequence(FsyncPolicy fsyncPolicy) throws IOException {
+        OperationJournal journal = open(fsyncPolicy);
+
+        journal.append(operation(1L, OperationType.DEBIT, "10.00", "110.00"));
+        journal.append(operation(2L, OperationType.CREDIT, "5.50", "94.50"));
+        Operation last = journal.append(operation(1L, OperationType.CREDIT, "20.00", "90.00"));
+
+        Assertions.assertThat(last.getId()).isEqualTo(FIRST_ID + 2);
+        Assertions.assertThat(journal.lastSeq()).isEqualTo(3L);
+        Assertions.assertThat(journal.balanceOf(1L)).hasValueSatisfying(balance -> Assertions.assertThat(balance).isEqualTo(Money.of("90.00")));
+        Assertions.assertThat(journal.balanceOf(3L)).isEmpty();
+        Assertions.assertThat(journal.read(0, 10).operations()).extracting(Operation::getId).containsExactly(FIRST_ID, FIRST_ID + 1, FIRST_ID + 2);
+        Assertions.assertThat(journal.read(2, 10).operations()).singleElement().satisfies(operation -> {
+            Assertions.assertThat(operation.getId()).isEqualTo(last.getId());
+            Assertions.assertThat(operation.getAccount().getId()).isEqualTo(1L);
+            Assertions.assertThat(operation.getType()).isEqualTo(OperationType.CREDIT);
+            Assertions.assertThat(operation.getAmount()).isEqualTo(Money.of("20.00"));
+            Assertions.assertThat(operation.getDateTime()).isEqualTo(last.getDateTime());
+            Assertions.assertThat(operation.getTransferId()).isNull();
+        });
+        Assertions.assertThat(journal.read(2, 10).lastSeq()).isEqualTo(3L);
+    }
+
+    @Test
+    void shouldReplayBalances_andResumeSequence_whenReopened() throws IOException {
+        OperationJournal journal = open(FsyncPolicy.PER_BATCH);
+        for (int i = 1; i <= 5; i++) journal.append(operation(1L, OperationType.DEBIT, "1.00", i + ".00"));
+
+        OperationJournal reopened = open(FsyncPolicy.PER_BATCH);
+
+        Assertions.assertThat(reopened.lastSeq()).isEqualTo(5L);
+        Assertions.assertThat(reopened.balanceOf(1L)).hasValueSatisfying(balance -> Assertions.assertThat(balance).isEqualTo(Money.of("5.00")));
+        reopened.append(operation(1L, OperationType.DEBIT, "1.00", "6.00"));
+        Assertions.assertThat(reopened.lastSeq()).isEqualTo(6L);
+        Assertions.assertThat(segments()).hasSize(3);
+        // a database rebuilt behind the journal must not give the journaled ids again
+        verify(operationSequence).skipPast(FIRST_ID + 4);
+    }
+
+    @Test
+    void shouldStopReplayAtTornRecord_andOverwriteIt() throws IOException {
+        OperationJournal journal = open(FsyncPolicy.PER_OPERATION);
+        journal.append(operation(1L, OperationType.DEBIT, "1.00", "1.00"));
+        journal.append(operation(1L, OperationType.DEBIT, "1.00", "2.00"));
+        corrupt(segments().get(0), 1);
+
+        OperationJournal reopened = open(FsyncPolicy.PER_OPERATION);
+
+        Assertions.assertThat(reopened.lastSeq()).isEqualTo(1L);
+        Assertions.assertThat(reopened.balanceOf(1L)).hasValueSatisfying(balance -> Assertions.assertThat(balance).isEqualTo(Money.of("1.00")));
+        reopened.append(operation(1L, OperationType.DEBIT, "5.00", "6.00"));
+        Assertions.assertThat(reopened.lastSeq()).isEqualTo(2L);
+        Assertions.assertThat(reopened.read(1, 10).operations()).extracting(Operation::getBalanceAfterOp).containsExactly(Money.of("6.00"));
+    }
+
+    @Test
+    void shouldRebuildBalancesFromCheckpoint() throws IOException {
+        OperationJournal journal = open(FsyncPolicy.PER_BATCH);
+        journal.append(operation(1L, OperationType.DEBIT, "1.00", "1.00"));
+        journal.append(operation(2L, OperationType.DEBIT, "2.00", "2.00"));
+        journal.checkpoint();
+        journal.append(operation(1L, OperationType.DEBIT, "1.00", "3.00"));
+        // records before the checkpoint are no longer needed to rebuild the balances
+        Files.delete(segments().get(0));
+
+        OperationJournal reopened = open(FsyncPolicy.PER_BATCH);
+
+        Assertions.assertThat(reopened.lastSeq()).isEqualTo(3L);
+        Assertions.assertThat(reopened.balanceOf(1L)).hasValueSatisfying(balance -> Assertions.assertThat(balance).isEqualTo(Money.of("3.00")));
+        Assertions.assertThat(reopened.balanceOf(2L)).hasValueSatisfying(balance -> Assertions.assertThat(balance).isEqualTo(Money.of("2.00")));
+        verify(operationSequence).skipPast(FIRST_ID + 2);
+    }
+
+    @ParameterizedTest
+    @EnumSource(FsyncPolicy.class)
+    void shouldAppendGroup_andReadItWhole(FsyncPolicy fsyncPolicy) throws IOException {
+        OperationJournal journal = open(fsyncPolicy);
+        journal.append(operation(3L, OperationType.DEBIT, "1.00", "1.00"));
+        UUID transferId = UUID.randomUUID();
+
+        List<Operation> transfer = journal.atomically(() -> List.of(
+                journal.append(operation(1L, OperationType.CREDIT, "10.00", "90.00", transferId)),
+                journal.append(operation(2L, OperationType.DEBIT, "10.00", "10.00", transferId))));
+
+        // the group header and its two records, rolling to a new segment in the middle of the group
+        Assertions.assertThat(journal.lastSeq()).isEqualTo(4L);
+        Assertions.assertThat(journal.balanceOf(2L)).hasValueSatisfying(balance -> Assertions.assertThat(balance).isEqualTo(Money.of("10.00")));
+        OperationJournal.Records records = journal.read(1, 1);
+        Assertions.assertThat(records.lastSeq()).isEqualTo(4L);
+        Assertions.assertThat(records.operations()).extracting(Operation::getId).containsExactly(transfer.get(0).getId(), transfer.get(1).getId());
+        Assertions.assertThat(records.operations()).extracting(Operation::getTransferId).containsOnly(transferId);
+        Assertions.assertThat(journal.read(0, 1).operations()).hasSize(1);
+    }
+
+    @Test
+    void shouldWriteNothing_whenGroupWorkFails() throws IOException {
+        OperationJournal journal = open(FsyncPolicy.PER_BATCH);
+
+        Assertions.assertThatThrownBy(() -> journal.atomically(() -> {
+            journal.append(operation(1L, OperationType.DEBIT, "10.00", "10.00"));
+            throw new IllegalStateException("batch rolled back");
+        })).isInstanceOf(IllegalStateException.class);
+
+        Assertions.assertThat(journal.lastSeq()).isZero();
+        Assertions.assertThat(journal.balanceOf(1L)).isEmpty();
+        Assertions.assertThat(journal.read(0, 10).operations()).isEmpty();
+    }
+
+    @Test
+    void shouldRejectGroup_spanningSeveralTransfers() throws IOException {
+        OperationJournal journal = open(FsyncPolicy.PER_BATCH);
+
+        Assertions.assertThatThrownBy(() -> journal.atomically(() -> List.of(
+                journal.append(operation(1L, OperationType.CREDIT, "10.00", "90.00", UUID.randomUUID())),
+                journal.append(operation(2L, OperationType.DEBIT, "10.00", "10.00", UUID.randomUUID())))))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThat(journal.lastSeq()).isZero();
+    }
+
+    @Test
+    void shouldDropTornGroup_onReplay_andNeverReadItAgain() throws IOException {
+        OperationJournal journal = open(FsyncPolicy.PER_OPERATION);
+        journal.append(operation(1L, OperationType.DEBIT, "100.00", "100.00"));
+        UUID transferId = UUID.randomUUID();
+        journal.atomically(() -> List.of(
+                journal.append(operation(1L, OperationType.CREDIT, "10.00", "90.00", transferId)),
+                journal.append(operation(2L, OperationType.DEBIT, "10.00", "10.00", transferId))));
+        // the last record of the group torn by a crash, the group header ending the first segment
+        corrupt(segments().get(1), 1);
+
+        OperationJournal reopened = open(FsyncPolicy.PER_OPERATION);
+
+        Assertions.assertThat(reopened.lastSeq()).isEqualTo(1L);
+        Assertions.assertThat(reopened.balanceOf(1L)).hasValueSatisfying(balance -> Assertions.assertThat(balance).isEqualTo(Money.of("100.00")));
+        Assertions.assertThat(reopened.balanceOf(2L)).isEmpty();
+        Assertions.assertThat(segments()).hasSize(1);
+        // the valid header and first record of the torn group are not read back behind new records
+        reopened.append(operation(3L, OperationType.DEBIT, "1.00", "1.00"));
+        reopened.append(operation(3L, OperationType.DEBIT, "1.00", "2.00"));
+        Assertions.assertThat(reopened.read(0, 10).operations()).extracting(operation -> operation.getAccount().getId())
+                .containsExactly(1L, 3L, 3L);
+        Assertions.assertThat(open(FsyncPolicy.PER_OPERATION).lastSeq()).isEqualTo(3L);
+    }
+
+    @Test
+    void shouldOpenNoFile_whenDisabled() throws IOException {
+        OperationJournal journal = new OperationJournal("direct", directory.resolve("journal"), DataSize.ofBytes(128),
+                FsyncPolicy.PER_BATCH, Duration.ofMillis(10), Duration.ofHours(1), operationSequence);
+        journal.open();
+        journal.close();
+
+        Assertions.assertThat(journal.isEnabled()).isFalse();
+        Assertions.assertThat(directory.resolve("journal")).doesNotExist();
+        verifyNoInteractions(operationSequence);
+    }
+
+    private OperationJournal open(FsyncPolicy fsyncPolicy) throws IOException {
+        // two records per segment so appends roll segments
+        OperationJournal journal = new OperationJournal("journal", directory, DataSize.ofBytes(2 * OperationJournal.RECORD_SIZE),
+                fsyncPolicy, Duration.ofMillis(10), Duration.ofHours(1), operationSequence);
+        journal.open();
+        opened.add(journal);
+        return journal;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("journal-")).sorted().toList();
+        }
+    }
+
+    /**
+     * Flip a byte in the middle of a record, as a write torn by a crash
+     */
+    private static void corrupt(Path segment, int slot) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek((long) slot * OperationJournal.RECORD_SIZE + 30);
+            file.write(0x7f);
+        }
+    }
+
+    private static Operation operation(Long accountId, OperationType type, String amount, String balanceAfter) {
+        return operation(accountId, type, amount, balanceAfter, null);
+    }
+
+    private static Operation operation(Long accountId, OperationType type, String amount, String balanceAfter, UUID transferId) {
+        return Operation.builder()
+                .account(Account.builder().id(accountId).build())
+                .type(type)
+                .amount(Money.of(amount))
+                .balanceAfterOp(Money.of(balanceAfter))
+                .dateTime(LocalDateTime.now())
+                .transferId(transferId)
+                .build();
+    }
+}
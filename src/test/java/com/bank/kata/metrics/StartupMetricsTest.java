@@ -0,0 +1,36 @@
+package com.bank.kata.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class StartupMetricsTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    AtomicLong uptime = new AtomicLong();
+
+    StartupMetrics startupMetrics = new StartupMetrics(meterRegistry, uptime::get);
+
+    @Test
+    void shouldRecordFirstApiRequestOnly_probesExcluded() {
+        uptime.set(1000);
+        handled("/actuator/health");
+        Assertions.assertThat(meterRegistry.find(StartupMetrics.FIRST_REQUEST_GAUGE).timeGauge()).isNull();
+
+        uptime.set(2500);
+        handled("/api/v1/accounts/1/balance");
+        uptime.set(4000);
+        handled("/api/v1/accounts/2/balance");
+
+        Assertions.assertThat(meterRegistry.get(StartupMetrics.FIRST_REQUEST_GAUGE).timeGauge().value(TimeUnit.MILLISECONDS)).isEqualTo(2500);
+    }
+
+    private void handled(String uri) {
+        startupMetrics.onRequestHandled(new ServletRequestHandledEvent(this, uri, "127.0.0.1", "GET", "dispatcherServlet", null, null, 1));
+    }
+}
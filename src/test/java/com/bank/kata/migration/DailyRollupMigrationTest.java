@@ -0,0 +1,83 @@
+package com.bank.kata.migration;
+
+import com.bank.kata.dto.StatementDto;
+import com.bank.kata.model.Money;
+import com.bank.kata.repository.DailyRollupRepository;
+import com.bank.kata.service.impl.StatementServiceImpl;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Operations are written before the daily rollups exist, then the rest of the migrations run
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:daily-rollup-migration;MODE=MySQL")
+class DailyRollupMigrationTest {
+
+    private static final String LAST_VERSION_WITHOUT_ROLLUPS = "202610171600";
+
+    @TestConfiguration
+    static class OperationsBeforeRollups {
+
+        @Bean
+        FlywayMigrationStrategy operationsBeforeRollups() {
+            return flyway -> {
+                Flyway.configure().configuration(flyway.getConfiguration()).target(LAST_VERSION_WITHOUT_ROLLUPS).load().migrate();
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(flyway.getConfiguration().getDataSource());
+                operation(jdbcTemplate, 1, "DEBIT", "100.00", "1100.00", "2024-12-01 09:00:00");
+                operation(jdbcTemplate, 1, "CREDIT", "30.00", "1070.00", "2024-12-01 17:00:00");
+                operation(jdbcTemplate, 1, "DEBIT", "50.00", "1120.00", "2024-12-03 10:00:00");
+                operation(jdbcTemplate, 2, "CREDIT", "100.00", "400.00", "2024-12-03 11:00:00");
+                jdbcTemplate.update("UPDATE account SET balance = 1120 WHERE id = 1");
+                jdbcTemplate.update("UPDATE account SET balance = 400 WHERE id = 2");
+                flyway.migrate();
+            };
+        }
+
+        private static void operation(JdbcTemplate jdbcTemplate, long accountId, String type, String amount, String balanceAfter, String dateTime) {
+            jdbcTemplate.update("INSERT INTO operation (account_id, amount, balance_after_op, type, creation_date_time) VALUES (?, ?, ?, ?, ?)",
+                    accountId, amount, balanceAfter, type, dateTime);
+        }
+    }
+
+    @Autowired
+    DailyRollupRepository dailyRollupRepository;
+
+    @Test
+    @DisplayName("Statements over the operations created before the rollups hold their totals and balances")
+    void shouldRollUpExistingOperations() {
+        StatementServiceImpl statementService = new StatementServiceImpl(dailyRollupRepository);
+
+        StatementDto december = statementService.getStatement(1L, LocalDate.of(2024, 12, 1), LocalDate.of(2024, 12, 31));
+        assertThat(december.openingBalance()).isEqualTo(Money.of("1000"));
+        assertThat(december.closingBalance()).isEqualTo(Money.of("1120"));
+        assertThat(december.totalDebit()).isEqualTo(Money.of("150"));
+        assertThat(december.totalCredit()).isEqualTo(Money.of("30"));
+        assertThat(december.debitCount()).isEqualTo(2);
+        assertThat(december.creditCount()).isEqualTo(1);
+
+        StatementDto secondDay = statementService.getStatement(1L, LocalDate.of(2024, 12, 2), LocalDate.of(2024, 12, 3));
+        assertThat(secondDay.openingBalance()).isEqualTo(Money.of("1070"));
+        assertThat(secondDay.closingBalance()).isEqualTo(Money.of("1120"));
+        assertThat(secondDay.debitCount() + secondDay.creditCount()).isEqualTo(1);
+
+        StatementDto otherAccount = statementService.getStatement(2L, LocalDate.of(2024, 12, 3), LocalDate.of(2024, 12, 3));
+        assertThat(otherAccount.openingBalance()).isEqualTo(Money.of("500"));
+        assertThat(otherAccount.closingBalance()).isEqualTo(Money.of("400"));
+        assertThat(otherAccount.totalCredit()).isEqualTo(Money.of("100"));
+    }
+}
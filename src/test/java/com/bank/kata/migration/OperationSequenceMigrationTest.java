@@ -0,0 +1,58 @@
+package com.bank.kata.migration;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OperationSequenceMigrationTest {
+
+    private static final String LAST_IDENTITY_VERSION = "202412151010";
+
+    JdbcDataSource dataSource = new JdbcDataSource();
+
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    @DisplayName("Operation ids handed out by the sequence start after the IDENTITY ids of a populated schema")
+    void shouldStartSequenceAfterExistingIds_whenOperationsExist() {
+        migrate(LAST_IDENTITY_VERSION);
+        for (int i = 0; i < 120; i++) {
+            jdbcTemplate.update("INSERT INTO operation (account_id, amount, balance_after_op, type) VALUES (1, 1.00, 1001.00, 'DEBIT')");
+        }
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM operation", Long.class);
+
+        migrate(null);
+
+        long hi = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR operation_seq", Long.class);
+        // pooled optimizer: the ids of the block are hi - 49 to hi
+        assertThat(hi - 49).isEqualTo(maxId + 1);
+    }
+
+    @Test
+    @DisplayName("An empty schema hands out ids from 1")
+    void shouldStartSequenceAtFirstBlock_whenNoOperation() {
+        migrate(null);
+
+        long hi = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR operation_seq", Long.class);
+        assertThat(hi - 49).isEqualTo(1);
+    }
+
+    private void migrate(String target) {
+        var configuration = Flyway.configure().dataSource(dataSource).locations("classpath:db/migration");
+        if (target != null) configuration.target(target);
+        configuration.load().migrate();
+    }
+}
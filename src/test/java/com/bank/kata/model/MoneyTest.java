@@ -0,0 +1,58 @@
+package com.bank.kata.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Amounts are held in minor units whatever the scale they are given with")
+    void shouldHoldMinorUnits(){
+        assertThat(Money.of("20.99").minorUnits()).isEqualTo(2099);
+        assertThat(Money.of("20.9")).isEqualTo(Money.of("20.90"));
+        assertThat(Money.of(new BigDecimal("200.0000"))).isEqualTo(Money.of("200"));
+        assertThat(Money.of(20, 0)).isEqualTo(Money.of("20.00"));
+        assertThat(Money.of(2099, 2)).isEqualTo(Money.of("20.99"));
+        assertThat(Money.of("20.99").toBigDecimal()).isEqualTo(new BigDecimal("20.99"));
+        assertThat(Money.of("20.9")).hasToString("20.90");
+    }
+
+    @Test
+    @DisplayName("Amounts with more than two decimals are rejected instead of rounded")
+    void shouldReject_whenMoreThanTwoDecimals(){
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.of("20.999"));
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.of(20999, 3));
+    }
+
+    @Test
+    @DisplayName("Arithmetic is exact and fails on overflow")
+    void shouldAddAndSubtract_andFailOnOverflow(){
+        assertThat(Money.of("200.00").add(Money.of("20.99"))).isEqualTo(Money.of("220.99"));
+        assertThat(Money.of("200.00").subtract(Money.of("20.99"))).isEqualTo(Money.of("179.01"));
+        assertThat(Money.ZERO.subtract(Money.of("1")).isNegative()).isTrue();
+        assertThat(Money.of("1").isLessThan(Money.of("1.01"))).isTrue();
+        Assertions.assertThrows(ArithmeticException.class, () -> new Money(Long.MAX_VALUE).add(Money.of("0.01")));
+        Assertions.assertThrows(ArithmeticException.class, () -> new Money(Long.MIN_VALUE).subtract(Money.of("0.01")));
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.of("1e20"));
+    }
+
+    @Test
+    @DisplayName("JSON form is a decimal number, strings holding a number are accepted")
+    void shouldWriteAndReadJsonNumbers() throws Exception {
+        assertThat(objectMapper.writeValueAsString(Money.of("20.9"))).isEqualTo("20.90");
+        assertThat(objectMapper.readValue("20.99", Money.class)).isEqualTo(Money.of("20.99"));
+        assertThat(objectMapper.readValue("20", Money.class)).isEqualTo(Money.of("20"));
+        assertThat(objectMapper.readValue("\"20.99\"", Money.class)).isEqualTo(Money.of("20.99"));
+        Assertions.assertThrows(InvalidFormatException.class, () -> objectMapper.readValue("20.999", Money.class));
+        Assertions.assertThrows(InvalidFormatException.class, () -> objectMapper.readValue("\"twenty\"", Money.class));
+    }
+}
@@ -0,0 +1,48 @@
+package com.bank.kata.outbox;
+
+import com.bank.kata.dto.OperationEventDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+class FileOperationEventSinkTest {
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void shouldAppendOneLinePerEvent_acrossReopenings() throws IOException {
+        Path file = directory.resolve("events/operation-events.ndjson");
+        UUID transferId = UUID.randomUUID();
+
+        FileOperationEventSink eventSink = new FileOperationEventSink(objectMapper, file);
+        eventSink.publish(List.of(event(1, null), event(2, transferId)));
+        eventSink.close();
+        eventSink = new FileOperationEventSink(objectMapper, file);
+        eventSink.publish(List.of(event(3, null)));
+        eventSink.close();
+
+        List<String> lines = Files.readAllLines(file);
+        Assertions.assertThat(lines).hasSize(3);
+        Assertions.assertThat(objectMapper.readValue(lines.get(1), OperationEventDto.class)).isEqualTo(event(2, transferId));
+        Assertions.assertThat(objectMapper.readValue(lines.get(2), OperationEventDto.class).offset()).isEqualTo(3);
+    }
+
+    private static OperationEventDto event(long offset, UUID transferId) {
+        return new OperationEventDto(offset, 100 + offset, 1L, OperationType.DEBIT, Money.of("10"), Money.of("110"),
+                LocalDateTime.of(2026, 10, 17, 22, 0), transferId);
+    }
+}
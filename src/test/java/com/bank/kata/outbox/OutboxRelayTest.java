@@ -0,0 +1,127 @@
+package com.bank.kata.outbox;
+
+import com.bank.kata.dto.OperationEventDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    OperationOutbox operationOutbox;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    OperationEventSink firstSink;
+
+    @Mock
+    OperationEventSink secondSink;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = new OutboxRelay(operationOutbox, jdbcTemplate, transactionManager, List.of(firstSink, secondSink),
+                meterRegistry, BATCH_SIZE, Duration.ofHours(24));
+    }
+
+    @Test
+    @DisplayName("Committed rows are numbered in the order they are found, following the last offset")
+    void shouldNumberUnassignedRows_afterLastOffset() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(BATCH_SIZE))).thenReturn(List.of(7L, 3L), List.of(5L));
+
+        assertThat(outboxRelay.assignOffsets()).isEqualTo(2);
+        assertThat(outboxRelay.assignOffsets()).isEqualTo(1);
+
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> offsets) ->
+                offsets.size() == 2 && offsets.get(0)[0].equals(1L) && offsets.get(0)[1].equals(7L)
+                        && offsets.get(1)[0].equals(2L) && offsets.get(1)[1].equals(3L)));
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> offsets) ->
+                offsets.size() == 1 && offsets.get(0)[0].equals(3L) && offsets.get(0)[1].equals(5L)));
+        verify(jdbcTemplate).update(OutboxRelayTest.contains("assigned_offset"), eq(3L));
+        assertThat(meterRegistry.get(OutboxRelay.LAG_GAUGE).gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Batch is published to every sink before the published position moves")
+    void shouldPublishToEverySink_thenMovePosition() {
+        List<OperationEventDto> events = List.of(event(1), event(2));
+        when(operationOutbox.read(0, null, BATCH_SIZE)).thenReturn(events);
+
+        assertThat(outboxRelay.publish()).isEqualTo(2);
+
+        InOrder inOrder = inOrder(firstSink, secondSink, jdbcTemplate);
+        inOrder.verify(firstSink).publish(events);
+        inOrder.verify(secondSink).publish(events);
+        inOrder.verify(jdbcTemplate).update(OutboxRelayTest.contains("published_offset"), eq(2L));
+        assertThat(outboxRelay.publishedOffset()).isEqualTo(2);
+        assertThat(meterRegistry.get(OutboxRelay.PUBLISHED_COUNTER).counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Failing sink leaves the published position unmoved, the batch is published again")
+    void shouldPublishBatchAgain_whenSinkFails() {
+        List<OperationEventDto> events = List.of(event(1));
+        when(operationOutbox.read(0, null, BATCH_SIZE)).thenReturn(events);
+        doThrow(new IllegalStateException("sink down")).doNothing().when(secondSink).publish(events);
+
+        assertThrows(IllegalStateException.class, () -> outboxRelay.publish());
+        assertThat(outboxRelay.publishedOffset()).isZero();
+        verify(jdbcTemplate, never()).update(OutboxRelayTest.contains("published_offset"), anyLong());
+
+        assertThat(outboxRelay.publish()).isEqualTo(1);
+        verify(firstSink, times(2)).publish(events);
+        assertThat(outboxRelay.publishedOffset()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Relay keeps going while full batches are found")
+    void shouldRelayAgain_whileBatchesAreFull() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(BATCH_SIZE))).thenReturn(List.of(1L, 2L), List.of(3L), List.of());
+        when(operationOutbox.read(anyLong(), isNull(), eq(BATCH_SIZE))).thenReturn(List.of(event(1), event(2)), List.of(event(3)));
+
+        outboxRelay.relay();
+
+        verify(firstSink).publish(List.of(event(1), event(2)));
+        verify(firstSink).publish(List.of(event(3)));
+        assertThat(outboxRelay.publishedOffset()).isEqualTo(3);
+        assertThat(meterRegistry.get(OutboxRelay.LAG_GAUGE).gauge().value()).isZero();
+    }
+
+    private static String contains(String column) {
+        return argThat(sql -> sql != null && sql.contains(column));
+    }
+
+    private static OperationEventDto event(long offset) {
+        return new OperationEventDto(offset, 100 + offset, 1L, OperationType.DEBIT, Money.of("10"), Money.of("110"),
+                LocalDateTime.of(2026, 10, 17, 22, 0), null);
+    }
+}
@@ -0,0 +1,104 @@
+package com.bank.kata.outbox;
+
+import com.bank.kata.dto.OperationEventDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.model.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@ExtendWith(MockitoExtension.class)
+class SseOperationEventSinkTest {
+
+    @Mock
+    OperationOutbox operationOutbox;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    SseOperationEventSink eventSink;
+
+    MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        eventSink = new SseOperationEventSink(operationOutbox, meterRegistry, Duration.ofMinutes(1), 2);
+        mvc = MockMvcBuilders.standaloneSetup(new EventController(eventSink)).build();
+    }
+
+    @Test
+    @DisplayName("Subscription replays the events after its offset, then receives the published ones without duplicates")
+    void shouldReplayThenPush_withoutDuplicates() throws Exception {
+        when(operationOutbox.read(3, null, 2)).thenReturn(List.of(event(4, 1L), event(5, 2L)));
+        when(operationOutbox.read(5, null, 2)).thenReturn(List.of(event(6, 1L)));
+
+        MvcResult result = subscribe(null, 3);
+        eventSink.publish(List.of(event(5, 2L), event(6, 1L), event(7, 2L)));
+
+        assertThat(ids(result)).containsExactly("4", "5", "6", "7");
+        assertThat(result.getResponse().getContentAsString()).contains("event:" + SseOperationEventSink.EVENT_NAME);
+        assertThat(meterRegistry.get(SseOperationEventSink.SUBSCRIBERS_GAUGE).gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Subscription to an account only receives the events of that account")
+    void shouldFilterEvents_byAccount() throws Exception {
+        when(operationOutbox.read(0, 1L, 2)).thenReturn(List.of(event(1, 1L)));
+
+        MvcResult result = subscribe(1L, 0);
+        eventSink.publish(List.of(event(1, 1L), event(2, 2L), event(3, 1L)));
+
+        assertThat(ids(result)).containsExactly("1", "3");
+    }
+
+    private MvcResult subscribe(Long accountId, long from) throws Exception {
+        return mvc.perform(get("/events").param("accountId", accountId == null ? null : accountId.toString()).param("from", String.valueOf(from)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private static List<String> ids(MvcResult result) throws Exception {
+        return result.getResponse().getContentAsString().lines()
+                .filter(line -> line.startsWith("id:"))
+                .map(line -> line.substring(3))
+                .toList();
+    }
+
+    private static OperationEventDto event(long offset, Long accountId) {
+        return new OperationEventDto(offset, 100 + offset, accountId, OperationType.DEBIT, Money.of("10"), Money.of("110"),
+                LocalDateTime.of(2026, 10, 17, 22, 0), null);
+    }
+
+    @RestController
+    static class EventController {
+        private final SseOperationEventSink eventSink;
+
+        EventController(SseOperationEventSink eventSink) {
+            this.eventSink = eventSink;
+        }
+
+        @GetMapping("/events")
+        SseEmitter events(@RequestParam(required = false) Long accountId, @RequestParam long from) {
+            return eventSink.subscribe(accountId, from);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.bank.kata.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:balance-snapshot;MODE=MySQL")
+class BalanceSnapshotRepositoryTest {
+
+    private static final LocalDateTime AT = LocalDateTime.of(2024, 12, 16, 12, 0);
+
+    @Autowired
+    BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        operation(100, 1, "1010.00", AT.minusHours(2));
+        operation(101, 1, "1020.00", AT.minusHours(1));
+        operation(102, 1, "1030.00", AT.plusHours(1));
+        operation(103, 2, "510.00", AT.minusHours(3));
+    }
+
+    @Test
+    @DisplayName("A snapshot holds the balance after the latest operation at or before its point in time")
+    void shouldSnapshotLatestOperationUntilPointInTime() {
+        int written = balanceSnapshotRepository.insertLatestUntil(AT);
+
+        assertThat(written).isEqualTo(2);
+        assertThat(snapshots()).containsExactly(
+                Map.of("ACCOUNT_ID", 1L, "BALANCE", new BigDecimal("1020.00"), "LAST_OPERATION_ID", 101L),
+                Map.of("ACCOUNT_ID", 2L, "BALANCE", new BigDecimal("510.00"), "LAST_OPERATION_ID", 103L));
+    }
+
+    @Test
+    @DisplayName("Only the accounts with operations since their last snapshot get a new one")
+    void shouldSkipAccounts_withoutOperationSinceLastSnapshot() {
+        balanceSnapshotRepository.insertLatestUntil(AT);
+        operation(104, 2, "520.00", AT.plusMinutes(30));
+
+        int written = balanceSnapshotRepository.insertLatestUntil(AT.plusHours(2).minusMinutes(30));
+
+        assertThat(written).isEqualTo(2);
+        assertThat(balanceSnapshotRepository.insertLatestUntil(AT.plusHours(2))).isZero();
+        assertThat(balanceSnapshotRepository.count()).isEqualTo(4);
+    }
+
+    private void operation(long id, long accountId, String balanceAfter, LocalDateTime dateTime) {
+        jdbcTemplate.update("INSERT INTO operation (id, account_id, amount, balance_after_op, type, creation_date_time) VALUES (?, ?, 10.00, ?, 'DEBIT', ?)",
+                id, accountId, new BigDecimal(balanceAfter), dateTime);
+    }
+
+    private List<Map<String, Object>> snapshots() {
+        return jdbcTemplate.queryForList("SELECT account_id, balance, last_operation_id FROM balance_snapshot ORDER BY account_id");
+    }
+}
@@ -0,0 +1,83 @@
+package com.bank.kata.repository;
+
+import com.bank.kata.model.Account;
+import com.bank.kata.model.DailyRollup;
+import com.bank.kata.model.DailyRollupId;
+import com.bank.kata.model.Money;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:daily-rollup;MODE=MySQL")
+class DailyRollupRepositoryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 12, 16);
+
+    @Autowired
+    DailyRollupRepository dailyRollupRepository;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("The first operation of the day on a shard creates its rollup, the next ones add to it")
+    void shouldCreateRollupOfShard_thenAddOperations() {
+        dailyRollupRepository.upsert(1L, DAY, 0, amount("30"), amount("0"), 1, 0);
+        dailyRollupRepository.upsert(1L, DAY, 0, amount("0"), amount("20"), 0, 1);
+        dailyRollupRepository.upsert(1L, DAY, 0, amount("5"), amount("0"), 1, 0);
+        dailyRollupRepository.upsert(1L, DAY, 2, amount("7"), amount("0"), 1, 0);
+        entityManager.clear();
+
+        DailyRollup rollup = dailyRollupRepository.findById(new DailyRollupId(1L, DAY, 0)).orElseThrow();
+        assertThat(rollup.getTotalDebit()).isEqualTo(Money.of("35"));
+        assertThat(rollup.getTotalCredit()).isEqualTo(Money.of("20"));
+        assertThat(rollup.getDebitCount()).isEqualTo(2);
+        assertThat(rollup.getCreditCount()).isEqualTo(1);
+        assertThat(dailyRollupRepository.findById(new DailyRollupId(1L, DAY, 2)).orElseThrow().getTotalDebit()).isEqualTo(Money.of("7"));
+    }
+
+    @Test
+    @DisplayName("The balance before a day is the whole balance less the totals of the rollups since that day")
+    void shouldReadBalanceBeforeDay_fromBalanceAndRollupsSinceThatDay() {
+        jdbcTemplate.update("UPDATE account SET balance = 1000 WHERE id = 1");
+        jdbcTemplate.update("INSERT INTO account_balance_shard (account_id, shard, balance) VALUES (1, 0, 15)");
+        dailyRollupRepository.upsert(1L, DAY.minusDays(1), 0, amount("100"), amount("0"), 1, 0);
+        dailyRollupRepository.upsert(1L, DAY, 0, amount("30"), amount("20"), 1, 1);
+        dailyRollupRepository.upsert(1L, DAY, 1, amount("15"), amount("0"), 1, 0);
+        dailyRollupRepository.upsert(1L, DAY.plusDays(1), 0, amount("0"), amount("5"), 0, 1);
+
+        assertThat(dailyRollupRepository.findBalanceBefore(1L, DAY)).hasValueSatisfying(balance -> assertThat(balance).isEqualByComparingTo("995"));
+        assertThat(dailyRollupRepository.findBalanceBefore(1L, DAY.plusDays(2))).hasValueSatisfying(balance -> assertThat(balance).isEqualByComparingTo("1015"));
+        assertThat(dailyRollupRepository.findBalanceBefore(99L, DAY)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("The upsert does not flush the pending writes of the session")
+    void shouldNotFlushPendingWrites() {
+        Account account = entityManager.find(Account.class, 1L);
+        account.debit(Money.of("30"));
+
+        dailyRollupRepository.upsert(1L, DAY, 0, amount("30"), amount("0"), 1, 0);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT balance FROM account WHERE id = 1", BigDecimal.class)).isEqualByComparingTo("1000");
+    }
+
+    private static BigDecimal amount(String value) {
+        return new BigDecimal(value);
+    }
+}
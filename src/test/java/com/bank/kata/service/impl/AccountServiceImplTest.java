@@ -1,11 +1,18 @@
 package com.bank.kata.service.impl;
 
-
+import com.bank.kata.cache.IdempotencyKeyStore;
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.engine.BalanceEngine;
+import com.bank.kata.engine.HotAccountEngine;
 import com.bank.kata.enums.OperationType;
 import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.exception.IdempotencyKeyReusedException;
+import com.bank.kata.exception.IdempotencyKeysDisabledException;
+import com.bank.kata.metrics.OperationMetrics;
 import com.bank.kata.model.Account;
-import com.bank.kata.repository.AccountRepository;
+import com.bank.kata.model.Money;
 import com.bank.kata.service.OperationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,13 +21,18 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static com.bank.kata.enums.OperationType.CREDIT;
 import static com.bank.kata.enums.OperationType.DEBIT;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -32,15 +44,27 @@ class AccountServiceImplTest {
     AccountServiceImpl accountService;
 
     @Mock
-    AccountRepository accountRepository;
+    BalanceEngine balanceEngine;
+
+    @Mock
+    HotAccountEngine hotAccountEngine;
 
     @Mock
     OperationService operationService;
 
+    @Mock
+    IdempotencyKeyStore idempotencyKeyStore;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    OperationMetrics operationMetrics = new OperationMetrics(meterRegistry);
+
     /*
     * Test of Balance change not implemented here as it's not a responsibility of this service,
     * instead the test verify invoking of responsible methods from Account Entity, which is
-    * tested regarding the logic of updating balance.
+    * tested regarding the logic of updating balance. Loading and saving the account is the
+    * responsibility of the balance engine, tested in StripedBalanceEngineTest.
      */
 
     @ParameterizedTest()
@@ -49,34 +73,47 @@ class AccountServiceImplTest {
     void ShouldThrowException_whenDebitNonExistingAccount(String typeOp){
         OperationType type = OperationType.valueOf(typeOp);
         Long accountId = 1L;
-        when(accountRepository.findById(any())).thenReturn(Optional.empty());
+        when(balanceEngine.execute(any(), any(), any())).thenThrow(new AccountNotFoundException(accountId));
         AccountNotFoundException thrown = assertThrows(
                 AccountNotFoundException.class,
-                () -> accountService.handleOperation(accountId, type ,BigDecimal.ONE)
+                () -> accountService.handleOperation(accountId, type ,Money.of("1"))
         );
         Assertions.assertTrue(thrown.getMessage().contains("Account not found by id "+accountId));
+        Assertions.assertEquals(1, meterRegistry.get(OperationMetrics.REJECTED_COUNTER)
+                .tag("type", typeOp).tag("reason", "AccountNotFoundException").counter().count());
+    }
+
+    @Test
+    @DisplayName("Handle Operation records its duration tagged by type and outcome")
+    void shouldRecordOperationDuration_whenOperationSucceeds(){
+        executeOn(mock(Account.class));
+
+        accountService.handleOperation(1L,DEBIT, Money.of("1"));
+
+        Assertions.assertEquals(1, meterRegistry.get(OperationMetrics.OPERATION_TIMER)
+                .tag("type", "DEBIT").tag("outcome", OperationMetrics.SUCCESS).timer().count());
+        Assertions.assertTrue(meterRegistry.find(OperationMetrics.REJECTED_COUNTER).counters().isEmpty());
     }
 
     @Test
-    @DisplayName("When type operation is DEBIT, it should invoke debit on account entity, and save it")
+    @DisplayName("When type operation is DEBIT, it should invoke debit on account entity through the balance engine")
     void shouldInvokeAccountDebit_andSaveAccount_whenDebit(){
         Account mockAccount = mock(Account.class);
-        BigDecimal amount = BigDecimal.valueOf(20.99);
-        when(accountRepository.findById(any())).thenReturn(Optional.of(mockAccount));
+        Money amount = Money.of("20.99");
+        executeOn(mockAccount);
 
         accountService.handleOperation(1L,DEBIT, amount);
 
         verify(mockAccount,times(1)).debit(amount);
-        verify(accountRepository,times(1)).save(mockAccount);
+        verify(balanceEngine,times(1)).execute(eq(1L), any(), any());
     }
 
     @Test
     @DisplayName("When type operation is DEBIT,it should create DEBIT operation")
     void shouldCreateDebitOperation_whenDebit(){
         Account mockAccount = mock(Account.class);
-        BigDecimal amount = BigDecimal.valueOf(20.99);
-        when(accountRepository.findById(any())).thenReturn(Optional.of(mockAccount));
-        when(accountRepository.save(any())).thenReturn(mockAccount);
+        Money amount = Money.of("20.99");
+        executeOn(mockAccount);
 
         accountService.handleOperation(1L,DEBIT, amount);
 
@@ -84,25 +121,24 @@ class AccountServiceImplTest {
     }
 
     @Test
-    @DisplayName("When type operation is CREDIT,it should invoke credit on account entity, and save it")
+    @DisplayName("When type operation is CREDIT,it should invoke credit on account entity through the balance engine")
     void shouldInvokeAccountCredit_andSaveAccount_whenCredit(){
         Account mockAccount = mock(Account.class);
-        BigDecimal amount = BigDecimal.valueOf(20.99);
-        when(accountRepository.findById(any())).thenReturn(Optional.of(mockAccount));
+        Money amount = Money.of("20.99");
+        executeOn(mockAccount);
 
         accountService.handleOperation(1L,CREDIT, amount);
 
         verify(mockAccount,times(1)).credit(amount);
-        verify(accountRepository,times(1)).save(mockAccount);
+        verify(balanceEngine,times(1)).execute(eq(1L), any(), any());
     }
 
     @Test
     @DisplayName("When type operation is CREDIT,it should create CREDIT operation")
     void shouldCreateCreditOperation_whenCredit(){
         Account mockAccount = mock(Account.class);
-        BigDecimal amount = BigDecimal.valueOf(20.99);
-        when(accountRepository.findById(any())).thenReturn(Optional.of(mockAccount));
-        when(accountRepository.save(any())).thenReturn(mockAccount);
+        Money amount = Money.of("20.99");
+        executeOn(mockAccount);
 
         accountService.handleOperation(1L,CREDIT, amount);
 
@@ -113,13 +149,106 @@ class AccountServiceImplTest {
     @DisplayName("When type operation is null,it should fail")
     void shouldFail_withException_whenNullOperationType() {
         String exceptionMsg = "Operation Type must not be null";
-        BigDecimal amount = BigDecimal.valueOf(20);
+        Money amount = Money.of("20");
         IllegalArgumentException thrown = assertThrows(
                 IllegalArgumentException.class,
                 () -> accountService.handleOperation(1L,null, amount)
         );
         Assertions.assertTrue(thrown.getMessage().contains(exceptionMsg));
+        verifyNoInteractions(balanceEngine);
+    }
+
+    @Test
+    @DisplayName("Operation with an idempotency key already used is replayed without touching the account")
+    void shouldReplayOperation_whenIdempotencyKeyAlreadyUsed(){
+        OperationDto first = new OperationDto(7L, DEBIT, Money.of("20"), Money.of("120"), LocalDateTime.now(), null);
+        when(idempotencyKeyStore.isEnabled()).thenReturn(true);
+        when(idempotencyKeyStore.find(1L, "retry-1")).thenReturn(Optional.of(first));
+
+        OperationDto operation = accountService.handleOperation(1L, DEBIT, Money.of("20"), "retry-1");
+
+        assertThat(operation).isSameAs(first);
+        verifyNoInteractions(balanceEngine, operationService);
+    }
+
+    @Test
+    @DisplayName("Idempotency key used for another operation is rejected")
+    void shouldFail_whenIdempotencyKeyUsedForAnotherOperation(){
+        OperationDto first = new OperationDto(7L, DEBIT, Money.of("20"), Money.of("120"), LocalDateTime.now(), null);
+        when(idempotencyKeyStore.isEnabled()).thenReturn(true);
+        when(idempotencyKeyStore.find(1L, "retry-1")).thenReturn(Optional.of(first));
+
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> accountService.handleOperation(1L, DEBIT, Money.of("30"), "retry-1"));
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> accountService.handleOperation(1L, CREDIT, Money.of("20"), "retry-1"));
+        verifyNoInteractions(balanceEngine);
+    }
+
+    @Test
+    @DisplayName("Operation with a new idempotency key records the key with the operation and remembers its result")
+    void shouldRecordKey_whenIdempotencyKeyIsNew(){
+        Account account = Account.builder().id(1L).balance(Money.of("100")).build();
+        OperationDto created = new OperationDto(7L, DEBIT, Money.of("20"), Money.of("120"), LocalDateTime.now(), null);
+        executeOn(account);
+        when(idempotencyKeyStore.isEnabled()).thenReturn(true);
+        when(idempotencyKeyStore.find(1L, "retry-1")).thenReturn(Optional.empty());
+        when(operationService.createOperation(account, DEBIT, Money.of("20"))).thenReturn(created);
+
+        OperationDto operation = accountService.handleOperation(1L, DEBIT, Money.of("20"), "retry-1");
+
+        assertThat(operation).isSameAs(created);
+        verify(idempotencyKeyStore).save(1L, "retry-1", created);
+        verify(idempotencyKeyStore).remember(1L, "retry-1", created);
+    }
+
+    @Test
+    @DisplayName("Concurrent request with the same idempotency key replays the operation committed first")
+    void shouldReplayFirstOperation_whenKeyInsertIsRejected(){
+        OperationDto first = new OperationDto(7L, DEBIT, Money.of("20"), Money.of("120"), LocalDateTime.now(), null);
+        when(idempotencyKeyStore.isEnabled()).thenReturn(true);
+        when(idempotencyKeyStore.find(1L, "retry-1")).thenReturn(Optional.empty());
+        when(balanceEngine.execute(any(), any(), any())).thenThrow(new DuplicateKeyException("idempotency_key"));
+        when(idempotencyKeyStore.load(1L, "retry-1")).thenReturn(Optional.of(first));
+
+        OperationDto operation = accountService.handleOperation(1L, DEBIT, Money.of("20"), "retry-1");
+
+        assertThat(operation).isSameAs(first);
     }
 
+    @Test
+    @DisplayName("Idempotency keys are refused when they are disabled")
+    void shouldRefuseIdempotencyKey_whenKeysAreDisabled(){
+        when(idempotencyKeyStore.isEnabled()).thenReturn(false);
+        assertThrows(IdempotencyKeysDisabledException.class,
+                () -> accountService.handleOperation(1L, DEBIT, Money.of("20"), "retry-1"));
+        verifyNoInteractions(balanceEngine);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    @DisplayName("Operations on a hot account are applied by the hot account engine")
+    void shouldHandOverToHotAccountEngine_whenAccountIsHot(){
+        Account mockAccount = mock(Account.class);
+        Money amount = Money.of("20.99");
+        when(hotAccountEngine.isHot(1L)).thenReturn(true);
+        when(hotAccountEngine.execute(eq(1L), eq(DEBIT), any(), any(), any())).thenAnswer(invocation -> {
+            invocation.getArgument(2, Consumer.class).accept(mockAccount);
+            return invocation.getArgument(3, Function.class).apply(mockAccount);
+        });
+
+        accountService.handleOperation(1L, DEBIT, amount);
+
+        verify(mockAccount).debit(amount);
+        verify(operationService).createOperation(mockAccount, DEBIT, amount);
+        verifyNoInteractions(balanceEngine);
+    }
+
+    private void executeOn(Account account) {
+        when(balanceEngine.execute(any(), any(), any())).thenAnswer(invocation -> {
+            invocation.getArgument(1, Consumer.class).accept(account);
+            return invocation.getArgument(2, Function.class).apply(account);
+        });
+    }
 
 }
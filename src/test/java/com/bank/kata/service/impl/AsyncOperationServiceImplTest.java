@@ -0,0 +1,151 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.OperationTicketDto;
+import com.bank.kata.enums.TicketStatus;
+import com.bank.kata.exception.InsufficientBalanceException;
+import com.bank.kata.exception.OperationQueueFullException;
+import com.bank.kata.exception.TicketNotFoundException;
+import com.bank.kata.model.Money;
+import com.bank.kata.service.AccountService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.bank.kata.enums.OperationType.CREDIT;
+import static com.bank.kata.enums.OperationType.DEBIT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncOperationServiceImplTest {
+
+    @Mock
+    AccountService accountService;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    AsyncOperationServiceImpl asyncOperationService;
+
+    @AfterEach
+    void tearDown() {
+        asyncOperationService.stop();
+    }
+
+    @Test
+    @DisplayName("Submitted operation is handled by a worker and its outcome awaited with the ticket")
+    void shouldHandleSubmittedOperation_andCompleteTicket() throws Exception {
+        start(2, 8);
+        OperationDto operation = new OperationDto(1L, DEBIT, Money.of("10"), Money.of("110"), null, null);
+        when(accountService.handleOperation(1L, DEBIT, Money.of("10"))).thenReturn(operation);
+
+        OperationTicketDto submitted = asyncOperationService.submit(1L, DEBIT, Money.of("10"));
+        OperationTicketDto completed = asyncOperationService.awaitTicket(submitted.ticket(), Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+
+        assertThat(completed.status()).isEqualTo(TicketStatus.SUCCEEDED);
+        assertThat(completed.operation()).isEqualTo(operation);
+        assertThat(asyncOperationService.getTicket(submitted.ticket()).status()).isEqualTo(TicketStatus.SUCCEEDED);
+    }
+
+    @Test
+    @DisplayName("Failed operation completes its ticket with the reason of the failure")
+    void shouldFailTicket_whenOperationFails() throws Exception {
+        start(2, 8);
+        when(accountService.handleOperation(any(), any(), any())).thenThrow(new InsufficientBalanceException());
+
+        OperationTicketDto submitted = asyncOperationService.submit(1L, CREDIT, Money.of("10"));
+        OperationTicketDto completed = asyncOperationService.awaitTicket(submitted.ticket(), Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+
+        assertThat(completed.status()).isEqualTo(TicketStatus.FAILED);
+        assertThat(completed.error()).isEqualTo("Balance less than requested amount");
+    }
+
+    @Test
+    @DisplayName("Pending ticket is returned once the wait is over")
+    void shouldReturnPendingTicket_whenWaitIsOver() throws Exception {
+        asyncOperationService = new AsyncOperationServiceImpl(accountService, meterRegistry, 1, 4, 100, Duration.ofMinutes(1));
+
+        OperationTicketDto submitted = asyncOperationService.submit(1L, DEBIT, Money.of("10"));
+        OperationTicketDto polled = asyncOperationService.awaitTicket(submitted.ticket(), Duration.ofMillis(50)).get(5, TimeUnit.SECONDS);
+
+        assertThat(polled.status()).isEqualTo(TicketStatus.PENDING);
+        verifyNoInteractions(accountService);
+    }
+
+    @Test
+    @DisplayName("Pending tickets are kept beyond the completed tickets limit")
+    void shouldKeepPendingTickets_beyondMaxTickets() throws Exception {
+        asyncOperationService = new AsyncOperationServiceImpl(accountService, meterRegistry, 1, 64, 2, Duration.ofMinutes(1));
+        List<UUID> submitted = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            submitted.add(asyncOperationService.submit(1L, DEBIT, Money.of("10")).ticket());
+        }
+        // the eviction of the completed tickets runs asynchronously
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        for (UUID ticket : submitted) {
+            assertThat(asyncOperationService.getTicket(ticket).status()).isEqualTo(TicketStatus.PENDING);
+        }
+    }
+
+    @Test
+    @DisplayName("Submission is rejected when the queue of the account is full")
+    void shouldRejectSubmission_whenQueueIsFull() {
+        asyncOperationService = new AsyncOperationServiceImpl(accountService, meterRegistry, 1, 2, 100, Duration.ofMinutes(1));
+
+        asyncOperationService.submit(1L, DEBIT, Money.of("10"));
+        asyncOperationService.submit(2L, DEBIT, Money.of("10"));
+
+        assertThrows(OperationQueueFullException.class, () -> asyncOperationService.submit(1L, DEBIT, Money.of("10")));
+        assertThat(meterRegistry.get("kata.async.rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("kata.async.queue.size").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Operations of an account are handled in submission order")
+    void shouldHandleOperationsOfAccount_inSubmissionOrder() throws Exception {
+        start(4, 128);
+        CountDownLatch handled = new CountDownLatch(20);
+        when(accountService.handleOperation(eq(1L), any(), any())).thenAnswer(invocation -> {
+            handled.countDown();
+            return null;
+        });
+
+        for (int i = 1; i <= 20; i++) {
+            asyncOperationService.submit(1L, DEBIT, Money.of(String.valueOf(i)));
+        }
+
+        assertThat(handled.await(5, TimeUnit.SECONDS)).isTrue();
+        InOrder inOrder = inOrder(accountService);
+        for (int i = 1; i <= 20; i++) {
+            inOrder.verify(accountService).handleOperation(1L, DEBIT, Money.of(String.valueOf(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("Unknown ticket is reported as not found")
+    void shouldFail_whenTicketIsUnknown() {
+        start(1, 4);
+        assertThrows(TicketNotFoundException.class, () -> asyncOperationService.getTicket(UUID.randomUUID()));
+    }
+
+    private void start(int workers, int queueCapacity) {
+        asyncOperationService = new AsyncOperationServiceImpl(accountService, meterRegistry, workers, queueCapacity, 100, Duration.ofMinutes(1));
+        asyncOperationService.start();
+    }
+}
@@ -0,0 +1,149 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.archive.OperationTiers;
+import com.bank.kata.cache.AccountReadCache;
+import com.bank.kata.dto.BalanceDto;
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.model.BalanceSnapshot;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import com.bank.kata.repository.AccountRepository;
+import com.bank.kata.repository.BalanceSnapshotRepository;
+import com.bank.kata.repository.OperationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceServiceImplTest {
+
+    private static final LocalDateTime AT = LocalDateTime.of(2024, 12, 16, 12, 0);
+
+    @Mock
+    AccountRepository accountRepository;
+
+    @Mock
+    OperationRepository operationRepository;
+
+    @Mock
+    BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Mock
+    OperationTiers operationTiers;
+
+    @Spy
+    AccountReadCache accountReadCache = new AccountReadCache(new SimpleMeterRegistry(), false, 1, 1, Duration.ofMinutes(1));
+
+    @InjectMocks
+    BalanceServiceImpl balanceService;
+
+    @Test
+    void shouldReturnSnapshotBalance_whenNoOperationSinceSnapshot(){
+        givenSnapshot(AT.minusHours(1), Money.of("300"));
+        when(operationRepository.findLatestBetween(eq(1L), eq(AT.minusHours(1)), eq(AT), any())).thenReturn(List.of());
+
+        BalanceDto balance = balanceService.getBalanceAt(1L, AT);
+
+        Assertions.assertThat(balance.balance()).isEqualTo(Money.of("300"));
+        verify(operationRepository, never()).findLatestUntil(any(), any(), any());
+    }
+
+    @Test
+    void shouldReturnBalanceOfLastOperationSinceSnapshot(){
+        givenSnapshot(AT.minusHours(1), Money.of("300"));
+        when(operationRepository.findLatestBetween(eq(1L), eq(AT.minusHours(1)), eq(AT), any()))
+                .thenReturn(List.of(operation(OperationType.DEBIT, 20, 320)));
+
+        Assertions.assertThat(balanceService.getBalanceAt(1L, AT).balance()).isEqualTo(Money.of("320"));
+    }
+
+    @Test
+    void shouldReturnBalanceOfLastOperation_whenNoSnapshot(){
+        when(balanceSnapshotRepository.findFirstByAccountIdAndDateTimeLessThanEqualOrderByDateTimeDesc(1L, AT)).thenReturn(Optional.empty());
+        when(operationRepository.findLatestUntil(eq(1L), eq(AT), any())).thenReturn(List.of(operation(OperationType.CREDIT, 20, 80)));
+
+        Assertions.assertThat(balanceService.getBalanceAt(1L, AT).balance()).isEqualTo(Money.of("80"));
+    }
+
+    @Test
+    void shouldReturnBalanceBeforeFirstOperation_whenNoOperationBefore(){
+        when(balanceSnapshotRepository.findFirstByAccountIdAndDateTimeLessThanEqualOrderByDateTimeDesc(1L, AT)).thenReturn(Optional.empty());
+        when(operationRepository.findLatestUntil(eq(1L), eq(AT), any())).thenReturn(List.of());
+        when(operationRepository.findFirstAfter(eq(1L), eq(AT), any())).thenReturn(List.of(operation(OperationType.CREDIT, 20, 80)));
+
+        Assertions.assertThat(balanceService.getBalanceAt(1L, AT).balance()).isEqualTo(Money.of("100"));
+    }
+
+    @Test
+    void shouldReadArchivedOperations_whenOperationTableHasNoneBefore(){
+        when(balanceSnapshotRepository.findFirstByAccountIdAndDateTimeLessThanEqualOrderByDateTimeDesc(1L, AT)).thenReturn(Optional.empty());
+        when(operationRepository.findLatestUntil(eq(1L), eq(AT), any())).thenReturn(List.of());
+        when(operationTiers.findLatestArchived(1L, null, AT))
+                .thenReturn(Optional.of(new OperationDto(1L, OperationType.DEBIT, Money.of("20"), Money.of("70"), AT.minusMonths(4), null)));
+
+        Assertions.assertThat(balanceService.getBalanceAt(1L, AT).balance()).isEqualTo(Money.of("70"));
+        verify(operationRepository, never()).findFirstAfter(any(), any(), any());
+    }
+
+    @Test
+    void shouldReturnBalanceBeforeFirstArchivedOperation_beforeOperationTable(){
+        when(balanceSnapshotRepository.findFirstByAccountIdAndDateTimeLessThanEqualOrderByDateTimeDesc(1L, AT)).thenReturn(Optional.empty());
+        when(operationRepository.findLatestUntil(eq(1L), eq(AT), any())).thenReturn(List.of());
+        when(operationTiers.findFirstArchivedAfter(1L, AT))
+                .thenReturn(Optional.of(new OperationDto(1L, OperationType.DEBIT, Money.of("20"), Money.of("70"), AT.plusDays(1), null)));
+
+        Assertions.assertThat(balanceService.getBalanceAt(1L, AT).balance()).isEqualTo(Money.of("50"));
+        verify(operationRepository, never()).findFirstAfter(any(), any(), any());
+    }
+
+    @Test
+    void shouldReturnCurrentBalance_whenNoOperationAtAll(){
+        when(balanceSnapshotRepository.findFirstByAccountIdAndDateTimeLessThanEqualOrderByDateTimeDesc(1L, AT)).thenReturn(Optional.empty());
+        when(accountRepository.findTotalBalance(1L)).thenReturn(Optional.of(new BigDecimal("1000.00")));
+
+        Assertions.assertThat(balanceService.getBalanceAt(1L, AT).balance()).isEqualTo(Money.of("1000"));
+    }
+
+    @Test
+    void shouldThrowException_whenAccountDoesNotExist(){
+        when(balanceSnapshotRepository.findFirstByAccountIdAndDateTimeLessThanEqualOrderByDateTimeDesc(1L, AT)).thenReturn(Optional.empty());
+        when(accountRepository.findTotalBalance(1L)).thenReturn(Optional.empty());
+
+        assertThrows(AccountNotFoundException.class, () -> balanceService.getBalanceAt(1L, AT));
+    }
+
+    @Test
+    void shouldWriteSnapshots_withOneSetBasedStatement(){
+        when(balanceSnapshotRepository.insertLatestUntil(AT)).thenReturn(2);
+
+        Assertions.assertThat(balanceService.checkpoint(AT)).isEqualTo(2);
+        verifyNoInteractions(accountRepository, operationRepository);
+    }
+
+    private void givenSnapshot(LocalDateTime dateTime, Money balance) {
+        when(balanceSnapshotRepository.findFirstByAccountIdAndDateTimeLessThanEqualOrderByDateTimeDesc(1L, AT))
+                .thenReturn(Optional.of(BalanceSnapshot.builder().accountId(1L).dateTime(dateTime).balance(balance).lastOperationId(1L).build()));
+    }
+
+    private static Operation operation(OperationType type, long amount, long balanceAfter) {
+        return Operation.builder().type(type).amount(Money.of(amount, 0)).balanceAfterOp(Money.of(balanceAfter, 0)).build();
+    }
+}
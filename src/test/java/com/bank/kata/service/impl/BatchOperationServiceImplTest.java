@@ -0,0 +1,167 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.dto.BatchOperationItemDto;
+import com.bank.kata.dto.BatchOperationRequestDto;
+import com.bank.kata.dto.BatchOperationResultDto;
+import com.bank.kata.dto.BatchOperationItemResultDto;
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.engine.BalanceEngine;
+import com.bank.kata.engine.HotAccountEngine;
+import com.bank.kata.enums.BatchItemStatus;
+import com.bank.kata.enums.BatchMode;
+import com.bank.kata.journal.OperationJournal;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.repository.AccountRepository;
+import com.bank.kata.service.OperationService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static com.bank.kata.enums.OperationType.CREDIT;
+import static com.bank.kata.enums.OperationType.DEBIT;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchOperationServiceImplTest {
+
+    @Mock
+    BalanceEngine balanceEngine;
+
+    @Mock
+    HotAccountEngine hotAccountEngine;
+
+    @Mock
+    AccountRepository accountRepository;
+
+    @Mock
+    OperationService operationService;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    OperationJournal operationJournal;
+
+    BatchOperationServiceImpl batchOperationService;
+
+    SimpleTransactionStatus transactionStatus = new SimpleTransactionStatus();
+
+    @BeforeEach
+    void setUp() {
+        batchOperationService = new BatchOperationServiceImpl(balanceEngine, hotAccountEngine, accountRepository, operationService, transactionManager, operationJournal);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        when(hotAccountEngine.exclusively(anyCollection(), any())).thenAnswer(invocation -> invocation.getArgument(1, Supplier.class).get());
+        when(balanceEngine.executeExclusively(anyCollection(), any())).thenAnswer(invocation -> invocation.getArgument(1, Supplier.class).get());
+        when(accountRepository.findAllById(any())).thenReturn(List.of(
+                Account.builder().id(1L).balance(Money.of("100")).build(),
+                Account.builder().id(2L).balance(Money.of("10")).build()));
+    }
+
+    @Test
+    void shouldApplyOperationsInOrder_andLoadAccountsOnce(){
+        when(operationService.createOperation(any(), any(), any())).thenAnswer(invocation -> {
+            Account account = invocation.getArgument(0);
+            return new OperationDto(1L, invocation.getArgument(1), invocation.getArgument(2), account.getBalance(), null, null);
+        });
+
+        BatchOperationResultDto result = batchOperationService.handleOperations(request(BatchMode.ALL_OR_NOTHING,
+                item(2L, DEBIT, 10), item(2L, CREDIT, 15), item(1L, DEBIT, 1)));
+
+        Assertions.assertThat(result.results()).extracting(BatchOperationItemResultDto::status).containsOnly(BatchItemStatus.SUCCEEDED);
+        Assertions.assertThat(result.results()).extracting(item -> item.operation().balance())
+                .usingElementComparator(Money::compareTo)
+                .containsExactly(Money.of("20"), Money.of("5"), Money.of("101"));
+        Assertions.assertThat(result.succeeded()).isEqualTo(3);
+        Assertions.assertThat(transactionStatus.isRollbackOnly()).isFalse();
+        verify(accountRepository, times(1)).findAllById(Set.of(1L, 2L));
+        verify(balanceEngine).executeExclusively(eq(Set.of(1L, 2L)), any());
+    }
+
+    @Test
+    void shouldRollBackEveryOperation_whenOneFails_inAllOrNothingMode(){
+        BatchOperationResultDto result = batchOperationService.handleOperations(request(BatchMode.ALL_OR_NOTHING,
+                item(1L, DEBIT, 1), item(2L, CREDIT, 50), item(3L, DEBIT, 1)));
+
+        Assertions.assertThat(result.committed()).isFalse();
+        Assertions.assertThat(result.results()).extracting(BatchOperationItemResultDto::status)
+                .containsExactly(BatchItemStatus.ROLLED_BACK, BatchItemStatus.FAILED, BatchItemStatus.FAILED);
+        Assertions.assertThat(result.results().get(1).error()).isEqualTo("Balance less than requested amount");
+        Assertions.assertThat(result.results().get(2).error()).isEqualTo("Account not found by id 3");
+        Assertions.assertThat(transactionStatus.isRollbackOnly()).isTrue();
+    }
+
+    @Test
+    void shouldCommitSucceededOperations_whenOneFails_inBestEffortMode(){
+        BatchOperationResultDto result = batchOperationService.handleOperations(request(BatchMode.BEST_EFFORT,
+                item(1L, DEBIT, 1), item(2L, CREDIT, 50)));
+
+        Assertions.assertThat(result.committed()).isTrue();
+        Assertions.assertThat(result.succeeded()).isEqualTo(1);
+        Assertions.assertThat(result.failed()).isEqualTo(1);
+        Assertions.assertThat(result.results()).extracting(BatchOperationItemResultDto::status)
+                .containsExactly(BatchItemStatus.SUCCEEDED, BatchItemStatus.FAILED);
+        Assertions.assertThat(transactionStatus.isRollbackOnly()).isFalse();
+        verify(operationService, times(1)).createOperation(any(), any(), any());
+    }
+
+    @Test
+    void shouldApplyOperationsOnJournaledBalances_asOneJournalGroup_inJournalMode(){
+        givenJournalMode();
+        when(operationJournal.balanceOf(1L)).thenReturn(Optional.of(Money.of("500")));
+        when(operationService.createOperation(any(), any(), any())).thenAnswer(invocation -> {
+            Account account = invocation.getArgument(0);
+            return new OperationDto(1L, invocation.getArgument(1), invocation.getArgument(2), account.getBalance(), null, null);
+        });
+
+        BatchOperationResultDto result = batchOperationService.handleOperations(request(BatchMode.ALL_OR_NOTHING,
+                item(1L, CREDIT, 100), item(2L, DEBIT, 5)));
+
+        Assertions.assertThat(result.committed()).isTrue();
+        Assertions.assertThat(result.results()).extracting(item -> item.operation().balance())
+                .usingElementComparator(Money::compareTo)
+                .containsExactly(Money.of("400"), Money.of("15"));
+        verify(operationJournal).atomically(any());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void shouldDropJournalGroup_whenOneFails_inAllOrNothingJournalMode(){
+        givenJournalMode();
+
+        BatchOperationResultDto result = batchOperationService.handleOperations(request(BatchMode.ALL_OR_NOTHING,
+                item(1L, DEBIT, 1), item(2L, CREDIT, 50)));
+
+        Assertions.assertThat(result.committed()).isFalse();
+        Assertions.assertThat(result.results()).extracting(BatchOperationItemResultDto::status)
+                .containsExactly(BatchItemStatus.ROLLED_BACK, BatchItemStatus.FAILED);
+        verifyNoInteractions(transactionManager);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenJournalMode() {
+        when(operationJournal.isEnabled()).thenReturn(true);
+        // the group is written only when the work returns, as the journal does
+        when(operationJournal.atomically(any())).thenAnswer(invocation -> invocation.getArgument(0, Supplier.class).get());
+    }
+
+    private static BatchOperationRequestDto request(BatchMode mode, BatchOperationItemDto... items) {
+        return BatchOperationRequestDto.builder().mode(mode).operations(List.of(items)).build();
+    }
+
+    private static BatchOperationItemDto item(Long accountId, com.bank.kata.enums.OperationType type, long amount) {
+        return BatchOperationItemDto.builder().accountId(accountId).type(type).amount(Money.of(amount, 0)).build();
+    }
+}
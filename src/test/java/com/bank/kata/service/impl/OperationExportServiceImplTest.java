@@ -0,0 +1,141 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.archive.OperationTiers;
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.enums.ExportFormat;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.model.Money;
+import com.bank.kata.repository.AccountRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OperationExportServiceImplTest {
+
+    @Mock
+    AccountRepository accountRepository;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    OperationTiers operationTiers;
+
+    OperationExportServiceImpl operationExportService;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        operationExportService = new OperationExportServiceImpl(accountRepository, jdbcTemplate, objectMapper, operationTiers);
+    }
+
+    @Test
+    void shouldThrowException_beforeStreaming_whenAccountDoesNotExist(){
+        when(accountRepository.existsById(1L)).thenReturn(false);
+        assertThrows(
+                AccountNotFoundException.class,
+                () -> operationExportService.exportOperations(1L, ExportFormat.CSV, null, null)
+        );
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void shouldWriteOneCsvLinePerOperation() throws Exception{
+        givenOperations();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        operationExportService.exportOperations(1L, ExportFormat.CSV, null, null).writeTo(out);
+
+        Assertions.assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                id,type,amount,balance,dateTime,transferId
+                1,DEBIT,10.00,110.00,2024-12-16T10:00,
+                2,CREDIT,5.00,105.00,2024-12-16T11:00,8f14e45f-ceea-467f-a0e6-7d4a3c2b1a90
+                """);
+    }
+
+    @Test
+    void shouldWriteOneJsonDocumentPerLine_andBindDateRange() throws Exception{
+        givenOperations();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LocalDateTime from = LocalDateTime.of(2024, 12, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        operationExportService.exportOperations(1L, ExportFormat.NDJSON, from, to).writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertThat(lines).hasSize(2);
+        Assertions.assertThat(lines[0]).startsWith("{\"id\":1,\"type\":\"DEBIT\"");
+        Assertions.assertThat(lines[1]).startsWith("{\"id\":2,\"type\":\"CREDIT\"");
+        verify(jdbcTemplate).query(contains("creation_date_time >= ? AND creation_date_time < ?"), any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void shouldWriteArchivedOperations_beforeOperationTable() throws Exception{
+        givenOperations();
+        doAnswer(invocation -> {
+            invocation.<Consumer<OperationDto>>getArgument(3).accept(new OperationDto(
+                    0L, OperationType.DEBIT, Money.of("100"), Money.of("100"), LocalDateTime.of(2024, 6, 1, 9, 0), null));
+            return null;
+        }).when(operationTiers).forEachArchived(eq(1L), any(), any(), any());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        operationExportService.exportOperations(1L, ExportFormat.CSV, null, null).writeTo(out);
+
+        Assertions.assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                id,type,amount,balance,dateTime,transferId
+                0,DEBIT,100.00,100.00,2024-06-01T09:00,
+                1,DEBIT,10.00,110.00,2024-12-16T10:00,
+                2,CREDIT,5.00,105.00,2024-12-16T11:00,8f14e45f-ceea-467f-a0e6-7d4a3c2b1a90
+                """);
+    }
+
+    private void givenOperations() throws Exception {
+        when(accountRepository.existsById(1L)).thenReturn(true);
+        doAnswer(invocation -> {
+            PreparedStatement ps = mock(PreparedStatement.class);
+            invocation.<PreparedStatementSetter>getArgument(1).setValues(ps);
+            verify(ps).setFetchSize(OperationExportServiceImpl.FETCH_SIZE);
+            RowCallbackHandler handler = invocation.getArgument(2);
+            handler.processRow(row(1L, "DEBIT", "10.00", "110.00", LocalDateTime.of(2024, 12, 16, 10, 0), null));
+            handler.processRow(row(2L, "CREDIT", "5.00", "105.00", LocalDateTime.of(2024, 12, 16, 11, 0), "8f14e45f-ceea-467f-a0e6-7d4a3c2b1a90"));
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+    }
+
+    private static ResultSet row(Long id, String type, String amount, String balance, LocalDateTime dateTime, String transferId) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getString("type")).thenReturn(type);
+        when(rs.getBigDecimal("amount")).thenReturn(new BigDecimal(amount));
+        when(rs.getBigDecimal("balance_after_op")).thenReturn(new BigDecimal(balance));
+        when(rs.getTimestamp("creation_date_time")).thenReturn(Timestamp.valueOf(dateTime));
+        when(rs.getString("transfer_id")).thenReturn(transferId);
+        return rs;
+    }
+}
@@ -1,12 +1,22 @@
 package com.bank.kata.service.impl;
 
+import com.bank.kata.archive.OperationTiers;
+import com.bank.kata.cache.AccountReadCache;
+import com.bank.kata.dto.OperationCursor;
 import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.OperationSliceDto;
 import com.bank.kata.enums.OperationType;
+import com.bank.kata.event.OperationCreatedEvent;
+import com.bank.kata.exception.InvalidCursorException;
 import com.bank.kata.exception.OperationsNotFoundException;
+import com.bank.kata.journal.OperationJournal;
 import com.bank.kata.mapper.OperationMapper;
 import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
 import com.bank.kata.model.Operation;
+import com.bank.kata.outbox.OperationOutbox;
 import com.bank.kata.repository.OperationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,17 +24,21 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
@@ -37,6 +51,21 @@ class OperationServiceImplTest {
     @Mock
     OperationMapper operationMapper;
 
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    OperationJournal operationJournal;
+
+    @Mock
+    OperationOutbox operationOutbox;
+
+    @Mock
+    OperationTiers operationTiers;
+
+    @Spy
+    AccountReadCache accountReadCache = new AccountReadCache(new SimpleMeterRegistry(), false, 1, 1, Duration.ofMinutes(1));
+
     @InjectMocks
     OperationServiceImpl operationService;
 
@@ -44,32 +73,64 @@ class OperationServiceImplTest {
     void shouldPersistOperation(){
         Account account = Account.builder()
                 .id(1L)
-                .balance(BigDecimal.ZERO)
+                .balance(Money.ZERO)
                 .build();
         LocalDateTime localDateTime = LocalDateTime.now();
-        operationService.createOperation(account, OperationType.DEBIT,BigDecimal.TEN);
+        Mockito.when(operationRepository.save(Mockito.any(Operation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        operationService.createOperation(account, OperationType.DEBIT,Money.of("10"));
         ArgumentCaptor<Operation> operationCapture = ArgumentCaptor.forClass(Operation.class);
         Mockito.verify(operationRepository,times(1)).save(operationCapture.capture());
         Operation operation = operationCapture.getValue();
-        Assertions.assertThat(operation.getAmount()).isEqualByComparingTo(BigDecimal.TEN);
+        Assertions.assertThat(operation.getAmount()).isEqualByComparingTo(Money.of("10"));
         Assertions.assertThat(operation.getType()).isEqualTo(OperationType.DEBIT);
         Assertions.assertThat(operation.getAccount()).isEqualTo(account);
         Assertions.assertThat(operation.getDateTime()).isAfterOrEqualTo(localDateTime);
         Assertions.assertThat(operation.getDateTime()).isBefore(LocalDateTime.now());
         Assertions.assertThat(operation.getBalanceAfterOp()).isEqualByComparingTo(account.getBalance());
+        Mockito.verify(eventPublisher,times(1)).publishEvent(new OperationCreatedEvent(operation));
+        Mockito.verify(operationOutbox).add(operation);
+    }
+
+    @Test
+    void shouldJournalOperation_insteadOfPersisting_whenJournalEnabled(){
+        Account account = Account.builder().id(1L).balance(Money.of("10")).build();
+        Mockito.when(operationJournal.isEnabled()).thenReturn(true);
+        Mockito.when(operationJournal.append(any())).thenAnswer(invocation -> {
+            Operation operation = invocation.getArgument(0);
+            operation.setId(42L);
+            return operation;
+        });
+        Mockito.when(operationMapper.toDto(any())).thenAnswer(invocation -> new OperationDto(invocation.getArgument(0, Operation.class).getId(), null, null, null, null, null));
+
+        OperationDto operation = operationService.createOperation(account, OperationType.CREDIT, Money.of("1"));
+
+        Assertions.assertThat(operation.id()).isEqualTo(42L);
+        Mockito.verifyNoInteractions(operationRepository, eventPublisher, operationOutbox);
+    }
+
+    @Test
+    void shouldRecordBalance_andInvalidateCachedReads(){
+        LocalDateTime dateTime = LocalDateTime.now();
+        OperationDto operation = new OperationDto(7L, OperationType.DEBIT, Money.of("10"), Money.of("110"), dateTime, null);
+
+        OperationDto recorded = operationService.recordBalance(1L, operation, Money.of("130"));
+
+        Assertions.assertThat(recorded).isEqualTo(new OperationDto(7L, OperationType.DEBIT, Money.of("10"), Money.of("130"), dateTime, null));
+        Mockito.verify(operationRepository).updateBalanceAfterOp(7L, Money.of("130"));
+        Mockito.verify(accountReadCache).invalidate(1L);
     }
 
     @Test
     void shouldReturnOperationList(){
-        Operation operation = Operation.builder().type(OperationType.DEBIT).amount(BigDecimal.TEN).dateTime(LocalDateTime.now()).build();
-        when(operationRepository.findByAccountId(any(),any())).thenReturn(new PageImpl<>(List.of(operation)));
+        OperationDto operation = new OperationDto(1L, OperationType.DEBIT, Money.of("10"), Money.of("10"), LocalDateTime.now(), null);
+        when(operationTiers.findPage(any(),any())).thenReturn(new PageImpl<>(List.of(operation)));
         Page<OperationDto> accountOperations = operationService.getAccountOperations(1L, PageRequest.of(2, 2));
         Assertions.assertThat(accountOperations.getTotalElements()).isEqualTo(1);
     }
 
     @Test
     void shouldThrowException_whenNoOperationFound(){
-        when(operationRepository.findByAccountId(any(),any())).thenReturn(new PageImpl<>(List.of()));
+        when(operationTiers.findPage(any(),any())).thenReturn(new PageImpl<>(List.of()));
         PageRequest pageRequest = PageRequest.of(1, 2);
         OperationsNotFoundException thrown = assertThrows(
                 OperationsNotFoundException.class,
@@ -77,4 +138,50 @@ class OperationServiceImplTest {
         );
         Assertions.assertThat(thrown.getMessage()).isEqualTo("No Operations found for requested account");
     }
+
+    @Test
+    void shouldReturnFirstSlice_withCursorOnLastOperation_whenMoreOperationsExist(){
+        LocalDateTime now = LocalDateTime.now();
+        List<OperationDto> operations = List.of(operation(3L, now), operation(2L, now.minusSeconds(1)), operation(1L, now.minusSeconds(2)));
+        when(operationTiers.findLatest(1L, 3)).thenReturn(operations);
+
+        OperationSliceDto slice = operationService.getAccountOperationHistory(1L, null, 2);
+
+        Assertions.assertThat(slice.content()).extracting(OperationDto::id).containsExactly(3L, 2L);
+        Assertions.assertThat(OperationCursor.decode(slice.nextCursor())).isEqualTo(new OperationCursor(now.minusSeconds(1), 2L));
+    }
+
+    @Test
+    void shouldReturnSliceAfterCursor_withoutNextCursor_whenLastSlice(){
+        LocalDateTime now = LocalDateTime.now();
+        String cursor = new OperationCursor(now, 3L).encode();
+        when(operationTiers.findOlderThan(eq(1L), eq(now), eq(3L), eq(3)))
+                .thenReturn(List.of(operation(2L, now.minusSeconds(1))));
+
+        OperationSliceDto slice = operationService.getAccountOperationHistory(1L, cursor, 2);
+
+        Assertions.assertThat(slice.content()).extracting(OperationDto::id).containsExactly(2L);
+        Assertions.assertThat(slice.nextCursor()).isNull();
+    }
+
+    @Test
+    void shouldThrowException_whenNoOperationInHistory(){
+        when(operationTiers.findLatest(any(), anyInt())).thenReturn(List.of());
+        assertThrows(
+                OperationsNotFoundException.class,
+                () -> operationService.getAccountOperationHistory(1L, null, 2)
+        );
+    }
+
+    @Test
+    void shouldThrowException_whenCursorIsInvalid(){
+        assertThrows(
+                InvalidCursorException.class,
+                () -> operationService.getAccountOperationHistory(1L, "not-a-cursor", 2)
+        );
+    }
+
+    private static OperationDto operation(Long id, LocalDateTime dateTime) {
+        return new OperationDto(id, OperationType.DEBIT, Money.of("10"), Money.of("10"), dateTime, null);
+    }
 }
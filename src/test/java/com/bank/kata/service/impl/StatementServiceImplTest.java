@@ -0,0 +1,117 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.dto.StatementDto;
+import com.bank.kata.enums.OperationType;
+import com.bank.kata.event.OperationCreatedEvent;
+import com.bank.kata.exception.AccountNotFoundException;
+import com.bank.kata.exception.InvalidPeriodException;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.DailyRollup;
+import com.bank.kata.model.Money;
+import com.bank.kata.model.Operation;
+import com.bank.kata.repository.DailyRollupRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatementServiceImplTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 12, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 12, 31);
+
+    @Mock
+    DailyRollupRepository dailyRollupRepository;
+
+    @InjectMocks
+    StatementServiceImpl statementService;
+
+    @Test
+    void shouldUpsertRollupOfTheDay_withDeposit(){
+        statementService.onOperationCreated(new OperationCreatedEvent(operation(OperationType.DEBIT, 30, 130, LocalDateTime.of(2024, 12, 16, 10, 0), 0)));
+
+        verify(dailyRollupRepository).upsert(1L, LocalDate.of(2024, 12, 16), 0, new BigDecimal("30.00"), new BigDecimal("0.00"), 1, 0);
+        verifyNoMoreInteractions(dailyRollupRepository);
+    }
+
+    @Test
+    void shouldUpsertRollupOfTheDay_withWithdrawal(){
+        statementService.onOperationCreated(new OperationCreatedEvent(operation(OperationType.CREDIT, 20, 110, LocalDateTime.of(2024, 12, 16, 11, 0), 0)));
+
+        verify(dailyRollupRepository).upsert(1L, LocalDate.of(2024, 12, 16), 0, new BigDecimal("0.00"), new BigDecimal("20.00"), 0, 1);
+        verifyNoMoreInteractions(dailyRollupRepository);
+    }
+
+    @Test
+    void shouldUpsertRollupOfTheShard_withDepositOnSubBalance(){
+        statementService.onOperationCreated(new OperationCreatedEvent(operation(OperationType.DEBIT, 30, 130, LocalDateTime.of(2024, 12, 16, 10, 0), 3)));
+
+        verify(dailyRollupRepository).upsert(1L, LocalDate.of(2024, 12, 16), 3, new BigDecimal("30.00"), new BigDecimal("0.00"), 1, 0);
+    }
+
+    @Test
+    void shouldSumRollups_andOpenWithBalanceBeforePeriod(){
+        when(dailyRollupRepository.findByAccountIdAndDateBetweenOrderByDate(1L, FROM, TO)).thenReturn(List.of(
+                rollup(LocalDate.of(2024, 12, 3), 0, 40, 10),
+                rollup(LocalDate.of(2024, 12, 3), 2, 5, 0),
+                rollup(LocalDate.of(2024, 12, 20), 0, 0, 60)));
+        when(dailyRollupRepository.findBalanceBefore(1L, FROM)).thenReturn(Optional.of(new BigDecimal("120.00")));
+
+        StatementDto statement = statementService.getStatement(1L, FROM, TO);
+
+        Assertions.assertThat(statement.openingBalance()).isEqualTo(Money.of("120"));
+        Assertions.assertThat(statement.closingBalance()).isEqualTo(Money.of("95"));
+        Assertions.assertThat(statement.totalDebit()).isEqualTo(Money.of("45"));
+        Assertions.assertThat(statement.totalCredit()).isEqualTo(Money.of("70"));
+        Assertions.assertThat(statement.debitCount()).isEqualTo(2);
+        Assertions.assertThat(statement.creditCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldOpenAndCloseWithBalanceBeforePeriod_whenNoRollup(){
+        when(dailyRollupRepository.findByAccountIdAndDateBetweenOrderByDate(1L, FROM, TO)).thenReturn(List.of());
+        when(dailyRollupRepository.findBalanceBefore(1L, FROM)).thenReturn(Optional.of(new BigDecimal("1000.00")));
+
+        StatementDto statement = statementService.getStatement(1L, FROM, TO);
+
+        Assertions.assertThat(statement.openingBalance()).isEqualTo(Money.of("1000"));
+        Assertions.assertThat(statement.closingBalance()).isEqualTo(Money.of("1000"));
+        Assertions.assertThat(statement.debitCount() + statement.creditCount()).isZero();
+    }
+
+    @Test
+    void shouldThrowException_whenAccountDoesNotExist(){
+        when(dailyRollupRepository.findBalanceBefore(1L, FROM)).thenReturn(Optional.empty());
+        assertThrows(AccountNotFoundException.class, () -> statementService.getStatement(1L, FROM, TO));
+    }
+
+    @Test
+    void shouldThrowException_whenPeriodIsInvalid(){
+        assertThrows(InvalidPeriodException.class, () -> statementService.getStatement(1L, TO, FROM));
+    }
+
+    private static DailyRollup rollup(LocalDate date, int shard, long debit, long credit) {
+        return DailyRollup.builder().accountId(1L).date(date).shard(shard)
+                .totalDebit(Money.of(debit, 0)).totalCredit(Money.of(credit, 0))
+                .debitCount(debit > 0 ? 1 : 0).creditCount(credit > 0 ? 1 : 0)
+                .build();
+    }
+
+    private static Operation operation(OperationType type, long amount, long balanceAfter, LocalDateTime dateTime, int shard) {
+        return Operation.builder().type(type).amount(Money.of(amount, 0)).balanceAfterOp(Money.of(balanceAfter, 0))
+                .dateTime(dateTime).account(Account.builder().id(1L).shard(shard).build()).build();
+    }
+}
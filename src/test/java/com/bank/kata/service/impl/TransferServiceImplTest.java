@@ -0,0 +1,116 @@
+package com.bank.kata.service.impl;
+
+import com.bank.kata.dto.OperationDto;
+import com.bank.kata.dto.TransferDto;
+import com.bank.kata.engine.BalanceEngine;
+import com.bank.kata.engine.HotAccountEngine;
+import com.bank.kata.exception.InsufficientBalanceException;
+import com.bank.kata.exception.InvalidTransferException;
+import com.bank.kata.metrics.OperationMetrics;
+import com.bank.kata.model.Account;
+import com.bank.kata.model.Money;
+import com.bank.kata.service.OperationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.bank.kata.enums.OperationType.CREDIT;
+import static com.bank.kata.enums.OperationType.DEBIT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferServiceImplTest {
+
+    @InjectMocks
+    TransferServiceImpl transferService;
+
+    @Mock
+    BalanceEngine balanceEngine;
+
+    @Mock
+    HotAccountEngine hotAccountEngine;
+
+    @Mock
+    OperationService operationService;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    OperationMetrics operationMetrics = new OperationMetrics(meterRegistry);
+
+    @Test
+    @DisplayName("Transfer withdraws from the source and deposits on the target through the balance engine, in this order of accounts")
+    void shouldCreditSource_andDebitTarget_whenTransfer(){
+        Account from = Account.builder().id(1L).balance(Money.of("100")).build();
+        Account to = Account.builder().id(2L).balance(Money.ZERO).build();
+        executeOn(from, to);
+
+        transferService.handleTransfer(1L, 2L, Money.of("20.99"));
+
+        assertThat(from.getBalance()).isEqualTo(Money.of("79.01"));
+        assertThat(to.getBalance()).isEqualTo(Money.of("20.99"));
+        verify(balanceEngine).executeAll(eq(List.of(1L, 2L)), any(), any());
+    }
+
+    @Test
+    @DisplayName("Both operations of a transfer are linked by the transfer id")
+    void shouldLinkBothOperations_withTransferId(){
+        Account from = Account.builder().id(1L).balance(Money.of("100")).build();
+        Account to = Account.builder().id(2L).balance(Money.ZERO).build();
+        executeOn(from, to);
+        when(operationService.createOperation(any(), any(), any(), any())).thenAnswer(invocation ->
+                new OperationDto(null, invocation.getArgument(1), invocation.getArgument(2), null, null, invocation.getArgument(3)));
+
+        TransferDto transfer = transferService.handleTransfer(1L, 2L, Money.of("10"));
+
+        assertThat(transfer.transferId()).isNotNull();
+        assertThat(transfer.from().transferId()).isEqualTo(transfer.transferId());
+        assertThat(transfer.to().transferId()).isEqualTo(transfer.transferId());
+        verify(operationService).createOperation(from, CREDIT, Money.of("10"), transfer.transferId());
+        verify(operationService).createOperation(to, DEBIT, Money.of("10"), transfer.transferId());
+        Assertions.assertEquals(1, meterRegistry.get(OperationMetrics.OPERATION_TIMER)
+                .tag("type", OperationMetrics.TRANSFER).tag("outcome", OperationMetrics.SUCCESS).timer().count());
+    }
+
+    @Test
+    @DisplayName("Transfer fails when the source balance is not sufficient")
+    void shouldFail_whenInsufficientBalance(){
+        executeOn(Account.builder().id(1L).balance(Money.of("1")).build(), Account.builder().id(2L).balance(Money.ZERO).build());
+
+        assertThrows(InsufficientBalanceException.class, () -> transferService.handleTransfer(1L, 2L, Money.of("10")));
+        verifyNoInteractions(operationService);
+        Assertions.assertEquals(1, meterRegistry.get(OperationMetrics.REJECTED_COUNTER)
+                .tag("type", OperationMetrics.TRANSFER).tag("reason", "InsufficientBalanceException").counter().count());
+    }
+
+    @Test
+    @DisplayName("Transfer to the source account itself is rejected")
+    void shouldFail_whenSourceIsTarget(){
+        assertThrows(InvalidTransferException.class, () -> transferService.handleTransfer(1L, 1L, Money.of("10")));
+        verifyNoInteractions(balanceEngine);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void executeOn(Account from, Account to) {
+        when(hotAccountEngine.exclusively(any(), any())).thenAnswer(invocation -> invocation.getArgument(1, Supplier.class).get());
+        when(balanceEngine.executeAll(any(), any(), any())).thenAnswer(invocation -> {
+            List<Account> accounts = List.of(from, to);
+            invocation.getArgument(1, Consumer.class).accept(accounts);
+            return invocation.getArgument(2, Function.class).apply(accounts);
+        });
+    }
+}